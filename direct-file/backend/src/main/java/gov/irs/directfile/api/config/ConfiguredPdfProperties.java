@@ -15,6 +15,5 @@ public class ConfiguredPdfProperties {
     private String locationType;
     private String configurationLocation;
     private String configurationLocationType;
-    private boolean cacheInMemory;
     private int[] pagesToInclude;
 }
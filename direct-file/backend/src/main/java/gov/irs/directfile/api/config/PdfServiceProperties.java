@@ -18,4 +18,7 @@ public class PdfServiceProperties {
     private String outputLocation;
     private String outputLocationType;
     private boolean useDocumentStorageForPilotYear;
+    // Number of template groups generated concurrently, shared by all requests. 1 or less generates in order on the
+    // request thread.
+    private int generationParallelism;
 }
@@ -7,16 +7,18 @@ import java.util.Map;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.*;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
 
 import gov.irs.directfile.api.config.MessageQueueConfigurationProperties;
 import gov.irs.directfile.models.Dispatch;
+import gov.irs.directfile.models.message.BatchingSqsPublisher;
 import gov.irs.directfile.models.message.MessageHeaderAttribute;
+import gov.irs.directfile.models.message.PublisherException;
 import gov.irs.directfile.models.message.QueueMessageHeaders;
 import gov.irs.directfile.models.message.dispatch.DispatchMessageVersion;
 import gov.irs.directfile.models.message.dispatch.VersionedDispatchMessage;
@@ -27,15 +29,14 @@ import gov.irs.directfile.models.message.dispatch.payload.DispatchPayloadV1;
 @Slf4j
 @EnableConfigurationProperties(MessageQueueConfigurationProperties.class)
 public class DispatchQueueService {
-    private final String queueName;
-    private String queueUrl;
-    private final SqsClient sqsClient;
+    private final BatchingSqsPublisher publisher;
     private final ObjectMapper mapper = new ObjectMapper();
 
     public DispatchQueueService(
             SqsClient sqsClient, MessageQueueConfigurationProperties messageQueueConfigurationProperties) {
-        this.sqsClient = sqsClient;
-        this.queueName = messageQueueConfigurationProperties.getDispatchQueue();
+        // Dispatches are sent in batches in the background, so a burst of submissions shares SendMessageBatch calls
+        // and the submit request doesn't wait on SQS
+        this.publisher = new BatchingSqsPublisher(sqsClient, messageQueueConfigurationProperties.getDispatchQueue());
 
         JavaTimeModule module = new JavaTimeModule();
         DateFormat df = new SimpleDateFormat("yyyy-dd-MM HH:mm:ss", Locale.US);
@@ -53,35 +54,22 @@ public class DispatchQueueService {
 
             String dispatchJsonString = mapper.writeValueAsString(queueMessage);
 
-            if (queueUrl == null || StringUtils.isBlank(queueUrl)) {
-                GetQueueUrlResponse getQueueUrlResponse = sqsClient.getQueueUrl(
-                        GetQueueUrlRequest.builder().queueName(queueName).build());
-                queueUrl = getQueueUrlResponse.queueUrl();
-            }
-
-            // tax return id must not be null, otherwise NPE in SendMessageRequest builder.
+            // tax return id must not be null, otherwise NPE building the message attribute.
             MessageAttributeValue attrTaxReturnId = MessageAttributeValue.builder()
                     .dataType("String")
                     .stringValue(dispatch.getTaxReturnId().toString())
                     .build();
 
-            SendMessageRequest sendMsgRequest = SendMessageRequest.builder()
-                    .queueUrl(queueUrl)
-                    .messageAttributes(Map.of("TAX-RETURN-ID", attrTaxReturnId))
-                    .messageBody(dispatchJsonString)
-                    .build();
-
-            SendMessageResponse sendMessageResponse = sqsClient.sendMessage(sendMsgRequest);
-            String messageId = sendMessageResponse != null ? sendMessageResponse.messageId() : "";
-            int statusCode = sendMessageResponse != null && sendMessageResponse.sdkHttpResponse() != null
-                    ? sendMessageResponse.sdkHttpResponse().statusCode()
-                    : 0;
-
-            log.info("SQS Message sent with messageId: {} and httpStatusCode: {}", messageId, statusCode);
-        } catch (QueueDoesNotExistException | InvalidMessageContentsException e) {
+            publisher.publish(dispatchJsonString, Map.of("TAX-RETURN-ID", attrTaxReturnId));
+        } catch (PublisherException e) {
             log.error("Error sending message to SQS: {}", e.getMessage());
         } catch (Exception e) {
             log.error("Unknown exception in SQS dispatch from class: {}", e.getClass());
         }
     }
+
+    @PreDestroy
+    public void close() {
+        publisher.close();
+    }
 }
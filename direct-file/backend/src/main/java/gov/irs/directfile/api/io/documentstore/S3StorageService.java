@@ -62,10 +62,17 @@ public class S3StorageService {
                 .key(objectKey)
                 .metadata(metadata)
                 .build();
-        byte[] bytes = IOUtils.toByteArray(payloadStream);
+        RequestBody requestBody;
+        if (payloadStream instanceof ByteArrayInputStream) {
+            // Already in memory, so upload it from the caller's buffer rather than copying it. The stream's mark and
+            // reset cover the whole buffer, so the SDK can still rewind it to retry.
+            requestBody = RequestBody.fromInputStream(payloadStream, payloadStream.available());
+        } else {
+            requestBody = RequestBody.fromBytes(IOUtils.toByteArray(payloadStream));
+        }
 
         try {
-            s3Client.putObject(s3ObjReq, RequestBody.fromBytes(bytes));
+            s3Client.putObject(s3ObjReq, requestBody);
             log.info("Successfully placed " + objectKey + " into bucket " + bucketName);
         } catch (NoSuchBucketException e) {
             throw new IOException(String.format("Bucket %s does not exist or access is denied", bucketName), e);
@@ -0,0 +1,68 @@
+package gov.irs.directfile.api.loaders.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A precompiled, immutable list of the fact paths to extract from a graph.
+ *
+ * <p>All string work on the paths (splitting off the collection part of wildcard paths and resolving the abstract path
+ * used to look up the export-zero flag) is done once when the plan is compiled, so that walking the plan for each tax
+ * return does no regex matching and little allocation.
+ */
+public final class FactPathPlan {
+    private static final String WILDCARD = "/*";
+
+    /**
+     * A single step of the plan.
+     *
+     * @param path the path to evaluate
+     * @param wildcard whether the path must be expanded to each item of its collection before evaluating it
+     * @param exportZero whether zero dollar values at this path are exported instead of being suppressed
+     */
+    public record Step(String path, boolean wildcard, boolean exportZero) {}
+
+    private final List<Step> steps;
+
+    private FactPathPlan(final List<Step> steps) {
+        this.steps = List.copyOf(steps);
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * Compiles the plan for the given paths. A path containing a collection wildcard becomes a step that evaluates it
+     * for each item of the collection, followed by a step for the collection itself.
+     */
+    public static FactPathPlan compile(final Collection<String> factPaths, final Set<String> exportZeroFacts) {
+        final Set<Step> steps = new LinkedHashSet<>();
+        for (final String factPath : factPaths) {
+            final int indexOfEndOfCollectionName = factPath.indexOf(WILDCARD);
+            if (indexOfEndOfCollectionName >= 0) {
+                steps.add(new Step(factPath, true, isExportZero(factPath, exportZeroFacts)));
+                final String collectionPath = factPath.substring(0, indexOfEndOfCollectionName);
+                steps.add(new Step(collectionPath, false, isExportZero(collectionPath, exportZeroFacts)));
+            } else {
+                steps.add(new Step(factPath, false, isExportZero(factPath, exportZeroFacts)));
+            }
+        }
+        return new FactPathPlan(new ArrayList<>(steps));
+    }
+
+    private static boolean isExportZero(final String factPath, final Set<String> exportZeroFacts) {
+        if (exportZeroFacts == null || exportZeroFacts.isEmpty()) return false;
+        final String abstractPath = factPath.indexOf('#') < 0
+                ? factPath
+                : FactPaths.COLLECTION_ITEM_ID_PATTERN.matcher(factPath).replaceAll("*");
+        return exportZeroFacts.contains(abstractPath);
+    }
+}
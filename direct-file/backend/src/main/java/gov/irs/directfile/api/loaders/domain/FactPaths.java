@@ -0,0 +1,14 @@
+package gov.irs.directfile.api.loaders.domain;
+
+import java.util.regex.Pattern;
+
+/** Constants for working with fact graph paths. */
+public final class FactPaths {
+    /**
+     * Matches a collection item id in a concrete fact path, e.g. {@code #<uuid>} in {@code /filers/#<uuid>/tin}.
+     * FactPathPlan uses it to get the abstract path and ExportableFacts to split off the collection.
+     */
+    public static final Pattern COLLECTION_ITEM_ID_PATTERN = Pattern.compile("#\\w{8}-\\w{4}-\\w{4}-\\w{4}-\\w{12}");
+
+    private FactPaths() {}
+}
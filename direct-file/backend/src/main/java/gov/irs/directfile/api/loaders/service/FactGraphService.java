@@ -2,10 +2,9 @@ package gov.irs.directfile.api.loaders.service;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.regex.Pattern;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -36,9 +35,6 @@ import gov.irs.directfile.models.FactTypeWithItem;
 @Service
 @Slf4j
 public class FactGraphService {
-    public static final String ABSTRACT_PATH_UUID_PATTERN = "#\\w{8}-\\w{4}-\\w{4}-\\w{4}-\\w{12}";
-    public static final Pattern ABSTRACT_PATH_UUID_REGEX_PATTERN = Pattern.compile(ABSTRACT_PATH_UUID_PATTERN);
-
     private static final String JAVA_STRING = "java.lang.String";
     private static final String JAVA_BOOLEAN = "java.lang.Boolean";
     private static TaxDictionaryDigest _digest;
@@ -46,7 +42,6 @@ public class FactGraphService {
     private static FactDictionary _factDictionary;
 
     private final ApplicationContext applicationContext;
-    private final ObjectMapper _objectMapper;
 
     @Value("${direct-file.loader.load-at-startup}")
     private Boolean loadAtStartup;
@@ -54,8 +49,7 @@ public class FactGraphService {
     @Value("${direct-file.loader.fact-dictionary-xml-pattern}")
     private String factDictionaryXmlPattern;
 
-    public FactGraphService(final ObjectMapper objectMapper, final ApplicationContext applicationContext) {
-        _objectMapper = objectMapper;
+    public FactGraphService(final ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
     }
 
@@ -84,23 +78,54 @@ public class FactGraphService {
 
     public Graph getGraph(final Map<String, FactTypeWithItem> inputPersisterStateMap) {
         try {
-            final String inputPersisterStateString = _objectMapper.writeValueAsString(inputPersisterStateMap);
-            return new Graph(_factDictionary, InMemoryPersister.apply(inputPersisterStateString));
+            return new Graph(_factDictionary, createPersister(inputPersisterStateMap));
         } catch (Exception e) {
             throw new FactGraphParseException(e);
         }
     }
 
-    public boolean factsParseCorrectly(final Map<String, FactTypeWithItem> inputPersisterStateMap) {
-        boolean isCorrect = true;
+    /**
+     * Builds a persister directly from the decoded facts map. The facts are handed to the fact graph as plain Java
+     * values, so they no longer need to be written out to a JSON string and parsed again on every request.
+     */
+    public InMemoryPersister createPersister(final Map<String, FactTypeWithItem> inputPersisterStateMap) {
+        final Map<String, Object> wrappedFacts = new HashMap<>(inputPersisterStateMap.size() * 4 / 3 + 1);
+        inputPersisterStateMap.forEach((path, fact) -> wrappedFacts.put(path, toWrappedFact(fact)));
+        return InMemoryPersisterJava.createFromWrappedFacts(wrappedFacts);
+    }
+
+    private static Object toWrappedFact(final FactTypeWithItem fact) {
+        if (fact == null) return null;
+        final Map<String, Object> wrappedFact = new LinkedHashMap<>(4);
+        wrappedFact.put("$type", fact.type());
+        wrappedFact.put("item", toPlainValue(fact.item()));
+        return wrappedFact;
+    }
+
+    private static Object toPlainValue(final JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) return null;
+        if (node.isObject()) {
+            final Map<String, Object> values = new LinkedHashMap<>();
+            node.fields().forEachRemaining(field -> values.put(field.getKey(), toPlainValue(field.getValue())));
+            return values;
+        }
+        if (node.isArray()) {
+            final List<Object> values = new ArrayList<>(node.size());
+            node.forEach(element -> values.add(toPlainValue(element)));
+            return values;
+        }
+        if (node.isBoolean()) return node.booleanValue();
+        if (node.isNumber()) return node.numberValue();
+        return node.asText();
+    }
 
+    /** Validates the facts by building a graph from them. Returns an empty optional if the facts do not parse. */
+    public Optional<Graph> parseFacts(final Map<String, FactTypeWithItem> inputPersisterStateMap) {
         try {
-            getGraph(inputPersisterStateMap);
+            return Optional.of(getGraph(inputPersisterStateMap));
         } catch (Exception e) {
-            isCorrect = false;
+            return Optional.empty();
         }
-
-        return isCorrect;
     }
 
     public boolean hasSubmissionBlockingFacts(final Graph factGraph) {
@@ -155,8 +180,7 @@ public class FactGraphService {
     public GraphGetResult getFact(
             final Map<String, FactTypeWithItem> inputPersisterStateMap, final String requestedOutputPath) {
         try {
-            final String inputPersisterStateString = _objectMapper.writeValueAsString(inputPersisterStateMap);
-            Graph factGraph = new Graph(_factDictionary, InMemoryPersister.apply(inputPersisterStateString));
+            Graph factGraph = new Graph(_factDictionary, createPersister(inputPersisterStateMap));
             var value = factGraph.get(requestedOutputPath);
             return new GraphGetResult(requestedOutputPath, value.get(), null);
         } catch (Exception e) {
@@ -181,9 +205,36 @@ public class FactGraphService {
             final boolean extractIncompleteFacts,
             final boolean extractAllZeroDollarValues)
             throws JsonProcessingException, FactGraphSaveException {
+        if (factPaths == null || factPaths.isEmpty()) {
+            return new FactEvaluationResult();
+        }
+        return extractFacts(
+                compileFactPaths(factPaths), graph, forXml, extractIncompleteFacts, extractAllZeroDollarValues);
+    }
+
+    /**
+     * Compiles the fact paths into a plan that can be reused to extract the same facts from any number of graphs.
+     * Callers that extract a fixed set of paths over and over should compile it once and hold on to the plan.
+     */
+    public FactPathPlan compileFactPaths(final Collection<String> factPaths) {
+        return FactPathPlan.compile(factPaths, exportZeroDollarFacts);
+    }
+
+    public FactEvaluationResult extractFacts(final FactPathPlan plan, final Graph graph)
+            throws JsonProcessingException, FactGraphSaveException {
+        return extractFacts(plan, graph, false, false, false);
+    }
+
+    public FactEvaluationResult extractFacts(
+            final FactPathPlan plan,
+            final Graph graph,
+            final boolean forXml,
+            final boolean extractIncompleteFacts,
+            final boolean extractAllZeroDollarValues)
+            throws JsonProcessingException, FactGraphSaveException {
         final var facts = new FactEvaluationResult();
 
-        if (factPaths == null || factPaths.isEmpty()) {
+        if (plan.isEmpty()) {
             return facts;
         }
 
@@ -220,48 +271,55 @@ public class FactGraphService {
                             : "Has limit violations.");
         }
 
-        factPaths.forEach((String factPath) -> {
-            final int indexOfEndOfCollectionName = factPath.indexOf("/*");
-            if (indexOfEndOfCollectionName >= 0) {
-                // Evaluate this wildcard path for each item in the collection ...
-                try {
-                    final Seq<String> collectionPaths = graph.getCollectionPaths(factPath);
-                    Iterator<String> pathIter = CollectionConverters.IterableHasAsJava(collectionPaths)
-                            .asJava()
-                            .iterator();
-                    while (pathIter.hasNext()) {
-                        evaluateAndStoreFact(
-                                graph,
-                                pathIter.next(),
-                                facts,
-                                forXml,
-                                extractIncompleteFacts,
-                                extractAllZeroDollarValues);
-                    }
-                } catch (UnsupportedOperationException e) {
-                    // This happens in test when no fact dictionary is loaded.
-                    log.warn("Unable to get graph's collection paths: " + e.getMessage());
-                }
-                // ... and also evaluate the collection itself.
-                factPath = factPath.substring(0, indexOfEndOfCollectionName);
+        for (final FactPathPlan.Step step : plan.getSteps()) {
+            if (!step.wildcard()) {
+                evaluateAndStoreFact(
+                        graph,
+                        step.path(),
+                        step.exportZero(),
+                        facts,
+                        forXml,
+                        extractIncompleteFacts,
+                        extractAllZeroDollarValues);
+                continue;
             }
 
-            evaluateAndStoreFact(graph, factPath, facts, forXml, extractIncompleteFacts, extractAllZeroDollarValues);
-        });
+            // Evaluate this wildcard path for each item in the collection. The plan follows this step with one
+            // for the collection itself.
+            try {
+                final Seq<String> collectionPaths = graph.getCollectionPaths(step.path());
+                Iterator<String> pathIter = CollectionConverters.IterableHasAsJava(collectionPaths)
+                        .asJava()
+                        .iterator();
+                while (pathIter.hasNext()) {
+                    evaluateAndStoreFact(
+                            graph,
+                            pathIter.next(),
+                            step.exportZero(),
+                            facts,
+                            forXml,
+                            extractIncompleteFacts,
+                            extractAllZeroDollarValues);
+                }
+            } catch (UnsupportedOperationException e) {
+                // This happens in test when no fact dictionary is loaded.
+                log.warn("Unable to get graph's collection paths: " + e.getMessage());
+            }
+        }
         return facts;
     }
 
     private void evaluateAndStoreFact(
             final Graph graph,
             final String factPath,
+            final boolean exportZero,
             final FactEvaluationResult facts,
             final boolean forXml,
             final boolean extractIncompleteFacts,
             final boolean extractAllZeroDollarValues) {
-        if (facts.getOptional(factPath).isPresent()) return;
+        // Evaluation is deterministic, so a path that was already evaluated would produce the same entry again.
+        if (facts.getEvaluatedFacts().containsKey(factPath)) return;
 
-        // Strip this from type names
-        final String classPrefix = "class ";
         try {
             final Result<Object> result = graph.get(factPath);
             if (!result.complete()) {
@@ -274,9 +332,9 @@ public class FactGraphService {
                 return;
             }
             final Object value = result.get();
-            String typeName = result.typeName().trim();
-            if (typeName.startsWith(classPrefix)) typeName = typeName.substring(classPrefix.length());
-            if ("gov.irs.factgraph.types.Collection".equals(typeName)) {
+            // Same as result.typeName(), without the "class " prefix that it adds.
+            final String typeName = value.getClass().getName();
+            if (value instanceof gov.irs.factgraph.types.Collection collection) {
                 // This was added to maintain the collection ordering all the way through to
                 // MeF.
                 // There is an issue with serializing the scala iterable with jackson.
@@ -286,23 +344,16 @@ public class FactGraphService {
                 // serializer how to operate on it.
 
                 // Convert the scala iterable to a Java List of UUIDs, and store that.
-                final Seq<UUID> uuidSeq =
-                        ((gov.irs.factgraph.types.Collection) value).items().toSeq();
+                final Seq<UUID> uuidSeq = collection.items().toSeq();
                 final List<UUID> uuidList =
                         CollectionConverters.SeqHasAsJava(uuidSeq).asJava();
                 facts.put(factPath, new EvaluatedFactInfo(typeName, uuidList));
                 return;
-            } else if ("scala.math.BigDecimal".equals(typeName)
-                    && value != null
+            } else if (value instanceof scala.math.BigDecimal decimal
                     && !extractAllZeroDollarValues
-                    && suppressZeroDollarValue(factPath)) {
-                try {
-                    Double doubleValue = Double.parseDouble(value.toString());
-                    if (doubleValue.equals(Double.valueOf(0))) return;
-                } catch (NumberFormatException ex) {
-                    // this is a really strange problem... but we know it isn't 0.
-                    log.error("tried to parse a scala big decimal that wasn't a decimal somehow", ex);
-                }
+                    && !exportZero
+                    && decimal.signum() == 0) {
+                return;
             }
             facts.put(factPath, factInfoFactory(typeName, value, forXml));
         } catch (UnsupportedOperationException e) {
@@ -316,7 +367,10 @@ public class FactGraphService {
         final Object factClass = factValue.getClass();
 
         if (factClass == scala.math.BigDecimal.class) {
-            return new EvaluatedFactInfo(JAVA_STRING, factValue.toString().split(Pattern.quote("."))[0]);
+            final String decimal = factValue.toString();
+            final int indexOfDecimalPoint = decimal.indexOf('.');
+            return new EvaluatedFactInfo(
+                    JAVA_STRING, indexOfDecimalPoint < 0 ? decimal : decimal.substring(0, indexOfDecimalPoint));
         }
         if (factClass == gov.irs.factgraph.types.UsPhoneNumber.class) {
             var phone = (gov.irs.factgraph.types.UsPhoneNumber) factValue;
@@ -345,9 +399,4 @@ public class FactGraphService {
 
         return new EvaluatedFactInfo(JAVA_STRING, factValue.toString());
     }
-
-    private boolean suppressZeroDollarValue(final String factPath) {
-        final String abstractPath = factPath.replaceAll(ABSTRACT_PATH_UUID_PATTERN, "*");
-        return !exportZeroDollarFacts.contains(abstractPath);
-    }
 }
@@ -2,6 +2,13 @@ package gov.irs.directfile.api.pdf;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -24,10 +31,11 @@ import gov.irs.directfile.api.io.IOLocationException;
 import gov.irs.directfile.api.io.IOLocationService;
 import gov.irs.directfile.api.io.documentstore.DocumentNotFoundException;
 import gov.irs.directfile.api.io.storagelocations.StorageLocationBuilder;
+import gov.irs.directfile.api.loaders.domain.FactPathPlan;
 import gov.irs.directfile.api.loaders.errors.FactGraphSaveException;
 import gov.irs.directfile.api.loaders.service.FactGraphService;
+import gov.irs.directfile.api.pdf.load.ConfiguredPdf;
 import gov.irs.directfile.api.pdf.load.ConfiguredPdfLookup;
-import gov.irs.directfile.api.pdf.load.PdfConfiguration;
 import gov.irs.directfile.api.taxreturn.models.TaxReturn;
 import gov.irs.directfile.models.FactEvaluationResult;
 
@@ -49,6 +57,12 @@ public class PdfService {
     private final IOLocationService ioLocationService;
     private final FactGraphService factGraphService;
     private final ConfiguredPdfLookup lookup;
+    private final Map<String, FactPathPlan> factPathPlans = new ConcurrentHashMap<>();
+    // Bounds the template groups generated at once across all requests; null when templates are generated on the
+    // request thread.
+    private final Semaphore generationPermits;
+    private final ThreadFactory generationThreadFactory =
+            Thread.ofVirtual().name("pdf-generation-", 0).factory();
     private static final int DIRECT_FILE_PILOT_YEAR = 2023;
 
     @SneakyThrows
@@ -58,6 +72,9 @@ public class PdfService {
         this.ioLocationService = ioLocationService;
         this.factGraphService = factGraphService;
         lookup = new ConfiguredPdfLookup(ioLocationService, properties.getConfiguredPdfs());
+        final int parallelism = properties.getGenerationParallelism();
+        generationPermits = parallelism > 1 ? new Semaphore(parallelism) : null;
+        log.info("Generating PDF templates with parallelism {}", Math.max(parallelism, 1));
     }
 
     public InputStream getTaxReturn(String languageString, TaxReturn taxReturn, boolean useStorage)
@@ -90,24 +107,33 @@ public class PdfService {
             }
         }
 
-        // We didn't read it, so to generate it build a set of all the fact paths we might need.
-        Set<String> factPaths = new HashSet<String>();
-        for (final PdfTemplate template : PdfTemplate.templateList) {
-            factPaths.addAll(lookup
-                    .getBlankPdfStream(String.valueOf(year), template.getTemplateName(), language.getCode())
-                    .getConfig()
-                    .getFactPathsForPdf()
-                    .stream()
-                    .filter(path -> !FactEvaluationResult.isPseudoPath(path))
-                    .map(path -> FactEvaluationResult.collectionIndexToWildcard(path))
-                    .collect(Collectors.toSet()));
+        // We didn't read it, so generate it. The PDF is saved straight into this buffer, which is then read without
+        // being copied, both to return it and to put it in storage.
+        final PdfOutputStream outputStream = new PdfOutputStream();
+        writeTaxReturn(language, taxReturn, outputStream);
+        ByteArrayInputStream inputStream = outputStream.toInputStream();
+
+        // Optionally, put the combined tax return PDF in storage.
+        if (useStorage) {
+            putTaxReturnInStorage(year, taxReturn.getId(), baseName, language, inputStream);
         }
 
+        return inputStream;
+    }
+
+    // Generates the combined tax return PDF and saves it to outputStream as it is written.
+    private void writeTaxReturn(PdfLanguages language, TaxReturn taxReturn, OutputStream outputStream)
+            throws PdfCreationException {
+        int year = taxReturn.getTaxYear();
+
+        // Get the plan for all the fact paths we might need.
+        final FactPathPlan factPathPlan = getFactPathPlan(year, language);
+
         // Extract those facts.
         FactEvaluationResult facts;
         try {
             Graph graph = factGraphService.getGraph(taxReturn.getFacts());
-            facts = factGraphService.extractFacts(factPaths, graph);
+            facts = factGraphService.extractFacts(factPathPlan, graph);
         } catch (JsonProcessingException e) {
             throw new PdfCreationException("Could not parse JSON for tax return " + taxReturn.getId(), e);
         } catch (FactGraphSaveException e) {
@@ -127,46 +153,120 @@ public class PdfService {
         combinedDocument.setDocumentInformation(info);
 
         // Generate the forms and tables, as needed.
-        final var subDocuments = new ArrayList<PDDocument>();
-        for (final PdfTemplate template : PdfTemplate.templateList) {
-            final PdfConfiguration pdfConfig = lookup.getBlankPdfStream(
-                            String.valueOf(year), template.getTemplateName(), language.getCode())
-                    .getConfig();
-            final var newTemplatePdf = lookup.getBlankPdfStream(
-                            String.valueOf(year), template.getTemplateName(), language.getCode())
-                    .getBlankPDF();
-            try {
-                subDocuments.addAll(
-                        template.generateDocuments(facts, newTemplatePdf.readAllBytes(), pdfConfig, language));
-            } catch (IOException e) {
-                throw new PdfCreationException(
-                        String.format("Could not read PDF template bytes for tax return %s", taxReturn.getId()), e);
-            }
-        }
+        final List<PDDocument> subDocuments = generateDocuments(year, language, facts);
 
-        // Finalize the combined PDF of the entire tax return.
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        // Finalize the combined PDF of the entire tax return. Check it has pages before any of it is written out.
         try {
             mergeDocuments(subDocuments, combinedDocument);
-            combinedDocument.save(outputStream);
-            combinedDocument.close();
             if (combinedDocument.getNumberOfPages() == 0) {
+                combinedDocument.close();
                 throw new PdfCreationException("Insufficient data to generate PDF");
             }
+            combinedDocument.save(outputStream);
+            combinedDocument.close();
         } catch (IOException e) {
             safelyClosePDDocuments(List.of(combinedDocument));
             safelyClosePDDocuments(subDocuments);
             throw new PdfCreationException("Could not save/close combined tax return document", e);
         }
+    }
 
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
+    // The fact paths only depend on the configured templates, so the plan is compiled once per year and language.
+    private FactPathPlan getFactPathPlan(final int year, final PdfLanguages language) throws PdfCreationException {
+        final String planKey = year + "-" + language.getCode();
+        FactPathPlan factPathPlan = factPathPlans.get(planKey);
+        if (factPathPlan == null) {
+            Set<String> factPaths = new HashSet<String>();
+            for (final PdfTemplate template : PdfTemplate.templateList) {
+                factPaths.addAll(lookup
+                        .getConfiguredPdf(String.valueOf(year), template.getTemplateName(), language.getCode())
+                        .getConfig()
+                        .getFactPathsForPdf()
+                        .stream()
+                        .filter(path -> !FactEvaluationResult.isPseudoPath(path))
+                        .map(path -> FactEvaluationResult.collectionIndexToWildcard(path))
+                        .collect(Collectors.toSet()));
+            }
+            factPathPlan = factGraphService.compileFactPaths(factPaths);
+            factPathPlans.put(planKey, factPathPlan);
+        }
+        return factPathPlan;
+    }
 
-        // Optionally, put the combined tax return PDF in storage.
-        if (useStorage) {
-            putTaxReturnInStorage(year, taxReturn.getId(), baseName, language, inputStream);
+    private List<PDDocument> generateDocuments(
+            final int year, final PdfLanguages language, final FactEvaluationResult facts) throws PdfCreationException {
+        final var documents = new ArrayList<PDDocument>();
+        if (generationPermits == null) {
+            for (final List<PdfTemplate> group : PdfTemplate.templateGroups) {
+                documents.addAll(generateGroup(year, language, facts, group));
+            }
+            return documents;
         }
 
-        return inputStream;
+        // Each group gets a virtual thread of its own, and waits for a permit before it starts generating. Templates
+        // add pseudofacts as they go, so each group also gets its own copy of the facts.
+        Throwable failure = null;
+        try (ExecutorService generationExecutor = Executors.newThreadPerTaskExecutor(generationThreadFactory)) {
+            final var futures = new ArrayList<Future<List<PDDocument>>>();
+            for (final List<PdfTemplate> group : PdfTemplate.templateGroups) {
+                final var groupFacts = new FactEvaluationResult(facts.getEvaluatedFacts());
+                futures.add(
+                        generationExecutor.submit(() -> generateGroupWithPermit(year, language, groupFacts, group)));
+            }
+
+            // Collect the results in submission order, which keeps the combined PDF in ASN order. Every group is
+            // waited for, even after a failure, so that no generated document is left unclosed.
+            for (final Future<List<PDDocument>> future : futures) {
+                try {
+                    documents.addAll(future.get());
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.forEach(remaining -> remaining.cancel(true));
+                    failure = e;
+                    break;
+                }
+            }
+        }
+        if (failure != null) {
+            safelyClosePDDocuments(documents);
+            if (failure instanceof PdfCreationException e) throw e;
+            if (failure instanceof RuntimeException e) throw e;
+            if (failure instanceof Error e) throw e;
+            throw new PdfCreationException("Could not generate tax return documents", failure);
+        }
+        return documents;
+    }
+
+    private List<PDDocument> generateGroupWithPermit(
+            final int year,
+            final PdfLanguages language,
+            final FactEvaluationResult facts,
+            final List<PdfTemplate> group)
+            throws PdfCreationException, InterruptedException {
+        generationPermits.acquire();
+        try {
+            return generateGroup(year, language, facts, group);
+        } finally {
+            generationPermits.release();
+        }
+    }
+
+    private List<PDDocument> generateGroup(
+            final int year,
+            final PdfLanguages language,
+            final FactEvaluationResult facts,
+            final List<PdfTemplate> group)
+            throws PdfCreationException {
+        final var documents = new ArrayList<PDDocument>();
+        for (final PdfTemplate template : group) {
+            final ConfiguredPdf configuredPdf =
+                    lookup.getConfiguredPdf(String.valueOf(year), template.getTemplateName(), language.getCode());
+            documents.addAll(template.generateDocuments(
+                    facts, configuredPdf.getBlankPdfBytes(), configuredPdf.getConfig(), language));
+        }
+        return documents;
     }
 
     private void mergeDocuments(final List<PDDocument> newDocuments, final PDDocument combinedDocument)
@@ -234,4 +334,11 @@ public class PdfService {
             throw new PdfCreationException("Could not reset stream after saving combined tax return document", e);
         }
     }
+
+    // Lets the saved PDF be read back from the buffer it was saved into, instead of from a copy of it.
+    private static final class PdfOutputStream extends ByteArrayOutputStream {
+        ByteArrayInputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
 }
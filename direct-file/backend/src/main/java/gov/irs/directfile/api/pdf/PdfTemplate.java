@@ -22,68 +22,80 @@ abstract class PdfTemplate {
     protected String templateName;
     protected boolean shouldRemoveTinDashes;
     protected boolean shouldRoundCurrency;
-    private static NumberFormat currencyRounder = null;
+    private static final ThreadLocal<NumberFormat> currencyRounder = ThreadLocal.withInitial(() -> {
+        final NumberFormat rounder = NumberFormat.getInstance(Locale.US);
+        rounder.setMaximumFractionDigits(0);
+        rounder.setRoundingMode(RoundingMode.HALF_EVEN);
+        return rounder;
+    });
 
     // Order by Attachment Sequence Number (ASN) in upper right of IRS forms.
-    protected static List<PdfTemplate> templateList = List.of(
-            new Irs1040PdfForm("IRS1040"),
-            new Irs1040PdfForm("IRS1040SR"),
-            new PdfTable("DEPENDENTS_STATEMENT"),
+    // Templates in a group may read pseudofacts computed by an earlier template in the same group, so a group is
+    // always generated in order. Separate groups are independent and can be generated concurrently.
+    protected static List<List<PdfTemplate>> templateGroups = List.of(
+            List.of(
+                    new Irs1040PdfForm("IRS1040"),
+                    new Irs1040PdfForm("IRS1040SR"),
+                    new PdfTable("DEPENDENTS_STATEMENT")),
 
             // ASN 01
-            new PdfForm("IRS1040S1"),
+            List.of(new PdfForm("IRS1040S1")),
 
             // ASN 02
-            new PdfForm("IRS1040S2"),
+            List.of(new PdfForm("IRS1040S2")),
 
             // ASN 03
-            new PdfForm("IRS1040S3"),
+            List.of(new PdfForm("IRS1040S3")),
 
             // ASN 08
-            new PdfForm("IRS1040SB"),
+            List.of(new PdfForm("IRS1040SB")),
 
             // ASN 16
-            new PdfForm("SCHEDULE_R"),
+            List.of(new PdfForm("SCHEDULE_R")),
 
             // ASN 21
-            new Irs2441PdfForm("IRS2441"),
-            new PdfTable("CDCC_QUALIFYING_PERSON_STATEMENT"),
-            new PdfTable("CDCC_CAREGIVERS_STATEMENT"),
-            new Irs2441DueDiligencePdfTable("IRS2441_DUE_DILIGENCE_STATEMENT"),
+            List.of(
+                    new Irs2441PdfForm("IRS2441"),
+                    new PdfTable("CDCC_QUALIFYING_PERSON_STATEMENT"),
+                    new PdfTable("CDCC_CAREGIVERS_STATEMENT"),
+                    new Irs2441DueDiligencePdfTable("IRS2441_DUE_DILIGENCE_STATEMENT")),
 
             // ASN 43
-            new IrsScheduleEicPdfForm("IRS1040EIC"),
+            List.of(new IrsScheduleEicPdfForm("IRS1040EIC")),
 
             // (in TY23, Form 8862 was here with ASN 43A)
 
             // ASN 47
-            new PdfForm("IRS1040S8812"),
+            List.of(new PdfForm("IRS1040S8812")),
 
             // ASN 52
-            new PdfForm("IRS8889"),
+            List.of(new PdfForm("IRS8889")),
 
             // ASN 54
-            new PdfForm("IRS8880"),
+            List.of(new PdfForm("IRS8880")),
 
             // ASN 73
-            new PdfForm("IRS8962"),
+            List.of(new PdfForm("IRS8962")),
 
             // ASN 77
-            new Irs9000PdfForm("FORM9000"),
+            List.of(new Irs9000PdfForm("FORM9000")),
 
             // ASN 77A
-            new IrsScheduleLepPdfForm("SCHEDULE_LEP"),
+            List.of(new IrsScheduleLepPdfForm("SCHEDULE_LEP")),
 
             // ASN 862
-            new Irs8862PdfForm("IRS8862"),
-            new PdfTable("CTC_DEPENDENTS_STATEMENT"),
-            new PdfTable("ODC_DEPENDENTS_STATEMENT"),
+            List.of(
+                    new Irs8862PdfForm("IRS8862"),
+                    new PdfTable("CTC_DEPENDENTS_STATEMENT"),
+                    new PdfTable("ODC_DEPENDENTS_STATEMENT")),
 
             // no ASN
-            new IrsW2PdfForm("IRSW2"),
+            List.of(new IrsW2PdfForm("IRSW2")),
 
             // no ASN
-            new PdfForm("DF1099R"));
+            List.of(new PdfForm("DF1099R")));
+
+    protected static List<PdfTemplate> templateList = templateGroups.stream().flatMap(List::stream).toList();
 
     protected PdfTemplate(
             final String templateName, final boolean shouldRemoveTinDashes, final boolean shouldRoundCurrency) {
@@ -245,13 +257,9 @@ abstract class PdfTemplate {
         }
     }
 
+    // NumberFormat is not thread-safe and templates can be generated concurrently, so each thread gets its own.
     public static NumberFormat getCurrencyRounder() {
-        if (currencyRounder == null) {
-            currencyRounder = NumberFormat.getInstance(Locale.US);
-            currencyRounder.setMaximumFractionDigits(0);
-            currencyRounder.setRoundingMode(RoundingMode.HALF_EVEN);
-        }
-        return currencyRounder;
+        return currencyRounder.get();
     }
 
     protected static final Set<Class<?>> textValueClasses = Set.of(
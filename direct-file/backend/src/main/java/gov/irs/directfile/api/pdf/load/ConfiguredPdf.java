@@ -1,21 +1,16 @@
 package gov.irs.directfile.api.pdf.load;
 
-import java.io.IOException;
-import java.io.InputStream;
-
 import lombok.AllArgsConstructor;
 import lombok.Getter;
-import lombok.Setter;
 
+/**
+ * A blank PDF template and its configuration, loaded once at startup. Instances are immutable and shared by every
+ * thread that generates PDFs; the template bytes are handed out without copying, so they must never be written to.
+ */
 @Getter
-@Setter
 @AllArgsConstructor
 public class ConfiguredPdf {
-    private InputStream blankPDF;
-    private PdfConfiguration config;
-    private int[] pagesToInclude;
-
-    public void reset() throws IOException {
-        blankPDF.reset();
-    }
+    private final byte[] blankPdfBytes;
+    private final PdfConfiguration config;
+    private final int[] pagesToInclude;
 }
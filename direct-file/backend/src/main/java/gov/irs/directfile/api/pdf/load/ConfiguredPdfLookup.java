@@ -3,7 +3,6 @@ package gov.irs.directfile.api.pdf.load;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import lombok.extern.slf4j.Slf4j;
@@ -17,8 +16,6 @@ import gov.irs.directfile.api.pdf.PdfCreationException;
 @Slf4j
 @SuppressFBWarnings(value = "CT_CONSTRUCTOR_THROW", justification = "Java 21 update")
 public class ConfiguredPdfLookup {
-    private static final String locationPrefix = "pdflookup";
-
     private final ConfiguredPdfMap map = new ConfiguredPdfMap();
 
     private String normalize(String value) {
@@ -33,59 +30,31 @@ public class ConfiguredPdfLookup {
             var year = prop.getYear();
             var lang = normalize(prop.getLanguageCode());
             if (lang.length() > 2) throw new RuntimeException("PDF generation accepts only 2 letter language codes");
-            log.info("Getting stream access to PDF");
-            AtomicReference<InputStream> pdfStream = new AtomicReference<>(ioLocationService.read(
-                    IOLocationService.getConfiguredLocationType(prop.getLocationType()), prop.getLocation()));
-            log.info("Getting stream access to PDF config");
-            AtomicReference<InputStream> configStream = new AtomicReference<>(ioLocationService.read(
+            // Every template is read into memory once. Generating a PDF parses a new document from these bytes, so
+            // nothing mutable is shared between the threads generating PDFs.
+            log.info("Reading PDF {} {} {}", year, name, lang);
+            byte[] blankPdfBytes;
+            try (InputStream pdfStream = ioLocationService.read(
+                    IOLocationService.getConfiguredLocationType(prop.getLocationType()), prop.getLocation())) {
+                blankPdfBytes = pdfStream.readAllBytes();
+            }
+            log.info("Reading PDF config {} {} {}", year, name, lang);
+            PdfConfiguration config;
+            try (InputStream configStream = ioLocationService.read(
                     IOLocationService.getConfiguredLocationType(prop.getConfigurationLocationType()),
-                    prop.getConfigurationLocation()));
-            // if we need to, put the PDF in memory to make it work faster!
-            if (prop.isCacheInMemory()) {
-                ioLocationService.write(
-                        IOLocationService.ConfiguredLocations.memory,
-                        inMemoryCacheName(name, year, lang, false),
-                        pdfStream.get());
-                pdfStream.set(ioLocationService.read(
-                        IOLocationService.ConfiguredLocations.memory, inMemoryCacheName(name, year, lang, false)));
+                    prop.getConfigurationLocation())) {
+                config = PdfConfiguration.load(configStream);
             }
-            // the configs are small, so they should be in memory generally
-            ioLocationService.write(
-                    IOLocationService.ConfiguredLocations.memory,
-                    inMemoryCacheName(name, year, lang, true),
-                    configStream.get());
-            configStream.set(ioLocationService.read(
-                    IOLocationService.ConfiguredLocations.memory, inMemoryCacheName(name, year, lang, true)));
             var languages = map.getFormLanguages(year, name);
-            var configuredPdf = new ConfiguredPdf(
-                    pdfStream.get(), PdfConfiguration.load(configStream.get()), prop.getPagesToInclude());
-            languages.put(lang, configuredPdf);
+            languages.put(lang, new ConfiguredPdf(blankPdfBytes, config, prop.getPagesToInclude()));
         }
     }
 
-    private String inMemoryCacheName(String name, String year, String language, boolean config) {
-        if (!config) {
-            return String.format("%s:%s-%s-%s", locationPrefix, year, name, language);
-        } else {
-            return String.format("%s:%s-%s-%s-config", locationPrefix, year, name, language);
-        }
-    }
-
-    public ConfiguredPdf getBlankPdfStream(String year, String formName, String language) throws PdfCreationException {
+    public ConfiguredPdf getConfiguredPdf(String year, String formName, String language) throws PdfCreationException {
         // if the form isn't available in the specified language, it may still
         // be available in english.  This should probably be configurable
-        var stream = map.getForm(year, normalize(formName), normalize(language), true);
-        if (stream == null) throw new PdfCreationException(String.format("%s form missing", formName));
-
-        try {
-            // Not the ideal solution, but solves the error from multiple reads for a file stored in the map
-            // Problem: putting the ConfiguredPdf blankPDF stream into the map then reading it moves the position
-            // to the end of the file causing an unexpected error on the second read of that stream
-            // (e.g. two calls to generate a PDF )
-            stream.reset();
-        } catch (IOException e) {
-            throw new PdfCreationException(e);
-        }
-        return stream;
+        var configuredPdf = map.getForm(year, normalize(formName), normalize(language), true);
+        if (configuredPdf == null) throw new PdfCreationException(String.format("%s form missing", formName));
+        return configuredPdf;
     }
 }
@@ -27,7 +27,8 @@ class ConfiguredPdfMap {
 
     public ConfiguredPdf getForm(String year, String form, String lang, boolean getDefaultIfNotAvailable)
             throws PdfCreationException {
-        // do not want to use creation methods when getting a form
+        // do not want to use creation methods when getting a form: the map is only read once loading is done, so
+        // it can be shared between threads
         if (!configuredPdfs.containsKey(year)) {
             throw new PdfCreationException(String.format("Missing year in PDF creation: %s", year));
         }
@@ -35,7 +36,7 @@ class ConfiguredPdfMap {
         if (!forms.containsKey(form)) {
             throw new PdfCreationException(String.format("Missing form %s in year %s for PDF creation", form, year));
         }
-        var languages = getFormLanguages(year, form);
+        var languages = forms.get(form);
         var value = languages.get(lang);
         if (value == null && !DEFAULT_LANGUAGE.equals(lang) && getDefaultIfNotAvailable)
             return languages.get(DEFAULT_LANGUAGE);
@@ -3,7 +3,7 @@ package gov.irs.directfile.api.stateapi.domain.export;
 import java.util.HashMap;
 import java.util.Map;
 
-import gov.irs.directfile.api.loaders.service.FactGraphService;
+import gov.irs.directfile.api.loaders.domain.FactPaths;
 import gov.irs.directfile.models.EvaluatedFactInfo;
 
 import static gov.irs.directfile.api.stateapi.domain.export.ExportUtils.*;
@@ -37,7 +37,7 @@ public class ExportableFacts extends HashMap<String, ExportableData<?>> {
     }
 
     private void putFact(String concretePath, EvaluatedFactInfo evaluatedFactInfo) {
-        var matcher = FactGraphService.ABSTRACT_PATH_UUID_REGEX_PATTERN.matcher(concretePath);
+        var matcher = FactPaths.COLLECTION_ITEM_ID_PATTERN.matcher(concretePath);
         boolean collectionUuidFound = matcher.find();
         if (collectionUuidFound) {
             var collectionBasePath = concretePath.substring(0, matcher.start());
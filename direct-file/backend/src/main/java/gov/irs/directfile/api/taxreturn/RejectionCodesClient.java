@@ -0,0 +1,187 @@
+package gov.irs.directfile.api.taxreturn;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import gov.irs.directfile.api.config.StatusEndpointProperties;
+import gov.irs.directfile.models.RejectedStatus;
+
+/**
+ * Looks up rejection codes in the status app, coalescing the lookups made at about the same time into one request to
+ * its bulk rejection codes endpoint.
+ *
+ * <p>A lookup made while no request is in flight is sent straight away. Lookups made while a request is in flight
+ * join a batch, which the first of them sends as soon as that request is answered, or which the lookup that fills it
+ * sends at once. No lookup waits on a timer, so a lone lookup costs no more than a single request did. Lookups of a
+ * submission id that is already waiting to be sent or in flight share that lookup rather than asking again. A batch
+ * whose request ahead of it takes longer than a request should is sent without waiting any further.
+ */
+@Service
+@Slf4j
+public class RejectionCodesClient {
+    private static final Duration REST_CLIENT_TIMEOUT = Duration.ofSeconds(5);
+    // A request is given up on once it runs into both its connect and its read timeout
+    private static final Duration PREVIOUS_REQUEST_TIMEOUT = REST_CLIENT_TIMEOUT.multipliedBy(2);
+    // Well under the most submission ids the status app accepts in one request
+    static final int MAX_BATCH_SIZE = 100;
+
+    private final RestClient restClient;
+    private final URI rejectionCodesUri;
+    private final int maxBatchSize;
+    private final Duration previousRequestTimeout;
+
+    private final Object lock = new Object();
+    // Lookups not yet answered, by submission id; guarded by lock
+    private final Map<String, CompletableFuture<Optional<List<RejectedStatus>>>> lookups = new HashMap<>();
+    // The batch new lookups join; guarded by lock
+    private List<String> openBatch = new ArrayList<>();
+    // Completes when the last request sent is answered, or null if it has been; guarded by lock
+    private CompletableFuture<Void> inFlight;
+
+    public RejectionCodesClient(
+            RestClient.Builder restClientBuilder, StatusEndpointProperties statusEndpointProperties) {
+        this(
+                buildRestClient(restClientBuilder),
+                URI.create(statusEndpointProperties.getRejectionCodesEndpointURI()),
+                MAX_BATCH_SIZE,
+                PREVIOUS_REQUEST_TIMEOUT);
+    }
+
+    RejectionCodesClient(
+            RestClient restClient, URI rejectionCodesUri, int maxBatchSize, Duration previousRequestTimeout) {
+        this.restClient = restClient;
+        this.rejectionCodesUri = rejectionCodesUri;
+        this.maxBatchSize = maxBatchSize;
+        this.previousRequestTimeout = previousRequestTimeout;
+    }
+
+    private static RestClient buildRestClient(RestClient.Builder restClientBuilder) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(REST_CLIENT_TIMEOUT);
+        requestFactory.setReadTimeout(REST_CLIENT_TIMEOUT);
+        return restClientBuilder.requestFactory(requestFactory).build();
+    }
+
+    /**
+     * Returns the rejection codes of submissionId, or empty if the status app has no completed record of it.
+     *
+     * @throws org.springframework.web.client.RestClientException if the status app could not be asked
+     */
+    public Optional<List<RejectedStatus>> getRejectionCodes(String submissionId) {
+        CompletableFuture<Optional<List<RejectedStatus>>> lookup;
+        List<String> batch = null;
+        CompletableFuture<Void> sent = null;
+        CompletableFuture<Void> previousRequest = null;
+        synchronized (lock) {
+            lookup = lookups.get(submissionId);
+            if (lookup == null) {
+                lookup = new CompletableFuture<>();
+                lookups.put(submissionId, lookup);
+                openBatch.add(submissionId);
+                if (inFlight == null || openBatch.size() >= maxBatchSize) {
+                    batch = openBatch;
+                    sent = close();
+                } else if (openBatch.size() == 1) {
+                    batch = openBatch;
+                    previousRequest = inFlight;
+                }
+            }
+        }
+
+        if (previousRequest != null) {
+            // Lead the batch: send it once the request ahead of it is answered, unless a lookup filled it first
+            awaitAnswer(previousRequest);
+            sent = closeIfOpen(batch);
+        }
+        if (sent != null) {
+            send(batch, sent);
+        }
+
+        try {
+            return lookup.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void awaitAnswer(CompletableFuture<Void> previousRequest) {
+        try {
+            previousRequest.get(previousRequestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn(
+                    "Sending rejection codes request without waiting longer than {} for the one ahead of it",
+                    previousRequestTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Never completed exceptionally, see send
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Stops new lookups joining the open batch and marks it in flight; must hold lock
+    private CompletableFuture<Void> close() {
+        openBatch = new ArrayList<>();
+        inFlight = new CompletableFuture<>();
+        return inFlight;
+    }
+
+    // Closes batch unless a lookup that filled it already has; returns its in flight future if this call closed it
+    private CompletableFuture<Void> closeIfOpen(List<String> batch) {
+        synchronized (lock) {
+            return openBatch == batch ? close() : null;
+        }
+    }
+
+    private void send(List<String> batch, CompletableFuture<Void> sent) {
+        Map<String, List<RejectedStatus>> rejectionCodes = Map.of();
+        RuntimeException failure = null;
+        try {
+            Map<String, List<RejectedStatus>> body = restClient
+                    .post()
+                    .uri(rejectionCodesUri)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(batch)
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<Map<String, List<RejectedStatus>>>() {});
+            if (body != null) {
+                rejectionCodes = body;
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to get rejection codes for {} submission ids", batch.size(), e);
+            failure = e;
+        }
+
+        List<CompletableFuture<Optional<List<RejectedStatus>>>> answered = new ArrayList<>(batch.size());
+        synchronized (lock) {
+            batch.forEach(submissionId -> answered.add(lookups.remove(submissionId)));
+            if (inFlight == sent) {
+                inFlight = null;
+            }
+        }
+        sent.complete(null);
+        for (int i = 0; i < batch.size(); i++) {
+            if (failure != null) {
+                answered.get(i).completeExceptionally(failure);
+            } else {
+                answered.get(i).complete(Optional.ofNullable(rejectionCodes.get(batch.get(i))));
+            }
+        }
+    }
+}
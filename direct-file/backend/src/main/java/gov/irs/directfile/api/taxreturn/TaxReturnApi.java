@@ -36,6 +36,7 @@ import gov.irs.directfile.api.taxreturn.dto.ResponseBody;
 import gov.irs.directfile.api.taxreturn.dto.SignRequestBody;
 import gov.irs.directfile.api.taxreturn.dto.StatusResponseBody;
 import gov.irs.directfile.api.taxreturn.dto.SubmitRequestBody;
+import gov.irs.directfile.api.taxreturn.dto.UpdateFactsRequestBody;
 import gov.irs.directfile.api.taxreturn.dto.UpdateRequestBody;
 
 @RequestMapping("${direct-file.api-version}" + TaxReturnController.baseUrl)
@@ -311,6 +312,65 @@ public interface TaxReturnApi {
                     UpdateRequestBody body,
             HttpServletRequest request);
 
+    @Operation(
+            summary = "Update some of a tax return's facts",
+            description = "Update an existing tax return, writing and deleting only the given facts")
+    @ApiResponses(
+            value = {
+                @ApiResponse(
+                        responseCode = UpdateResponseSuccess.codeString,
+                        description = UpdateResponseSuccess.description,
+                        headers = {
+                            @Header(
+                                    name = "Location",
+                                    description = "Tax return's URI",
+                                    schema = @Schema(type = "string"))
+                        },
+                        content = {@Content(schema = @Schema())}),
+                @ApiResponse(
+                        responseCode = GenericResponseBadData.codeString,
+                        description = GenericResponseBadData.description,
+                        content = {
+                            @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ResponseStatusException.class))
+                        }),
+                @ApiResponse(
+                        responseCode = GenericResponseBadId.codeString,
+                        description = GenericResponseBadId.description,
+                        content = {
+                            @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ApiResponseStatusException.class),
+                                    examples =
+                                            @ExampleObject(
+                                                    value =
+                                                            TaxReturnNotFoundResponseStatusException
+                                                                    .docsExampleObject)),
+                        }),
+                @ApiResponse(
+                        responseCode = UpdateResponseConflict.codeString,
+                        description = UpdateResponseConflict.description,
+                        content = {
+                            @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ResponseStatusException.class))
+                        }),
+            })
+    @PatchMapping(path = "/{id}", consumes = "application/json")
+    ResponseEntity<Void> updateFacts(
+            @PathVariable UUID id,
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(
+                            content = {
+                                @Content(
+                                        schema = @Schema(implementation = UpdateFactsRequestBody.class),
+                                        examples = @ExampleObject(value = UpdateFactsRequestBody.docsExampleObject))
+                            })
+                    @Valid
+                    @RequestBody
+                    UpdateFactsRequestBody body,
+            HttpServletRequest request);
+
     @Operation(summary = "Submit a tax return", description = "Submit a tax return for electronic filing")
     @ApiResponses(
             value = {
@@ -511,6 +571,13 @@ public interface TaxReturnApi {
         public static final String description = "Updated tax return.";
     }
 
+    class UpdateResponseConflict {
+        public static final String codeString = "409";
+        public static final HttpStatusCode code = HttpStatus.CONFLICT;
+        public static final String description =
+                "The tax return was updated by another request since it was read. Retry the update.";
+    }
+
     class SubmitResponseSuccess {
         public static final String codeString = "202";
         public static final String description = "The submission was accepted.";
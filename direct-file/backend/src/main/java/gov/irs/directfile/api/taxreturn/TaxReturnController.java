@@ -12,6 +12,7 @@ import org.modelmapper.ModelMapper;
 import org.modelmapper.record.RecordValueReader;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
@@ -162,6 +163,35 @@ public class TaxReturnController implements TaxReturnApi {
         return ResponseEntity.noContent().header(HttpHeaders.LOCATION, location).build();
     }
 
+    @Override
+    @Auditable(event = EventId.TAX_RETURN_UPDATE)
+    public ResponseEntity<Void> updateFacts(UUID id, UpdateFactsRequestBody body, HttpServletRequest request) {
+        UserInfo userInfo = userService.getCurrentUserInfo();
+        cacheWarmingService.warmCacheForUserExternalId(userInfo.externalId());
+
+        String referer = request.getHeader(HttpHeaders.REFERER);
+        log.info("User {} is updating facts of tax return {} from referer {}", userInfo.id(), id, referer);
+
+        try {
+            taxReturnService.updateFacts(
+                    id, body.toFactsDelta(), body.getStore(), body.getSurveyOptIn(), userInfo.id());
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // IllegalArgumentException: the delta has a fact without a value
+            throw new ResponseStatusException(GenericResponseBadData.code, GenericResponseBadData.description, e);
+        } catch (OptimisticLockingFailureException e) {
+            // Another request wrote the facts after this one read them; the client resends its delta
+            throw new ResponseStatusException(UpdateResponseConflict.code, UpdateResponseConflict.description, e);
+        }
+
+        String location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(id)
+                .toUri()
+                .toString();
+
+        return ResponseEntity.noContent().header(HttpHeaders.LOCATION, location).build();
+    }
+
     @Override
     @Auditable(event = EventId.TAX_RETURN_SUBMIT)
     public ResponseEntity<String> submit(UUID id, SubmitRequestBody body, HttpServletRequest request) {
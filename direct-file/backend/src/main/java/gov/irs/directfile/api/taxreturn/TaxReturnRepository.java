@@ -9,6 +9,7 @@ import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
@@ -24,6 +25,13 @@ public interface TaxReturnRepository extends CrudRepository<TaxReturn, UUID> {
     @Query("SELECT t FROM TaxReturn t JOIN t.owners o WHERE o.id = :userId AND t.taxYear = :taxYear")
     Optional<TaxReturn> findByUserIdAndTaxYear(UUID userId, int taxYear);
 
+    // Claims the facts of a tax return for a facts delta, unless they were written after they were read at
+    // factsVersion. Returns the number of rows claimed, 0 or 1; a claimed row stays locked until the transaction ends.
+    @Modifying
+    @Query("UPDATE TaxReturn t SET t.factsVersion = t.factsVersion + 1"
+            + " WHERE t.id = :id AND t.factsVersion = :factsVersion")
+    int claimFactsVersion(UUID id, long factsVersion);
+
     @Query(value = "SELECT t FROM TaxReturn t WHERE t.id in :taxReturnIds")
     List<TaxReturn> findAllByTaxReturnIds(List<UUID> taxReturnIds);
 
@@ -16,22 +16,19 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.MDC;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.server.ResponseStatusException;
-import org.springframework.web.util.UriComponentsBuilder;
 
 import gov.irs.factgraph.Graph;
 import gov.irs.factgraph.monads.Result;
 
 import gov.irs.directfile.api.audit.AuditLogElement;
 import gov.irs.directfile.api.audit.AuditService;
-import gov.irs.directfile.api.config.StatusEndpointProperties;
 import gov.irs.directfile.api.dataimport.gating.DataImportBehavior;
 import gov.irs.directfile.api.dataimport.gating.DataImportGatingService;
 import gov.irs.directfile.api.dispatch.DispatchContext;
@@ -71,7 +68,6 @@ import gov.irs.directfile.models.message.event.SubmissionEventTypeEnum;
     "PMD.UnnecessaryReturn"
 })
 public class TaxReturnService {
-    private static final Duration REST_CLIENT_TIMEOUT = Duration.ofSeconds(5);
     public static final String UTC_TIMEZONE_NAME = "UTC";
     private final TaxReturnRepository taxReturnRepo;
     private final TaxReturnSubmissionRepository taxReturnSubmissionRepo;
@@ -79,8 +75,7 @@ public class TaxReturnService {
     private final UserService userService;
     private final DispatchService dispatchService;
     private final FactGraphService factGraphService;
-    private final RestClient restClient;
-    private final StatusEndpointProperties statusEndpointProperties;
+    private final RejectionCodesClient rejectionCodesClient;
     private final SendEmailQueueService sendEmailQueueService;
     private final SubmissionEventRepository submissionEventRepository;
     private final AdvisoryLockRepository advisoryLockRepository;
@@ -99,6 +94,9 @@ public class TaxReturnService {
 
     private final StatusResponseBodyCacheService statusResponseBodyCacheService;
 
+    @Value("${direct-file.taxreturn.facts-delta-fold-threshold:32}")
+    private int factsDeltaFoldThreshold;
+
     public TaxReturnService(
             final AuditService auditService,
             final TaxReturnRepository taxReturnRepo,
@@ -106,8 +104,7 @@ public class TaxReturnService {
             final UserService userService,
             final DispatchService dispatchService,
             final FactGraphService factGraphService,
-            final RestClient.Builder restClientBuilder,
-            final StatusEndpointProperties statusEndpointProperties,
+            final RejectionCodesClient rejectionCodesClient,
             final SendEmailQueueService sendEmailQueueService,
             final SubmissionEventRepository submissionEventRepository,
             final Clock systemClock,
@@ -120,12 +117,7 @@ public class TaxReturnService {
         this.userService = userService;
         this.dispatchService = dispatchService;
         this.factGraphService = factGraphService;
-
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-        requestFactory.setConnectTimeout(REST_CLIENT_TIMEOUT);
-        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
-
-        this.statusEndpointProperties = statusEndpointProperties;
+        this.rejectionCodesClient = rejectionCodesClient;
         this.sendEmailQueueService = sendEmailQueueService;
         this.submissionEventRepository = submissionEventRepository;
         this.systemClock = systemClock;
@@ -220,7 +212,8 @@ public class TaxReturnService {
             throw new InvalidDataException(String.format("No user found for user %s", userId));
         }
         addEmailAndTinToFactGraph(userId, facts, loggedInEmail, tin);
-        if (!factGraphService.factsParseCorrectly(facts)) {
+        Optional<Graph> graph = factGraphService.parseFacts(facts);
+        if (graph.isEmpty()) {
             String message =
                     String.format("Facts did not parse correctly, cannot create tax return for user: %s.", userId);
             log.error(message);
@@ -330,7 +323,8 @@ public class TaxReturnService {
         }
 
         TaxReturn taxReturn = existingTaxReturn.get();
-        if (!factGraphService.factsParseCorrectly(facts)) {
+        Optional<Graph> graph = factGraphService.parseFacts(facts);
+        if (graph.isEmpty()) {
             log.error("Cannot update tax return {} for user: {}. Facts do not parse correctly.", taxReturnId, userId);
 
             throw new InvalidDataException(
@@ -346,6 +340,60 @@ public class TaxReturnService {
         return taxReturnRepo.save(taxReturn);
     }
 
+    /**
+     * Applies only the facts that changed since the last save. The delta is encrypted and added to the end of the tax
+     * return's delta log, so the rest of the facts are not re-encrypted and the facts column is not rewritten. Once the
+     * log reaches {@code direct-file.taxreturn.facts-delta-fold-threshold} entries, the delta is folded into a full
+     * rewrite of the facts instead.
+     *
+     * <p>If the facts were written by another request after this one read them, the delta is not saved and an
+     * {@link org.springframework.dao.OptimisticLockingFailureException} is thrown, so that the client can resend it.
+     */
+    @Transactional
+    public TaxReturn updateFacts(UUID taxReturnId, FactsDelta delta, String store, Boolean surveyOptIn, UUID userId) {
+        Optional<TaxReturn> existingTaxReturn = findByIdAndUserId(taxReturnId, userId);
+
+        if (existingTaxReturn.isEmpty()) {
+            log.error("Cannot update tax return {} for user: {}. Tax Return does not exist.", taxReturnId, userId);
+
+            throw new TaxReturnNotFoundResponseStatusException(
+                    String.format("Tax return %s does not exist.", taxReturnId));
+        }
+
+        TaxReturn taxReturn = existingTaxReturn.get();
+        Map<String, FactTypeWithItem> facts = new HashMap<>(taxReturn.getFacts());
+        delta.applyTo(facts);
+        Optional<Graph> graph = factGraphService.parseFacts(facts);
+        if (graph.isEmpty()) {
+            log.error("Cannot update tax return {} for user: {}. Facts do not parse correctly.", taxReturnId, userId);
+
+            throw new InvalidDataException(
+                    String.format("Facts do not parse correctly for tax return %s.", taxReturnId));
+        }
+        if (taxReturnRepo.claimFactsVersion(taxReturnId, taxReturn.getFactsVersion()) == 0) {
+            log.warn(
+                    "Cannot update tax return {} for user: {}. Facts were written since they were read.",
+                    taxReturnId,
+                    userId);
+
+            throw new ObjectOptimisticLockingFailureException(TaxReturn.class, taxReturnId);
+        }
+
+        if (taxReturn.getFactsDeltaCount() + 1 >= factsDeltaFoldThreshold) {
+            taxReturn.setFacts(facts);
+        } else {
+            taxReturn.applyFactsDelta(delta, facts);
+        }
+        if (store != null) {
+            taxReturn.setStore(store);
+        }
+        if (surveyOptIn != null) {
+            taxReturn.setSurveyOptIn(surveyOptIn);
+        }
+        taxReturn.setDataImportBehavior(null);
+        return taxReturnRepo.save(taxReturn);
+    }
+
     private int getTimezoneOffset(Graph graph) {
         try {
             Result<Object> offset = graph.get("/offset");
@@ -658,22 +706,10 @@ public class TaxReturnService {
     }
 
     protected List<RejectedStatus> getRejectionCodes(String submissionId) {
-        // call out to the configured status application
-        URI rejectionCodesUri;
-        try {
-            // create the URI with the query string
-            rejectionCodesUri = UriComponentsBuilder.fromUri(
-                            new URI(statusEndpointProperties.getRejectionCodesEndpointURI()))
-                    .queryParam("submissionId", submissionId)
-                    .build()
-                    .toUri();
-        } catch (URISyntaxException e) {
-            // this could only happen if the system is wildly misconfigured
-            throw new RuntimeException(e);
-        }
-
+        // call out to the configured status application, along with any other lookups made at the same time
+        Optional<List<RejectedStatus>> rejectionCodes;
         try {
-            return restClient.get().uri(rejectionCodesUri).retrieve().body(new ParameterizedTypeReference<>() {});
+            rejectionCodes = rejectionCodesClient.getRejectionCodes(submissionId);
         } catch (HttpClientErrorException e) {
             throw new ResponseStatusException(
                     TaxReturnApi.GetStatusResponseBadId.code, TaxReturnApi.GetStatusResponseBadId.description, e);
@@ -682,6 +718,8 @@ public class TaxReturnService {
             throw new ResponseStatusException(
                     TaxReturnApi.GetStatusBadState.code, TaxReturnApi.GetStatusBadState.description, e);
         }
+        return rejectionCodes.orElseThrow(() -> new ResponseStatusException(
+                TaxReturnApi.GetStatusResponseBadId.code, TaxReturnApi.GetStatusResponseBadId.description));
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,49 @@
+package gov.irs.directfile.api.taxreturn.dto;
+
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.FactsDelta;
+
+@Getter
+@Setter
+public class UpdateFactsRequestBody {
+    @NotNull(message = "No changed facts provided")
+    private Map<@NotEmpty String, @NotNull FactTypeWithItem> changedFacts;
+
+    private Set<@NotEmpty String> deletedFactPaths;
+
+    // Nullable; the store is only updated when it is sent
+    private String store;
+
+    // Nullable boolean; only want to update database when true/false sent
+    private Boolean surveyOptIn;
+
+    public FactsDelta toFactsDelta() {
+        return new FactsDelta(changedFacts, deletedFactPaths);
+    }
+
+    public static final String docsExampleObject =
+            """
+      {
+         "changedFacts": {
+          "/filers/#363812c5-2b5d-46fd-a1f7-49f07bcf59d7/occupation": {
+            "$type": "gov.irs.factgraph.persisters.StringWrapper",
+            "item": "Scenario Tester"
+          },
+          "/formW2s/#a6ab6f70-0282-4f05-8888-0288526e1ed2/writableWages": {
+            "$type": "gov.irs.factgraph.persisters.DollarWrapper",
+            "item": "15205.00"
+          }
+        },
+        "deletedFactPaths": [
+          "/formW2s/#a6ab6f70-0282-4f05-8888-0288526e1ed2/writableStateWages"
+        ]
+      }""";
+}
@@ -1,19 +1,23 @@
 package gov.irs.directfile.api.taxreturn.models;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Table;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
 import org.hibernate.annotations.*;
 import org.hibernate.type.SqlTypes;
 
 import gov.irs.directfile.api.dataimport.gating.DataImportBehavior;
 import gov.irs.directfile.api.user.models.User;
 import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.FactsDelta;
 import gov.irs.directfile.models.message.event.SubmissionEventTypeEnum;
 
 @Getter
@@ -38,26 +42,123 @@ public class TaxReturn implements TaxReturnEntity {
     @UpdateTimestamp
     private Date updatedAt;
 
+    // Increased on every write of the facts or the delta log. Only a facts delta checks it, so that of two requests
+    // that read the same facts only one can append its delta.
+    @Column(name = "facts_version", nullable = false)
+    private long factsVersion;
+
     @Setter
     @Column(nullable = false)
     private int taxYear;
 
+    // Base64 encrypted JSON. Only rows whose facts have not been written since facts_bytes was added still use it.
     @JdbcTypeCode(SqlTypes.VARCHAR)
     @Column(name = "facts", columnDefinition = "varchar")
     @Setter
     private String factsCipherText;
 
+    @Column(name = "facts_bytes", columnDefinition = "bytea")
+    @Setter
+    private byte[] factsCipherBytes;
+
     @Transient
     private Map<String, FactTypeWithItem> facts;
 
+    // Set when the entity is loaded, so the facts are only decrypted if something reads them
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private Supplier<Map<String, FactTypeWithItem>> factsDecryptor;
+
     public void setFacts(Map<String, FactTypeWithItem> facts) {
         this.setFactsCipherText(DD);
         this.facts = facts;
+        this.factsDecryptor = null;
+        this.pendingFactsDelta = null;
+    }
+
+    @Override
+    public Map<String, FactTypeWithItem> getFacts() {
+        if (factsDecryptor != null) {
+            facts = factsDecryptor.get();
+            factsDecryptor = null;
+        }
+        return facts;
+    }
+
+    @Override
+    public boolean isFactsModified() {
+        return DD.equals(factsCipherText);
+    }
+
+    // Encrypted deltas that are applied on top of the facts column when loading, oldest first. Saving a delta writes
+    // the log with the new entry added at the end and leaves the facts column as it is. Rewriting the facts column
+    // folds the deltas in and empties the log.
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(name = "facts_delta", columnDefinition = "varchar")
+    @Setter
+    private String factsDeltaCipherText;
+
+    // The delta log as last read from the database, while a delta is waiting to be appended to it
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private String committedFactsDeltaCipherText;
+
+    @Transient
+    private FactsDelta pendingFactsDelta;
+
+    /**
+     * Updates the facts to {@code facts}, which must be the current facts with {@code delta} applied, and saves only
+     * the delta instead of rewriting the whole facts column. If the facts column is already going to be rewritten,
+     * this is the same as {@link #setFacts(Map)}.
+     */
+    public void applyFactsDelta(FactsDelta delta, Map<String, FactTypeWithItem> facts) {
+        if (DD.equals(factsCipherText)) {
+            this.setFacts(facts);
+            return;
+        }
+        if (pendingFactsDelta == null) {
+            this.committedFactsDeltaCipherText = factsDeltaCipherText;
+            this.pendingFactsDelta = delta;
+        } else {
+            this.pendingFactsDelta = pendingFactsDelta.andThen(delta);
+        }
+        this.setFactsDeltaCipherText(DD);
+        this.facts = facts;
+        this.factsDecryptor = null;
+    }
+
+    @Override
+    public void appendFactsDeltaCipherText(String cipherText) {
+        this.factsDeltaCipherText = committedFactsDeltaCipherText == null || committedFactsDeltaCipherText.isEmpty()
+                ? cipherText
+                : committedFactsDeltaCipherText + TaxReturnEntityListener.FACTS_DELTA_SEPARATOR + cipherText;
+        this.committedFactsDeltaCipherText = null;
+        this.pendingFactsDelta = null;
+    }
+
+    @Override
+    public void incrementFactsVersion() {
+        this.factsVersion++;
+    }
+
+    public int getFactsDeltaCount() {
+        String cipherText = pendingFactsDelta == null ? factsDeltaCipherText : committedFactsDeltaCipherText;
+        if (cipherText == null || cipherText.isEmpty()) {
+            return 0;
+        }
+        return StringUtils.countMatches(cipherText, TaxReturnEntityListener.FACTS_DELTA_SEPARATOR) + 1;
     }
 
     @Override
     public void setFactsWithoutDirtyingEntity(Map<String, FactTypeWithItem> facts) {
         this.facts = facts;
+        this.factsDecryptor = null;
+    }
+
+    @Override
+    public void setFactsDecryptor(Supplier<Map<String, FactTypeWithItem>> factsDecryptor) {
+        this.facts = null;
+        this.factsDecryptor = factsDecryptor;
     }
 
     @ManyToMany(mappedBy = "taxReturns")
@@ -86,14 +187,45 @@ public class TaxReturn implements TaxReturnEntity {
     @Transient
     private String store;
 
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private Supplier<String> storeDecryptor;
+
+    @Override
+    public String getStore() {
+        if (storeDecryptor != null) {
+            store = storeDecryptor.get();
+            storeDecryptor = null;
+        }
+        return store;
+    }
+
     public void setStore(String store) {
         this.setStoreCipherText(DD);
         this.store = store;
+        this.storeDecryptor = null;
     }
 
     @Override
     public void setStoreWithoutDirtyingEntity(String store) {
         this.store = store;
+        this.storeDecryptor = null;
+    }
+
+    @Override
+    public void setStoreDecryptor(Supplier<String> storeDecryptor) {
+        this.store = null;
+        this.storeDecryptor = storeDecryptor;
+    }
+
+    @Override
+    public boolean storesFactsAsBytes() {
+        return true;
+    }
+
+    @Override
+    public boolean isStoreModified() {
+        return DD.equals(storeCipherText);
     }
 
     @OneToMany(mappedBy = "taxReturn", cascade = CascadeType.ALL, targetEntity = TaxReturnSubmission.class)
@@ -121,7 +253,7 @@ public class TaxReturn implements TaxReturnEntity {
             setMostRecentSubmitTime(new Date());
         }
         taxReturnSubmission.setCreatedAt(getMostRecentSubmitTime());
-        taxReturnSubmission.setFacts(facts);
+        taxReturnSubmission.setFacts(getFacts());
         taxReturnSubmission.setSubmitUserId(getMostRecentSubmitUserId());
         taxReturnSubmission.setTaxReturn(this);
         taxReturnSubmission.addSubmissionEvent(SubmissionEventTypeEnum.PROCESSING);
@@ -170,7 +302,7 @@ public class TaxReturn implements TaxReturnEntity {
         // Populate the fields we care about.
         TaxReturn newTaxReturn = new TaxReturn();
         newTaxReturn.id = UUID.randomUUID();
-        newTaxReturn.facts = taxReturn.facts;
+        newTaxReturn.facts = taxReturn.getFacts();
         return newTaxReturn;
     }
 
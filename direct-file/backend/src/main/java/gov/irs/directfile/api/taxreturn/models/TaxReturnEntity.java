@@ -2,8 +2,10 @@ package gov.irs.directfile.api.taxreturn.models;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.FactsDelta;
 
 public interface TaxReturnEntity {
     UUID getId();
@@ -12,15 +14,34 @@ public interface TaxReturnEntity {
 
     void setFactsCipherText(String cipherText);
 
+    // The bytea facts column is part of TaxReturn, not TaxReturnSubmission
+    default boolean storesFactsAsBytes() {
+        return false;
+    }
+
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+    default byte[] getFactsCipherBytes() {
+        return null;
+    }
+
+    default void setFactsCipherBytes(byte[] cipherBytes) {}
+
     Map<String, FactTypeWithItem> getFacts();
 
     void setFactsWithoutDirtyingEntity(Map<String, FactTypeWithItem> facts);
 
+    // Replaces the facts with ones that are decrypted on the first call to getFacts()
+    void setFactsDecryptor(Supplier<Map<String, FactTypeWithItem>> factsDecryptor);
+
+    boolean isFactsModified();
+
     // Field "store" is part of TaxReturn, not TaxReturnSubmission
     default void setStoreCipherText(String store) {}
 
     default void setStoreWithoutDirtyingEntity(String store) {}
 
+    default void setStoreDecryptor(Supplier<String> storeDecryptor) {}
+
     default String getStoreCipherText() {
         return null;
     }
@@ -28,4 +49,23 @@ public interface TaxReturnEntity {
     default String getStore() {
         return null;
     }
+
+    default boolean isStoreModified() {
+        return false;
+    }
+
+    // The facts delta log is part of TaxReturn, not TaxReturnSubmission
+    default String getFactsDeltaCipherText() {
+        return null;
+    }
+
+    default void setFactsDeltaCipherText(String cipherText) {}
+
+    default FactsDelta getPendingFactsDelta() {
+        return null;
+    }
+
+    default void appendFactsDeltaCipherText(String cipherText) {}
+
+    default void incrementFactsVersion() {}
 }
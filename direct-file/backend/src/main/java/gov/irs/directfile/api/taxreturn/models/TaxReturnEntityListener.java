@@ -14,6 +14,8 @@ import org.springframework.stereotype.Component;
 import gov.irs.directfile.api.authentication.NullAuthenticationException;
 import gov.irs.directfile.api.config.identity.IdentityAttributes;
 import gov.irs.directfile.api.config.identity.IdentitySupplier;
+import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.FactsDelta;
 import gov.irs.directfile.models.encryption.DataEncryptDecrypt;
 import gov.irs.directfile.models.encryption.FactsEncryptor;
 import gov.irs.directfile.models.encryption.GenericStringEncryptor;
@@ -21,6 +23,9 @@ import gov.irs.directfile.models.encryption.GenericStringEncryptor;
 @Component
 @SuppressFBWarnings(value = {"ST_WRITE_TO_STATIC_FROM_INSTANCE_METHOD"})
 public class TaxReturnEntityListener {
+    // Base64 never contains a comma, so it can separate the entries of the facts delta log
+    static final String FACTS_DELTA_SEPARATOR = ",";
+
     private static IdentitySupplier identitySupplier;
     private static FactsEncryptor factsEncryptor;
     private static GenericStringEncryptor genericStringEncryptor;
@@ -35,15 +40,75 @@ public class TaxReturnEntityListener {
 
     @PostLoad
     public <T extends TaxReturnEntity> void decryptColumns(T taxReturn) {
-        taxReturn.setFactsWithoutDirtyingEntity(
-                factsEncryptor.convertToEntityAttribute(taxReturn.getFactsCipherText()));
-        taxReturn.setStoreWithoutDirtyingEntity(
-                genericStringEncryptor.convertToEntityAttribute(taxReturn.getStoreCipherText()));
+        // Many callers only need the id or the owners, so decryption waits until the facts or store are read
+        taxReturn.setFactsDecryptor(() -> decryptFacts(taxReturn));
+        taxReturn.setStoreDecryptor(
+                () -> genericStringEncryptor.convertToEntityAttribute(taxReturn.getStoreCipherText()));
     }
 
     @PrePersist
-    @PreUpdate
     public <T extends TaxReturnEntity> void encryptColumns(T taxReturn) {
+        Map<String, String> encryptionContext = getEncryptionContext();
+        encryptFacts(taxReturn, encryptionContext);
+        encryptStore(taxReturn, encryptionContext);
+    }
+
+    @PreUpdate
+    public <T extends TaxReturnEntity> void encryptModifiedColumns(T taxReturn) {
+        FactsDelta pendingFactsDelta = taxReturn.getPendingFactsDelta();
+        boolean factsModified = pendingFactsDelta != null || taxReturn.isFactsModified();
+        if (!factsModified && !taxReturn.isStoreModified()) {
+            return;
+        }
+
+        Map<String, String> encryptionContext = getEncryptionContext();
+        if (pendingFactsDelta != null) {
+            // Only the delta changed, so leave the facts column alone and append the delta to the log
+            taxReturn.appendFactsDeltaCipherText(
+                    factsEncryptor.convertDeltaToDatabaseColumn(pendingFactsDelta, encryptionContext));
+            taxReturn.incrementFactsVersion();
+        } else if (factsModified) {
+            encryptFacts(taxReturn, encryptionContext);
+        }
+        if (taxReturn.isStoreModified()) {
+            encryptStore(taxReturn, encryptionContext);
+        }
+    }
+
+    private static Map<String, FactTypeWithItem> decryptFacts(TaxReturnEntity taxReturn) {
+        byte[] factsCipherBytes = taxReturn.getFactsCipherBytes();
+        Map<String, FactTypeWithItem> facts = factsCipherBytes != null
+                ? factsEncryptor.convertToEntityAttribute(factsCipherBytes)
+                : factsEncryptor.convertToEntityAttribute(taxReturn.getFactsCipherText());
+        String factsDeltaCipherText = taxReturn.getFactsDeltaCipherText();
+        if (factsDeltaCipherText != null && !factsDeltaCipherText.isEmpty()) {
+            for (String entry : factsDeltaCipherText.split(FACTS_DELTA_SEPARATOR)) {
+                factsEncryptor.convertToFactsDelta(entry).applyTo(facts);
+            }
+        }
+        return facts;
+    }
+
+    private static void encryptFacts(TaxReturnEntity taxReturn, Map<String, String> encryptionContext) {
+        if (taxReturn.storesFactsAsBytes()) {
+            // Clearing the varchar column moves rows that were written before facts_bytes existed over to it
+            taxReturn.setFactsCipherBytes(
+                    factsEncryptor.convertToDatabaseBytes(taxReturn.getFacts(), encryptionContext));
+            taxReturn.setFactsCipherText(null);
+        } else {
+            taxReturn.setFactsCipherText(
+                    factsEncryptor.convertToDatabaseColumn(taxReturn.getFacts(), encryptionContext));
+        }
+        taxReturn.setFactsDeltaCipherText(null);
+        taxReturn.incrementFactsVersion();
+    }
+
+    private static void encryptStore(TaxReturnEntity taxReturn, Map<String, String> encryptionContext) {
+        taxReturn.setStoreCipherText(
+                genericStringEncryptor.convertToDatabaseColumn(taxReturn.getStore(), encryptionContext));
+    }
+
+    private static Map<String, String> getEncryptionContext() {
         Map<String, String> encryptionContext = new HashMap<>();
         try {
             IdentityAttributes identityAttributes = identitySupplier.get();
@@ -53,9 +118,6 @@ public class TaxReturnEntityListener {
             encryptionContext.put("system", "DIRECTFILE");
             encryptionContext.put("type", "API");
         }
-
-        taxReturn.setFactsCipherText(factsEncryptor.convertToDatabaseColumn(taxReturn.getFacts(), encryptionContext));
-        taxReturn.setStoreCipherText(
-                genericStringEncryptor.convertToDatabaseColumn(taxReturn.getStore(), encryptionContext));
+        return encryptionContext;
     }
 }
@@ -1,8 +1,10 @@
 package gov.irs.directfile.api.taxreturn.models;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -64,14 +66,41 @@ public class TaxReturnSubmission implements TaxReturnEntity {
     @Transient
     private Map<String, FactTypeWithItem> facts;
 
+    // Decrypts the facts on the first call to getFacts() after loading
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private Supplier<Map<String, FactTypeWithItem>> factsDecryptor;
+
+    @Override
+    public Map<String, FactTypeWithItem> getFacts() {
+        if (factsDecryptor != null) {
+            facts = factsDecryptor.get();
+            factsDecryptor = null;
+        }
+        return facts;
+    }
+
     public void setFacts(Map<String, FactTypeWithItem> facts) {
         this.setFactsCipherText(DD);
         this.facts = facts;
+        this.factsDecryptor = null;
     }
 
     @Override
     public void setFactsWithoutDirtyingEntity(Map<String, FactTypeWithItem> facts) {
         this.facts = facts;
+        this.factsDecryptor = null;
+    }
+
+    @Override
+    public void setFactsDecryptor(Supplier<Map<String, FactTypeWithItem>> factsDecryptor) {
+        this.facts = null;
+        this.factsDecryptor = factsDecryptor;
+    }
+
+    @Override
+    public boolean isFactsModified() {
+        return DD.equals(factsCipherText);
     }
 
     @Setter
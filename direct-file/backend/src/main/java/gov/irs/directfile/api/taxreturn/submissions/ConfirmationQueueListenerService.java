@@ -11,6 +11,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.stereotype.Service;
 
 import gov.irs.directfile.api.config.MessageQueueConfigurationProperties;
+import gov.irs.directfile.models.message.QueueMessageDispatcher;
 import gov.irs.directfile.models.message.confirmation.VersionedSubmissionConfirmationMessage;
 import gov.irs.directfile.models.message.confirmation.payload.AbstractSubmissionConfirmationPayload;
 
@@ -20,15 +21,18 @@ import gov.irs.directfile.models.message.confirmation.payload.AbstractSubmission
 @EnableConfigurationProperties(MessageQueueConfigurationProperties.class)
 public class ConfirmationQueueListenerService implements MessageListener {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private String queueName;
-    private final SubmissionConfirmationMessageRouter submissionConfirmationMessageRouter;
+    private final QueueMessageDispatcher queueMessageDispatcher;
 
     ConfirmationQueueListenerService(
             MessageQueueConfigurationProperties messageQueueConfigurationProperties,
             SubmissionConfirmationMessageRouter submissionConfirmationMessageRouter) {
         this.queueName = messageQueueConfigurationProperties.getSubmissionConfirmationQueue();
-        this.submissionConfirmationMessageRouter = submissionConfirmationMessageRouter;
+        this.queueMessageDispatcher = new QueueMessageDispatcher(new ObjectMapper())
+                .on(
+                        new TypeReference<
+                                VersionedSubmissionConfirmationMessage<AbstractSubmissionConfirmationPayload>>() {},
+                        submissionConfirmationMessageRouter::handleSubmissionConfirmationMessage);
     }
 
     @Override
@@ -38,11 +42,7 @@ public class ConfirmationQueueListenerService implements MessageListener {
         try {
             String rawText = ((TextMessage) message).getText();
             log.info("Received SQS Message: {}", rawText);
-
-            VersionedSubmissionConfirmationMessage<AbstractSubmissionConfirmationPayload>
-                    versionedSubmissionConfirmationMessage = objectMapper.readValue(rawText, new TypeReference<>() {});
-            submissionConfirmationMessageRouter.handleSubmissionConfirmationMessage(
-                    versionedSubmissionConfirmationMessage);
+            queueMessageDispatcher.dispatch(rawText);
 
             message.acknowledge();
         } catch (Exception e) {
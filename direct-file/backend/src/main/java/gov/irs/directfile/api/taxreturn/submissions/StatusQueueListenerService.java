@@ -11,6 +11,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.stereotype.Service;
 
 import gov.irs.directfile.api.config.MessageQueueConfigurationProperties;
+import gov.irs.directfile.models.message.QueueMessageDispatcher;
 import gov.irs.directfile.models.message.status.VersionedStatusChangeMessage;
 import gov.irs.directfile.models.message.status.payload.AbstractStatusChangePayload;
 
@@ -21,17 +22,17 @@ import gov.irs.directfile.models.message.status.payload.AbstractStatusChangePayl
 @EnableConfigurationProperties(MessageQueueConfigurationProperties.class)
 public class StatusQueueListenerService implements MessageListener {
     private final String queueName;
-    private final ObjectMapper objectMapper;
-
-    private final StatusChangeMessageRouter statusChangeMessageRouter;
+    private final QueueMessageDispatcher queueMessageDispatcher;
 
     public StatusQueueListenerService(
             MessageQueueConfigurationProperties messageQueueConfigurationProperties,
             StatusChangeMessageRouter statusChangeMessageRouter,
             ObjectMapper objectMapper) {
         this.queueName = messageQueueConfigurationProperties.getStatusChangeQueue();
-        this.statusChangeMessageRouter = statusChangeMessageRouter;
-        this.objectMapper = objectMapper;
+        this.queueMessageDispatcher = new QueueMessageDispatcher(objectMapper)
+                .on(
+                        new TypeReference<VersionedStatusChangeMessage<AbstractStatusChangePayload>>() {},
+                        statusChangeMessageRouter::handleStatusChangeMessage);
     }
 
     @Override
@@ -42,10 +43,7 @@ public class StatusQueueListenerService implements MessageListener {
             String rawText = ((TextMessage) message).getText();
             // don't log rawText
             // https://git.irslabs.org/irslabs-prototypes/direct-file/-/issues/5306
-
-            VersionedStatusChangeMessage<AbstractStatusChangePayload> versionedStatusChangeMessage =
-                    objectMapper.readValue(rawText, new TypeReference<>() {});
-            statusChangeMessageRouter.handleStatusChangeMessage(versionedStatusChangeMessage);
+            queueMessageDispatcher.dispatch(rawText);
 
             message.acknowledge();
         } catch (Exception e) {
@@ -4,19 +4,30 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import gov.irs.directfile.api.io.documentstore.S3StorageService;
 import gov.irs.directfile.api.io.storagelocations.StorageLocationBuilder;
@@ -27,46 +38,90 @@ import gov.irs.directfile.api.taxreturn.TaxReturnRepository;
 import gov.irs.directfile.api.taxreturn.models.TaxReturn;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.S3NotificationEventHandler;
 
+/**
+ * Generates the English and Spanish PDFs of tax returns and puts them in S3, either for a list of tax return ids or
+ * for every submitted return of a tax year created in a date range.
+ *
+ * <p>Backfills run one at a time on their own thread. Each page of tax returns is rendered on a bounded pool and
+ * uploaded on another. A rendered PDF needs an upload slot, which is taken before rendering, so rendering waits for
+ * uploads; and the next page is only fetched once every return of the current one is done. At most one PDF per
+ * render thread and upload slot is held in memory. PDFs already in S3 are not generated again.
+ *
+ * <p>A date range backfill saves a {@link PdfBackfillCheckpoint} after every page. Sending the same event again resumes
+ * it from its last checkpoint, and on startup any backfill whose checkpoint has not been updated for a while is
+ * resumed automatically. The checkpoint is versioned, so only one instance can run a given backfill.
+ */
 @Service
-@Transactional
 @Slf4j
 public class PDFBackfillToS3Handler implements S3NotificationEventHandler {
     private final TaxReturnRepository taxReturnRepository;
+    private final PdfBackfillCheckpointRepository checkpointRepository;
     private final PdfService pdfService;
     private final S3StorageService s3StorageService;
+    private final Duration staleAfter;
 
     private static final int MAX_TAX_RETURNS_PER_PAGE = 250;
     private static final int MIN_TAX_RETURNS_PER_PAGE = 1;
 
     private static final int TAX_RETURN_BATCH_SIZE = 50;
     private static final String BASE_NAME = "taxreturn";
-    private final ExecutorService executorService;
+    private static final List<PdfLanguages> LANGUAGES = List.of(PdfLanguages.EN, PdfLanguages.ES);
+
+    private final ExecutorService backfillExecutor;
+    private final ExecutorService renderExecutor;
+    private final ExecutorService uploadExecutor;
+    private final Semaphore uploadSlots;
+
+    private final Counter succeededCounter;
+    private final Counter skippedCounter;
+    private final Counter failedCounter;
+
+    private enum Outcome {
+        SUCCEEDED,
+        SKIPPED,
+        FAILED
+    }
 
     public PDFBackfillToS3Handler(
-            TaxReturnRepository taxReturnRepository, PdfService pdfService, S3StorageService s3StorageService) {
+            TaxReturnRepository taxReturnRepository,
+            PdfBackfillCheckpointRepository checkpointRepository,
+            PdfService pdfService,
+            S3StorageService s3StorageService,
+            MeterRegistry meterRegistry,
+            @Value("${direct-file.pdf-backfill.render-parallelism:4}") int renderParallelism,
+            @Value("${direct-file.pdf-backfill.upload-parallelism:8}") int uploadParallelism,
+            @Value("${direct-file.pdf-backfill.stale-after:PT10M}") Duration staleAfter) {
         this.taxReturnRepository = taxReturnRepository;
+        this.checkpointRepository = checkpointRepository;
         this.pdfService = pdfService;
         this.s3StorageService = s3StorageService;
-        /** Note: I wasn't sure how many threads to use in this thread pool. So I used a formula from this article:
-         * https://engineering.zalando.com/posts/2019/04/how-to-set-an-ideal-thread-pool-size.html
-         *
-         * Number of threads = Number of Available Cores * (1 + Wait time / Service time)
-         * Waiting time:  is the time spent waiting for IO bound tasks to complete, say waiting for HTTP response from
-         * remote service.
-         * Service Time:  is the time spent being busy, say processing the HTTP response, marshaling/unmarshaling, any
-         * other transformations etc.
-         *
-         * Wait Time: Assume S3 upload for both files takes 3 seconds -> 3000ms (S3 is way faster, but just chose a round number)
-         * Service Time: We don't do anything, but I'll say we have 1000ms of processing time
-         */
-        int totalThreads = Runtime.getRuntime().availableProcessors() * (1 + (3000 / 1000));
-        log.info("Running executor service with {} threads.", totalThreads);
-        this.executorService = Executors.newFixedThreadPool(totalThreads);
+        this.staleAfter = staleAfter;
+
+        log.info(
+                "Running PDF backfills with {} render threads and {} upload slots.",
+                renderParallelism,
+                uploadParallelism);
+        this.backfillExecutor =
+                Executors.newSingleThreadExecutor(Thread.ofPlatform().name("pdf-backfill").factory());
+        this.renderExecutor = Executors.newFixedThreadPool(
+                renderParallelism, Thread.ofPlatform().name("pdf-backfill-render-", 0).factory());
+        // Uploads are limited by uploadSlots alone, virtual threads are cheap enough to start one per upload
+        this.uploadExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("pdf-backfill-upload-", 0).factory());
+        this.uploadSlots = new Semaphore(uploadParallelism);
+
+        meterRegistry.gauge(
+                "pdf.backfill.uploads.in.flight", uploadSlots, slots -> uploadParallelism - slots.availablePermits());
+        this.succeededCounter = meterRegistry.counter("pdf.backfill.tax.returns", "outcome", "succeeded");
+        this.skippedCounter = meterRegistry.counter("pdf.backfill.tax.returns", "outcome", "skipped");
+        this.failedCounter = meterRegistry.counter("pdf.backfill.tax.returns", "outcome", "failed");
     }
 
     @PreDestroy
     public void teardown() {
-        executorService.shutdown();
+        backfillExecutor.shutdownNow();
+        renderExecutor.shutdown();
+        uploadExecutor.shutdown();
     }
 
     @Override
@@ -87,10 +142,10 @@ public class PDFBackfillToS3Handler implements S3NotificationEventHandler {
                 idsArr.forEachRemaining(taxReturnUUIDJson -> {
                     uuids.add(UUID.fromString(taxReturnUUIDJson.asText()));
                 });
-                new Thread(() -> generatePDFsFromTaxReturnIdList(uuids)).start();
+                backfillExecutor.submit(() -> generatePDFsFromTaxReturnIdList(uuids));
             } else {
                 int queryLimit = Math.min(Math.max(MIN_TAX_RETURNS_PER_PAGE, resultsPerPage), MAX_TAX_RETURNS_PER_PAGE);
-                new Thread(() -> generatePDFsForS3(queryLimit, startDate, endDate, taxYear)).start();
+                backfillExecutor.submit(() -> generatePDFsForS3(queryLimit, startDate, endDate, taxYear));
             }
 
         } catch (ParseException e) {
@@ -98,124 +153,224 @@ public class PDFBackfillToS3Handler implements S3NotificationEventHandler {
         }
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedBackfills() {
+        Date staleBefore = Date.from(Instant.now().minus(staleAfter));
+        List<PdfBackfillCheckpoint> interrupted =
+                checkpointRepository.findByCompletedFalseAndUpdatedAtBefore(staleBefore);
+        for (PdfBackfillCheckpoint checkpoint : interrupted) {
+            log.info("Resuming interrupted PDF backfill {}", checkpoint.getId());
+            backfillExecutor.submit(() -> runBackfill(checkpoint));
+        }
+    }
+
     public void generatePDFsFromTaxReturnIdList(List<UUID> taxReturnIds) {
         // 1. Partition list into buckets of 50
         List<List<UUID>> partitions = partitionList(taxReturnIds, TAX_RETURN_BATCH_SIZE);
-        List<UUID> failedTaxReturnsUUIDs = new ArrayList<>();
-        List<UUID> successfulTaxReturnUUIDs = new ArrayList<>();
-
-        for (List<UUID> partition : partitions) {
-            List<TaxReturn> taxReturns = taxReturnRepository.findAllByTaxReturnIds(partition);
-            List<Callable<Void>> tasks = new ArrayList<>();
+        Map<Outcome, List<UUID>> outcomes = new EnumMap<>(Outcome.class);
 
-            try {
-                for (TaxReturn taxReturn : taxReturns) {
-                    tasks.add(uploadPdfTask(taxReturn, failedTaxReturnsUUIDs, successfulTaxReturnUUIDs));
-                }
-                executorService.invokeAll(tasks);
-            } catch (InterruptedException e) {
-                log.error("Upload interuppted for partition with ids: {}", partition);
-                failedTaxReturnsUUIDs.addAll(
-                        taxReturns.stream().map(TaxReturn::getId).toList());
+        try {
+            for (List<UUID> partition : partitions) {
+                backfillPage(taxReturnRepository.findAllByTaxReturnIds(partition))
+                        .forEach((outcome, ids) ->
+                                outcomes.computeIfAbsent(outcome, o -> new ArrayList<>()).addAll(ids));
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("PDF backfill of tax return ids was interrupted");
         }
-        log.info("Completed persistence of all pdfs to Amazon s3. " + " Total Tax Returns Processed: "
-                + (successfulTaxReturnUUIDs.size() + failedTaxReturnsUUIDs.size()) + " "
-                + " Successful Tax Returns Processed: " + successfulTaxReturnUUIDs.size() + " "
-                + " Failed Tax Returns Processed: "
-                + failedTaxReturnsUUIDs.size());
-        log.info("Unable to persist PDFs for the following tax returns: {} ", failedTaxReturnsUUIDs);
+        log.info(
+                "Completed persistence of all pdfs to Amazon s3. Successful: {} Skipped: {} Failed: {}",
+                count(outcomes, Outcome.SUCCEEDED),
+                count(outcomes, Outcome.SKIPPED),
+                count(outcomes, Outcome.FAILED));
+        log.info(
+                "Unable to persist PDFs for the following tax returns: {} ",
+                outcomes.getOrDefault(Outcome.FAILED, List.of()));
     }
 
     public void generatePDFsForS3(int limit, Date startDate, Date endDate, int taxYear) {
-        // Based on Spring Docs for Scrolling:
-        // https://docs.spring.io/spring-data/jpa/reference/jpa/query-methods.html#repositories.scrolling
-        Limit resultsLimit = Limit.of(limit);
-        Window<TaxReturn> taxReturns = taxReturnRepository.findByTaxYearAndCreatedAtBetweenOrderByCreatedAtAsc(
-                resultsLimit, ScrollPosition.offset(), taxYear, startDate, endDate);
-
-        // Based on Spring Docs for scrolling through Window:
-        // https://docs.spring.io/spring-data/jpa/reference/data-commons/repositories/scrolling.html
+        PdfBackfillCheckpoint checkpoint = checkpointRepository
+                .findById(PdfBackfillCheckpoint.idFor(taxYear, startDate, endDate))
+                .orElseGet(() -> new PdfBackfillCheckpoint(taxYear, startDate, endDate, limit));
+        if (checkpoint.isCompleted()) {
+            log.info("PDF backfill {} has already completed", checkpoint.getId());
+            return;
+        }
+        checkpoint.setPageSize(limit);
+        runBackfill(checkpoint);
+    }
+
+    private void runBackfill(PdfBackfillCheckpoint initialCheckpoint) {
+        PdfBackfillCheckpoint checkpoint = initialCheckpoint;
+        int taxYear = checkpoint.getTaxYear();
+        Date startDate = checkpoint.getStartDate();
+        Date endDate = checkpoint.getEndDate();
+        Limit resultsLimit = Limit.of(checkpoint.getPageSize());
         log.info(
-                "Generating PDFs for time range - start date: {} , end date: {} with page size: {}",
+                "Generating PDFs for time range - start date: {} , end date: {} with page size: {}, resuming after {}",
                 startDate,
                 endDate,
-                limit);
-        List<UUID> failedTaxReturnUUIDs = new ArrayList<>();
-        List<UUID> successfulTaxReturnUUIDs = new ArrayList<>();
+                checkpoint.getPageSize(),
+                checkpoint.getLastTaxReturnId());
 
-        while (!taxReturns.isEmpty()) {
-            try {
-                List<Callable<Void>> tasks = new ArrayList<>();
-                for (TaxReturn taxReturn : taxReturns) {
-                    if (taxReturn.hasBeenSubmittedAtLeastOnce()) {
-                        tasks.add(uploadPdfTask(taxReturn, failedTaxReturnUUIDs, successfulTaxReturnUUIDs));
-                    }
+        try {
+            // Saving claims the backfill: if another instance saves it first, the version check fails.
+            checkpoint = saveCheckpoint(checkpoint);
+
+            // Based on Spring Docs for scrolling through Window:
+            // https://docs.spring.io/spring-data/jpa/reference/data-commons/repositories/scrolling.html
+            Window<TaxReturn> taxReturns = taxReturnRepository.findByTaxYearAndCreatedAtBetweenOrderByCreatedAtAsc(
+                    resultsLimit, scrollPositionOf(checkpoint), taxYear, startDate, endDate);
+            while (!taxReturns.isEmpty()) {
+                Map<Outcome, List<UUID>> outcomes = backfillPage(taxReturns.stream()
+                        .filter(TaxReturn::hasBeenSubmittedAtLeastOnce)
+                        .toList());
+
+                KeysetScrollPosition position = (KeysetScrollPosition) taxReturns.positionAt(taxReturns.size() - 1);
+                checkpoint.setLastCreatedAt((Date) position.getKeys().get("createdAt"));
+                checkpoint.setLastTaxReturnId((UUID) position.getKeys().get("id"));
+                List<UUID> failed = outcomes.getOrDefault(Outcome.FAILED, List.of());
+                checkpoint.setSucceeded(checkpoint.getSucceeded() + count(outcomes, Outcome.SUCCEEDED));
+                checkpoint.setSkipped(checkpoint.getSkipped() + count(outcomes, Outcome.SKIPPED));
+                checkpoint.setFailed(checkpoint.getFailed() + failed.size());
+                checkpoint.setCompleted(!taxReturns.hasNext());
+                checkpoint = saveCheckpoint(checkpoint);
+                if (!failed.isEmpty()) {
+                    log.info(
+                            "Unable to persist PDFs for the following tax returns of backfill {}: {}",
+                            checkpoint.getId(),
+                            failed);
                 }
-                executorService.invokeAll(tasks);
-            } catch (InterruptedException e) {
-                log.error("Error processing tax returns in the batch.");
-                failedTaxReturnUUIDs.addAll(
-                        taxReturns.stream().map(TaxReturn::getId).toList());
-            }
 
-            taxReturns = taxReturnRepository.findByTaxYearAndCreatedAtBetweenOrderByCreatedAtAsc(
-                    resultsLimit, taxReturns.positionAt(taxReturns.size() - 1), taxYear, startDate, endDate);
+                if (!taxReturns.hasNext()) {
+                    break;
+                }
+                taxReturns = taxReturnRepository.findByTaxYearAndCreatedAtBetweenOrderByCreatedAtAsc(
+                        resultsLimit, position, taxYear, startDate, endDate);
+            }
+            checkpoint.setCompleted(true);
+            checkpoint = saveCheckpoint(checkpoint);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("PDF backfill {} was interrupted and will resume from its last checkpoint", checkpoint.getId());
+            return;
+        } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+            log.warn("PDF backfill {} is being run by another instance, stopping here", checkpoint.getId());
+            return;
         }
 
         log.info(
                 "Completed PDF Backfill for time range - start date: {} , end date: {}. "
-                        + "Successfully Processed Returns Count: {}   Processing Failure Count: {}",
+                        + "Successfully Processed Returns Count: {}   Skipped Count: {}   Processing Failure Count: {}",
                 startDate,
                 endDate,
-                successfulTaxReturnUUIDs.size(),
-                failedTaxReturnUUIDs.size());
-        log.info(
-                "Unable to persist PDFs for the following tax returns for time range - start date: {} , end date: {} : {} ",
-                startDate,
-                endDate,
-                failedTaxReturnUUIDs);
+                checkpoint.getSucceeded(),
+                checkpoint.getSkipped(),
+                checkpoint.getFailed());
+    }
+
+    private static int count(Map<Outcome, List<UUID>> outcomes, Outcome outcome) {
+        return outcomes.getOrDefault(outcome, List.of()).size();
+    }
+
+    private PdfBackfillCheckpoint saveCheckpoint(PdfBackfillCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(new Date());
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private static ScrollPosition scrollPositionOf(PdfBackfillCheckpoint checkpoint) {
+        if (checkpoint.getLastTaxReturnId() == null) {
+            return ScrollPosition.keyset();
+        }
+        // Keyset scrolling adds the id to the sort, so together with createdAt it is a unique cursor.
+        return ScrollPosition.forward(
+                Map.of("createdAt", checkpoint.getLastCreatedAt(), "id", checkpoint.getLastTaxReturnId()));
     }
 
-    private Callable<Void> uploadPdfTask(
-            TaxReturn taxReturn, List<UUID> failedTaxReturns, List<UUID> successTaxReturns) {
-        return () -> {
-            try (InputStream englishTaxReturnPdf =
-                            pdfService.getTaxReturn(PdfLanguages.EN.getPdfLanguage(), taxReturn, false);
-                    InputStream spanishTaxReturnPdf =
-                            pdfService.getTaxReturn(PdfLanguages.ES.getPdfLanguage(), taxReturn, false)) {
-
-                String englishPdfLocation = StorageLocationBuilder.getTaxReturnDocumentLocation(
-                        taxReturn.getTaxYear(), taxReturn.getId(), BASE_NAME, PdfLanguages.EN.getCode());
-                String spanishPdfLocation = StorageLocationBuilder.getTaxReturnDocumentLocation(
-                        taxReturn.getTaxYear(), taxReturn.getId(), BASE_NAME, PdfLanguages.ES.getCode());
-                s3StorageService.write(englishPdfLocation, englishTaxReturnPdf, null);
-                log.info("English pdf for tax return: {} written to {}", taxReturn.getId(), englishPdfLocation);
-                s3StorageService.write(spanishPdfLocation, spanishTaxReturnPdf, null);
-                log.info("Spanish pdf for tax return: {} written to {}", taxReturn.getId(), spanishPdfLocation);
-
-                log.info(
-                        "Published PDFs for tax return {} created at : {}",
-                        taxReturn.getId(),
-                        taxReturn.getCreatedAt());
-            } catch (PdfCreationException e) {
-                log.error(
-                        "Unable to generate PDF for tax return: {} created_at: {}",
-                        taxReturn.getId(),
-                        taxReturn.getCreatedAt(),
-                        e);
-                failedTaxReturns.add(taxReturn.getId());
-            } catch (IOException e) {
-                log.error(
-                        "Failed to write PDF to s3 for tax return: {} created_at: {} ",
-                        taxReturn.getId(),
-                        taxReturn.getCreatedAt(),
-                        e);
-                failedTaxReturns.add(taxReturn.getId());
+    // Each task returns its outcome, so the tallies are only ever touched by the backfill thread.
+    private Map<Outcome, List<UUID>> backfillPage(List<TaxReturn> taxReturns) throws InterruptedException {
+        Map<UUID, Future<Outcome>> tasks = new LinkedHashMap<>();
+        for (TaxReturn taxReturn : taxReturns) {
+            tasks.put(taxReturn.getId(), renderExecutor.submit(() -> backfillTaxReturn(taxReturn)));
+        }
+
+        Map<Outcome, List<UUID>> outcomes = new EnumMap<>(Outcome.class);
+        for (Map.Entry<UUID, Future<Outcome>> task : tasks.entrySet()) {
+            Outcome outcome;
+            try {
+                outcome = task.getValue().get();
+            } catch (ExecutionException e) {
+                log.error("Unexpected error generating PDFs for tax return: {}", task.getKey(), e.getCause());
+                outcome = Outcome.FAILED;
             }
-            successTaxReturns.add(taxReturn.getId());
-            return null;
-        };
+            outcomes.computeIfAbsent(outcome, o -> new ArrayList<>()).add(task.getKey());
+            switch (outcome) {
+                case SUCCEEDED -> succeededCounter.increment();
+                case SKIPPED -> skippedCounter.increment();
+                default -> failedCounter.increment();
+            }
+        }
+        return outcomes;
+    }
+
+    private Outcome backfillTaxReturn(TaxReturn taxReturn) {
+        List<Future<Void>> uploads = new ArrayList<>();
+        try {
+            for (PdfLanguages language : LANGUAGES) {
+                String pdfLocation = StorageLocationBuilder.getTaxReturnDocumentLocation(
+                        taxReturn.getTaxYear(), taxReturn.getId(), BASE_NAME, language.getCode());
+                if (s3StorageService.doesObjectAlreadyExist(pdfLocation)) {
+                    continue;
+                }
+
+                uploadSlots.acquire();
+                InputStream taxReturnPdf;
+                try {
+                    taxReturnPdf = pdfService.getTaxReturn(language.getPdfLanguage(), taxReturn, false);
+                } catch (PdfCreationException | RuntimeException e) {
+                    uploadSlots.release();
+                    throw e;
+                }
+                uploads.add(uploadExecutor.submit(() -> uploadPdf(pdfLocation, taxReturnPdf)));
+            }
+            for (Future<Void> upload : uploads) {
+                upload.get();
+            }
+        } catch (PdfCreationException e) {
+            log.error(
+                    "Unable to generate PDF for tax return: {} created_at: {}",
+                    taxReturn.getId(),
+                    taxReturn.getCreatedAt(),
+                    e);
+            return Outcome.FAILED;
+        } catch (ExecutionException e) {
+            log.error(
+                    "Failed to write PDF to s3 for tax return: {} created_at: {} ",
+                    taxReturn.getId(),
+                    taxReturn.getCreatedAt(),
+                    e.getCause());
+            return Outcome.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.FAILED;
+        }
+
+        if (uploads.isEmpty()) {
+            return Outcome.SKIPPED;
+        }
+        log.info("Published PDFs for tax return {} created at : {}", taxReturn.getId(), taxReturn.getCreatedAt());
+        return Outcome.SUCCEEDED;
+    }
+
+    private Void uploadPdf(String pdfLocation, InputStream taxReturnPdf) throws IOException {
+        try (taxReturnPdf) {
+            s3StorageService.write(pdfLocation, taxReturnPdf, null);
+            log.info("PDF written to {}", pdfLocation);
+        } finally {
+            uploadSlots.release();
+        }
+        return null;
     }
 
     private List<List<UUID>> partitionList(List<UUID> taxReturnUUIDs, int batchSize) {
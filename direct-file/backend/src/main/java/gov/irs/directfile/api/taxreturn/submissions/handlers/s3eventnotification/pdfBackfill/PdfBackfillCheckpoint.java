@@ -0,0 +1,79 @@
+package gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill;
+
+import java.util.Date;
+import java.util.UUID;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Progress of a PDF backfill over a tax year and creation date range, saved after every page so that the backfill can
+ * resume where it stopped. The cursor is the keyset position of the last tax return of the last completed page.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@Table(name = "pdf_backfill_checkpoints")
+public class PdfBackfillCheckpoint {
+    @Id
+    @Column(nullable = false, updatable = false)
+    private String id;
+
+    @Column(name = "tax_year", nullable = false, updatable = false)
+    private int taxYear;
+
+    @Column(name = "start_date", nullable = false, updatable = false)
+    private Date startDate;
+
+    @Column(name = "end_date", nullable = false, updatable = false)
+    private Date endDate;
+
+    @Column(name = "page_size", nullable = false)
+    private int pageSize;
+
+    @Column(name = "last_created_at")
+    private Date lastCreatedAt;
+
+    @Column(name = "last_taxreturn_id")
+    private UUID lastTaxReturnId;
+
+    @Column(nullable = false)
+    private long succeeded;
+
+    @Column(nullable = false)
+    private long skipped;
+
+    @Column(nullable = false)
+    private long failed;
+
+    @Column(nullable = false)
+    private boolean completed;
+
+    // Doubles as a heartbeat: a backfill that is not completed and has not been updated for a while was interrupted.
+    @Column(name = "updated_at", nullable = false)
+    private Date updatedAt;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    public PdfBackfillCheckpoint(int taxYear, Date startDate, Date endDate, int pageSize) {
+        this.id = idFor(taxYear, startDate, endDate);
+        this.taxYear = taxYear;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.pageSize = pageSize;
+        this.updatedAt = new Date();
+    }
+
+    public static String idFor(int taxYear, Date startDate, Date endDate) {
+        return String.format("%d:%tF:%tF", taxYear, startDate, endDate);
+    }
+}
@@ -0,0 +1,10 @@
+package gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.repository.CrudRepository;
+
+public interface PdfBackfillCheckpointRepository extends CrudRepository<PdfBackfillCheckpoint, String> {
+    List<PdfBackfillCheckpoint> findByCompletedFalseAndUpdatedAtBefore(Date updatedBefore);
+}
@@ -1,17 +1,23 @@
 package gov.irs.directfile.api.dispatch;
 
+import java.util.List;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 
 import gov.irs.directfile.api.config.MessageQueueConfigurationProperties;
 import gov.irs.directfile.models.Dispatch;
@@ -24,6 +30,7 @@ import gov.irs.directfile.models.message.dispatch.payload.DispatchPayloadV1;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -40,6 +47,9 @@ class DispatchQueueServiceTest {
     @Mock
     GetQueueUrlResponse getQueueUrlResponse;
 
+    @Mock
+    SdkHttpResponse sdkHttpResponse;
+
     String queueUrl = "http://localhost:4566/000000000000/dispatch-queue";
 
     @BeforeEach
@@ -47,6 +57,11 @@ class DispatchQueueServiceTest {
         dispatchQueueService = new DispatchQueueService(sqs, messageQueueConfigurationProperties);
     }
 
+    @AfterEach
+    public void teardown() {
+        dispatchQueueService.close();
+    }
+
     @Test
     void enqueue_createsJsonStringFromDispatchObjectAndSendsItAsAMessageOnSqs() throws JsonProcessingException {
         Dispatch dispatch = Dispatch.testObjectFactory();
@@ -62,13 +77,21 @@ class DispatchQueueServiceTest {
 
         when(sqs.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(getQueueUrlResponse);
         when(getQueueUrlResponse.queueUrl()).thenReturn(queueUrl);
+        when(getQueueUrlResponse.sdkHttpResponse()).thenReturn(sdkHttpResponse);
+        when(sdkHttpResponse.isSuccessful()).thenReturn(true);
+        when(sqs.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
 
         dispatchQueueService.enqueue(dispatch);
 
-        ArgumentCaptor<SendMessageRequest> captor = ArgumentCaptor.forClass(SendMessageRequest.class);
-        verify(sqs).sendMessage(captor.capture());
-        SendMessageRequest sendMessageRequest = captor.getValue();
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqs, timeout(5000)).sendMessageBatch(captor.capture());
+        List<SendMessageBatchRequestEntry> entries = captor.getValue().entries();
 
-        assertEquals(dispatchJsonString, sendMessageRequest.messageBody());
+        assertEquals(1, entries.size());
+        assertEquals(dispatchJsonString, entries.get(0).messageBody());
+        assertEquals(
+                dispatch.getTaxReturnId().toString(),
+                entries.get(0).messageAttributes().get("TAX-RETURN-ID").stringValue());
     }
 }
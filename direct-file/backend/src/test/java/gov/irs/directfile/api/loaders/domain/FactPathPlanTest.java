@@ -0,0 +1,71 @@
+package gov.irs.directfile.api.loaders.domain;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FactPathPlanTest {
+
+    @Test
+    void compile_plainPath_singleStep() {
+        FactPathPlan plan = FactPathPlan.compile(List.of("/agi"), Set.of());
+
+        assertEquals(List.of(new FactPathPlan.Step("/agi", false, false)), plan.getSteps());
+    }
+
+    @Test
+    void compile_wildcardPath_expandsItemsThenCollection() {
+        FactPathPlan plan = FactPathPlan.compile(List.of("/formW2s/*/wagesTipsOtherComp"), Set.of());
+
+        assertEquals(
+                List.of(
+                        new FactPathPlan.Step("/formW2s/*/wagesTipsOtherComp", true, false),
+                        new FactPathPlan.Step("/formW2s", false, false)),
+                plan.getSteps());
+    }
+
+    @Test
+    void compile_duplicateCollectionSteps_keepsFirst() {
+        FactPathPlan plan =
+                FactPathPlan.compile(List.of("/formW2s/*/wagesTipsOtherComp", "/formW2s/*/ein", "/formW2s"), Set.of());
+
+        assertEquals(
+                List.of(
+                        new FactPathPlan.Step("/formW2s/*/wagesTipsOtherComp", true, false),
+                        new FactPathPlan.Step("/formW2s", false, false),
+                        new FactPathPlan.Step("/formW2s/*/ein", true, false)),
+                plan.getSteps());
+    }
+
+    @Test
+    void compile_exportZero_resolvedAgainstAbstractPath() {
+        Set<String> exportZeroFacts = Set.of("/formW2s/*/wagesTipsOtherComp", "/agi");
+
+        FactPathPlan plan = FactPathPlan.compile(
+                List.of(
+                        "/formW2s/*/wagesTipsOtherComp",
+                        "/formW2s/#0a1b2c3d-0000-4000-8000-000000000001/wagesTipsOtherComp",
+                        "/agi",
+                        "/totalTax"),
+                exportZeroFacts);
+
+        assertEquals(
+                List.of(
+                        new FactPathPlan.Step("/formW2s/*/wagesTipsOtherComp", true, true),
+                        new FactPathPlan.Step("/formW2s", false, false),
+                        new FactPathPlan.Step(
+                                "/formW2s/#0a1b2c3d-0000-4000-8000-000000000001/wagesTipsOtherComp", false, true),
+                        new FactPathPlan.Step("/agi", false, true),
+                        new FactPathPlan.Step("/totalTax", false, false)),
+                plan.getSteps());
+    }
+
+    @Test
+    void compile_noPaths_isEmpty() {
+        assertTrue(FactPathPlan.compile(List.of(), null).isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+package gov.irs.directfile.api.loaders.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import gov.irs.factgraph.Graph;
+
+import gov.irs.directfile.api.loaders.domain.FactPathPlan;
+import gov.irs.directfile.api.loaders.errors.FactGraphSaveException;
+import gov.irs.directfile.api.pdf.load.PdfConfiguration;
+import gov.irs.directfile.models.FactEvaluationResult;
+import gov.irs.directfile.models.FactTypeWithItem;
+
+/**
+ * Measures {@link FactGraphService#extractFacts} over every fact path used by the 2024 PDF templates, the same set
+ * that PdfService extracts for each download.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gov.irs.directfile.api.loaders.service.FactGraphServiceExtractFactsBenchmark}, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FactGraphServiceExtractFactsBenchmark {
+    private static final String SCENARIO = "/scenarios/1040-withholdings-without-attachments.json";
+    private static final String PDF_CONFIGURATIONS = "classpath:/pdf/2024/*/en/configuration.yml";
+
+    private FactGraphService factGraphService;
+    private Set<String> factPaths;
+    private FactPathPlan factPathPlan;
+    private Graph graph;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        factGraphService = new FactGraphService(applicationContext);
+        ReflectionTestUtils.setField(factGraphService, "loadAtStartup", true);
+        ReflectionTestUtils.setField(factGraphService, "factDictionaryXmlPattern", "classpath:/tax/*.xml");
+        ReflectionTestUtils.invokeMethod(factGraphService, "init");
+
+        factPaths = new HashSet<>();
+        for (Resource resource : applicationContext.getResources(PDF_CONFIGURATIONS)) {
+            try (InputStream configuration = resource.getInputStream()) {
+                PdfConfiguration.load(configuration)
+                        .getFactPathsForPdf()
+                        .stream()
+                        .filter(path -> !FactEvaluationResult.isPseudoPath(path))
+                        .map(FactEvaluationResult::collectionIndexToWildcard)
+                        .forEach(factPaths::add);
+            }
+        }
+        factPathPlan = factGraphService.compileFactPaths(factPaths);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (InputStream scenario = FactGraphServiceExtractFactsBenchmark.class.getResourceAsStream(SCENARIO)) {
+            Map<String, FactTypeWithItem> facts =
+                    objectMapper.convertValue(objectMapper.readTree(scenario).get("facts"), new TypeReference<>() {});
+            graph = factGraphService.getGraph(facts);
+        }
+    }
+
+    @Benchmark
+    public FactEvaluationResult compiledPlan() throws JsonProcessingException, FactGraphSaveException {
+        return factGraphService.extractFacts(factPathPlan, graph);
+    }
+
+    @Benchmark
+    public FactEvaluationResult compilePerCall() throws JsonProcessingException, FactGraphSaveException {
+        return factGraphService.extractFacts(factPaths, graph);
+    }
+
+    @Benchmark
+    public FactPathPlan compileOnly() {
+        return factGraphService.compileFactPaths(factPaths);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(FactGraphServiceExtractFactsBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
@@ -0,0 +1,110 @@
+package gov.irs.directfile.api.loaders.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import gov.irs.factgraph.persisters.InMemoryPersister;
+
+import gov.irs.directfile.models.FactTypeWithItem;
+
+/**
+ * Compares building a fact graph persister by writing the facts map to a JSON string and parsing it again against
+ * building it straight from the decoded map.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gov.irs.directfile.api.loaders.service.FactGraphServicePersisterBenchmark}, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FactGraphServicePersisterBenchmark {
+    static final String SCENARIO = "/scenarios/1040-withholdings-without-attachments.json";
+
+    @Param({"500", "1000", "2500", "5000"})
+    public int factCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FactGraphService factGraphService = new FactGraphService(null);
+    private Map<String, FactTypeWithItem> facts;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        facts = scaleFacts(loadScenarioFacts(objectMapper, SCENARIO), factCount);
+    }
+
+    @Benchmark
+    public InMemoryPersister jsonRoundTrip() throws IOException {
+        return InMemoryPersister.apply(objectMapper.writeValueAsString(facts));
+    }
+
+    @Benchmark
+    public InMemoryPersister direct() {
+        return factGraphService.createPersister(facts);
+    }
+
+    static Map<String, FactTypeWithItem> loadScenarioFacts(final ObjectMapper objectMapper, final String scenario)
+            throws IOException {
+        try (InputStream scenarioStream = FactGraphServicePersisterBenchmark.class.getResourceAsStream(scenario)) {
+            JsonNode factsNode = objectMapper.readTree(scenarioStream).get("facts");
+            return objectMapper.convertValue(factsNode, new TypeReference<>() {});
+        }
+    }
+
+    /**
+     * Repeats the scenario's facts under fresh collection item ids until the requested size is reached, so the mix
+     * of fact types stays the same as in a real return.
+     */
+    static Map<String, FactTypeWithItem> scaleFacts(final Map<String, FactTypeWithItem> scenarioFacts, final int size) {
+        List<Map.Entry<String, FactTypeWithItem>> entries = new ArrayList<>(scenarioFacts.entrySet());
+        Map<String, FactTypeWithItem> scaled = new LinkedHashMap<>();
+        int copy = 0;
+        while (scaled.size() < size) {
+            String copyItemId = "#" + new UUID(0, copy++);
+            for (Map.Entry<String, FactTypeWithItem> entry : entries) {
+                if (scaled.size() >= size) break;
+                scaled.put(copyPath(copyItemId, entry.getKey()), entry.getValue());
+            }
+        }
+        return scaled;
+    }
+
+    // Nests an absolute fact path under the copy's item, e.g. /filers becomes /copies/#<id>/filers
+    private static String copyPath(final String copyItemId, final String path) {
+        return String.join("/", "", "copies", copyItemId, path.startsWith("/") ? path.substring(1) : path);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(FactGraphServicePersisterBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
@@ -0,0 +1,55 @@
+package gov.irs.directfile.api.loaders.service;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gov.irs.factgraph.persisters.InMemoryPersister;
+
+import gov.irs.directfile.models.FactTypeWithItem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class FactGraphServicePersisterTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final FactGraphService factGraphService = new FactGraphService(null);
+
+    // Between them, these cover every fact type in the scenarios, collections and collection items included
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "/scenarios/1040-withholdings-without-attachments.json",
+                "/scenarios/hoh-cdcc.json",
+                "/scenarios/cdcc-mfj-carryover-equal-income.json"
+            })
+    void createPersister_matchesTheJsonRoundTrip(String scenario) throws IOException {
+        Map<String, FactTypeWithItem> facts =
+                FactGraphServicePersisterBenchmark.loadScenarioFacts(objectMapper, scenario);
+
+        assertSamePersister(facts);
+    }
+
+    @Test
+    void createPersister_matchesTheJsonRoundTripForTheBenchmarkFacts() throws IOException {
+        Map<String, FactTypeWithItem> facts = FactGraphServicePersisterBenchmark.scaleFacts(
+                FactGraphServicePersisterBenchmark.loadScenarioFacts(
+                        objectMapper, FactGraphServicePersisterBenchmark.SCENARIO),
+                500);
+
+        assertEquals(500, facts.size());
+        facts.keySet().forEach(path -> assertFalse(path.contains("//"), path));
+        assertSamePersister(facts);
+    }
+
+    private void assertSamePersister(Map<String, FactTypeWithItem> facts) throws IOException {
+        InMemoryPersister roundTripped = InMemoryPersister.apply(objectMapper.writeValueAsString(facts));
+        InMemoryPersister direct = factGraphService.createPersister(facts);
+
+        assertEquals(roundTripped.store(), direct.store());
+    }
+}
@@ -0,0 +1,116 @@
+package gov.irs.directfile.api.pdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import gov.irs.directfile.api.config.PdfServiceProperties;
+import gov.irs.directfile.api.io.IOLocationService;
+import gov.irs.directfile.api.loaders.service.FactGraphService;
+import gov.irs.directfile.api.taxreturn.models.TaxReturn;
+import gov.irs.directfile.models.FactTypeWithItem;
+
+/**
+ * Measures a full {@link PdfService#getTaxReturn} download with the templates generated in order on the calling thread
+ * ({@code parallelism} 1) and concurrently. The scenarios have several W-2s and dependents, so they generate many
+ * forms and statements.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gov.irs.directfile.api.pdf.PdfServiceBenchmark}, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PdfServiceBenchmark {
+    @Param({"/scenarios/ticket-6718.json", "/scenarios/cdcc-mfj-filer-qp-multiple-qps.json"})
+    public String scenario;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private PdfService pdfService;
+    private TaxReturn taxReturn;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        pdfService = createPdfService(createFactGraphService(), parallelism);
+        taxReturn = loadTaxReturn(scenario);
+    }
+
+    @Benchmark
+    public byte[] getTaxReturn() throws PdfCreationException, IOException {
+        try (InputStream pdf = pdfService.getTaxReturn("en", taxReturn, false)) {
+            return pdf.readAllBytes();
+        }
+    }
+
+    static FactGraphService createFactGraphService() {
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        FactGraphService factGraphService = new FactGraphService(applicationContext);
+        ReflectionTestUtils.setField(factGraphService, "loadAtStartup", true);
+        ReflectionTestUtils.setField(factGraphService, "factDictionaryXmlPattern", "classpath:/tax/*.xml");
+        ReflectionTestUtils.invokeMethod(factGraphService, "init");
+        return factGraphService;
+    }
+
+    static PdfService createPdfService(FactGraphService factGraphService, int parallelism) throws IOException {
+        // Bind the same templates the application serves, from the classpath.
+        List<PropertySource<?>> sources =
+                new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yaml"));
+        PdfServiceProperties properties = new Binder(
+                        ConfigurationPropertySources.from(sources), new PropertySourcesPlaceholdersResolver(sources))
+                .bind("direct-file.pdfs", PdfServiceProperties.class)
+                .get();
+        properties.setGenerationParallelism(parallelism);
+        return new PdfService(properties, new IOLocationService(null), factGraphService);
+    }
+
+    static TaxReturn loadTaxReturn(String scenario) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (InputStream scenarioStream = PdfServiceBenchmark.class.getResourceAsStream(scenario)) {
+            Map<String, FactTypeWithItem> facts = objectMapper.convertValue(
+                    objectMapper.readTree(scenarioStream).get("facts"), new TypeReference<>() {});
+            TaxReturn taxReturn = TaxReturn.testObjectFactory();
+            taxReturn.setFacts(facts);
+            return taxReturn;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(PdfServiceBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
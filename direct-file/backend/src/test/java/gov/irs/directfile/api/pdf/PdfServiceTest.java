@@ -0,0 +1,79 @@
+package gov.irs.directfile.api.pdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import gov.irs.directfile.api.loaders.service.FactGraphService;
+import gov.irs.directfile.api.taxreturn.models.TaxReturn;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PdfServiceTest {
+    private static PdfService sequentialPdfService;
+    private static PdfService parallelPdfService;
+
+    @BeforeAll
+    static void setup() throws IOException {
+        FactGraphService factGraphService = PdfServiceBenchmark.createFactGraphService();
+        sequentialPdfService = PdfServiceBenchmark.createPdfService(factGraphService, 1);
+        parallelPdfService = PdfServiceBenchmark.createPdfService(factGraphService, 4);
+    }
+
+    // The saved bytes differ by the modification date and document id, so the documents are compared page by page
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                "/scenarios/ticket-6718.json",
+                "/scenarios/cdcc-mfj-filer-qp-multiple-qps.json",
+                "/scenarios/hoh-cdcc.json"
+            })
+    void getTaxReturn_generatesTheSamePdfInParallelAsInOrder(String scenario) throws Exception {
+        TaxReturn taxReturn = PdfServiceBenchmark.loadTaxReturn(scenario);
+
+        for (String language : List.of("en", "es")) {
+            try (PDDocument sequential = generate(sequentialPdfService, language, taxReturn);
+                    PDDocument parallel = generate(parallelPdfService, language, taxReturn)) {
+                assertEquals(sequential.getNumberOfPages(), parallel.getNumberOfPages());
+                assertEquals(pageTexts(sequential), pageTexts(parallel));
+                assertEquals(fieldValues(sequential), fieldValues(parallel));
+            }
+        }
+    }
+
+    private static PDDocument generate(PdfService pdfService, String language, TaxReturn taxReturn)
+            throws PdfCreationException, IOException {
+        try (InputStream pdf = pdfService.getTaxReturn(language, taxReturn, false)) {
+            return Loader.loadPDF(pdf.readAllBytes());
+        }
+    }
+
+    private static List<String> pageTexts(PDDocument document) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        List<String> texts = new ArrayList<>();
+        for (int page = 1; page <= document.getNumberOfPages(); page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            texts.add(stripper.getText(document));
+        }
+        return texts;
+    }
+
+    // In the order the fields were merged, so that a form in the wrong place fails as well as a wrong value
+    private static List<String> fieldValues(PDDocument document) {
+        List<String> values = new ArrayList<>();
+        for (PDField field : document.getDocumentCatalog().getAcroForm().getFieldTree()) {
+            values.add(field.getFullyQualifiedName() + "=" + field.getValueAsString());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,196 @@
+package gov.irs.directfile.api.taxreturn;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import gov.irs.directfile.models.RejectedStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class RejectionCodesClientTest {
+    private static final URI REJECTION_CODES_URI = URI.create("http://localhost:8082/status/rejection-codes");
+    private static final String SUBMISSION_ID1 = "12345620230215000001";
+    private static final String SUBMISSION_ID2 = "12345620230215000002";
+    private static final String SUBMISSION_ID3 = "12345620230215000003";
+
+    private RestClient.Builder restClientBuilder;
+    private MockRestServiceServer server;
+    // Holds the first request until released, so that other lookups are made while it is in flight
+    private final AtomicBoolean firstRequest = new AtomicBoolean(true);
+    private final CountDownLatch firstRequestSent = new CountDownLatch(1);
+    private final CountDownLatch releaseFirstRequest = new CountDownLatch(1);
+
+    @BeforeEach
+    void setup() {
+        restClientBuilder = RestClient.builder().requestInterceptor((request, body, execution) -> {
+            if (firstRequest.getAndSet(false)) {
+                firstRequestSent.countDown();
+                try {
+                    releaseFirstRequest.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return execution.execute(request, body);
+        });
+        server = MockRestServiceServer.bindTo(restClientBuilder)
+                .ignoreExpectOrder(true)
+                .build();
+    }
+
+    @Test
+    void getRejectionCodes_whenNothingIsInFlight_sendsRightAway() {
+        releaseFirstRequest.countDown();
+        expectRequest(List.of(SUBMISSION_ID1), SUBMISSION_ID1);
+        RejectionCodesClient client = client(100);
+
+        assertEquals(
+                List.of(new RejectedStatus("code1", "key1", "description1")),
+                client.getRejectionCodes(SUBMISSION_ID1).orElseThrow());
+        server.verify();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void getRejectionCodes_lookupsMadeWhileARequestIsInFlightShareTheNextRequest() throws Exception {
+        expectRequest(List.of(SUBMISSION_ID1), SUBMISSION_ID1);
+        expectRequest(List.of(SUBMISSION_ID2, SUBMISSION_ID3), SUBMISSION_ID3);
+        RejectionCodesClient client = client(100);
+
+        CompletableFuture<Optional<List<RejectedStatus>>> first =
+                CompletableFuture.supplyAsync(() -> client.getRejectionCodes(SUBMISSION_ID1));
+        firstRequestSent.await();
+        Lookup second = lookUp(client, SUBMISSION_ID2);
+        Lookup third = lookUp(client, SUBMISSION_ID3);
+        Lookup sameAsFirst = lookUp(client, SUBMISSION_ID1);
+        releaseFirstRequest.countDown();
+
+        Optional<List<RejectedStatus>> firstCodes = first.get();
+        assertEquals(firstCodes, sameAsFirst.result());
+        assertEquals(List.of(new RejectedStatus("code1", "key1", "description1")), firstCodes.orElseThrow());
+        assertTrue(second.result().isEmpty());
+        assertEquals(
+                List.of(new RejectedStatus("code1", "key1", "description1")),
+                third.result().orElseThrow());
+        server.verify();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void getRejectionCodes_sendsAFullBatchWithoutWaitingForTheRequestInFlight() throws Exception {
+        expectRequest(List.of(SUBMISSION_ID1), SUBMISSION_ID1);
+        expectRequest(List.of(SUBMISSION_ID2, SUBMISSION_ID3), SUBMISSION_ID2);
+        RejectionCodesClient client = client(2);
+
+        CompletableFuture<Optional<List<RejectedStatus>>> first =
+                CompletableFuture.supplyAsync(() -> client.getRejectionCodes(SUBMISSION_ID1));
+        firstRequestSent.await();
+        Lookup second = lookUp(client, SUBMISSION_ID2);
+        Optional<List<RejectedStatus>> third = client.getRejectionCodes(SUBMISSION_ID3);
+
+        assertTrue(third.isEmpty());
+        assertFalse(first.isDone());
+        releaseFirstRequest.countDown();
+        assertTrue(first.get().isPresent());
+        assertTrue(second.result().isPresent());
+        server.verify();
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void getRejectionCodes_stopsWaitingForARequestInFlightThatIsNotAnswered() throws Exception {
+        expectRequest(List.of(SUBMISSION_ID1), SUBMISSION_ID1);
+        expectRequest(List.of(SUBMISSION_ID2), SUBMISSION_ID2);
+        RejectionCodesClient client = client(100, Duration.ofMillis(100));
+
+        CompletableFuture<Optional<List<RejectedStatus>>> first =
+                CompletableFuture.supplyAsync(() -> client.getRejectionCodes(SUBMISSION_ID1));
+        firstRequestSent.await();
+        Optional<List<RejectedStatus>> second = client.getRejectionCodes(SUBMISSION_ID2);
+
+        assertTrue(second.isPresent());
+        assertFalse(first.isDone());
+        releaseFirstRequest.countDown();
+        assertTrue(first.get().isPresent());
+        server.verify();
+    }
+
+    @Test
+    void getRejectionCodes_whenStatusAppFails_throws() {
+        releaseFirstRequest.countDown();
+        server.expect(requestTo(REJECTION_CODES_URI)).andRespond(withServerError());
+        RejectionCodesClient client = client(100);
+
+        assertThrows(RestClientException.class, () -> client.getRejectionCodes(SUBMISSION_ID1));
+        server.verify();
+    }
+
+    private void expectRequest(List<String> submissionIds, String rejectedSubmissionId) {
+        server.expect(requestTo(REJECTION_CODES_URI))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().json(toJsonArray(submissionIds), true))
+                .andRespond(withSuccess(
+                        String.format(
+                                "{\"%s\":[{\"MeFErrorCode\":\"code1\",\"TranslationKey\":\"key1\",\"MeFDescription\":\"description1\"}]}",
+                                rejectedSubmissionId),
+                        MediaType.APPLICATION_JSON));
+    }
+
+    private static String toJsonArray(List<String> values) {
+        return values.stream().map(value -> "\"" + value + "\"").toList().toString();
+    }
+
+    private RejectionCodesClient client(int maxBatchSize) {
+        return client(maxBatchSize, Duration.ofSeconds(10));
+    }
+
+    private RejectionCodesClient client(int maxBatchSize, Duration previousRequestTimeout) {
+        return new RejectionCodesClient(
+                restClientBuilder.build(), REJECTION_CODES_URI, maxBatchSize, previousRequestTimeout);
+    }
+
+    // Starts a lookup on its own thread and returns once it is waiting, i.e. once it has joined a batch
+    private static Lookup lookUp(RejectionCodesClient client, String submissionId) throws InterruptedException {
+        Lookup lookup = new Lookup(client, submissionId);
+        lookup.thread.start();
+        while (lookup.thread.getState() != Thread.State.WAITING
+                && lookup.thread.getState() != Thread.State.TIMED_WAITING) {
+            Thread.onSpinWait();
+        }
+        return lookup;
+    }
+
+    private static final class Lookup {
+        private final Thread thread;
+        private volatile Optional<List<RejectedStatus>> result;
+
+        private Lookup(RejectionCodesClient client, String submissionId) {
+            thread = new Thread(() -> result = client.getRejectionCodes(submissionId));
+        }
+
+        private Optional<List<RejectedStatus>> result() throws InterruptedException {
+            thread.join();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package gov.irs.directfile.api.taxreturn;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import gov.irs.directfile.api.dataimport.DataImportService;
+import gov.irs.directfile.api.errors.InvalidDataException;
+import gov.irs.directfile.api.errors.TaxReturnNotFoundResponseStatusException;
+import gov.irs.directfile.api.pdf.PdfService;
+import gov.irs.directfile.api.taxreturn.dto.UpdateFactsRequestBody;
+import gov.irs.directfile.api.taxreturn.models.TaxReturn;
+import gov.irs.directfile.api.user.UserService;
+import gov.irs.directfile.api.user.domain.UserInfo;
+import gov.irs.directfile.models.FactTypeWithItem;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaxReturnControllerTest {
+    private static final String BOOLEAN_WRAPPER = "gov.irs.factgraph.persisters.BooleanWrapper";
+    private static final UUID TAX_RETURN_ID = UUID.randomUUID();
+    private static final UserInfo USER_INFO =
+            new UserInfo(UUID.randomUUID(), UUID.randomUUID(), "email@example.com", "123456789");
+
+    @Mock
+    TaxReturnService taxReturnService;
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    PdfService pdfService;
+
+    @Mock
+    EncryptionCacheWarmingService cacheWarmingService;
+
+    @Mock
+    DataImportService dataImportService;
+
+    TaxReturnController taxReturnController;
+
+    MockHttpServletRequest request;
+
+    @BeforeEach
+    void setup() {
+        taxReturnController = new TaxReturnController(
+                taxReturnService, userService, pdfService, cacheWarmingService, dataImportService);
+        request = new MockHttpServletRequest("PATCH", TaxReturnController.baseUrl + "/" + TAX_RETURN_ID);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        when(userService.getCurrentUserInfo()).thenReturn(USER_INFO);
+    }
+
+    @AfterEach
+    void teardown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void givenAFactsDelta_whenUpdatingFacts_thenTheDeltaIsPassedOn() {
+        // given
+        UpdateFactsRequestBody body = isBlindBody();
+        when(taxReturnService.updateFacts(TAX_RETURN_ID, body.toFactsDelta(), "store", true, USER_INFO.id()))
+                .thenReturn(TaxReturn.testObjectFactory());
+
+        // when
+        ResponseEntity<Void> response = taxReturnController.updateFacts(TAX_RETURN_ID, body, request);
+
+        // then
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatusCode());
+        assertNotNull(response.getHeaders().getLocation());
+    }
+
+    @Test
+    void givenTheTaxReturnDoesNotExist_whenUpdatingFacts_thenItIsNotFound() {
+        // given
+        when(taxReturnService.updateFacts(any(), any(), any(), any(), any()))
+                .thenThrow(new TaxReturnNotFoundResponseStatusException("Tax return does not exist."));
+
+        // when
+        ResponseStatusException exception = assertThrows(
+                ResponseStatusException.class,
+                () -> taxReturnController.updateFacts(TAX_RETURN_ID, isBlindBody(), request));
+
+        // then
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void givenTheFactsDoNotParse_whenUpdatingFacts_thenItIsABadRequest() {
+        // given
+        when(taxReturnService.updateFacts(any(), any(), any(), any(), any()))
+                .thenThrow(new InvalidDataException("Facts do not parse correctly."));
+
+        // when
+        ResponseStatusException exception = assertThrows(
+                ResponseStatusException.class,
+                () -> taxReturnController.updateFacts(TAX_RETURN_ID, isBlindBody(), request));
+
+        // then
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+    }
+
+    @Test
+    void givenAChangedFactWithoutAValue_whenUpdatingFacts_thenItIsABadRequest() {
+        // given
+        Map<String, FactTypeWithItem> changedFacts = new HashMap<>();
+        changedFacts.put("/isBlind", null);
+        UpdateFactsRequestBody body = new UpdateFactsRequestBody();
+        body.setChangedFacts(changedFacts);
+
+        // when
+        ResponseStatusException exception = assertThrows(
+                ResponseStatusException.class, () -> taxReturnController.updateFacts(TAX_RETURN_ID, body, request));
+
+        // then
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(taxReturnService);
+    }
+
+    @Test
+    void givenTheFactsWereWrittenSinceTheyWereRead_whenUpdatingFacts_thenItConflicts() {
+        // given
+        when(taxReturnService.updateFacts(any(), any(), any(), any(), any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(TaxReturn.class, TAX_RETURN_ID));
+
+        // when
+        ResponseStatusException exception = assertThrows(
+                ResponseStatusException.class,
+                () -> taxReturnController.updateFacts(TAX_RETURN_ID, isBlindBody(), request));
+
+        // then
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+    }
+
+    private static UpdateFactsRequestBody isBlindBody() {
+        UpdateFactsRequestBody body = new UpdateFactsRequestBody();
+        body.setChangedFacts(Map.of("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, BooleanNode.TRUE)));
+        body.setDeletedFactPaths(Set.of("/occupation"));
+        body.setStore("store");
+        body.setSurveyOptIn(true);
+        return body;
+    }
+}
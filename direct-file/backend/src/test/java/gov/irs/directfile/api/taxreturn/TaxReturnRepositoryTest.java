@@ -1,6 +1,11 @@
 package gov.irs.directfile.api.taxreturn;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,6 +20,12 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import gov.irs.directfile.api.config.identity.IdentityAttributes;
 import gov.irs.directfile.api.config.identity.IdentitySupplier;
@@ -22,10 +33,14 @@ import gov.irs.directfile.api.taxreturn.models.TaxReturn;
 import gov.irs.directfile.api.user.models.User;
 import gov.irs.directfile.api.util.base.BaseRepositoryTest;
 import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.FactsDelta;
 import gov.irs.directfile.models.encryption.DataEncryptDecrypt;
+import gov.irs.directfile.models.encryption.FactsCodec;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -53,7 +68,7 @@ class TaxReturnRepositoryTest extends BaseRepositoryTest {
     private TaxReturnRepository taxReturnRepo;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private PlatformTransactionManager transactionManager;
 
     @BeforeEach
     void configure() {
@@ -172,7 +187,7 @@ class TaxReturnRepositoryTest extends BaseRepositoryTest {
         // given user has one return
         TaxReturn taxReturn = TaxReturn.testObjectFactoryNoId();
         taxReturn.setFacts(Map.of("testA", new FactTypeWithItem("typeA", new IntNode(24))));
-        byte[] factsBytes = objectMapper.writeValueAsBytes(taxReturn.getFacts());
+        byte[] factsBytes = new FactsCodec().encode(taxReturn.getFacts());
         when(dataEncryptDecrypt.encrypt(eq(factsBytes), anyMap())).thenReturn(factsBytes);
         when(dataEncryptDecrypt.decrypt(factsBytes)).thenReturn(factsBytes);
         user.addTaxReturn(taxReturn);
@@ -229,4 +244,137 @@ class TaxReturnRepositoryTest extends BaseRepositoryTest {
             assertTrue(result.contains(taxReturnRepo.findById(trID).get()));
         });
     }
+
+    @SneakyThrows
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void givenTwoConcurrentFactsDeltas_whenBothSave_thenTheSecondConflictsInsteadOfDroppingTheFirst() {
+        // given a saved tax return, committed so that each update can run in its own transaction
+        when(dataEncryptDecrypt.encrypt(any(), anyMap())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(dataEncryptDecrypt.decrypt(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        UUID taxReturnId = transaction.execute(status -> {
+            TaxReturn taxReturn = TaxReturn.testObjectFactoryNoId();
+            taxReturn.setFacts(new HashMap<>(Map.of("/a", new FactTypeWithItem("typeA", new IntNode(1)))));
+            return taxReturnRepo.save(taxReturn).getId();
+        });
+        CountDownLatch bothRead = new CountDownLatch(2);
+        CountDownLatch firstSaved = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // when both read the tax return before either saves its delta
+            Future<?> first = executor.submit(() -> {
+                try {
+                    appendFactsDelta(transaction, taxReturnId, "/b", () -> arriveAndAwait(bothRead));
+                } finally {
+                    firstSaved.countDown();
+                }
+            });
+            Future<?> second = executor.submit(() -> appendFactsDelta(transaction, taxReturnId, "/c", () -> {
+                arriveAndAwait(bothRead);
+                await(firstSaved);
+            }));
+            first.get();
+            ExecutionException conflict = assertThrows(ExecutionException.class, second::get);
+
+            // then the second is rejected and the first delta is kept
+            assertInstanceOf(OptimisticLockingFailureException.class, conflict.getCause());
+            transaction.executeWithoutResult(status -> {
+                TaxReturn taxReturn = taxReturnRepo.findById(taxReturnId).orElseThrow();
+                assertEquals(Set.of("/a", "/b"), taxReturn.getFacts().keySet());
+                assertEquals(1, taxReturn.getFactsDeltaCount());
+            });
+
+            // and retrying the second appends it after the first
+            appendFactsDelta(transaction, taxReturnId, "/c", () -> {});
+            transaction.executeWithoutResult(status -> {
+                TaxReturn taxReturn = taxReturnRepo.findById(taxReturnId).orElseThrow();
+                assertEquals(Set.of("/a", "/b", "/c"), taxReturn.getFacts().keySet());
+                assertEquals(2, taxReturn.getFactsDeltaCount());
+            });
+        } finally {
+            executor.shutdownNow();
+            transaction.executeWithoutResult(status -> taxReturnRepo.deleteById(taxReturnId));
+        }
+    }
+
+    @SneakyThrows
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void givenAFullFactsWrite_whenAFactsDeltaReadBeforeItSaves_thenTheDeltaConflicts() {
+        // given a saved tax return, committed so that each update can run in its own transaction
+        when(dataEncryptDecrypt.encrypt(any(), anyMap())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(dataEncryptDecrypt.decrypt(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        UUID taxReturnId = transaction.execute(status -> {
+            TaxReturn taxReturn = TaxReturn.testObjectFactoryNoId();
+            taxReturn.setFacts(new HashMap<>(Map.of("/a", new FactTypeWithItem("typeA", new IntNode(1)))));
+            return taxReturnRepo.save(taxReturn).getId();
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // when the facts are rewritten in full after a delta read them
+            assertThrows(
+                    OptimisticLockingFailureException.class,
+                    () -> appendFactsDelta(
+                            transaction,
+                            taxReturnId,
+                            "/b",
+                            () -> await(executor.submit(() -> rewriteFacts(transaction, taxReturnId, "/c")))));
+
+            // then the delta is not applied to the rewritten facts
+            transaction.executeWithoutResult(status -> {
+                TaxReturn taxReturn = taxReturnRepo.findById(taxReturnId).orElseThrow();
+                assertEquals(Set.of("/c"), taxReturn.getFacts().keySet());
+                assertEquals(0, taxReturn.getFactsDeltaCount());
+            });
+        } finally {
+            executor.shutdownNow();
+            transaction.executeWithoutResult(status -> taxReturnRepo.deleteById(taxReturnId));
+        }
+    }
+
+    // Does what TaxReturnService.updateFacts does: reads the tax return, applies one changed fact, claims the facts
+    // and saves only the delta
+    private void appendFactsDelta(
+            TransactionTemplate transaction, UUID taxReturnId, String factPath, Runnable beforeSave) {
+        transaction.executeWithoutResult(status -> {
+            TaxReturn taxReturn = taxReturnRepo.findById(taxReturnId).orElseThrow();
+            Map<String, FactTypeWithItem> facts = new HashMap<>(taxReturn.getFacts());
+            FactsDelta delta = new FactsDelta(Map.of(factPath, new FactTypeWithItem("typeA", new IntNode(1))), null);
+            delta.applyTo(facts);
+            beforeSave.run();
+            if (taxReturnRepo.claimFactsVersion(taxReturnId, taxReturn.getFactsVersion()) == 0) {
+                throw new ObjectOptimisticLockingFailureException(TaxReturn.class, taxReturnId);
+            }
+            taxReturn.applyFactsDelta(delta, facts);
+            taxReturnRepo.save(taxReturn);
+        });
+    }
+
+    private void rewriteFacts(TransactionTemplate transaction, UUID taxReturnId, String factPath) {
+        transaction.executeWithoutResult(status -> {
+            TaxReturn taxReturn = taxReturnRepo.findById(taxReturnId).orElseThrow();
+            taxReturn.setFacts(new HashMap<>(Map.of(factPath, new FactTypeWithItem("typeA", new IntNode(1)))));
+            taxReturnRepo.save(taxReturn);
+        });
+    }
+
+    @SneakyThrows
+    private static void arriveAndAwait(CountDownLatch latch) {
+        latch.countDown();
+        latch.await();
+    }
+
+    @SneakyThrows
+    private static void await(CountDownLatch latch) {
+        latch.await();
+    }
+
+    @SneakyThrows
+    private static void await(Future<?> future) {
+        future.get();
+    }
 }
@@ -0,0 +1,254 @@
+package gov.irs.directfile.api.taxreturn;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import gov.irs.factgraph.Graph;
+
+import gov.irs.directfile.api.audit.AuditService;
+import gov.irs.directfile.api.dataimport.gating.DataImportGatingService;
+import gov.irs.directfile.api.dispatch.DispatchService;
+import gov.irs.directfile.api.errors.InvalidDataException;
+import gov.irs.directfile.api.errors.TaxReturnNotFoundResponseStatusException;
+import gov.irs.directfile.api.loaders.service.FactGraphService;
+import gov.irs.directfile.api.taxreturn.models.TaxReturn;
+import gov.irs.directfile.api.taxreturn.submissions.SendEmailQueueService;
+import gov.irs.directfile.api.taxreturn.submissions.lock.AdvisoryLockRepository;
+import gov.irs.directfile.api.user.UserService;
+import gov.irs.directfile.api.user.models.User;
+import gov.irs.directfile.models.EvaluatedFactInfo;
+import gov.irs.directfile.models.FactEvaluationResult;
+import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.FactsDelta;
+import gov.irs.directfile.models.StateOrProvince;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaxReturnServiceTest {
+    private static final String BOOLEAN_WRAPPER = "gov.irs.factgraph.persisters.BooleanWrapper";
+    private static final String STRING_WRAPPER = "gov.irs.factgraph.persisters.StringWrapper";
+    private static final UUID TAX_RETURN_ID = UUID.randomUUID();
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    AuditService auditService;
+
+    @Mock
+    TaxReturnRepository taxReturnRepo;
+
+    @Mock
+    TaxReturnSubmissionRepository taxReturnSubmissionRepo;
+
+    @Mock
+    UserService userService;
+
+    @Mock
+    DispatchService dispatchService;
+
+    @Mock
+    FactGraphService factGraphService;
+
+    @Mock
+    RejectionCodesClient rejectionCodesClient;
+
+    @Mock
+    SendEmailQueueService sendEmailQueueService;
+
+    @Mock
+    SubmissionEventRepository submissionEventRepository;
+
+    @Mock
+    AdvisoryLockRepository advisoryLockRepository;
+
+    @Mock
+    StatusResponseBodyCacheService statusResponseBodyCacheService;
+
+    @Mock
+    DataImportGatingService dataImportGatingService;
+
+    @Mock
+    Graph graph;
+
+    TaxReturnService taxReturnService;
+
+    TaxReturn taxReturn;
+
+    @BeforeEach
+    void setup() {
+        taxReturnService = new TaxReturnService(
+                auditService,
+                taxReturnRepo,
+                taxReturnSubmissionRepo,
+                userService,
+                dispatchService,
+                factGraphService,
+                rejectionCodesClient,
+                sendEmailQueueService,
+                submissionEventRepository,
+                null,
+                advisoryLockRepository,
+                statusResponseBodyCacheService,
+                dataImportGatingService);
+        ReflectionTestUtils.setField(taxReturnService, "factsDeltaFoldThreshold", 3);
+
+        taxReturn = TaxReturn.testObjectFactoryNoId();
+        taxReturn.setFactsWithoutDirtyingEntity(
+                new HashMap<>(Map.of("/occupation", new FactTypeWithItem(STRING_WRAPPER, new TextNode("Tester")))));
+    }
+
+    @Test
+    void givenAFactsDelta_whenUpdatingFacts_thenOnlyTheDeltaIsSaved() throws Exception {
+        // given
+        givenTheTaxReturnExists();
+        when(factGraphService.parseFacts(any())).thenReturn(Optional.of(graph));
+        when(taxReturnRepo.claimFactsVersion(TAX_RETURN_ID, 0L)).thenReturn(1);
+        when(taxReturnRepo.save(taxReturn)).thenReturn(taxReturn);
+        FactsDelta delta = isBlindDelta();
+
+        // when
+        taxReturnService.updateFacts(TAX_RETURN_ID, delta, null, null, USER_ID);
+
+        // then
+        verify(taxReturnRepo).save(taxReturn);
+        assertEquals(delta, taxReturn.getPendingFactsDelta());
+        assertFalse(taxReturn.isFactsModified());
+        assertEquals(Set.of("/isBlind"), taxReturn.getFacts().keySet());
+    }
+
+    @Test
+    void givenTheDeltaLogIsFull_whenUpdatingFacts_thenTheFactsAreRewritten() throws Exception {
+        // given a log that reaches the fold threshold with this delta
+        taxReturn.setFactsDeltaCipherText("delta1,delta2");
+        givenTheTaxReturnExists();
+        when(factGraphService.parseFacts(any())).thenReturn(Optional.of(graph));
+        when(taxReturnRepo.claimFactsVersion(TAX_RETURN_ID, 0L)).thenReturn(1);
+        when(taxReturnRepo.save(taxReturn)).thenReturn(taxReturn);
+
+        // when
+        taxReturnService.updateFacts(TAX_RETURN_ID, isBlindDelta(), null, null, USER_ID);
+
+        // then
+        verify(taxReturnRepo).save(taxReturn);
+        assertNull(taxReturn.getPendingFactsDelta());
+        assertTrue(taxReturn.isFactsModified());
+        assertEquals(Set.of("/isBlind"), taxReturn.getFacts().keySet());
+    }
+
+    @Test
+    void givenTheTaxReturnDoesNotExist_whenUpdatingFacts_thenItIsNotFound() {
+        // given
+        when(taxReturnRepo.findByIdAndUserId(eq(TAX_RETURN_ID), any())).thenReturn(Optional.empty());
+        when(userService.getOrCreateUserDev()).thenReturn(Optional.of(new User(UUID.randomUUID())));
+
+        // when/then
+        assertThrows(
+                TaxReturnNotFoundResponseStatusException.class,
+                () -> taxReturnService.updateFacts(TAX_RETURN_ID, isBlindDelta(), null, null, USER_ID));
+        verify(taxReturnRepo, never()).save(any());
+    }
+
+    @Test
+    void givenTheFactsDoNotParse_whenUpdatingFacts_thenTheDeltaIsRejected() {
+        // given
+        givenTheTaxReturnExists();
+        when(factGraphService.parseFacts(any())).thenReturn(Optional.empty());
+
+        // when/then
+        assertThrows(
+                InvalidDataException.class,
+                () -> taxReturnService.updateFacts(TAX_RETURN_ID, isBlindDelta(), null, null, USER_ID));
+        verify(taxReturnRepo, never()).claimFactsVersion(any(), anyLong());
+        verify(taxReturnRepo, never()).save(any());
+    }
+
+    @Test
+    void givenTheFactsWereWrittenSinceTheyWereRead_whenUpdatingFacts_thenTheDeltaConflicts() {
+        // given
+        givenTheTaxReturnExists();
+        when(factGraphService.parseFacts(any())).thenReturn(Optional.of(graph));
+        when(taxReturnRepo.claimFactsVersion(TAX_RETURN_ID, 0L)).thenReturn(0);
+
+        // when/then
+        assertThrows(
+                OptimisticLockingFailureException.class,
+                () -> taxReturnService.updateFacts(TAX_RETURN_ID, isBlindDelta(), null, null, USER_ID));
+        verify(taxReturnRepo, never()).save(any());
+        assertNull(taxReturn.getPendingFactsDelta());
+    }
+
+    @Test
+    void givenFactsThatParse_whenUpdating_thenTheFactsAreRewritten() throws Exception {
+        // given
+        givenTheTaxReturnExists();
+        Map<String, FactTypeWithItem> facts =
+                Map.of("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, BooleanNode.TRUE));
+        when(factGraphService.parseFacts(facts)).thenReturn(Optional.of(graph));
+        when(taxReturnRepo.save(taxReturn)).thenReturn(taxReturn);
+
+        // when
+        taxReturnService.update(TAX_RETURN_ID, facts, "store", null, USER_ID);
+
+        // then
+        verify(taxReturnRepo).save(taxReturn);
+        assertTrue(taxReturn.isFactsModified());
+        assertEquals(facts, taxReturn.getFacts());
+        assertEquals("store", taxReturn.getStore());
+    }
+
+    @Test
+    void givenFactsThatDoNotParse_whenUpdating_thenTheyAreRejected() {
+        // given
+        givenTheTaxReturnExists();
+        when(factGraphService.parseFacts(any())).thenReturn(Optional.empty());
+
+        // when/then
+        assertThrows(
+                InvalidDataException.class,
+                () -> taxReturnService.update(
+                        TAX_RETURN_ID,
+                        Map.of("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, BooleanNode.TRUE)),
+                        null,
+                        null,
+                        USER_ID));
+        verify(taxReturnRepo, never()).save(any());
+        assertFalse(taxReturn.isFactsModified());
+    }
+
+    @Test
+    void givenAFilingState_whenGettingIt_thenItIsReadFromTheTaxReturnsFacts() throws Exception {
+        // given
+        when(factGraphService.getGraph(taxReturn.getFacts())).thenReturn(graph);
+        when(factGraphService.extractFacts(Set.of("/filingStateOrProvince"), graph, true))
+                .thenReturn(new FactEvaluationResult(
+                        Map.of("/filingStateOrProvince", new EvaluatedFactInfo(STRING_WRAPPER, "ny"))));
+
+        // when/then
+        assertEquals(Optional.of(StateOrProvince.NY), taxReturnService.getFilingStateOrProvince(taxReturn));
+    }
+
+    private void givenTheTaxReturnExists() {
+        when(taxReturnRepo.findByIdAndUserId(TAX_RETURN_ID, USER_ID)).thenReturn(Optional.of(taxReturn));
+    }
+
+    private static FactsDelta isBlindDelta() {
+        return new FactsDelta(
+                Map.of("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, BooleanNode.TRUE)), Set.of("/occupation"));
+    }
+}
@@ -0,0 +1,97 @@
+package gov.irs.directfile.api.taxreturn.models;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.encryption.FactsCodec;
+
+/**
+ * Compares the legacy JSON plaintext of the facts column against the compact Smile and Deflate format, both for
+ * encode/decode time and for size. Sizes are printed once per trial; the Base64 size is what the legacy varchar column
+ * held, before the ciphertext overhead of the encryption SDK.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gov.irs.directfile.api.taxreturn.models.FactsCodecBenchmark}, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FactsCodecBenchmark {
+    private static final TypeReference<Map<String, FactTypeWithItem>> FACTS_TYPE = new TypeReference<>() {};
+
+    @Param({
+        "/scenarios/1040-withholdings-without-attachments.json",
+        "/scenarios/ticket-6718.json",
+        "/scenarios/w2-with-box-14-value-set-to-0.json"
+    })
+    public String scenario;
+
+    private final FactsCodec codec = new FactsCodec();
+    private Map<String, FactTypeWithItem> facts;
+    private byte[] json;
+    private byte[] compact;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (InputStream scenarioStream = FactsCodecBenchmark.class.getResourceAsStream(scenario)) {
+            facts = objectMapper.convertValue(objectMapper.readTree(scenarioStream).get("facts"), FACTS_TYPE);
+        }
+        json = codec.encodeAsJson(facts);
+        compact = codec.encode(facts);
+        System.out.printf(
+                "%n%s: %d facts, json %d bytes (%d as Base64), compact %d bytes%n",
+                scenario, facts.size(), json.length, (json.length + 2) / 3 * 4, compact.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return codec.encodeAsJson(facts);
+    }
+
+    @Benchmark
+    public byte[] encodeCompact() throws IOException {
+        return codec.encode(facts);
+    }
+
+    @Benchmark
+    public Map<String, FactTypeWithItem> decodeJson() throws IOException {
+        return codec.decode(json, FACTS_TYPE);
+    }
+
+    @Benchmark
+    public Map<String, FactTypeWithItem> decodeCompact() throws IOException {
+        return codec.decode(compact, FACTS_TYPE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(FactsCodecBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
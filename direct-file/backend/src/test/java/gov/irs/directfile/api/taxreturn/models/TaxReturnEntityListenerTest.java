@@ -0,0 +1,65 @@
+package gov.irs.directfile.api.taxreturn.models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import gov.irs.directfile.api.config.identity.IdentitySupplier;
+import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.encryption.DataEncryptDecrypt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TaxReturnEntityListenerTest {
+    private static final byte[] FACTS_JSON =
+            "{\"/testA\":{\"$type\":\"typeA\",\"item\":24}}".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private IdentitySupplier identitySupplier;
+
+    @Mock
+    private DataEncryptDecrypt dataEncryptDecrypt;
+
+    private final TaxReturnEntityListener listener = new TaxReturnEntityListener();
+    private TaxReturn taxReturn;
+
+    @BeforeEach
+    void setup() {
+        listener.configure(identitySupplier, dataEncryptDecrypt, new ObjectMapper());
+        taxReturn = TaxReturn.testObjectFactory();
+        taxReturn.setFactsCipherText(Base64.getEncoder().encodeToString(FACTS_JSON));
+    }
+
+    @Test
+    void givenLoadedTaxReturn_whenFactsAreNotRead_thenNothingIsDecryptedOrEncrypted() {
+        listener.decryptColumns(taxReturn);
+        listener.encryptModifiedColumns(taxReturn);
+
+        verifyNoInteractions(dataEncryptDecrypt, identitySupplier);
+    }
+
+    @Test
+    void givenLoadedTaxReturn_whenFactsAreRead_thenFactsAreDecryptedOnce() {
+        when(dataEncryptDecrypt.decrypt(FACTS_JSON)).thenReturn(FACTS_JSON);
+
+        listener.decryptColumns(taxReturn);
+        Map<String, FactTypeWithItem> facts = taxReturn.getFacts();
+        taxReturn.getFacts();
+        listener.encryptModifiedColumns(taxReturn);
+
+        assertEquals(new IntNode(24), facts.get("/testA").item());
+        verify(dataEncryptDecrypt, times(1)).decrypt(any());
+        verify(dataEncryptDecrypt, never()).encrypt(any(), any());
+    }
+}
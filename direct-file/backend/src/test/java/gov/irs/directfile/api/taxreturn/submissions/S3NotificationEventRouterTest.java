@@ -1,7 +1,10 @@
 package gov.irs.directfile.api.taxreturn.submissions;
 
+import java.time.Duration;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -20,6 +23,7 @@ import gov.irs.directfile.api.taxreturn.TaxReturnRepository;
 import gov.irs.directfile.api.taxreturn.TaxReturnSubmissionRepository;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.*;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PDFBackfillToS3Handler;
+import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PdfBackfillCheckpointRepository;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.publishsc.PublishSubmissionConfirmationsEventHandler;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -68,8 +72,18 @@ class S3NotificationEventRouterTest {
     @Mock
     S3StorageService s3StorageService;
 
-    PDFBackfillToS3Handler backfillToS3Handler =
-            new PDFBackfillToS3Handler(taxReturnRepository, pdfService, s3StorageService);
+    @Mock
+    PdfBackfillCheckpointRepository checkpointRepository;
+
+    PDFBackfillToS3Handler backfillToS3Handler = new PDFBackfillToS3Handler(
+            taxReturnRepository,
+            checkpointRepository,
+            pdfService,
+            s3StorageService,
+            new SimpleMeterRegistry(),
+            1,
+            1,
+            Duration.ofMinutes(10));
 
     String sqsMessage = "{\"path\": \"adhoc_job.json\"}";
     String technicalErrorResolvedJson =
@@ -1,52 +1,48 @@
 package gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.Date;
-import java.util.Map;
 import java.util.UUID;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.IntNode;
-import com.google.common.base.Charsets;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
-import software.amazon.awssdk.core.ResponseBytes;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.GetObjectRequest;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 
-import gov.irs.directfile.api.config.S3ConfigurationProperties;
-import gov.irs.directfile.api.config.S3ConfigurationProperties.S3;
 import gov.irs.directfile.api.config.identity.IdentityAttributes;
 import gov.irs.directfile.api.config.identity.IdentitySupplier;
 import gov.irs.directfile.api.io.documentstore.S3StorageService;
+import gov.irs.directfile.api.io.storagelocations.StorageLocationBuilder;
+import gov.irs.directfile.api.pdf.PdfCreationException;
+import gov.irs.directfile.api.pdf.PdfLanguages;
 import gov.irs.directfile.api.pdf.PdfService;
 import gov.irs.directfile.api.taxreturn.TaxReturnRepository;
 import gov.irs.directfile.api.taxreturn.models.TaxReturn;
-import gov.irs.directfile.api.taxreturn.submissions.S3NotificationEventRouter;
-import gov.irs.directfile.api.taxreturn.submissions.S3NotificationEventService;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PDFBackfillToS3Handler;
+import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PdfBackfillCheckpoint;
+import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PdfBackfillCheckpointRepository;
 import gov.irs.directfile.api.user.models.User;
 import gov.irs.directfile.api.util.base.BaseRepositoryTest;
-import gov.irs.directfile.models.FactTypeWithItem;
 import gov.irs.directfile.models.encryption.DataEncryptDecrypt;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
-@ExtendWith(MockitoExtension.class)
 public class PDFBackfillToS3HandlerTest extends BaseRepositoryTest {
-    ObjectMapper mapper = new ObjectMapper();
+    private static final int TAX_YEAR = 2024;
 
     @Autowired
     private TestEntityManager entityManager;
@@ -54,10 +50,12 @@ public class PDFBackfillToS3HandlerTest extends BaseRepositoryTest {
     @Autowired
     TaxReturnRepository taxReturnRepository;
 
+    @Autowired
+    PdfBackfillCheckpointRepository checkpointRepository;
+
     PDFBackfillToS3Handler pdfBackfillToS3Handler;
 
-    S3ConfigurationProperties s3ConfigurationProperties = new S3ConfigurationProperties(
-            null, null, new S3(null, null, 0, null, null, "some-bucket", "some-operations-jobs-bucket", "dev"));
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @TestConfiguration
     public static class TestConfig {
@@ -74,129 +72,164 @@ public class PDFBackfillToS3HandlerTest extends BaseRepositoryTest {
     @MockBean
     private IdentitySupplier mockIdentitySupplier;
 
-    @Autowired
-    private TaxReturnRepository taxReturnRepo;
-
-    @Autowired
-    private ObjectMapper objectMapper;
-
     @MockBean
     PdfService pdfService;
 
     @MockBean
     S3StorageService s3StorageService;
 
-    @Mock(name = "s3WithoutEncryption")
-    S3Client mockS3Client;
-
-    S3NotificationEventRouter notificationEventRouter;
-
-    S3NotificationEventService s3NotificationEventService;
-
-    String backfillPDFsByDateRangeJson =
-            "{\"key\":\"backfill_pdfs\",\"payload\" : {\"startDate\" : \"2024-01-01\",\"endDate\" : \"2024-06-30\",\"taxYear\" : \"2023\", \"resultsPerPage\":\"10\"}}";
-    String backfillPDFsByTaxReturnIdsJson =
-            "{\"key\":\"backfill_pdfs\", \"payload\" : {\"startDate\" : \"2024-01-01\", \"endDate\" : \"2024-06-30\", \"taxYear\" : \"2023\",  \"resultsPerPage\":\"1\"}}";
-
-    JsonNode backfillByDateRangePayload;
-    JsonNode backfillByTaxReturnIdPayload;
+    Date startDate;
+    Date endDate;
 
     @BeforeEach
     void configure() throws Exception {
         doReturn(new IdentityAttributes(UUID.randomUUID(), UUID.randomUUID(), "email@example.com", "123456789"))
                 .when(mockIdentitySupplier)
                 .get();
+        when(dataEncryptDecrypt.encrypt(any(), anyMap())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(dataEncryptDecrypt.decrypt(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(pdfService.getTaxReturn(anyString(), any(), eq(false)))
+                .thenAnswer(invocation -> new ByteArrayInputStream(new byte[0]));
+
+        pdfBackfillToS3Handler = new PDFBackfillToS3Handler(
+                taxReturnRepository,
+                checkpointRepository,
+                pdfService,
+                s3StorageService,
+                meterRegistry,
+                2,
+                2,
+                Duration.ofMinutes(10));
+
+        startDate = date("2024-01-01");
+        endDate = date("2024-06-30");
+    }
 
-        pdfBackfillToS3Handler = new PDFBackfillToS3Handler(taxReturnRepository, pdfService, s3StorageService);
-        notificationEventRouter = new S3NotificationEventRouter(null, null, pdfBackfillToS3Handler, null, null);
-        s3NotificationEventService =
-                new S3NotificationEventService(notificationEventRouter, mockS3Client, s3ConfigurationProperties);
-
-        GetObjectResponse getObjectResponse = GetObjectResponse.builder().build();
-        ResponseBytes<GetObjectResponse> responseBytes =
-                ResponseBytes.fromByteArray(getObjectResponse, backfillPDFsByDateRangeJson.getBytes());
-        when(mockS3Client.getObjectAsBytes(any(GetObjectRequest.class))).thenReturn(responseBytes);
-        backfillByDateRangePayload = s3NotificationEventService
-                .loadObjectFromS3("post_submission_error_backfill_pdfs.json", "some-bucket")
-                .get("payload");
-        backfillByTaxReturnIdPayload = mapper.readTree(backfillPDFsByTaxReturnIdsJson.getBytes(Charsets.UTF_8))
-                .get("payload");
+    @AfterEach
+    void teardown() {
+        pdfBackfillToS3Handler.teardown();
     }
 
-    // @Test
-    public void itGeneratesPDFForEachUser() throws Exception {
-        // given user has no returns
-        User user = new User(UUID.fromString("738fc2dd-88f9-4b5c-ace9-c602509ba161"));
-        user = entityManager.persist(user);
-
-        // given user has one return
-        Date march20_2024 = new SimpleDateFormat("yyyy-MM-dd").parse("2024-03-20");
-        Date nov20_2024 = new SimpleDateFormat("yyyy-MM-dd").parse("2024-11-20");
-
-        TaxReturn taxReturn = TaxReturn.testObjectFactoryNoId(march20_2024);
-        taxReturn.setFacts(Map.of("testA", new FactTypeWithItem("typeA", new IntNode(24))));
-        byte[] factsBytes = objectMapper.writeValueAsBytes(taxReturn.getFacts());
-        when(dataEncryptDecrypt.encrypt(eq(factsBytes), anyMap())).thenReturn(factsBytes);
-        when(dataEncryptDecrypt.decrypt(factsBytes)).thenReturn(factsBytes);
-        user.addTaxReturn(taxReturn);
-        TaxReturn t = entityManager.persist(taxReturn);
+    @Test
+    public void itResumesFromTheCheckpointCursor() throws Exception {
+        TaxReturn alreadyBackfilled = persistTaxReturn(date("2024-02-01"), true);
+        TaxReturn next = persistTaxReturn(date("2024-03-01"), true);
+        TaxReturn last = persistTaxReturn(date("2024-04-01"), true);
+        PdfBackfillCheckpoint checkpoint = new PdfBackfillCheckpoint(TAX_YEAR, startDate, endDate, 1);
+        checkpoint.setLastCreatedAt(alreadyBackfilled.getCreatedAt());
+        checkpoint.setLastTaxReturnId(alreadyBackfilled.getId());
+        checkpoint.setSucceeded(1);
+        checkpointRepository.save(checkpoint);
+
+        pdfBackfillToS3Handler.generatePDFsForS3(1, startDate, endDate, TAX_YEAR);
+
+        verify(pdfService, never()).getTaxReturn(anyString(), eq(alreadyBackfilled), eq(false));
+        verify(pdfService, times(2)).getTaxReturn(anyString(), eq(next), eq(false));
+        verify(pdfService, times(2)).getTaxReturn(anyString(), eq(last), eq(false));
+        PdfBackfillCheckpoint resumed = checkpointRepository
+                .findById(PdfBackfillCheckpoint.idFor(TAX_YEAR, startDate, endDate))
+                .orElseThrow();
+        assertTrue(resumed.isCompleted());
+        assertEquals(3, resumed.getSucceeded());
+        assertEquals(last.getId(), resumed.getLastTaxReturnId());
+    }
 
-        User user2 = new User(UUID.randomUUID());
-        user2 = entityManager.persist(user2);
+    @Test
+    public void itSkipsPdfsThatAreAlreadyInS3() throws Exception {
+        TaxReturn backfilled = persistTaxReturn(date("2024-02-01"), true);
+        TaxReturn halfBackfilled = persistTaxReturn(date("2024-03-01"), true);
+        when(s3StorageService.doesObjectAlreadyExist(pdfLocation(backfilled, PdfLanguages.EN)))
+                .thenReturn(true);
+        when(s3StorageService.doesObjectAlreadyExist(pdfLocation(backfilled, PdfLanguages.ES)))
+                .thenReturn(true);
+        when(s3StorageService.doesObjectAlreadyExist(pdfLocation(halfBackfilled, PdfLanguages.EN)))
+                .thenReturn(true);
+
+        pdfBackfillToS3Handler.generatePDFsForS3(10, startDate, endDate, TAX_YEAR);
+
+        verify(pdfService, never()).getTaxReturn(anyString(), eq(backfilled), eq(false));
+        verify(pdfService, never()).getTaxReturn(eq(PdfLanguages.EN.getPdfLanguage()), eq(halfBackfilled), eq(false));
+        verify(s3StorageService).write(eq(pdfLocation(halfBackfilled, PdfLanguages.ES)), any(), any());
+        verify(s3StorageService, times(1)).write(anyString(), any(), any());
+        PdfBackfillCheckpoint checkpoint = checkpointRepository
+                .findById(PdfBackfillCheckpoint.idFor(TAX_YEAR, startDate, endDate))
+                .orElseThrow();
+        assertEquals(1, checkpoint.getSkipped());
+        assertEquals(1, checkpoint.getSucceeded());
+        assertEquals(0, checkpoint.getFailed());
+    }
 
-        // given user has one return
-        TaxReturn taxReturn2 = TaxReturn.testObjectFactoryNoId(march20_2024);
-        taxReturn.setFacts(Map.of("testA", new FactTypeWithItem("typeA", new IntNode(24))));
-        byte[] factsBytes2 = objectMapper.writeValueAsBytes(taxReturn2.getFacts());
-        when(dataEncryptDecrypt.encrypt(eq(factsBytes2), anyMap())).thenReturn(factsBytes2);
-        when(dataEncryptDecrypt.decrypt(factsBytes2)).thenReturn(factsBytes2);
-        user2.addTaxReturn(taxReturn2);
-        entityManager.persist(taxReturn2);
+    @Test
+    public void itCountsSucceededAndFailedTaxReturns() throws Exception {
+        persistTaxReturn(date("2024-02-01"), true);
+        TaxReturn failsToRender = persistTaxReturn(date("2024-03-01"), true);
+        TaxReturn failsToUpload = persistTaxReturn(date("2024-04-01"), true);
+        TaxReturn notSubmitted = persistTaxReturn(date("2024-05-01"), false);
+        when(pdfService.getTaxReturn(anyString(), eq(failsToRender), eq(false)))
+                .thenThrow(new PdfCreationException("Unable to render"));
+        doThrow(new IOException("S3 is unavailable"))
+                .when(s3StorageService)
+                .write(eq(pdfLocation(failsToUpload, PdfLanguages.EN)), any(), any());
+
+        pdfBackfillToS3Handler.generatePDFsForS3(2, startDate, endDate, TAX_YEAR);
+
+        verify(pdfService, never()).getTaxReturn(anyString(), eq(notSubmitted), eq(false));
+        PdfBackfillCheckpoint checkpoint = checkpointRepository
+                .findById(PdfBackfillCheckpoint.idFor(TAX_YEAR, startDate, endDate))
+                .orElseThrow();
+        assertTrue(checkpoint.isCompleted());
+        assertEquals(1, checkpoint.getSucceeded());
+        assertEquals(0, checkpoint.getSkipped());
+        assertEquals(2, checkpoint.getFailed());
+        assertEquals(
+                1,
+                meterRegistry
+                        .counter("pdf.backfill.tax.returns", "outcome", "succeeded")
+                        .count());
+        assertEquals(
+                2,
+                meterRegistry
+                        .counter("pdf.backfill.tax.returns", "outcome", "failed")
+                        .count());
+    }
 
-        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
-        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-06-30");
+    @Test
+    public void itDoesNotRerunACompletedBackfill() throws Exception {
+        PdfBackfillCheckpoint checkpoint = new PdfBackfillCheckpoint(TAX_YEAR, startDate, endDate, 10);
+        checkpoint.setCompleted(true);
+        checkpointRepository.save(checkpoint);
 
-        int taxYear = 2023;
-        pdfBackfillToS3Handler.generatePDFsForS3(1, startDate, endDate, taxYear);
+        pdfBackfillToS3Handler.generatePDFsForS3(10, startDate, endDate, TAX_YEAR);
 
-        verify(pdfService, times(4)).getTaxReturn(any(), any(), eq(false));
+        verifyNoInteractions(pdfService, s3StorageService);
     }
 
-    // @Test
-    /**
-     * Processing PDFs happens in a separate thread, so I've included a timer of 2 seconds,
-     * which I expect will give the thread enough time to run.
-     *
-     * */
-    public void itParsesJSONNodeAndGeneratesPDFs() throws Exception {
-        // given user has no returns
-        User user = new User(UUID.fromString("738fc2dd-88f9-4b5c-ace9-c602509ba161"));
-        user = entityManager.persist(user);
-
-        // given user has one return
+    private TaxReturn persistTaxReturn(Date createdAt, boolean submitted) {
+        User user = entityManager.persist(new User(UUID.randomUUID()));
         TaxReturn taxReturn = TaxReturn.testObjectFactoryNoId();
-        taxReturn.setFacts(Map.of("testA", new FactTypeWithItem("typeA", new IntNode(24))));
-
-        byte[] factsBytes = objectMapper.writeValueAsBytes(taxReturn.getFacts());
-        when(dataEncryptDecrypt.encrypt(eq(factsBytes), anyMap())).thenReturn(factsBytes);
-        when(dataEncryptDecrypt.decrypt(factsBytes)).thenReturn(factsBytes);
+        if (submitted) {
+            taxReturn.setMostRecentSubmitTime(createdAt);
+        }
         user.addTaxReturn(taxReturn);
-        entityManager.persist(taxReturn);
-
-        User user2 = new User(UUID.randomUUID());
-        user2 = entityManager.persist(user2);
-
-        // given user has one return
-        TaxReturn taxReturn2 = TaxReturn.testObjectFactoryNoId();
-        taxReturn.setFacts(Map.of("testA", new FactTypeWithItem("typeA", new IntNode(24))));
-        byte[] factsBytes2 = objectMapper.writeValueAsBytes(taxReturn2.getFacts());
-        when(dataEncryptDecrypt.encrypt(eq(factsBytes2), anyMap())).thenReturn(factsBytes2);
-        when(dataEncryptDecrypt.decrypt(factsBytes2)).thenReturn(factsBytes2);
-        user2.addTaxReturn(taxReturn2);
-        entityManager.persist(taxReturn2);
+        entityManager.persistAndFlush(taxReturn);
+
+        // createdAt is set on insert, so backdate it afterwards
+        entityManager
+                .getEntityManager()
+                .createQuery("update TaxReturn set createdAt = :createdAt where id = :id")
+                .setParameter("createdAt", createdAt)
+                .setParameter("id", taxReturn.getId())
+                .executeUpdate();
+        entityManager.refresh(taxReturn);
+        return taxReturn;
+    }
 
-        pdfBackfillToS3Handler.handleNotificationEvent(backfillByDateRangePayload);
+    private static String pdfLocation(TaxReturn taxReturn, PdfLanguages language) {
+        return StorageLocationBuilder.getTaxReturnDocumentLocation(
+                taxReturn.getTaxYear(), taxReturn.getId(), "taxreturn", language.getCode());
+    }
 
-        verify(pdfService, times(4)).getTaxReturn(any(), any(), eq(false));
+    private static Date date(String date) throws Exception {
+        return new SimpleDateFormat("yyyy-MM-dd").parse(date);
     }
 }
@@ -1,11 +1,13 @@
 package gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -31,6 +33,7 @@ import gov.irs.directfile.api.taxreturn.models.TaxReturn;
 import gov.irs.directfile.api.taxreturn.models.TaxReturnSubmission;
 import gov.irs.directfile.api.taxreturn.submissions.*;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PDFBackfillToS3Handler;
+import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PdfBackfillCheckpointRepository;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.publishsc.PublishSubmissionConfirmationsEventHandler;
 import gov.irs.directfile.models.email.HtmlTemplate;
 import gov.irs.directfile.models.message.event.SubmissionEventTypeEnum;
@@ -77,8 +80,18 @@ class ReminderEmailHandlerTest {
     @Mock
     S3StorageService s3StorageService;
 
-    PDFBackfillToS3Handler backfillToS3Handler =
-            new PDFBackfillToS3Handler(taxReturnRepository, pdfService, s3StorageService);
+    @Mock
+    PdfBackfillCheckpointRepository checkpointRepository;
+
+    PDFBackfillToS3Handler backfillToS3Handler = new PDFBackfillToS3Handler(
+            taxReturnRepository,
+            checkpointRepository,
+            pdfService,
+            s3StorageService,
+            new SimpleMeterRegistry(),
+            1,
+            1,
+            Duration.ofMinutes(10));
 
     JsonNode payload;
 
@@ -1,8 +1,10 @@
 package gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -26,6 +28,7 @@ import gov.irs.directfile.api.taxreturn.submissions.ConfirmationService;
 import gov.irs.directfile.api.taxreturn.submissions.S3NotificationEventRouter;
 import gov.irs.directfile.api.taxreturn.submissions.S3NotificationEventService;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PDFBackfillToS3Handler;
+import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.pdfBackfill.PdfBackfillCheckpointRepository;
 import gov.irs.directfile.api.taxreturn.submissions.handlers.s3eventnotification.publishsc.PublishSubmissionConfirmationsEventHandler;
 import gov.irs.directfile.models.message.event.SubmissionEventTypeEnum;
 
@@ -72,8 +75,18 @@ class TechnicalErrorResolvedHandlerTest {
     @Mock
     S3StorageService s3StorageService;
 
-    PDFBackfillToS3Handler backfillToS3Handler =
-            new PDFBackfillToS3Handler(taxReturnRepository, pdfService, s3StorageService);
+    @Mock
+    PdfBackfillCheckpointRepository checkpointRepository;
+
+    PDFBackfillToS3Handler backfillToS3Handler = new PDFBackfillToS3Handler(
+            taxReturnRepository,
+            checkpointRepository,
+            pdfService,
+            s3StorageService,
+            new SimpleMeterRegistry(),
+            1,
+            1,
+            Duration.ofMinutes(10));
 
     @BeforeEach
     public void setup() {
@@ -26,6 +26,7 @@ import gov.irs.directfile.emailservice.services.EmailRecordKeepingService;
 import gov.irs.directfile.emailservice.services.ISendService;
 import gov.irs.directfile.models.email.HtmlTemplate;
 import gov.irs.directfile.models.message.MessageHeaderAttribute;
+import gov.irs.directfile.models.message.QueueMessageDispatcher;
 import gov.irs.directfile.models.message.QueueMessageHeaders;
 import gov.irs.directfile.models.message.SendEmailQueueMessageBody;
 import gov.irs.directfile.models.message.email.SendEmailMessageVersion;
@@ -49,6 +50,7 @@ public class SendEmailMessageQueueListener implements MessageListener {
     private final int resendDelaySeconds;
 
     private final SendEmailMessageRouter sendEmailMessageRouter;
+    private final QueueMessageDispatcher queueMessageDispatcher;
 
     public SendEmailMessageQueueListener(
             EmailServiceConfigurationProperties configProps,
@@ -67,6 +69,10 @@ public class SendEmailMessageQueueListener implements MessageListener {
 
         this.sendEmailMessageRouter = new SendEmailMessageRouter(
                 new UnsupportedMessageVersionHandler(), new SendEmailV1Handler(sender, emailRecordKeepingService));
+        this.queueMessageDispatcher = new QueueMessageDispatcher(mapper)
+                .on(
+                        new TypeReference<VersionedSendEmailMessage<AbstractSendEmailPayload>>() {},
+                        this::handleSendEmailMessage);
     }
 
     @Override
@@ -75,43 +81,7 @@ public class SendEmailMessageQueueListener implements MessageListener {
         log.info("Received a send mail request");
         try {
             rawText = ((TextMessage) message).getText();
-
-            VersionedSendEmailMessage<AbstractSendEmailPayload> versionedSubmissionConfirmationMessage =
-                    mapper.readValue(rawText, new TypeReference<>() {});
-            EmailProcessingResults results =
-                    sendEmailMessageRouter.handleSendEmailMessage(versionedSubmissionConfirmationMessage);
-            if (results.countToSend() != results.countSent()) {
-                // if an email is not sent, we shouldn't block acknowledgement of the entire message otherwise we
-                // would send multiple messages to many users just because a single message in the batch wasn't sent
-
-                if (results.countSent() == 0) {
-                    log.error(String.format(
-                            "Zero emails sent in batch size of %s, likely due to dropped connection to email relay. Returning and not acknowledging to force re-enqueue",
-                            results.countToSend()));
-                } else {
-                    log.error("{} of {} emails were sent.", results.countSent(), results.countToSend());
-                }
-
-                if (results.countMessagingException() > 0) {
-                    log.error(
-                            "{} of {} emails failed on creation.",
-                            results.countMessagingException(),
-                            results.countToSend());
-                }
-
-                // add emails to resend back to SQS
-                try {
-                    sqsClient.sendMessage(convertSendEmailsToSendMessageRequest(results.emailsToResend()));
-                } catch (JsonProcessingException e) {
-                    // failed to write JSON message for SendMessageRequest
-                    log.error(
-                            "Failed to resend {} emails.",
-                            results.emailsToResend().size());
-                }
-
-            } else {
-                log.info("All emails sent");
-            }
+            queueMessageDispatcher.dispatch(rawText);
 
             message.acknowledge();
 
@@ -124,6 +94,40 @@ public class SendEmailMessageQueueListener implements MessageListener {
         }
     }
 
+    private void handleSendEmailMessage(VersionedSendEmailMessage<AbstractSendEmailPayload> sendEmailMessage) {
+        EmailProcessingResults results = sendEmailMessageRouter.handleSendEmailMessage(sendEmailMessage);
+        if (results.countToSend() != results.countSent()) {
+            // if an email is not sent, we shouldn't block acknowledgement of the entire message otherwise we
+            // would send multiple messages to many users just because a single message in the batch wasn't sent
+
+            if (results.countSent() == 0) {
+                log.error(String.format(
+                        "Zero emails sent in batch size of %s, likely due to dropped connection to email relay. Returning and not acknowledging to force re-enqueue",
+                        results.countToSend()));
+            } else {
+                log.error("{} of {} emails were sent.", results.countSent(), results.countToSend());
+            }
+
+            if (results.countMessagingException() > 0) {
+                log.error(
+                        "{} of {} emails failed on creation.",
+                        results.countMessagingException(),
+                        results.countToSend());
+            }
+
+            // add emails to resend back to SQS
+            try {
+                sqsClient.sendMessage(convertSendEmailsToSendMessageRequest(results.emailsToResend()));
+            } catch (JsonProcessingException e) {
+                // failed to write JSON message for SendMessageRequest
+                log.error("Failed to resend {} emails.", results.emailsToResend().size());
+            }
+
+        } else {
+            log.info("All emails sent");
+        }
+    }
+
     protected SendMessageRequest convertSendEmailsToSendMessageRequest(List<SendEmail> sendEmails)
             throws JsonProcessingException {
         Map<HtmlTemplate, List<SendEmailQueueMessageBody>> emailSqsMessages = new EnumMap<>(HtmlTemplate.class);
@@ -1,6 +1,8 @@
 package gov.irs.factgraph.persisters
 import gov.irs.factgraph.types.WritableType
-import scala.jdk.CollectionConverters.MapHasAsScala
+import scala.collection.mutable.ArrayBuffer
+import scala.jdk.CollectionConverters.{IterableHasAsScala, MapHasAsScala}
+import ujson.Value
 
 object InMemoryPersisterJava:
   def create(store: java.util.Map[String, WritableType]): InMemoryPersister =
@@ -10,3 +12,27 @@ object InMemoryPersisterJava:
 
   def create(): InMemoryPersister =
     InMemoryPersister.apply()
+
+  /** Create a persister from facts that have already been decoded on the Java side.
+    *
+    * Each value is the `{"$type": ..., "item": ...}` wrapper of a persisted fact, built from plain Java types
+    * (`java.util.Map`, `java.lang.Iterable`, `String`, `Number`, `Boolean` or `null`). This applies migrations
+    * exactly like `InMemoryPersister.apply(jsonString)`, without writing the facts out to a JSON string first.
+    */
+  def createFromWrappedFacts(store: java.util.Map[String, ?]): InMemoryPersister =
+    InMemoryPersister.apply(
+      store.asScala.map((path, wrappedFact) => (path, toJsonValue(wrappedFact))).toMap,
+    )
+
+  private def toJsonValue(value: Any): Value =
+    value match
+      case null                     => ujson.Null
+      case s: String                => ujson.Str(s)
+      case b: java.lang.Boolean     => ujson.Bool(b.booleanValue)
+      case n: java.lang.Number      => ujson.Num(n.doubleValue)
+      case m: java.util.Map[?, ?]   => ujson.Obj.from(m.asScala.map((k, v) => (k.toString, toJsonValue(v))))
+      case i: java.lang.Iterable[?] => ujson.Arr(i.asScala.map(toJsonValue).to(ArrayBuffer))
+      case other =>
+        throw new IllegalArgumentException(
+          s"Unsupported persisted value type ${other.getClass.getName}",
+        )
@@ -216,8 +216,9 @@ object InMemoryPersister:
     new InMemoryPersister(Map(pathSeeds*))
 
   def apply(jsonString: String): InMemoryPersister =
-    val jsonData = read[Map[String, Value]](jsonString)
+    apply(read[Map[String, Value]](jsonString))
 
+  def apply(jsonData: Map[String, Value]): InMemoryPersister =
     // Migrations are applied only to fact graphs that were persisted via JSON string;
     // everything else is initialized in-memory, and therefore assumed to be current
     val totalMigrations = jsonData
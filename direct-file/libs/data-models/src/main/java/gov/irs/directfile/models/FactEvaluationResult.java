@@ -105,6 +105,8 @@ public class FactEvaluationResult implements Serializable {
     // Inputs of valid dictionary paths are returned unchanged.
     private String collectionIndexToId(final String factPath) {
         if (factPath == null) return null;
+        // Most paths have no collection index; skip the regex for those.
+        if (!factPath.contains("/[")) return factPath;
         final var matcher = collectionIndexRegEx.matcher(factPath);
         if (!matcher.find()) return factPath;
         final String collectionPath = matcher.group("collection");
@@ -0,0 +1,70 @@
+package gov.irs.directfile.models;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * The facts that changed between two saves of a tax return: the facts that were written, and the paths of the facts
+ * that were removed. Applying a delta deletes before it writes, so a path that is both deleted and written ends up
+ * written.
+ */
+public record FactsDelta(Map<String, FactTypeWithItem> changedFacts, Set<String> deletedFactPaths)
+        implements Serializable {
+    /**
+     * @throws IllegalArgumentException if a path is null, or a changed fact has no type or no value. A fact is removed
+     *     by deleting its path, not by writing it without a value.
+     */
+    public FactsDelta {
+        if (changedFacts == null) {
+            changedFacts = Map.of();
+        } else {
+            changedFacts.forEach((path, fact) -> {
+                if (path == null
+                        || fact == null
+                        || fact.type() == null
+                        || fact.item() == null
+                        || fact.item().isNull()) {
+                    throw new IllegalArgumentException(String.format("Changed fact %s has no value", path));
+                }
+            });
+            changedFacts = Map.copyOf(changedFacts);
+        }
+        if (deletedFactPaths == null) {
+            deletedFactPaths = Set.of();
+        } else {
+            // Immutable sets throw on contains(null)
+            if (deletedFactPaths.stream().anyMatch(Objects::isNull)) {
+                throw new IllegalArgumentException("Deleted fact paths contain null");
+            }
+            deletedFactPaths = Set.copyOf(deletedFactPaths);
+        }
+    }
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return changedFacts.isEmpty() && deletedFactPaths.isEmpty();
+    }
+
+    public void applyTo(Map<String, FactTypeWithItem> facts) {
+        deletedFactPaths.forEach(facts::remove);
+        facts.putAll(changedFacts);
+    }
+
+    /** Returns a single delta with the same effect as applying this delta and then {@code next}. */
+    public FactsDelta andThen(FactsDelta next) {
+        Map<String, FactTypeWithItem> mergedChangedFacts = new HashMap<>(changedFacts);
+        Set<String> mergedDeletedFactPaths = new LinkedHashSet<>(deletedFactPaths);
+        next.deletedFactPaths().forEach(path -> {
+            mergedChangedFacts.remove(path);
+            mergedDeletedFactPaths.add(path);
+        });
+        mergedChangedFacts.putAll(next.changedFacts());
+        return new FactsDelta(mergedChangedFacts, mergedDeletedFactPaths);
+    }
+}
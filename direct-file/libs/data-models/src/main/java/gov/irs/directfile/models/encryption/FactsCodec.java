@@ -0,0 +1,66 @@
+package gov.irs.directfile.models.encryption;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Turns facts into the plaintext bytes that get encrypted, and back.
+ *
+ * <p>The plaintext is versioned by its first byte. Version {@value #SMILE_DEFLATE} is Deflate-compressed Smile, which
+ * is what {@link #encode} writes. Plaintext written before versioning is plain JSON, which always starts with a
+ * printable character, so it is still read by {@link #decode}.
+ */
+public class FactsCodec {
+    public static final byte SMILE_DEFLATE = 1;
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+
+    public FactsCodec() {
+        jsonMapper = new ObjectMapper();
+        jsonMapper.registerModule(new JavaTimeModule()); // Java 8 time not registered by default
+        smileMapper = new ObjectMapper(new SmileFactory());
+        smileMapper.registerModule(new JavaTimeModule());
+    }
+
+    public byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(SMILE_DEFLATE);
+        try (OutputStream deflated = new DeflaterOutputStream(bytes)) {
+            smileMapper.writeValue(deflated, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    public byte[] encodeAsJson(Object value) throws IOException {
+        return jsonMapper.writeValueAsBytes(value);
+    }
+
+    public <T> T decode(byte[] bytes, TypeReference<T> type) throws IOException {
+        return decode(bytes, jsonMapper.getTypeFactory().constructType(type));
+    }
+
+    public <T> T decode(byte[] bytes, Class<T> type) throws IOException {
+        return decode(bytes, jsonMapper.getTypeFactory().constructType(type));
+    }
+
+    private <T> T decode(byte[] bytes, JavaType type) throws IOException {
+        if (bytes.length > 0 && bytes[0] == SMILE_DEFLATE) {
+            try (InputStream inflated = new InflaterInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+                return smileMapper.readValue(inflated, type);
+            }
+        }
+        return jsonMapper.readValue(bytes, type);
+    }
+}
@@ -5,22 +5,23 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.SneakyThrows;
 
 import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.FactsDelta;
 
 public class FactsEncryptor {
+    private static final TypeReference<Map<String, FactTypeWithItem>> FACTS_TYPE = new TypeReference<>() {};
+
     private final DataEncryptDecrypt dataEncryptDecrypt;
-    private final ObjectMapper mapper;
+    private final FactsCodec codec;
 
     public FactsEncryptor(DataEncryptDecrypt dataEncryptDecrypt) {
         this.dataEncryptDecrypt = dataEncryptDecrypt;
-        mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule()); // Java 8 time not registered by default
+        this.codec = new FactsCodec();
     }
 
+    /** Encrypts facts as Base64 JSON, for the varchar facts columns. */
     @SneakyThrows
     public String convertToDatabaseColumn(
             Map<String, FactTypeWithItem> attribute, Map<String, String> encryptionContext) {
@@ -31,9 +32,27 @@ public class FactsEncryptor {
             return "";
         }
 
-        byte[] bytes = mapper.writeValueAsBytes(attribute);
-        byte[] ciphertext = dataEncryptDecrypt.encrypt(bytes, encryptionContext);
-        return Base64.getEncoder().encodeToString(ciphertext);
+        return encrypt(codec.encodeAsJson(attribute), encryptionContext);
+    }
+
+    /** Encrypts facts in the compact {@link FactsCodec} format, for the bytea facts columns. */
+    @SneakyThrows
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+    public byte[] convertToDatabaseBytes(
+            Map<String, FactTypeWithItem> attribute, Map<String, String> encryptionContext) {
+        if (attribute == null) {
+            return null;
+        }
+        if (attribute.isEmpty()) {
+            return new byte[0];
+        }
+
+        return dataEncryptDecrypt.encrypt(codec.encode(attribute), encryptionContext);
+    }
+
+    @SneakyThrows
+    public String convertDeltaToDatabaseColumn(FactsDelta delta, Map<String, String> encryptionContext) {
+        return encrypt(codec.encode(delta), encryptionContext);
     }
 
     @SneakyThrows
@@ -42,8 +61,30 @@ public class FactsEncryptor {
             return new HashMap<>();
         }
 
+        return codec.decode(decrypt(dbData), FACTS_TYPE);
+    }
+
+    @SneakyThrows
+    public Map<String, FactTypeWithItem> convertToEntityAttribute(byte[] dbData) {
+        if (dbData == null || dbData.length == 0) {
+            return new HashMap<>();
+        }
+
+        return codec.decode(dataEncryptDecrypt.decrypt(dbData), FACTS_TYPE);
+    }
+
+    @SneakyThrows
+    public FactsDelta convertToFactsDelta(String dbData) {
+        return codec.decode(decrypt(dbData), FactsDelta.class);
+    }
+
+    private String encrypt(byte[] bytes, Map<String, String> encryptionContext) {
+        byte[] ciphertext = dataEncryptDecrypt.encrypt(bytes, encryptionContext);
+        return Base64.getEncoder().encodeToString(ciphertext);
+    }
+
+    private byte[] decrypt(String dbData) {
         byte[] ciphertext = Base64.getDecoder().decode(dbData);
-        byte[] bytes = dataEncryptDecrypt.decrypt(ciphertext);
-        return mapper.readValue(bytes, new TypeReference<>() {});
+        return dataEncryptDecrypt.decrypt(ciphertext);
     }
 }
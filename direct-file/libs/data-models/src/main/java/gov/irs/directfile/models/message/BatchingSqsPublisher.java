@@ -0,0 +1,252 @@
+package gov.irs.directfile.models.message;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+
+/**
+ * Buffers messages and sends them with SendMessageBatch, so that a burst of publishes costs one SQS call per ten
+ * messages instead of one each. A batch is sent once it has 10 entries, once the next message would take it over the
+ * 256 KB request limit, or {@code flushWindow} after its first message, whichever is first.
+ *
+ * <p>Batches are sent on a single background thread, so {@link #publish} returns without waiting for SQS and failures
+ * are logged rather than thrown. Entries that fail in a batch are retried on their own, up to {@link #MAX_ATTEMPTS}
+ * attempts, unless SQS reports the failure as the sender's fault. Each retry first waits an exponential backoff with
+ * jitter, starting from {@link #DEFAULT_RETRY_BACKOFF}, so that a throttled or unavailable queue is not hit again right
+ * away. The batches behind it wait too, which keeps them in order. Call {@link #close} on shutdown to send whatever is
+ * still buffered.
+ */
+@Slf4j
+public class BatchingSqsPublisher extends SqsPublisher implements AutoCloseable {
+    public static final Duration DEFAULT_FLUSH_WINDOW = Duration.ofMillis(100);
+    public static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofMillis(100);
+
+    static final int MAX_BATCH_ENTRIES = 10;
+    static final int MAX_BATCH_BYTES = 256 * 1024;
+    static final int MAX_ATTEMPTS = 3;
+    static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(2);
+
+    private final Duration flushWindow;
+    private final Duration retryBackoff;
+    private final ScheduledExecutorService sender;
+
+    private List<BufferedMessage> buffer = new ArrayList<>();
+    private int bufferedBytes = 0;
+    private boolean closed = false;
+
+    public BatchingSqsPublisher(SqsClient sqsClient, String queueName) {
+        this(sqsClient, queueName, DEFAULT_FLUSH_WINDOW);
+    }
+
+    public BatchingSqsPublisher(SqsClient sqsClient, String queueName, Duration flushWindow) {
+        this(sqsClient, queueName, flushWindow, DEFAULT_RETRY_BACKOFF);
+    }
+
+    BatchingSqsPublisher(SqsClient sqsClient, String queueName, Duration flushWindow, Duration retryBackoff) {
+        super(sqsClient, queueName);
+        this.flushWindow = flushWindow;
+        this.retryBackoff = retryBackoff;
+        this.sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sqs-batch-" + queueName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void publish(String message) {
+        publish(message, Map.of());
+    }
+
+    public void publish(String message, Map<String, MessageAttributeValue> messageAttributes) {
+        BufferedMessage bufferedMessage = new BufferedMessage(message, messageAttributes);
+        List<BufferedMessage> fullBatch = null;
+        boolean startWindow;
+        synchronized (this) {
+            if (closed) {
+                throw new PublisherException("Publisher for SQS queue " + queueName + " is closed");
+            }
+            if (!buffer.isEmpty() && bufferedBytes + bufferedMessage.size() > MAX_BATCH_BYTES) {
+                fullBatch = drainBuffer();
+            }
+            startWindow = buffer.isEmpty();
+            buffer.add(bufferedMessage);
+            bufferedBytes += bufferedMessage.size();
+            if (buffer.size() == MAX_BATCH_ENTRIES) {
+                // Only one batch can be full at a time: a message over the byte limit starts a new batch
+                fullBatch = drainBuffer();
+                startWindow = false;
+            }
+        }
+
+        if (fullBatch != null) {
+            List<BufferedMessage> batch = fullBatch;
+            sender.execute(() -> send(batch));
+        }
+        if (startWindow) {
+            sender.schedule(this::sendBuffered, flushWindow.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Sends whatever is buffered and waits until every batch handed to the sender so far has been sent. */
+    public void flush() {
+        try {
+            sender.submit(this::sendBuffered).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PublisherException("Interrupted flushing SQS queue " + queueName, e);
+        } catch (ExecutionException e) {
+            throw new PublisherException("Exception flushing SQS queue " + queueName, e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        flush();
+        sender.shutdown();
+    }
+
+    private void sendBuffered() {
+        List<BufferedMessage> batch;
+        synchronized (this) {
+            batch = drainBuffer();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private List<BufferedMessage> drainBuffer() {
+        List<BufferedMessage> batch = buffer;
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+        return batch;
+    }
+
+    private void send(List<BufferedMessage> batch) {
+        // Ids only have to be unique within a batch. Each entry keeps its id across retries, so that the log lines
+        // about it can be followed.
+        Map<String, BufferedMessage> unsent = new LinkedHashMap<>();
+        for (BufferedMessage bufferedMessage : batch) {
+            unsent.put(String.valueOf(unsent.size()), bufferedMessage);
+        }
+        for (int attempt = 1; !unsent.isEmpty(); attempt++) {
+            Map<String, BufferedMessage> retryable = sendBatch(unsent);
+            if (!retryable.isEmpty() && (attempt >= MAX_ATTEMPTS || !awaitRetry(attempt))) {
+                log.error(
+                        "Dropping {} messages to SQS queue {} after {} attempts, entry ids {}",
+                        retryable.size(),
+                        queueName,
+                        attempt,
+                        retryable.keySet());
+                return;
+            }
+            unsent = retryable;
+        }
+    }
+
+    /**
+     * Waits before the retry that follows {@code attempt}: half of the backoff for that attempt, plus a random part of
+     * the other half, so that publishers that failed together do not all retry together. Returns false if interrupted.
+     */
+    private boolean awaitRetry(int attempt) {
+        long backoffMillis = Math.min(retryBackoff.toMillis() << (attempt - 1), MAX_RETRY_BACKOFF.toMillis());
+        long delayMillis = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+        try {
+            Thread.sleep(delayMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Sends one batch and returns the entries, by id, that failed and are worth sending again. */
+    private Map<String, BufferedMessage> sendBatch(Map<String, BufferedMessage> batch) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>();
+        batch.forEach((id, bufferedMessage) -> entries.add(SendMessageBatchRequestEntry.builder()
+                .id(id)
+                .messageBody(bufferedMessage.body())
+                .messageAttributes(bufferedMessage.attributes())
+                .build()));
+
+        SendMessageBatchResponse response;
+        try {
+            if (StringUtils.isBlank(queueUrl)) {
+                queueUrl = getQueueUrl(queueName);
+            }
+            response = sqsClient.sendMessageBatch(SendMessageBatchRequest.builder()
+                    .queueUrl(queueUrl)
+                    .entries(entries)
+                    .build());
+        } catch (Exception e) {
+            log.error("Exception calling SQS sendMessageBatch for queue {}: {}", queueName, e.getMessage(), e);
+            return batch;
+        }
+
+        Map<String, BufferedMessage> retryable = new LinkedHashMap<>();
+        for (BatchResultErrorEntry failed : response.failed()) {
+            if (failed.senderFault()) {
+                log.error(
+                        "SQS rejected entry {} to queue {} with code {}: {}",
+                        failed.id(),
+                        queueName,
+                        failed.code(),
+                        failed.message());
+            } else {
+                log.warn("SQS failed to send entry {} to queue {} with code {}", failed.id(), queueName, failed.code());
+                retryable.put(failed.id(), batch.get(failed.id()));
+            }
+        }
+        log.info(
+                "Sent {} of {} messages to SQS queue: {}", response.successful().size(), batch.size(), queueName);
+        return retryable;
+    }
+
+    private record BufferedMessage(String body, Map<String, MessageAttributeValue> attributes, int size) {
+        BufferedMessage(String body, Map<String, MessageAttributeValue> attributes) {
+            this(body, attributes, sizeOf(body, attributes));
+        }
+
+        // SQS counts the body and each attribute's name, type and value towards the 256 KB limit
+        private static int sizeOf(String body, Map<String, MessageAttributeValue> attributes) {
+            int size = utf8Length(body);
+            for (Map.Entry<String, MessageAttributeValue> attribute : attributes.entrySet()) {
+                MessageAttributeValue value = attribute.getValue();
+                size += utf8Length(attribute.getKey()) + utf8Length(value.dataType());
+                size += utf8Length(value.stringValue());
+                if (value.binaryValue() != null) {
+                    size += value.binaryValue().asByteArray().length;
+                }
+            }
+            return size;
+        }
+
+        private static int utf8Length(String value) {
+            return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package gov.irs.directfile.models.message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import gov.irs.directfile.models.message.exception.UnsupportedMessageTypeException;
+
+/**
+ * Deserializes each queue message exactly once and passes it to the handler registered for its type.
+ *
+ * <p>Queue messages don't carry their type in the headers, but the payload of every versioned message names its
+ * subtype (e.g. "PendingSubmissionPayloadV1"), and each payload subtype belongs to one message type. A listener that
+ * receives more than one message type reads the message into a tree once, looks up the route by the payload's type
+ * name, and binds the tree to that message type. A listener that receives a single message type binds the text
+ * directly. Either way the {@link ObjectReader} for each message type is built once, when it is registered.
+ *
+ * <p>Register every route with {@link #on} before the listener starts receiving messages.
+ *
+ * <pre>
+ * QueueMessageDispatcher dispatcher = new QueueMessageDispatcher(objectMapper)
+ *         .on(new TypeReference&lt;VersionedPendingSubmissionMessage&lt;AbstractPendingSubmissionPayload&gt;&gt;() {},
+ *                 pendingSubmissionMessageRouter::handlePendingSubmissionMessage)
+ *         .on(new TypeReference&lt;VersionedSubmissionConfirmationMessage&lt;AbstractSubmissionConfirmationPayload&gt;&gt;() {},
+ *                 submissionConfirmationMessageRouter::handleSubmissionConfirmationMessage);
+ * dispatcher.dispatch(((TextMessage) message).getText());
+ * </pre>
+ */
+public class QueueMessageDispatcher {
+    private static final String PAYLOAD = "payload";
+
+    private final ObjectMapper objectMapper;
+    private final List<Route<?>> routes = new ArrayList<>();
+
+    @FunctionalInterface
+    public interface QueueMessageHandler<M> {
+        void handle(M message) throws Exception;
+    }
+
+    public QueueMessageDispatcher(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Routes messages whose payload is one of the subtypes of messageType's payload type to handler.
+     *
+     * @throws IllegalArgumentException if messageType's payload type doesn't name its subtypes
+     */
+    public <M extends QueueMessage<?>> QueueMessageDispatcher on(
+            TypeReference<M> messageType, QueueMessageHandler<M> handler) {
+        JavaType javaType = objectMapper.getTypeFactory().constructType(messageType);
+        Class<?> payloadType = javaType.containedTypeOrUnknown(0).getRawClass();
+        JsonTypeInfo typeInfo = payloadType.getAnnotation(JsonTypeInfo.class);
+        JsonSubTypes subTypes = payloadType.getAnnotation(JsonSubTypes.class);
+        if (typeInfo == null || typeInfo.use() != JsonTypeInfo.Id.NAME || subTypes == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot route %s: its payload type %s does not name its subtypes",
+                    javaType, payloadType.getName()));
+        }
+
+        String typeProperty =
+                typeInfo.property().isEmpty() ? typeInfo.use().getDefaultPropertyName() : typeInfo.property();
+        Set<String> payloadTypeNames = Arrays.stream(subTypes.value())
+                .map(type -> type.name().isEmpty() ? type.value().getSimpleName() : type.name())
+                .collect(Collectors.toUnmodifiableSet());
+        routes.add(new Route<>(objectMapper.readerFor(javaType), typeProperty, payloadTypeNames, handler));
+        return this;
+    }
+
+    /**
+     * Deserializes rawText into the message type routed to by its payload type and handles it.
+     *
+     * @throws UnsupportedMessageTypeException if no route handles the payload type
+     * @throws Exception if rawText is not a valid message or its handler throws
+     */
+    public void dispatch(String rawText) throws Exception {
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("No routes registered");
+        }
+        if (routes.size() == 1) {
+            routes.get(0).handle(rawText);
+            return;
+        }
+
+        JsonNode message = objectMapper.readTree(rawText);
+        for (Route<?> route : routes) {
+            if (route.payloadTypeNames().contains(payloadTypeName(message, route))) {
+                route.handle(message);
+                return;
+            }
+        }
+        throw new UnsupportedMessageTypeException(
+                "No route for a message with payload type: " + payloadTypeName(message, routes.get(0)));
+    }
+
+    private static String payloadTypeName(JsonNode message, Route<?> route) {
+        return message.path(PAYLOAD).path(route.typeProperty()).asText();
+    }
+
+    private record Route<M>(
+            ObjectReader reader, String typeProperty, Set<String> payloadTypeNames, QueueMessageHandler<M> handler) {
+        void handle(String rawText) throws Exception {
+            M message = reader.readValue(rawText);
+            handler.handle(message);
+        }
+
+        void handle(JsonNode tree) throws Exception {
+            M message = reader.readValue(tree);
+            handler.handle(message);
+        }
+    }
+}
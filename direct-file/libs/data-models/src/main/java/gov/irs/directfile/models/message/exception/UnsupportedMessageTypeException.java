@@ -0,0 +1,8 @@
+package gov.irs.directfile.models.message.exception;
+
+public class UnsupportedMessageTypeException extends RuntimeException {
+
+    public UnsupportedMessageTypeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,81 @@
+package gov.irs.directfile.models;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactsDeltaTest {
+    private static final String BOOLEAN_WRAPPER = "gov.irs.factgraph.persisters.BooleanWrapper";
+    private static final String STRING_WRAPPER = "gov.irs.factgraph.persisters.StringWrapper";
+
+    @Test
+    void applyToWritesChangedFactsAndRemovesDeletedPaths() {
+        Map<String, FactTypeWithItem> facts = new HashMap<>();
+        facts.put("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, BooleanNode.TRUE));
+        facts.put("/occupation", new FactTypeWithItem(STRING_WRAPPER, new TextNode("Tester")));
+
+        FactsDelta delta = new FactsDelta(
+                Map.of("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, BooleanNode.FALSE)), Set.of("/occupation"));
+        delta.applyTo(facts);
+
+        assertEquals(1, facts.size());
+        assertEquals(BooleanNode.FALSE, facts.get("/isBlind").item());
+    }
+
+    @Test
+    void andThenMatchesApplyingBothDeltasInOrder() {
+        FactTypeWithItem occupation = new FactTypeWithItem(STRING_WRAPPER, new TextNode("Tester"));
+        FactTypeWithItem isBlind = new FactTypeWithItem(BOOLEAN_WRAPPER, BooleanNode.TRUE);
+        FactsDelta first = new FactsDelta(Map.of("/occupation", occupation), Set.of("/isBlind"));
+        FactsDelta second = new FactsDelta(Map.of("/isBlind", isBlind), Set.of("/occupation"));
+
+        Map<String, FactTypeWithItem> appliedInOrder = new HashMap<>();
+        first.applyTo(appliedInOrder);
+        second.applyTo(appliedInOrder);
+        Map<String, FactTypeWithItem> appliedMerged = new HashMap<>();
+        first.andThen(second).applyTo(appliedMerged);
+
+        assertEquals(Map.of("/isBlind", isBlind), appliedInOrder);
+        assertEquals(appliedInOrder, appliedMerged);
+    }
+
+    @Test
+    void roundTripsThroughJson() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        FactsDelta delta = new FactsDelta(
+                Map.of("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, BooleanNode.TRUE)), Set.of("/occupation"));
+
+        FactsDelta read = mapper.readValue(mapper.writeValueAsBytes(delta), FactsDelta.class);
+
+        assertEquals(delta, read);
+        assertFalse(read.isEmpty());
+        assertTrue(new FactsDelta(null, null).isEmpty());
+    }
+
+    @Test
+    void rejectsChangedFactsWithoutAValue() {
+        Map<String, FactTypeWithItem> nullFact = new HashMap<>();
+        nullFact.put("/isBlind", null);
+        Map<String, FactTypeWithItem> nullItem = Map.of("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, null));
+        Map<String, FactTypeWithItem> jsonNullItem =
+                Map.of("/isBlind", new FactTypeWithItem(BOOLEAN_WRAPPER, NullNode.getInstance()));
+        Map<String, FactTypeWithItem> nullType = Map.of("/isBlind", new FactTypeWithItem(null, BooleanNode.TRUE));
+        Set<String> nullPath = new HashSet<>();
+        nullPath.add(null);
+
+        assertThrows(IllegalArgumentException.class, () -> new FactsDelta(nullFact, null));
+        assertThrows(IllegalArgumentException.class, () -> new FactsDelta(nullItem, null));
+        assertThrows(IllegalArgumentException.class, () -> new FactsDelta(jsonNullItem, null));
+        assertThrows(IllegalArgumentException.class, () -> new FactsDelta(nullType, null));
+        assertThrows(IllegalArgumentException.class, () -> new FactsDelta(null, nullPath));
+    }
+}
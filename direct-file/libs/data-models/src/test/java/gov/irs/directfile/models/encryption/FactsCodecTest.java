@@ -0,0 +1,47 @@
+package gov.irs.directfile.models.encryption;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+
+import gov.irs.directfile.models.FactTypeWithItem;
+import gov.irs.directfile.models.FactsDelta;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactsCodecTest {
+    private static final TypeReference<Map<String, FactTypeWithItem>> FACTS_TYPE = new TypeReference<>() {};
+
+    private final FactsCodec codec = new FactsCodec();
+    private final Map<String, FactTypeWithItem> facts = Map.of(
+            "/isBlind", new FactTypeWithItem("gov.irs.factgraph.persisters.BooleanWrapper", BooleanNode.FALSE),
+            "/occupation", new FactTypeWithItem("gov.irs.factgraph.persisters.StringWrapper", new TextNode("Tester")));
+
+    @Test
+    void encodeWritesVersionedCompactFormat() throws Exception {
+        byte[] encoded = codec.encode(facts);
+
+        assertEquals(FactsCodec.SMILE_DEFLATE, encoded[0]);
+        assertEquals(facts, codec.decode(encoded, FACTS_TYPE));
+    }
+
+    @Test
+    void decodeStillReadsLegacyJson() throws Exception {
+        byte[] legacy = codec.encodeAsJson(facts);
+
+        assertEquals('{', legacy[0]);
+        assertEquals(facts, codec.decode(legacy, FACTS_TYPE));
+    }
+
+    @Test
+    void roundTripsFactsDelta() throws Exception {
+        FactsDelta delta = new FactsDelta(facts, Set.of("/filers"));
+
+        assertEquals(delta, codec.decode(codec.encode(delta), FactsDelta.class));
+        assertEquals(delta, codec.decode(codec.encodeAsJson(delta), FactsDelta.class));
+    }
+}
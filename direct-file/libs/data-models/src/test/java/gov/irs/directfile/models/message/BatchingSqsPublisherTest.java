@@ -0,0 +1,256 @@
+package gov.irs.directfile.models.message;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchingSqsPublisherTest {
+    private BatchingSqsPublisher publisher;
+
+    @Mock
+    private SqsClient sqsClient;
+
+    @Mock
+    private GetQueueUrlResponse getQueueUrlResponse;
+
+    @Mock
+    private SdkHttpResponse sdkHttpResponseForGetQueueUrl;
+
+    private final String queueName = "some-queue";
+    private final String queueUrl = "http://localhost:4566/000000000000/some-queue";
+
+    @BeforeEach
+    public void setup() {
+        // A long window, so that only full batches and explicit flushes send anything
+        publisher = new BatchingSqsPublisher(sqsClient, queueName, Duration.ofHours(1));
+        when(sqsClient.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(getQueueUrlResponse);
+        when(getQueueUrlResponse.queueUrl()).thenReturn(queueUrl);
+        when(getQueueUrlResponse.sdkHttpResponse()).thenReturn(sdkHttpResponseForGetQueueUrl);
+        when(sdkHttpResponseForGetQueueUrl.isSuccessful()).thenReturn(true);
+    }
+
+    @AfterEach
+    public void teardown() {
+        publisher.close();
+    }
+
+    @Test
+    public void publish_sendsTenMessagesInOneBatch() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(i -> succeeded(i.getArgument(0)));
+
+        for (int i = 0; i < 10; i++) {
+            publisher.publish("message " + i);
+        }
+        publisher.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(1)).sendMessageBatch(captor.capture());
+        assertEquals(queueUrl, captor.getValue().queueUrl());
+        assertEquals(
+                List.of(
+                        "message 0",
+                        "message 1",
+                        "message 2",
+                        "message 3",
+                        "message 4",
+                        "message 5",
+                        "message 6",
+                        "message 7",
+                        "message 8",
+                        "message 9"),
+                captor.getValue().entries().stream()
+                        .map(SendMessageBatchRequestEntry::messageBody)
+                        .toList());
+        verify(sqsClient, never()).sendMessage(any(SendMessageRequest.class));
+    }
+
+    @Test
+    public void publish_startsANewBatchAfterTenMessages() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(i -> succeeded(i.getArgument(0)));
+
+        for (int i = 0; i < 11; i++) {
+            publisher.publish("message " + i);
+        }
+        publisher.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(2)).sendMessageBatch(captor.capture());
+        assertEquals(10, captor.getAllValues().get(0).entries().size());
+        assertEquals(1, captor.getAllValues().get(1).entries().size());
+        verify(sqsClient, times(1)).getQueueUrl(any(GetQueueUrlRequest.class));
+    }
+
+    @Test
+    public void publish_keepsEachBatchUnder256Kilobytes() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(i -> succeeded(i.getArgument(0)));
+        String message = "x".repeat(100 * 1024);
+
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(message);
+        }
+        publisher.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(3)).sendMessageBatch(captor.capture());
+        assertEquals(
+                List.of(2, 2, 1),
+                captor.getAllValues().stream().map(r -> r.entries().size()).toList());
+    }
+
+    @Test
+    public void publish_sendsMessageAttributes() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(i -> succeeded(i.getArgument(0)));
+        Map<String, MessageAttributeValue> attributes = Map.of(
+                "TAX-RETURN-ID",
+                MessageAttributeValue.builder()
+                        .dataType("String")
+                        .stringValue("some-id")
+                        .build());
+
+        publisher.publish("hello", attributes);
+        publisher.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient).sendMessageBatch(captor.capture());
+        assertEquals(attributes, captor.getValue().entries().get(0).messageAttributes());
+    }
+
+    @Test
+    public void publish_sendsAfterTheFlushWindow() {
+        publisher.close();
+        publisher = new BatchingSqsPublisher(sqsClient, queueName, Duration.ofMillis(10));
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(i -> succeeded(i.getArgument(0)));
+
+        publisher.publish("hello");
+
+        verify(sqsClient, timeout(5000)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    public void publish_retriesOnlyTheFailedEntries() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(i -> {
+                    SendMessageBatchRequest request = i.getArgument(0);
+                    return SendMessageBatchResponse.builder()
+                            .successful(SendMessageBatchResultEntry.builder()
+                                    .id(request.entries().get(0).id())
+                                    .build())
+                            .failed(BatchResultErrorEntry.builder()
+                                    .id(request.entries().get(1).id())
+                                    .code("InternalError")
+                                    .senderFault(false)
+                                    .build())
+                            .build();
+                })
+                .thenAnswer(i -> succeeded(i.getArgument(0)));
+
+        publisher.publish("first");
+        publisher.publish("second");
+        publisher.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> captor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, times(2)).sendMessageBatch(captor.capture());
+        assertEquals(
+                List.of("second"),
+                captor.getAllValues().get(1).entries().stream()
+                        .map(SendMessageBatchRequestEntry::messageBody)
+                        .toList());
+    }
+
+    @Test
+    public void publish_doesNotRetrySenderFaults() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(i -> SendMessageBatchResponse.builder()
+                        .failed(BatchResultErrorEntry.builder()
+                                .id(((SendMessageBatchRequest) i.getArgument(0))
+                                        .entries()
+                                        .get(0)
+                                        .id())
+                                .code("InvalidMessageContents")
+                                .senderFault(true)
+                                .build())
+                        .build());
+
+        publisher.publish("hello");
+        publisher.flush();
+
+        verify(sqsClient, times(1)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    public void publish_givesUpAfterMaxAttempts() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenThrow(SqsException.builder().message("unavailable").build());
+
+        publisher.publish("hello");
+        publisher.flush();
+
+        verify(sqsClient, times(BatchingSqsPublisher.MAX_ATTEMPTS))
+                .sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    @Test
+    public void publish_backsOffBetweenAttempts() {
+        publisher.close();
+        publisher = new BatchingSqsPublisher(sqsClient, queueName, Duration.ofHours(1), Duration.ofMillis(100));
+        List<Long> attemptedAt = new ArrayList<>();
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class))).thenAnswer(i -> {
+            attemptedAt.add(System.nanoTime());
+            throw SqsException.builder().message("unavailable").build();
+        });
+
+        publisher.publish("hello");
+        publisher.flush();
+
+        // Each wait is at least half of a backoff that doubles from 100ms
+        assertEquals(BatchingSqsPublisher.MAX_ATTEMPTS, attemptedAt.size());
+        Duration firstWait = Duration.ofNanos(attemptedAt.get(1) - attemptedAt.get(0));
+        Duration secondWait = Duration.ofNanos(attemptedAt.get(2) - attemptedAt.get(1));
+        assertTrue(firstWait.compareTo(Duration.ofMillis(50)) >= 0, firstWait.toString());
+        assertTrue(secondWait.compareTo(Duration.ofMillis(100)) >= 0, secondWait.toString());
+    }
+
+    @Test
+    public void close_sendsBufferedMessagesAndRejectsNewOnes() {
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(i -> succeeded(i.getArgument(0)));
+
+        publisher.publish("hello");
+        publisher.close();
+
+        verify(sqsClient, times(1)).sendMessageBatch(any(SendMessageBatchRequest.class));
+        assertThrows(PublisherException.class, () -> publisher.publish("too late"));
+    }
+
+    private static SendMessageBatchResponse succeeded(SendMessageBatchRequest request) {
+        return SendMessageBatchResponse.builder()
+                .successful(request.entries().stream()
+                        .map(entry -> SendMessageBatchResultEntry.builder()
+                                .id(entry.id())
+                                .build())
+                        .toList())
+                .build();
+    }
+}
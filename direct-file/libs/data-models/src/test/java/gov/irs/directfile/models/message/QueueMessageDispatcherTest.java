@@ -0,0 +1,97 @@
+package gov.irs.directfile.models.message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gov.irs.directfile.models.message.confirmation.SubmissionConfirmationMessageVersion;
+import gov.irs.directfile.models.message.confirmation.VersionedSubmissionConfirmationMessage;
+import gov.irs.directfile.models.message.confirmation.payload.AbstractSubmissionConfirmationPayload;
+import gov.irs.directfile.models.message.confirmation.payload.SubmissionConfirmationPayloadV2;
+import gov.irs.directfile.models.message.exception.UnsupportedMessageTypeException;
+import gov.irs.directfile.models.message.pending.PendingSubmissionMessageVersion;
+import gov.irs.directfile.models.message.pending.VersionedPendingSubmissionMessage;
+import gov.irs.directfile.models.message.pending.payload.AbstractPendingSubmissionPayload;
+import gov.irs.directfile.models.message.pending.payload.PendingSubmissionPayloadV1;
+import gov.irs.directfile.models.message.status.StatusChangeMessageVersion;
+import gov.irs.directfile.models.message.status.VersionedStatusChangeMessage;
+import gov.irs.directfile.models.message.status.payload.AbstractStatusChangePayload;
+import gov.irs.directfile.models.message.status.payload.StatusChangePayloadV1;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueueMessageDispatcherTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<QueueMessage<?>> pendingMessages = new ArrayList<>();
+    private final List<QueueMessage<?>> confirmationMessages = new ArrayList<>();
+    private QueueMessageDispatcher dispatcher;
+
+    @BeforeEach
+    public void setup() {
+        dispatcher = new QueueMessageDispatcher(objectMapper)
+                .on(
+                        new TypeReference<VersionedPendingSubmissionMessage<AbstractPendingSubmissionPayload>>() {},
+                        pendingMessages::add)
+                .on(
+                        new TypeReference<
+                                VersionedSubmissionConfirmationMessage<AbstractSubmissionConfirmationPayload>>() {},
+                        confirmationMessages::add);
+    }
+
+    @Test
+    public void itRoutesEachMessageTypeToItsHandler() throws Exception {
+        dispatcher.dispatch(objectMapper.writeValueAsString(new VersionedPendingSubmissionMessage<>(
+                new PendingSubmissionPayloadV1(new ArrayList<>()),
+                new QueueMessageHeaders()
+                        .addHeader(MessageHeaderAttribute.VERSION, PendingSubmissionMessageVersion.V1.getVersion()))));
+        dispatcher.dispatch(objectMapper.writeValueAsString(new VersionedSubmissionConfirmationMessage<>(
+                new SubmissionConfirmationPayloadV2(new ArrayList<>()),
+                new QueueMessageHeaders()
+                        .addHeader(
+                                MessageHeaderAttribute.VERSION,
+                                SubmissionConfirmationMessageVersion.V2.getVersion()))));
+
+        assertEquals(1, pendingMessages.size());
+        assertInstanceOf(
+                PendingSubmissionPayloadV1.class, pendingMessages.get(0).getPayload());
+        assertEquals(1, confirmationMessages.size());
+        assertInstanceOf(
+                SubmissionConfirmationPayloadV2.class,
+                confirmationMessages.get(0).getPayload());
+    }
+
+    @Test
+    public void itThrowsWhenNoRouteHandlesThePayloadType() throws Exception {
+        String rawText = objectMapper.writeValueAsString(new VersionedStatusChangeMessage<>(
+                new StatusChangePayloadV1(new HashMap<>()),
+                new QueueMessageHeaders()
+                        .addHeader(MessageHeaderAttribute.VERSION, StatusChangeMessageVersion.V1.getVersion())));
+
+        assertThrows(UnsupportedMessageTypeException.class, () -> dispatcher.dispatch(rawText));
+        assertTrue(pendingMessages.isEmpty());
+        assertTrue(confirmationMessages.isEmpty());
+    }
+
+    @Test
+    public void itReadsTheOnlyMessageTypeDirectly() throws Exception {
+        List<QueueMessage<?>> statusChangeMessages = new ArrayList<>();
+        QueueMessageDispatcher statusChangeDispatcher = new QueueMessageDispatcher(objectMapper)
+                .on(
+                        new TypeReference<VersionedStatusChangeMessage<AbstractStatusChangePayload>>() {},
+                        statusChangeMessages::add);
+
+        statusChangeDispatcher.dispatch(objectMapper.writeValueAsString(new VersionedStatusChangeMessage<>(
+                new StatusChangePayloadV1(new HashMap<>()),
+                new QueueMessageHeaders()
+                        .addHeader(MessageHeaderAttribute.VERSION, StatusChangeMessageVersion.V1.getVersion()))));
+
+        assertEquals(1, statusChangeMessages.size());
+        assertInstanceOf(
+                StatusChangePayloadV1.class, statusChangeMessages.get(0).getPayload());
+    }
+}
@@ -1,6 +1,7 @@
 package gov.irs.directfile.status.acknowledgement;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -34,6 +35,9 @@ public class AcknowledgementController {
 
     private static String X_FORWARDED_FOR = "X-Forwarded-For";
 
+    // Most submission ids one bulk rejection codes request may ask for
+    static final int MAX_BULK_REJECTION_CODES_SUBMISSION_IDS = 500;
+
     @SuppressFBWarnings(
             value = {"EI_EXPOSE_REP2"},
             justification = "constructor injection")
@@ -185,6 +189,62 @@ public class AcknowledgementController {
         }
     }
 
+    /**
+     * Bulk version of {@link #getRejectionCodes}: returns the rejection codes of each submission id in the body that has
+     * a completed record, keyed by submission id, and leaves out the ones that don't. Each submission id is audited as
+     * the single lookup would audit it.
+     */
+    @PostMapping("/rejection-codes")
+    public ResponseEntity<Map<String, List<RejectedStatus>>> getRejectionCodesInBulk(
+            @RequestBody List<String> submissionIds, HttpServletRequest request) {
+        if (submissionIds.isEmpty() || submissionIds.size() > MAX_BULK_REJECTION_CODES_SUBMISSION_IDS) {
+            log.error(String.format(
+                    "Bulk rejection codes request for %s submission ids, expected 1 to %s",
+                    submissionIds.size(), MAX_BULK_REJECTION_CODES_SUBMISSION_IDS));
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        Map<String, List<RejectedStatus>> rejectionCodes;
+        try {
+            rejectionCodes = acknowledgementService.getRejectionCodesForSubmissionIds(submissionIds);
+        } catch (Exception ex) {
+            AuditEventData eventData = new AuditEventData();
+            eventData.put(AuditLogElement.eventErrorMessage, ex.getClass().getName());
+            eventData.putDetail("errorMessage", ex.getMessage());
+            addValuesToEventData(
+                    eventData, AuditLogElement.responseStatusCode, String.valueOf(HttpStatus.BAD_REQUEST.value()));
+
+            auditService.performLogFromEvent(
+                    Event.builder()
+                            .eventId(EventId.CHECK)
+                            .eventStatus(EventStatus.FAILURE)
+                            .eventPrincipal(new SystemEventPrincipal())
+                            .build(),
+                    eventData);
+            log.error(
+                    String.format(
+                            "Error handling bulk rejection codes request for %s submission ids", submissionIds.size()),
+                    ex);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        submissionIds.forEach(submissionId -> {
+            HttpStatus lookupStatus = rejectionCodes.containsKey(submissionId) ? HttpStatus.OK : HttpStatus.NOT_FOUND;
+            AuditEventData eventData = new AuditEventData();
+            addValuesToEventData(eventData, AuditLogElement.mefSubmissionId, submissionId);
+            addValuesToEventData(eventData, AuditLogElement.responseStatusCode, String.valueOf(lookupStatus.value()));
+
+            auditService.performLogFromEvent(
+                    Event.builder()
+                            .eventId(EventId.CHECK)
+                            .eventStatus(lookupStatus == HttpStatus.OK ? EventStatus.SUCCESS : EventStatus.FAILURE)
+                            .eventPrincipal(new SystemEventPrincipal())
+                            .build(),
+                    eventData);
+        });
+        return new ResponseEntity<>(rejectionCodes, HttpStatus.OK);
+    }
+
     private void addValuesToEventData(AuditEventData auditEventData, AuditLogElement key, String value) {
         if (value != null) {
             auditEventData.put(key, value);
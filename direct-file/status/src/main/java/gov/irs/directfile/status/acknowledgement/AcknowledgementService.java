@@ -2,16 +2,26 @@ package gov.irs.directfile.status.acknowledgement;
 
 import java.math.RoundingMode;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.math.IntMath;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -24,9 +34,11 @@ import gov.irs.directfile.audit.AuditLogElement;
 import gov.irs.directfile.models.RejectedStatus;
 import gov.irs.directfile.status.acknowledgement.domain.AcknowledgementStatus;
 import gov.irs.directfile.status.acknowledgement.domain.Status;
+import gov.irs.directfile.status.config.AckPollingConfiguration;
 import gov.irs.directfile.status.config.StatusProperties;
 import gov.irs.directfile.status.domain.*;
 import gov.irs.directfile.status.domain.Error;
+import gov.irs.directfile.status.error.ErrorCatalog;
 import gov.irs.directfile.status.error.ErrorRepository;
 import gov.irs.directfile.status.error.ToolkitErrorRepository;
 import gov.irs.directfile.status.mef.client.MeFAcksMTOMClientService;
@@ -40,6 +52,7 @@ import gov.irs.directfile.status.services.StatusChangeMessageService;
         justification = "Initial SpotBugs Setup")
 @Service
 @EnableScheduling
+@EnableConfigurationProperties(AckPollingConfiguration.class)
 @Transactional
 @Slf4j
 @SuppressWarnings({
@@ -50,16 +63,27 @@ import gov.irs.directfile.status.services.StatusChangeMessageService;
     "PMD.UselessParentheses"
 })
 public class AcknowledgementService {
+    // The MeF system has a limit of 100 submission ids checked per attempt
+    private static final int MEF_ACK_BATCH_SIZE = 100;
+
     private final CompletedAcknowledgementRepository completedRepo;
     private final PendingAcknowledgementRepository pendingRepo;
     private final TaxReturnSubmissionRepository taxReturnSubmissionRepository;
     private final ErrorRepository errorRepo;
+    private final ErrorCatalog errorCatalog;
     private final PodIdentifierRepository podIdentifierRepository;
 
     private final ToolkitErrorRepository toolkitErrorRepo;
     private final StatusProperties statusProperties;
+    private final AckPollingConfiguration ackPollingConfiguration;
     private ServiceContext serviceContext;
 
+    private final MeFAcksMTOMClientService getAcksClientService;
+    private final MeFLoginClientService loginClientService;
+    private final MeFLogoutClientService logoutClientService;
+
+    private final AtomicBoolean pollInProgress = new AtomicBoolean(false);
+
     private final StatusChangeMessageService statusChangeMessageService;
 
     private SimpleDateFormat simpleDateFormat = new SimpleDateFormat("hh:mm:ss");
@@ -72,17 +96,20 @@ public class AcknowledgementService {
             PendingAcknowledgementRepository pendingRepo,
             TaxReturnSubmissionRepository taxReturnSubmissionRepository,
             ErrorRepository errorRepo,
+            ErrorCatalog errorCatalog,
             ToolkitErrorRepository toolkitErrorRepo,
             StatusProperties statusProperties,
             StatusChangeMessageService statusChangeMessageService,
             MeFAcksMTOMClientService getAcksClientService,
             MeFLoginClientService loginClientService,
             MeFLogoutClientService logoutClientService,
-            PodIdentifierRepository podIdentifierRepository) {
+            PodIdentifierRepository podIdentifierRepository,
+            AckPollingConfiguration ackPollingConfiguration) {
         this.completedRepo = completedRepo;
         this.pendingRepo = pendingRepo;
         this.taxReturnSubmissionRepository = taxReturnSubmissionRepository;
         this.errorRepo = errorRepo;
+        this.errorCatalog = errorCatalog;
         this.toolkitErrorRepo = toolkitErrorRepo;
         this.statusProperties = statusProperties;
         this.statusChangeMessageService = statusChangeMessageService;
@@ -90,6 +117,7 @@ public class AcknowledgementService {
         this.loginClientService = loginClientService;
         this.logoutClientService = logoutClientService;
         this.podIdentifierRepository = podIdentifierRepository;
+        this.ackPollingConfiguration = ackPollingConfiguration;
     }
 
     // changed from protected to public, called by TaxReturnXmlServiceImpl (which would be separated into its own
@@ -149,6 +177,20 @@ public class AcknowledgementService {
         return createRejectedReasonList(completed);
     }
 
+    /**
+     * Returns the rejection codes of each of the given submissions that has a completed record, keyed by submission id.
+     * The completed records and their errors are loaded in one query; submissions without a completed record are left
+     * out.
+     */
+    public Map<String, List<RejectedStatus>> getRejectionCodesForSubmissionIds(Collection<String> submissionIds) {
+        Map<String, List<RejectedStatus>> rejectionCodes = new HashMap<>();
+        completedRepo
+                .findAllWithErrorsBySubmissionIdIn(submissionIds)
+                .forEach(completed ->
+                        rejectionCodes.put(completed.getSubmissionId(), createRejectedReasonList(completed)));
+        return rejectionCodes;
+    }
+
     public AcknowledgementStatus GetAcknowledgement(UUID taxReturnId) {
         String submissionId = getLatestSubmissionIdByTaxReturnId(taxReturnId);
 
@@ -203,6 +245,13 @@ public class AcknowledgementService {
             log.info(String.format("Found %s in pending, will recheck status on next pass", submissionId));
             MDC.clear();
 
+            // Someone is waiting on this submission, so check it on the next poll unless one is coming up anyway
+            long now = System.currentTimeMillis();
+            pendingRepo.pollSooner(
+                    submissionId,
+                    new Date(now),
+                    new Date(now + ackPollingConfiguration.getMinPollInterval().toMillis()));
+
             return new AcknowledgementStatus(
                     Status.Pending,
                     CreateTranslationKey("status", "pending"),
@@ -235,83 +284,157 @@ public class AcknowledgementService {
         return completedRepo.findAll();
     }
 
-    private List<Set<Pending>> batchPendings(Iterable<Pending> pendings) {
-        List<Set<Pending>> batches = new ArrayList<>();
-        Set<Pending> current = new HashSet<>();
-        log.info(String.format("Estimated count: %s", pendings.spliterator().estimateSize()));
-        // This surprised me, but if you access it from pending every time
-        // the iterator will never move to next.
-        Iterator<Pending> iterator = pendings.iterator();
-        while (iterator.hasNext()) {
-            Pending pending = iterator.next();
-            if (current.size() < 100) {
-                current.add(pending);
-            } else {
-                log.info("100 Pendings in current batch, creating new batch");
-                batches.add(current);
-                current = new HashSet<>();
-                current.add(pending);
-            }
-        }
-        batches.add(current);
-        log.info(String.format("%s batches created", batches.size()));
-        return batches;
-    }
-
+    /**
+     * Pages through this pod's pendings that are due a poll, in submission id order, and fetches their acks from MeF in
+     * batches of 100, with up to {@code status.ack-polling.concurrency} getAcks calls in flight. Fetched acks are saved
+     * and published on a bounded pool of processing threads; when its queue is full the fetching thread saves them
+     * itself, which holds back further fetches. Returns once every batch has been fetched and processed, so a poll never
+     * overlaps the next, and then schedules the next poll of each pending that was checked (see {@link #pollDelay}).
+     */
     protected void LookupSubmissions() {
-        String podId = statusProperties.getApplicationId();
-        log.info("Getting all pending submission ids for podId {}", podId);
-        Iterable<Pending> pendings = pendingRepo.findAllByPodId(podId);
-        // we will either get the exact size or a 0 here.
-        if (pendings.spliterator().getExactSizeIfKnown() == 0) {
-            log.info("No pending submission ids for podId {}", podId);
+        if (!pollInProgress.compareAndSet(false, true)) {
+            log.warn("Previous ack poll is still running, skipping this one");
             return;
         }
-        // The MeF system has a limit of 100 submission ids checked per attempt
-        List<Set<Pending>> batchedPendings = batchPendings(pendings);
+        try {
+            lookupSubmissionsForPod(statusProperties.getApplicationId());
+        } finally {
+            pollInProgress.set(false);
+        }
+    }
+
+    private void lookupSubmissionsForPod(String podId) {
+        int pageSize = Math.max(MEF_ACK_BATCH_SIZE, ackPollingConfiguration.getPageSize());
+        int concurrency = Math.max(1, ackPollingConfiguration.getConcurrency());
+        int processingThreads = Math.max(1, ackPollingConfiguration.getProcessingThreads());
+        int processingQueueCapacity = Math.max(1, ackPollingConfiguration.getProcessingQueueCapacity());
 
-        log.info("Creating ack client for podId {}", podId);
         long startTime = System.currentTimeMillis();
         Date date = new Date(startTime);
         log.info("Logging in at {} for podId {}", simpleDateFormat.format(date), podId);
-        batchedPendings.forEach(batch -> {
-            try {
-                log.info("Getting acks from MeF for batch for podId {}", podId);
-                getGetAcksResult(batch);
-                // It might one day be necessary to purge submissionIds
-                // It shouldn't be necessary with this service being only available
-                // to our internal system.
-            } catch (ToolkitException e) {
-                // TODO: if a batch fails, find the bad one and report the problem to some other system
-                log.error("Toolkit error getting ack on poll: {}", e.getMessage(), e);
-
-                if (batch.size() == 1) {
-                    createToolkitError(batch.iterator().next(), e);
-                } else {
-                    partitionBatch(batch);
+        // Pendings scheduled up to half a minimum interval from now count as due, so one whose next poll lands just
+        // after this tick is checked now rather than a whole tick late
+        Date dueBy = new Date(
+                startTime + ackPollingConfiguration.getMinPollInterval().toMillis() / 2);
+        Map<Duration, List<String>> submissionIdsByPollDelay = new HashMap<>();
+        int pendingCount = 0;
+        // Closing an executor waits for its tasks, and fetchers hand work to the processors, so fetchers close first
+        try (ExecutorService processors = new ThreadPoolExecutor(
+                        processingThreads,
+                        processingThreads,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(processingQueueCapacity),
+                        Thread.ofPlatform().name("ack-processing-", 0).factory(),
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+                ExecutorService fetchers = Executors.newFixedThreadPool(
+                        concurrency, Thread.ofPlatform().name("ack-fetch-", 0).factory())) {
+            Semaphore fetchSlots = new Semaphore(concurrency);
+            String afterSubmissionId = "";
+            List<Pending> page;
+            do {
+                page = pendingRepo.findDuePageByPodId(podId, dueBy, afterSubmissionId, pageSize);
+                pendingCount += page.size();
+                for (Pending pending : page) {
+                    submissionIdsByPollDelay
+                            .computeIfAbsent(pollDelay(pending, startTime), delay -> new ArrayList<>())
+                            .add(pending.getSubmissionId());
                 }
-            } catch (ServiceException e) {
-                log.error("Service error getting ack on poll: {}", e.getMessage(), e);
-            }
-        });
+                for (List<Pending> batch : Lists.partition(page, MEF_ACK_BATCH_SIZE)) {
+                    fetchSlots.acquire();
+                    fetchers.execute(() -> {
+                        try {
+                            lookupBatch(new HashSet<>(batch), processors);
+                        } finally {
+                            fetchSlots.release();
+                        }
+                    });
+                }
+                if (!page.isEmpty()) {
+                    afterSubmissionId = page.getLast().getSubmissionId();
+                }
+            } while (page.size() == pageSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while polling acks for podId {}", podId);
+        }
+        scheduleNextPolls(submissionIdsByPollDelay, pageSize);
 
         long endTime = System.currentTimeMillis();
         date = new Date(endTime);
         log.info(
-                "Logging out at {}, elapsed time in milliseconds: {}",
+                "Logging out at {}, checked {} pending submission ids for podId {}, elapsed time in milliseconds: {}",
                 simpleDateFormat.format(date),
+                pendingCount,
+                podId,
                 (endTime - startTime));
     }
 
-    private void getGetAcksResult(Set<Pending> pendings) throws ToolkitException, ServiceException {
+    /**
+     * Returns how long to wait before checking a pending again: the minimum interval while it is fresh, then doubling
+     * once its age reaches four times the current delay, up to the maximum interval. Doubling in tiers keeps the number
+     * of distinct delays, and so of updates per poll, small.
+     */
+    Duration pollDelay(Pending pending, long now) {
+        Duration minPollInterval = ackPollingConfiguration.getMinPollInterval();
+        Duration maxPollInterval = ackPollingConfiguration.getMaxPollInterval();
+        long age = pending.getCreatedAt() == null
+                ? 0
+                : now - pending.getCreatedAt().getTime();
+        Duration delay = minPollInterval;
+        while (delay.compareTo(maxPollInterval) < 0 && delay.multipliedBy(4).toMillis() <= age) {
+            delay = delay.multipliedBy(2);
+        }
+        return delay.compareTo(maxPollInterval) > 0 ? maxPollInterval : delay;
+    }
+
+    // This runs once the poll's saves have finished, since they delete pendings in their own transactions. Pendings
+    // that were completed are gone by then and the update skips them.
+    private void scheduleNextPolls(Map<Duration, List<String>> submissionIdsByPollDelay, int batchSize) {
+        long now = System.currentTimeMillis();
+        submissionIdsByPollDelay.forEach((delay, submissionIds) -> {
+            Date nextPollAt = new Date(now + delay.toMillis());
+            Lists.partition(submissionIds, batchSize).forEach(batch -> pendingRepo.setNextPollAt(batch, nextPollAt));
+        });
+    }
+
+    private void lookupBatch(Set<Pending> batch, ExecutorService processors) {
+        try {
+            log.info("Getting acks from MeF for batch of {}", batch.size());
+            getGetAcksResult(batch, processors);
+            // It might one day be necessary to purge submissionIds
+            // It shouldn't be necessary with this service being only available
+            // to our internal system.
+        } catch (ToolkitException e) {
+            // TODO: if a batch fails, find the bad one and report the problem to some other system
+            log.error("Toolkit error getting ack on poll: {}", e.getMessage(), e);
+
+            if (batch.size() == 1) {
+                createToolkitError(batch.iterator().next(), e);
+            } else {
+                partitionBatch(batch, processors);
+            }
+        } catch (ServiceException e) {
+            log.error("Service error getting ack on poll: {}", e.getMessage(), e);
+        } catch (RuntimeException e) {
+            log.error("Unexpected error getting ack on poll: {}", e.getMessage(), e);
+        }
+    }
+
+    private void getGetAcksResult(Set<Pending> pendings, ExecutorService processors)
+            throws ToolkitException, ServiceException {
         Set<String> submissionIds =
                 pendings.stream().map(Pending::getSubmissionId).collect(Collectors.toSet());
         GetAcksResultWrapper acknowledgements = getAcksClientService.getAcks(serviceContext, submissionIds);
-        // to enable parallel processing of each batch of 100 submissions, we handle each batch of acknowledgements in a
-        // separate thread
-        // once we have fetched them from MeF
-        new Thread(() -> bulkUpdateRecordsFromAckResultAndEnqueueStatusChangeMessages(acknowledgements, pendings))
-                .start();
+        // Saving the acknowledgements happens on the processing threads, so the fetching thread can move on to the
+        // next batch
+        processors.execute(() -> {
+            try {
+                bulkUpdateRecordsFromAckResultAndEnqueueStatusChangeMessages(acknowledgements, pendings);
+            } catch (RuntimeException e) {
+                log.error("Error saving acknowledgements: {}", e.getMessage(), e);
+            }
+        });
     }
 
     void bulkUpdateRecordsFromAckResultAndEnqueueStatusChangeMessages(
@@ -340,7 +463,8 @@ public class AcknowledgementService {
          *
          * 5. bulkUpdateEntities()
          *      - bulkGetOrCreateErrorsToRejectedAcknowledgements()
-         *           - Create the Error entities based on the submissionIdToValidationErrorMap and save them to the database
+         *           - Look up the Error entities for the submissionIdToValidationErrorMap in the ErrorCatalog, which
+         *             saves any new ones to the database
          *           - at this point, the Error entities are *not*  related to the Completed entities, because
          *           - Completed entities haven't been saved
          *           - returns submissionIdToError(), which is a map of submission Ids to Errors (newly created)
@@ -452,7 +576,6 @@ public class AcknowledgementService {
     protected Map<String, List<Error>> bulkGetOrCreateErrorsToRejectedAcknowledgements(
             Map<String, List<List<String>>> validationErrorMap) {
 
-        List<Error> errorList = new ArrayList<>();
         Map<String, List<Error>> submissionIdToError = new HashMap<>();
 
         validationErrorMap.forEach((submissionId, validationErrorGrp) -> {
@@ -461,14 +584,7 @@ public class AcknowledgementService {
                 String ruleNum = validationError.get(0);
                 String severityCd = validationError.get(1);
                 String errorMessageTxt = validationError.get(2);
-                var databaseError = errorRepo.findById(ruleNum);
-                if (databaseError.isPresent()) {
-                    log.info(String.format("Found reject reason %s", ruleNum));
-                    Error existingError = databaseError.get();
-                    errorList.add(existingError);
-                    submissionIdToError.get(submissionId).add(existingError);
-
-                } else {
+                Error error = errorCatalog.getOrCreate(ruleNum, () -> {
                     log.warn(String.format("New reject reason found: %s. New translation required", ruleNum));
                     Error newError = new Error();
                     newError.setMefErrorCode(ruleNum);
@@ -476,12 +592,11 @@ public class AcknowledgementService {
                     newError.setMefErrorCategory(severityCd);
                     newError.setErrorMessage(errorMessageTxt);
                     log.info(String.format("Saving new reject reason %s", ruleNum));
-                    errorList.add(newError);
-                    submissionIdToError.get(submissionId).add(newError);
-                }
+                    return newError;
+                });
+                submissionIdToError.get(submissionId).add(error);
             });
         });
-        errorRepo.saveAll(errorList);
         return submissionIdToError;
     }
 
@@ -567,25 +682,25 @@ public class AcknowledgementService {
                 statusProperties.getTranslationKeySplitter(), statusProperties.getRootTranslationKey(), type, name);
     }
 
-    private void partitionBatch(Set<Pending> pBatch) {
+    private void partitionBatch(Set<Pending> pBatch, ExecutorService processors) {
         Iterable<List<Pending>> partitions =
                 Iterables.partition(pBatch, IntMath.divide(pBatch.size(), 2, RoundingMode.CEILING));
 
         partitions.forEach(partition -> {
             try {
-                getGetAcksResult(new HashSet<>(partition));
+                getGetAcksResult(new HashSet<>(partition), processors);
             } catch (ToolkitException tke) {
                 if (partition.size() == 1) {
                     // report and flag bad data to db
                     createToolkitError(partition.get(0), tke);
                 } else {
-                    partitionBatch(new HashSet<>(partition));
+                    partitionBatch(new HashSet<>(partition), processors);
                 }
             } catch (ServiceException se) {
                 if (partition.size() == 1) {
                     log.warn("ServiceException - " + se);
                 } else {
-                    partitionBatch(new HashSet<>(partition));
+                    partitionBatch(new HashSet<>(partition), processors);
                 }
             }
         });
@@ -1,5 +1,7 @@
 package gov.irs.directfile.status.acknowledgement;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.Query;
@@ -11,4 +13,7 @@ public interface CompletedAcknowledgementRepository extends CrudRepository<Compl
 
     @Query(value = "SELECT * FROM completed WHERE submission_id = :submissionId LIMIT 1", nativeQuery = true)
     Optional<Completed> GetCompletedSubmission(String submissionId);
+
+    @Query("SELECT DISTINCT c FROM Completed c LEFT JOIN FETCH c.errors WHERE c.submissionId IN :submissionIds")
+    List<Completed> findAllWithErrorsBySubmissionIdIn(Collection<String> submissionIds);
 }
@@ -1,8 +1,11 @@
 package gov.irs.directfile.status.acknowledgement;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
@@ -15,4 +18,26 @@ public interface PendingAcknowledgementRepository extends CrudRepository<Pending
 
     @Query(value = "SELECT * FROM pending WHERE pod_id = :podId ORDER BY created_at asc", nativeQuery = true)
     List<Pending> findAllByPodId(String podId);
+
+    // Keyset paging over the pendings due a poll by dueBy: pass the last submission id of the previous page, or "" for
+    // the first page
+    @Query(
+            value = "SELECT * FROM pending WHERE pod_id = :podId AND submission_id > :afterSubmissionId"
+                    + " AND (next_poll_at IS NULL OR next_poll_at <= :dueBy) ORDER BY submission_id LIMIT :limit",
+            nativeQuery = true)
+    List<Pending> findDuePageByPodId(String podId, Date dueBy, String afterSubmissionId, int limit);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+            value = "UPDATE pending SET next_poll_at = :nextPollAt WHERE submission_id IN (:submissionIds)",
+            nativeQuery = true)
+    int setNextPollAt(Collection<String> submissionIds, Date nextPollAt);
+
+    // Makes a pending due now if its next poll is later than notAfter
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+            value = "UPDATE pending SET next_poll_at = :now WHERE submission_id = :submissionId"
+                    + " AND next_poll_at > :notAfter",
+            nativeQuery = true)
+    int pollSooner(String submissionId, Date now, Date notAfter);
 }
@@ -0,0 +1,27 @@
+package gov.irs.directfile.status.config;
+
+import java.time.Duration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@AllArgsConstructor
+@Getter
+@ConfigurationProperties("status.ack-polling")
+public class AckPollingConfiguration {
+    // Pending rows read from the database per query
+    private final int pageSize;
+
+    // getAcks calls to MeF in flight at once
+    private final int concurrency;
+
+    // Threads saving acknowledgements and publishing status changes, and how many fetched batches may wait for one
+    private final int processingThreads;
+    private final int processingQueueCapacity;
+
+    // A pending is checked again after about a quarter of the time it has been pending, kept within these bounds. A
+    // check of its status through the API brings a pending that is not due within the minimum interval forward.
+    private final Duration minPollInterval;
+    private final Duration maxPollInterval;
+}
@@ -30,6 +30,10 @@ public class Pending {
     @Column(columnDefinition = "varchar", name = "pod_id", length = 255)
     private String podId;
 
+    // When the ack poll should next check this submission, null until its first check
+    @Column(name = "next_poll_at")
+    private Date nextPollAt;
+
     public Pending() {}
 
     public Pending(final String submissionId) {
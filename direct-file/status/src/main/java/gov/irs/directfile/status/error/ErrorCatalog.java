@@ -0,0 +1,65 @@
+package gov.irs.directfile.status.error;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import gov.irs.directfile.status.domain.Error;
+
+/**
+ * The error table, kept in memory and keyed by MeF rule number, so that a wave of rejections doesn't look up the same
+ * handful of rules in the database for every validation error.
+ *
+ * <p>Error rows are only ever inserted, so a cached row can't go stale. A rule number this pod hasn't cached yet is
+ * read from the database, where another pod may already have saved it, and otherwise saved there before it is cached.
+ * The save runs in a transaction of its own, so that losing the race to insert a rule doesn't roll back the caller's.
+ */
+@Service
+@Slf4j
+public class ErrorCatalog {
+    private final ErrorRepository errorRepository;
+    private final TransactionTemplate newTransaction;
+    private final Map<String, Error> errorsByRuleNum = new ConcurrentHashMap<>();
+
+    public ErrorCatalog(ErrorRepository errorRepository, PlatformTransactionManager transactionManager) {
+        this.errorRepository = errorRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void preload() {
+        errorRepository.findAll().forEach(error -> errorsByRuleNum.put(error.getMefErrorCode(), error));
+        log.info("Loaded {} reject reasons", errorsByRuleNum.size());
+    }
+
+    /** Returns the error for ruleNum, saving the one newError creates if no pod has seen the rule before. */
+    public Error getOrCreate(String ruleNum, Supplier<Error> newError) {
+        Error error = errorsByRuleNum.get(ruleNum);
+        if (error != null) {
+            return error;
+        }
+        // Concurrent misses for a new rule may both read and insert it; the first one cached wins
+        error = errorRepository.findById(ruleNum).orElseGet(() -> insert(newError.get()));
+        Error cached = errorsByRuleNum.putIfAbsent(ruleNum, error);
+        return cached != null ? cached : error;
+    }
+
+    private Error insert(Error error) {
+        try {
+            return newTransaction.execute(status -> errorRepository.save(error));
+        } catch (DataIntegrityViolationException e) {
+            // Another pod saved the same rule between our read and our insert
+            log.info("Reject reason {} was saved by another pod", error.getMefErrorCode());
+            return errorRepository.findById(error.getMefErrorCode()).orElseThrow(() -> e);
+        }
+    }
+}
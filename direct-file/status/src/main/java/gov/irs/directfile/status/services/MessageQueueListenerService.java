@@ -1,6 +1,5 @@
 package gov.irs.directfile.status.services;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.jms.Message;
@@ -11,6 +10,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Service;
 
+import gov.irs.directfile.models.message.QueueMessageDispatcher;
 import gov.irs.directfile.models.message.confirmation.VersionedSubmissionConfirmationMessage;
 import gov.irs.directfile.models.message.confirmation.payload.AbstractSubmissionConfirmationPayload;
 import gov.irs.directfile.models.message.pending.VersionedPendingSubmissionMessage;
@@ -23,17 +23,23 @@ import gov.irs.directfile.status.config.MessageQueueConfiguration;
 @EnableConfigurationProperties(MessageQueueConfiguration.class)
 public class MessageQueueListenerService implements MessageListener {
     private final String pendingSubmissionQueue;
-    private final PendingSubmissionMessageRouter pendingSubmissionMessageRouter;
-    private final SubmissionConfirmationMessageRouter submissionConfirmationMessageRouter;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QueueMessageDispatcher queueMessageDispatcher;
 
     MessageQueueListenerService(
             MessageQueueConfiguration messageQueueConfiguration,
             PendingSubmissionMessageRouter pendingSubmissionMessageRouter,
             SubmissionConfirmationMessageRouter submissionConfirmationMessageRouter) {
         this.pendingSubmissionQueue = messageQueueConfiguration.getPendingSubmissionQueue();
-        this.pendingSubmissionMessageRouter = pendingSubmissionMessageRouter;
-        this.submissionConfirmationMessageRouter = submissionConfirmationMessageRouter;
+        // The queue receives VersionedPendingSubmissionMessages (what SQS would send) and
+        // VersionedSubmissionConfirmationMessages (what SNS would send), told apart by their payload type
+        this.queueMessageDispatcher = new QueueMessageDispatcher(new ObjectMapper())
+                .on(
+                        new TypeReference<VersionedPendingSubmissionMessage<AbstractPendingSubmissionPayload>>() {},
+                        pendingSubmissionMessageRouter::handlePendingSubmissionMessage)
+                .on(
+                        new TypeReference<
+                                VersionedSubmissionConfirmationMessage<AbstractSubmissionConfirmationPayload>>() {},
+                        submissionConfirmationMessageRouter::handleSubmissionConfirmationMessage);
     }
 
     @Override
@@ -43,22 +49,7 @@ public class MessageQueueListenerService implements MessageListener {
         String rawText = "";
         try {
             rawText = ((TextMessage) message).getText();
-
-            try {
-                // First try to deserialize as a VersionedPendingSubmissionMessage (what SQS would send)
-                log.info("Trying to deserialize message to VersionedPendingSubmissionMessage");
-                VersionedPendingSubmissionMessage<AbstractPendingSubmissionPayload> versionedPendingSubmissionMessage =
-                        objectMapper.readValue(rawText, new TypeReference<>() {});
-                pendingSubmissionMessageRouter.handlePendingSubmissionMessage(versionedPendingSubmissionMessage);
-            } catch (JsonProcessingException e) {
-                // Otherwise, try to deserialize as a VersionedSubmissionConfirmationMessage (what SNS would send)
-                log.info("Trying to deserialize message to VersionedSubmissionConfirmationMessage");
-                VersionedSubmissionConfirmationMessage<AbstractSubmissionConfirmationPayload>
-                        versionedSubmissionConfirmationMessage =
-                                objectMapper.readValue(rawText, new TypeReference<>() {});
-                submissionConfirmationMessageRouter.handleSubmissionConfirmationMessage(
-                        versionedSubmissionConfirmationMessage);
-            }
+            queueMessageDispatcher.dispatch(rawText);
 
             message.acknowledge();
         } catch (Exception e) {
@@ -19,6 +19,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -34,6 +35,8 @@ import gov.irs.directfile.status.extension.LoggerExtension;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -372,6 +375,55 @@ class AcknowledgementControllerTest {
                         true));
     }
 
+    @Test
+    public void bulkRejectionCodes_returnsTheRejectionCodesOfTheSubmissionIdsFound() throws Exception {
+        String foundSubmissionId = "12345620230215000001";
+        String missingSubmissionId = "12345620230215000002";
+
+        when(acknowledgementService.getRejectionCodesForSubmissionIds(List.of(foundSubmissionId, missingSubmissionId)))
+                .thenReturn(Map.of(foundSubmissionId, List.of(new RejectedStatus("code1", "key1", "description1"))));
+
+        this.mockMvc
+                .perform(post("/status/rejection-codes")
+                        .with(r -> {
+                            r.setRemoteAddr(REMOTE_IP_ADDR);
+                            return r;
+                        })
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format("[\"%s\",\"%s\"]", foundSubmissionId, missingSubmissionId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.%s[0].MeFErrorCode", foundSubmissionId).value("code1"))
+                .andExpect(jsonPath("$.%s", missingSubmissionId).doesNotExist());
+
+        // verify audit log message
+        logVerifier.verifyLogEvent(
+                Event.builder()
+                        .detail("{}")
+                        .eventId(EventId.CHECK)
+                        .eventPrincipal(new SystemEventPrincipal())
+                        .eventStatus(EventStatus.FAILURE)
+                        .mefSubmissionId(missingSubmissionId)
+                        .build(),
+                Map.of(
+                        AuditLogElement.mefSubmissionId,
+                        missingSubmissionId,
+                        AuditLogElement.responseStatusCode,
+                        HttpStatus.NOT_FOUND.value(),
+                        AuditLogElement.remoteAddress,
+                        REMOTE_IP_ADDR,
+                        AuditLogElement.cyberOnly,
+                        true));
+    }
+
+    @Test
+    public void bulkRejectionCodes_withoutSubmissionIds_endpointReturnsBadRequestResponse() throws Exception {
+        this.mockMvc
+                .perform(post("/status/rejection-codes")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     private static Stream<Arguments> getRejectionCodesXForwardedForParameters() {
         return Stream.of(
                 Arguments.of(TEST_IP_ADDR1, TEST_IP_ADDR1),
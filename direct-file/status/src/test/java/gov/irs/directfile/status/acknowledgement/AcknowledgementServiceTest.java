@@ -1,7 +1,6 @@
 package gov.irs.directfile.status.acknowledgement;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.*;
 
 import jakarta.persistence.EntityNotFoundException;
@@ -17,6 +16,7 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import gov.irs.a2a.mef.mefheader.TestCdType;
 import gov.irs.mef.exception.ServiceException;
@@ -26,9 +26,11 @@ import gov.irs.mef.services.transmitter.mtom.GetAcksResult;
 
 import gov.irs.directfile.models.RejectedStatus;
 import gov.irs.directfile.status.acknowledgement.domain.Status;
+import gov.irs.directfile.status.config.AckPollingConfiguration;
 import gov.irs.directfile.status.config.StatusProperties;
 import gov.irs.directfile.status.domain.*;
 import gov.irs.directfile.status.domain.Error;
+import gov.irs.directfile.status.error.ErrorCatalog;
 import gov.irs.directfile.status.error.ErrorRepository;
 import gov.irs.directfile.status.error.ToolkitErrorRepository;
 import gov.irs.directfile.status.mef.client.MeFAcksMTOMClientService;
@@ -44,7 +46,7 @@ import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
-@EnableConfigurationProperties(StatusProperties.class)
+@EnableConfigurationProperties({StatusProperties.class, AckPollingConfiguration.class})
 @ImportAutoConfiguration(classes = SecurityAutoConfiguration.class)
 @DataJpaTest
 @ExtendWith(MockitoExtension.class)
@@ -58,13 +60,15 @@ class AcknowledgementServiceTest {
                 pendingRepo,
                 taxReturnSubmissionRepository,
                 errorRepository,
+                new ErrorCatalog(errorRepository, transactionManager),
                 toolkitErrorRepo,
                 statusProperties,
                 statusChangeMessageService,
                 mockGetAcksClientService,
                 mockLoginClientService,
                 mockLogoutClientService,
-                podIdentifierRepository);
+                podIdentifierRepository,
+                ackPollingConfiguration);
     }
 
     @BeforeAll
@@ -86,6 +90,9 @@ class AcknowledgementServiceTest {
     @Autowired
     ErrorRepository errorRepository;
 
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
     @Autowired
     PendingAcknowledgementRepository pendingRepo;
 
@@ -101,6 +108,9 @@ class AcknowledgementServiceTest {
     @Autowired
     StatusProperties statusProperties;
 
+    @Autowired
+    AckPollingConfiguration ackPollingConfiguration;
+
     @MockBean
     private StatusChangeMessageService statusChangeMessageService;
 
@@ -269,82 +279,41 @@ class AcknowledgementServiceTest {
         assertEquals(Status.Pending, nothing.getStatus());
     }
 
-    List<Set<String>> createBatchSubmissionIds(List<Pending> argument)
-            throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
-        Method method = AcknowledgementService.class.getDeclaredMethod("batchPendings", Iterable.class);
-        method.setAccessible(true);
-        return (List<Set<String>>) method.invoke(acknowledgementService, argument);
-    }
-
     @Test
-    void batchSubmissionIdsReturnsASingleBatchForOneSubmissionId() {
-        try {
-            Pending p = new Pending();
-            p.setSubmissionId("12345620230215000001");
-            var test = createBatchSubmissionIds(List.of(p));
-            assertEquals(1, test.size());
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
+    void lookupSubmissionsChecksASinglePendingInOneBatch() throws ServiceException, ToolkitException {
+        savePendingsForThisPod(1);
+
+        acknowledgementService.LookupSubmissions();
+
+        verify(mockGetAcksClientService, times(1)).getAcks(isNull(), anySet());
     }
 
     @Test
-    void batchSubmissionIdsReturns10BatchesFor1000Ids() {
-        try {
-            List<Pending> pendings = new ArrayList<>();
-            for (int i = 0; i < 1000; i++) {
-                Pending p = new Pending();
-                p.setSubmissionId("12345620230215000" + i);
-                pendings.add(p);
-            }
-            var test = createBatchSubmissionIds(pendings);
-            assertEquals(10, test.size());
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
+    void lookupSubmissionsChecks101PendingsInTwoBatches() throws ServiceException, ToolkitException {
+        savePendingsForThisPod(101);
+
+        acknowledgementService.LookupSubmissions();
+
+        verify(mockGetAcksClientService, times(2)).getAcks(isNull(), anySet());
     }
 
     @Test
-    void batchSubmissionIdsReturns2BatchesFor101Ids() {
-        try {
-            List<Pending> pendings = new ArrayList<>();
-            for (int i = 0; i < 101; i++) {
-                Pending p = new Pending();
-                p.setSubmissionId("12345620230215000" + i);
-                pendings.add(p);
-            }
-            var test = createBatchSubmissionIds(pendings);
-            assertEquals(2, test.size());
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
+    void lookupSubmissionsDoesNotCallMeFWithoutPendings() throws ServiceException, ToolkitException {
+        acknowledgementService.LookupSubmissions();
+
+        verify(mockGetAcksClientService, never()).getAcks(any(), anySet());
     }
 
-    @Test
-    void batchSubmissionIdsReturns1BatchFor0() {
-        try {
-            List<Pending> pendings = new ArrayList<>();
-            var test = createBatchSubmissionIds(pendings);
-            assertEquals(1, test.size());
-        } catch (NoSuchMethodException e) {
-            throw new RuntimeException(e);
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException(e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
+    private Set<String> savePendingsForThisPod(int count) throws ServiceException, ToolkitException {
+        Set<String> submissionIds = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            String submissionId = String.format("12345620230215%06d", i);
+            submissionIds.add(submissionId);
+            pendingRepo.save(new Pending(submissionId, statusProperties.getApplicationId()));
         }
+        when(mockGetAcksClientService.getAcks(isNull(), anySet()))
+                .thenReturn(new GetAcksResultWrapper(new AcknowledgementsListWrapper(new ArrayList<>())));
+        return submissionIds;
     }
 
     @Test
@@ -443,6 +412,87 @@ class AcknowledgementServiceTest {
         assertEquals(99, pendingRepo.count());
     }
 
+    @Test
+    void lookupSubmissionsChecksEveryPendingForThePodInBatchesOf100() throws ServiceException, ToolkitException {
+        Set<String> submissionIds = savePendingsForThisPod(250);
+        pendingRepo.save(new Pending("99999920230215000001", "some-other-pod"));
+
+        acknowledgementService.LookupSubmissions();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Set<String>> captor = ArgumentCaptor.forClass(Set.class);
+        verify(mockGetAcksClientService, times(3)).getAcks(isNull(), captor.capture());
+        Set<String> checked = new HashSet<>();
+        captor.getAllValues().forEach(batch -> {
+            assertTrue(batch.size() <= 100);
+            checked.addAll(batch);
+        });
+        assertEquals(submissionIds, checked);
+    }
+
+    @Test
+    void lookupSubmissionsSchedulesTheNextPollOfPendingsItChecked() throws ServiceException, ToolkitException {
+        savePendingsForThisPod(1);
+
+        acknowledgementService.LookupSubmissions();
+        acknowledgementService.LookupSubmissions();
+
+        // Not due again until the minimum interval has passed
+        verify(mockGetAcksClientService, times(1)).getAcks(isNull(), anySet());
+        Date nextPollAt =
+                pendingRepo.findById("12345620230215000000").orElseThrow().getNextPollAt();
+        assertTrue(nextPollAt.after(new Date()));
+    }
+
+    @Test
+    void pollDelayDoublesWithAgeUpToTheMaximum() {
+        long now = System.currentTimeMillis();
+
+        assertEquals(Duration.ofMinutes(1), pollDelayAtAge(Duration.ZERO, now));
+        assertEquals(Duration.ofMinutes(30), pollDelayAtAge(Duration.ofDays(3), now));
+    }
+
+    @Test
+    void pollDelayDoublesOnceAgeReachesFourTimesTheCurrentDelay() {
+        long now = System.currentTimeMillis();
+
+        // min 1m: doubles to 2m at 4m, to 4m at 8m, to 8m at 16m, to 16m at 32m
+        assertEquals(Duration.ofMinutes(1), pollDelayAtAge(Duration.ofMinutes(4).minusMillis(1), now));
+        assertEquals(Duration.ofMinutes(2), pollDelayAtAge(Duration.ofMinutes(4), now));
+        assertEquals(Duration.ofMinutes(2), pollDelayAtAge(Duration.ofMinutes(8).minusMillis(1), now));
+        assertEquals(Duration.ofMinutes(4), pollDelayAtAge(Duration.ofMinutes(8), now));
+        assertEquals(
+                Duration.ofMinutes(4), pollDelayAtAge(Duration.ofMinutes(16).minusMillis(1), now));
+        assertEquals(Duration.ofMinutes(8), pollDelayAtAge(Duration.ofMinutes(16), now));
+        assertEquals(
+                Duration.ofMinutes(8), pollDelayAtAge(Duration.ofMinutes(32).minusMillis(1), now));
+        assertEquals(Duration.ofMinutes(16), pollDelayAtAge(Duration.ofMinutes(32), now));
+        // the next doubling, at 64m, would pass the 30m maximum
+        assertEquals(
+                Duration.ofMinutes(16), pollDelayAtAge(Duration.ofMinutes(64).minusMillis(1), now));
+        assertEquals(Duration.ofMinutes(30), pollDelayAtAge(Duration.ofMinutes(64), now));
+    }
+
+    @Test
+    void GetAcknowledgementWithPendingMakesItDueOnTheNextPoll() throws ServiceException, ToolkitException {
+        UUID taxReturnId = UUID.randomUUID();
+        String submissionId = "12345620230215000000";
+        taxReturnSubmissionRepository.save(new TaxReturnSubmission(taxReturnId, submissionId));
+        savePendingsForThisPod(1);
+        pendingRepo.setNextPollAt(List.of(submissionId), new Date(System.currentTimeMillis() + 3600000));
+
+        acknowledgementService.GetAcknowledgement(taxReturnId);
+        acknowledgementService.LookupSubmissions();
+
+        verify(mockGetAcksClientService, times(1)).getAcks(isNull(), eq(Set.of(submissionId)));
+    }
+
+    private Duration pollDelayAtAge(Duration age, long now) {
+        Pending pending = new Pending("12345620230215000000");
+        pending.setCreatedAt(new Date(now - age.toMillis()));
+        return acknowledgementService.pollDelay(pending, now);
+    }
+
     private String getDefaultPodIdentifierFromProperties(int index, String region) {
         return "dfsys-mef-status-deployment-" + index + "-" + region;
     }
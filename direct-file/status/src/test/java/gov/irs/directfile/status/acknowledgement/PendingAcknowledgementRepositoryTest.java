@@ -1,5 +1,6 @@
 package gov.irs.directfile.status.acknowledgement;
 
+import java.util.Date;
 import java.util.List;
 
 import ch.qos.logback.classic.Level;
@@ -117,6 +118,42 @@ public class PendingAcknowledgementRepositoryTest {
                 BatchUtil.buildBatchMessage(1, batchSize, Pending.class.getName(), BatchUtil.BatchType.INSERT));
     }
 
+    @Test
+    public void CanPageThroughThePendingsOfAPodInSubmissionIdOrder() {
+        pendingRepo.save(new Pending("12345620230215000003", "pod-0"));
+        pendingRepo.save(new Pending("12345620230215000001", "pod-0"));
+        pendingRepo.save(new Pending("12345620230215000002", "pod-1"));
+        pendingRepo.save(new Pending("12345620230215000004", "pod-0"));
+
+        Date now = new Date();
+        List<Pending> firstPage = pendingRepo.findDuePageByPodId("pod-0", now, "", 2);
+        List<Pending> secondPage =
+                pendingRepo.findDuePageByPodId("pod-0", now, firstPage.getLast().getSubmissionId(), 2);
+
+        assertEquals(
+                List.of("12345620230215000001", "12345620230215000003"),
+                firstPage.stream().map(Pending::getSubmissionId).toList());
+        assertEquals(
+                List.of("12345620230215000004"),
+                secondPage.stream().map(Pending::getSubmissionId).toList());
+    }
+
+    @Test
+    public void OnlyPagesThroughPendingsThatAreDue() {
+        Date now = new Date();
+        pendingRepo.save(new Pending("12345620230215000001", "pod-0"));
+        pendingRepo.save(new Pending("12345620230215000002", "pod-0"));
+        pendingRepo.save(new Pending("12345620230215000003", "pod-0"));
+        pendingRepo.setNextPollAt(List.of("12345620230215000002"), new Date(now.getTime() - 1000));
+        pendingRepo.setNextPollAt(List.of("12345620230215000003"), new Date(now.getTime() + 60000));
+
+        List<Pending> page = pendingRepo.findDuePageByPodId("pod-0", now, "", 10);
+
+        assertEquals(
+                List.of("12345620230215000001", "12345620230215000002"),
+                page.stream().map(Pending::getSubmissionId).toList());
+    }
+
     @Test
     public void CanQueryForANonExistentPendingWithNoResults() {
         var empty = pendingRepo.GetPendingSubmission("12345620230215000001");
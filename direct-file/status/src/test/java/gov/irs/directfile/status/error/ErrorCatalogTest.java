@@ -0,0 +1,102 @@
+package gov.irs.directfile.status.error;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import gov.irs.directfile.status.domain.Error;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ErrorCatalogTest {
+    private static final String RULE_NUM = "R0000-904-03";
+
+    @Mock
+    private ErrorRepository errorRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void getOrCreate_returnsPreloadedErrorsWithoutQuerying() {
+        Error error = error(RULE_NUM);
+        when(errorRepository.findAll()).thenReturn(List.of(error));
+        ErrorCatalog errorCatalog = new ErrorCatalog(errorRepository, transactionManager);
+        errorCatalog.preload();
+
+        assertSame(error, errorCatalog.getOrCreate(RULE_NUM, () -> error(RULE_NUM)));
+        assertSame(error, errorCatalog.getOrCreate(RULE_NUM, () -> error(RULE_NUM)));
+
+        verify(errorRepository, never()).findById(any());
+        verify(errorRepository, never()).save(any());
+    }
+
+    @Test
+    void getOrCreate_cachesAnErrorAnotherPodSaved() {
+        Error error = error(RULE_NUM);
+        when(errorRepository.findById(RULE_NUM)).thenReturn(Optional.of(error));
+        ErrorCatalog errorCatalog = new ErrorCatalog(errorRepository, transactionManager);
+
+        assertSame(error, errorCatalog.getOrCreate(RULE_NUM, () -> error(RULE_NUM)));
+        assertSame(error, errorCatalog.getOrCreate(RULE_NUM, () -> error(RULE_NUM)));
+
+        verify(errorRepository, times(1)).findById(RULE_NUM);
+        verify(errorRepository, never()).save(any());
+    }
+
+    @Test
+    void getOrCreate_savesANewErrorOnce() {
+        Error error = error(RULE_NUM);
+        when(errorRepository.findById(RULE_NUM)).thenReturn(Optional.empty());
+        when(errorRepository.save(error)).thenReturn(error);
+        ErrorCatalog errorCatalog = new ErrorCatalog(errorRepository, transactionManager);
+
+        assertSame(error, errorCatalog.getOrCreate(RULE_NUM, () -> error));
+        assertSame(error, errorCatalog.getOrCreate(RULE_NUM, () -> error(RULE_NUM)));
+
+        verify(errorRepository, times(1)).save(error);
+        ArgumentCaptor<TransactionDefinition> transaction = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(transaction.capture());
+        assertEquals(
+                TransactionDefinition.PROPAGATION_REQUIRES_NEW,
+                transaction.getValue().getPropagationBehavior());
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void getOrCreate_usesTheSavedErrorWhenAnotherPodInsertsFirst() {
+        Error ours = error(RULE_NUM);
+        Error theirs = error(RULE_NUM);
+        when(errorRepository.findById(RULE_NUM)).thenReturn(Optional.empty()).thenReturn(Optional.of(theirs));
+        when(errorRepository.save(ours)).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        ErrorCatalog errorCatalog = new ErrorCatalog(errorRepository, transactionManager);
+
+        assertSame(theirs, errorCatalog.getOrCreate(RULE_NUM, () -> ours));
+        assertSame(theirs, errorCatalog.getOrCreate(RULE_NUM, () -> ours));
+
+        // Only the insert's own transaction is rolled back
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    private static Error error(String ruleNum) {
+        Error error = new Error();
+        error.setMefErrorCode(ruleNum);
+        error.setMefErrorCategory("Reject and Stop");
+        error.setErrorMessage("Software ID in the Return Header must have passed testing.");
+        error.setErrorCodeTranslationKey("reject." + ruleNum);
+        return error;
+    }
+}
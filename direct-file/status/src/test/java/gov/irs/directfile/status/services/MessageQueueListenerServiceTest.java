@@ -114,6 +114,20 @@ class MessageQueueListenerServiceTest {
         });
     }
 
+    @Test
+    public void onMessage_unknownPayloadType() throws JMSException {
+        SQSTextMessage mockMessage = mock(SQSTextMessage.class);
+        when(mockMessage.getText())
+                .thenReturn(pendingSubmissionMessageJson.replace("PendingSubmissionPayloadV1", "UnknownPayloadV1"));
+
+        messageQueueListenerService.onMessage(mockMessage);
+
+        // Verify that handlers and message.acknowledge() are not called
+        verify(pendingSubmissionMessageRouter, never()).handlePendingSubmissionMessage(any());
+        verify(submissionConfirmationMessageRouter, never()).handleSubmissionConfirmationMessage(any());
+        verify(mockMessage, never()).acknowledge();
+    }
+
     @Test
     public void onMessage_exceptionThrown() throws JMSException {
         SQSTextMessage mockMessage = mock(SQSTextMessage.class);
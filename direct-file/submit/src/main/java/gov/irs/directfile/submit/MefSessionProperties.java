@@ -0,0 +1,29 @@
+package gov.irs.directfile.submit;
+
+import lombok.Getter;
+
+@Getter
+public final class MefSessionProperties {
+    private final boolean reuseSession;
+    private final long maxSessionAgeMilliseconds;
+    private final long idleTimeoutMilliseconds;
+
+    public MefSessionProperties(boolean reuseSession, long maxSessionAgeMilliseconds, long idleTimeoutMilliseconds) {
+        this.reuseSession = reuseSession;
+        this.maxSessionAgeMilliseconds = maxSessionAgeMilliseconds;
+        this.idleTimeoutMilliseconds = idleTimeoutMilliseconds;
+    }
+
+    /** Logs in before and out after every bundle, without keeping a session between bundles. */
+    public static MefSessionProperties loginPerBundle() {
+        return new MefSessionProperties(false, 0, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "MefSessionProperties{" + "reuseSession="
+                + reuseSession + ", maxSessionAgeMilliseconds="
+                + maxSessionAgeMilliseconds + ", idleTimeoutMilliseconds="
+                + idleTimeoutMilliseconds + '}';
+    }
+}
@@ -0,0 +1,33 @@
+package gov.irs.directfile.submit;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import lombok.Getter;
+
+import gov.irs.directfile.submit.command.ActionType;
+
+@Getter
+public final class PipelineProperties {
+    private final Map<ActionType, Integer> workers;
+    private final int stageQueueCapacity;
+
+    public PipelineProperties(Map<ActionType, Integer> workers, int stageQueueCapacity) {
+        this.workers = new EnumMap<>(workers);
+        this.stageQueueCapacity = stageQueueCapacity;
+    }
+
+    public int workersFor(ActionType actionType) {
+        return Math.max(1, workers.getOrDefault(actionType, 1));
+    }
+
+    /** One worker per stage, i.e. batches still overlap across stages but each stage handles one at a time. */
+    public static PipelineProperties singleWorkerPerStage() {
+        return new PipelineProperties(Map.of(), 1);
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineProperties{" + "workers=" + workers + ", stageQueueCapacity=" + stageQueueCapacity + '}';
+    }
+}
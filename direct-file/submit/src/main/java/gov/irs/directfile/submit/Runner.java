@@ -1,16 +1,39 @@
 package gov.irs.directfile.submit;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import gov.irs.directfile.submit.command.Action;
+import gov.irs.directfile.submit.command.ActionType;
 import gov.irs.directfile.submit.domain.ActionQueue;
 import gov.irs.directfile.submit.service.ActionHandler;
 import gov.irs.directfile.submit.service.OfflineModeService;
 
+/**
+ * Drains the {@link ActionQueue} into one stage per {@link ActionType}, so that one batch can be archived while another
+ * waits on MeF. Each stage has its own pool of workers and accepts a bounded number of actions; an action whose stage
+ * is full waits in line for that stage, so the message loop keeps dispatching actions of the other stages.
+ *
+ * <p>A batch only ever has one action queued or running, because each action queues the next one for its batch when
+ * it finishes, so the actions of a batch still run in order. While offline mode is enabled no action is started.
+ */
 @Slf4j
 @Service
 public class Runner {
+    private static final long POLL_MILLISECONDS = 50;
+    private static final long OFFLINE_POLL_MILLISECONDS = 1000;
 
     // This is the message queue of actions
     // It could be added to by background threads (from timers)
@@ -19,11 +42,23 @@ public class Runner {
 
     private final ActionHandler actionHandler;
     private final OfflineModeService offlineModeService;
+    private final PipelineProperties pipelineProperties;
+
+    private final Map<ActionType, ExecutorService> stageExecutors = new EnumMap<>(ActionType.class);
+    private final Map<ActionType, Semaphore> stageSlots = new EnumMap<>(ActionType.class);
+    // Actions whose stage was full when they were dispatched, in the order they arrived. Only used by the message loop.
+    private final Map<ActionType, Deque<Action>> waitingActions = new EnumMap<>(ActionType.class);
+    private Thread messageLoop;
 
-    public Runner(ActionQueue actions, ActionHandler actionHandler, OfflineModeService offlineModeService) {
+    public Runner(
+            ActionQueue actions,
+            ActionHandler actionHandler,
+            OfflineModeService offlineModeService,
+            PipelineProperties pipelineProperties) {
         this.actions = actions;
         this.actionHandler = actionHandler;
         this.offlineModeService = offlineModeService;
+        this.pipelineProperties = pipelineProperties;
     }
 
     @PostConstruct
@@ -31,22 +66,93 @@ public class Runner {
         this.Start();
     }
 
+    @PreDestroy
+    public void teardown() {
+        if (messageLoop != null) {
+            messageLoop.interrupt();
+        }
+        stageExecutors.values().forEach(ExecutorService::shutdownNow);
+    }
+
     void Start() {
+        log.info("starting message loop with {}", pipelineProperties);
+        for (ActionType actionType : ActionType.values()) {
+            int workers = pipelineProperties.workersFor(actionType);
+            stageExecutors.put(
+                    actionType,
+                    Executors.newFixedThreadPool(
+                            workers, Thread.ofPlatform().name("action-" + actionType + "-", 0).factory()));
+            stageSlots.put(actionType, new Semaphore(workers + pipelineProperties.getStageQueueCapacity()));
+            waitingActions.put(actionType, new ArrayDeque<>());
+        }
         Runnable runnable = this::handleActions;
-        log.info("starting message loop");
-        new Thread(runnable).start();
+        messageLoop = Thread.ofPlatform().name("action-loop").start(runnable);
     }
 
     private void handleActions() {
         try {
             while (true) {
-                step();
+                if (offlineModeService.isOfflineModeEnabled()) {
+                    Thread.sleep(OFFLINE_POLL_MILLISECONDS);
+                    continue;
+                }
+                dispatchWaitingActions();
+                Action action = actions.getInProgressActions().poll();
+                if (action == null) {
+                    action = actions.getNewActions().poll(POLL_MILLISECONDS, TimeUnit.MILLISECONDS);
+                }
+                if (action != null) {
+                    dispatch(action);
+                }
             }
         } catch (InterruptedException e) {
             log.error("Exiting", e);
         }
     }
 
+    private void dispatch(Action action) {
+        Deque<Action> waiting = waitingActions.get(action.getType());
+        Semaphore slots = stageSlots.get(action.getType());
+        if (!waiting.isEmpty() || !slots.tryAcquire()) {
+            waiting.add(action);
+            return;
+        }
+        execute(action, slots);
+    }
+
+    private void dispatchWaitingActions() {
+        waitingActions.forEach((actionType, waiting) -> {
+            Semaphore slots = stageSlots.get(actionType);
+            while (!waiting.isEmpty() && slots.tryAcquire()) {
+                execute(waiting.poll(), slots);
+            }
+        });
+    }
+
+    private void execute(Action action, Semaphore slots) {
+        try {
+            stageExecutors.get(action.getType()).execute(() -> handleInStage(action, slots));
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            log.error("Dropping {} because the runner is shutting down", action.getType(), e);
+        }
+    }
+
+    private void handleInStage(Action action, Semaphore slots) {
+        try {
+            // Offline mode may have been enabled after this action was dispatched
+            while (offlineModeService.isOfflineModeEnabled()) {
+                Thread.sleep(OFFLINE_POLL_MILLISECONDS);
+            }
+            actionHandler.handleAction(action);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            slots.release();
+        }
+    }
+
+    /** Handles the next action on the calling thread, in-progress actions first. */
     public void step() throws InterruptedException {
         if (!offlineModeService.isOfflineModeEnabled()) {
             if (actions.getInProgressActions().isEmpty()) {
@@ -17,6 +17,7 @@ import gov.irs.directfile.submit.command.BundleArchiveAction;
 import gov.irs.directfile.submit.domain.BundledArchives;
 import gov.irs.directfile.submit.domain.SubmissionArchiveContainer;
 import gov.irs.directfile.submit.domain.UserContextData;
+import gov.irs.directfile.submit.service.LocalWriteUtilityService;
 
 @Slf4j
 @SuppressFBWarnings(
@@ -47,7 +48,10 @@ public class BundleArchivesActionHandler {
                 archs[i] = archives.get(i).Archive;
             }
             container = SubmissionBuilder.createSubmissionContainer(
-                    archs, actionContext.getConfig().getDirectories().getBatched());
+                    archs,
+                    LocalWriteUtilityService.batchDirectory(
+                            actionContext.getConfig().getDirectories().getBatched(),
+                            bundleArchiveActionCommand.getCreateArchiveActionResult().getBatch()));
 
         } catch (Exception e) {
             throw new BundleArchiveActionException(
@@ -32,10 +32,10 @@ public class CleanupActionHandler {
     }
 
     public void cleanupBatch(SubmissionBatch submissionBatch) throws ActionException {
-        cleanDirectory(Path.of(actionContext.getConfig().getDirectories().getToProcess()));
-        cleanDirectory(Path.of(actionContext.getConfig().getDirectories().getProcessed()));
-        cleanDirectory(Path.of(actionContext.getConfig().getDirectories().getToBatch()));
-        cleanDirectory(Path.of(actionContext.getConfig().getDirectories().getBatched()));
+        // Other batches may be in flight, so only the working directories of this batch are removed.
+        deleteBatchDirectory(actionContext.getConfig().getDirectories().getProcessed(), submissionBatch);
+        deleteBatchDirectory(actionContext.getConfig().getDirectories().getToBatch(), submissionBatch);
+        deleteBatchDirectory(actionContext.getConfig().getDirectories().getBatched(), submissionBatch);
         cleanDocumentStore(submissionBatch);
     }
 
@@ -80,16 +80,25 @@ public class CleanupActionHandler {
         }
     }
 
-    void cleanDocumentStore(SubmissionBatch batch) {
-        List<String> allKeys = documentStoreService.getObjectKeys(batch.path()).stream()
-                .map(DocumentStoreResource::getFullLocation)
-                .toList();
-
-        // 2. Do a nested for loop in batches of 1000 to delete the objects from s3
-        int maxObjectsPerRequest = 1000;
-        for (int i = 0; i < allKeys.size(); i += maxObjectsPerRequest) {
-            List<String> partition = allKeys.subList(i, Math.min(i + maxObjectsPerRequest, allKeys.size()));
-            documentStoreService.deleteObjects(partition);
+    void deleteBatchDirectory(String directory, SubmissionBatch batch) {
+        Path path = Path.of(directory, batch.localDirectoryName());
+        cleanDirectory(path);
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error("Error deleting directory: {}", path, e);
         }
     }
+
+    void cleanDocumentStore(SubmissionBatch batch) {
+        // A page of the listing is no bigger than a delete request can be, so each page is deleted as it is listed
+        // instead of collecting every key of the batch first.
+        documentStoreService.streamObjectKeyPages(batch.path()).forEach(page -> {
+            List<String> keys =
+                    page.stream().map(DocumentStoreResource::getFullLocation).toList();
+            if (!keys.isEmpty()) {
+                documentStoreService.deleteObjects(keys);
+            }
+        });
+    }
 }
@@ -1,14 +1,20 @@
 package gov.irs.directfile.submit.actions;
 
 import java.io.IOException;
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import gov.irs.mef.exception.ToolkitException;
@@ -18,10 +24,21 @@ import gov.irs.directfile.submit.actions.exception.CreateArchiveActionException;
 import gov.irs.directfile.submit.actions.results.CreateArchiveActionResult;
 import gov.irs.directfile.submit.command.CreateArchiveAction;
 import gov.irs.directfile.submit.domain.SubmissionArchiveContainer;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
 import gov.irs.directfile.submit.domain.UserContextData;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
 import gov.irs.directfile.submit.service.LocalWriteUtilityService;
 import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreService;
 
+/**
+ * Builds the MeF submission archives for a batch. The documents of the submissions are downloaded from S3 concurrently
+ * and handed to the MeF toolkit as strings, so the only files written are the archives the toolkit writes to the
+ * batch's {@code toBatch} directory.
+ *
+ * <p>Each download runs on its own virtual thread, and {@code submit.pipeline.archive-fetch-concurrency} permits bound
+ * how many of them are talking to S3 at once, across all batches. If an archive can't be created, the downloads still
+ * running for the rest of the batch are interrupted and waited for before the failure is thrown.
+ */
 @Slf4j
 @SuppressFBWarnings(
         value = {"NM_METHOD_NAMING_CONVENTION"},
@@ -29,79 +46,133 @@ import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreSer
 @Service
 public class CreateArchiveActionHandler {
     private final ISynchronousDocumentStoreService storageService;
+    private final IBatchIndex batchIndex;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final ActionContext actionContext;
-
-    public CreateArchiveActionHandler(ActionContext actionContext, ISynchronousDocumentStoreService storageService) {
+    private final Semaphore fetchPermits;
+    private final ThreadFactory fetchThreadFactory =
+            Thread.ofVirtual().name("archive-fetch-", 0).factory();
+
+    public CreateArchiveActionHandler(
+            ActionContext actionContext,
+            ISynchronousDocumentStoreService storageService,
+            IBatchIndex batchIndex,
+            @Value("${submit.pipeline.archive-fetch-concurrency:16}") int fetchConcurrency) {
         this.actionContext = actionContext;
         this.storageService = storageService;
+        this.batchIndex = batchIndex;
+        this.fetchPermits = new Semaphore(Math.max(1, fetchConcurrency));
     }
 
     public CreateArchiveActionResult handleCommand(CreateArchiveAction createArchiveActionCommand)
             throws ActionException {
         ArrayList<SubmissionArchiveContainer> archives = new ArrayList<>();
-        List<String> userSubmissions = storageService.getSubFolders(
-                createArchiveActionCommand.getSubmissionBatch().path());
+        SubmissionBatch batch = createArchiveActionCommand.getSubmissionBatch();
+        List<String> userSubmissions = getSubmissionFolders(batch);
 
-        if (!userSubmissions.isEmpty()) {
-            log.info(
-                    "Creating archives for xmls with manifests for batch {}",
-                    createArchiveActionCommand.getSubmissionBatch());
+        if (userSubmissions.isEmpty()) {
+            return new CreateArchiveActionResult(batch, archives);
+        }
+        log.info("Creating archives for xmls with manifests for batch {}", batch);
+
+        String toBatchDirectory;
+        try {
+            toBatchDirectory = LocalWriteUtilityService.batchDirectory(
+                    actionContext.getConfig().getDirectories().getToBatch(), batch);
+        } catch (IOException e) {
+            throw new CreateArchiveActionException(e);
         }
-        for (String submissionObjectKey : userSubmissions) {
-            SubmissionArchive archive = null;
 
+        // 1. Start downloading every submission of the batch. The archives are still created in batch order below,
+        // each one as soon as its documents have arrived.
+        try (ExecutorService fetchExecutor = Executors.newThreadPerTaskExecutor(fetchThreadFactory)) {
+            List<Future<SubmissionDocuments>> downloads = userSubmissions.stream()
+                    .map(submissionObjectKey -> fetchExecutor.submit(() -> downloadSubmission(submissionObjectKey)))
+                    .toList();
             try {
-                // 1a. Pull down the UserContext b/c we need it for everything else
-                String userContextDataObjectKey = submissionObjectKey + "userContext.json";
-                String userContextJsonString = storageService.getObjectAsString(userContextDataObjectKey);
-                UserContextData UserContext = objectMapper.readValue(userContextJsonString, UserContextData.class);
-
-                // 1b. Pull down submission.xml and write to disk so later actions can access it
-                String submissionXMLKey = submissionObjectKey + "submission.xml";
-                String submissionXMLString = storageService.getObjectAsString(submissionXMLKey);
-                Path submissionXml = LocalWriteUtilityService.writeXmlToDisk(
-                        submissionXMLString,
-                        UserContext.getSubmissionId(),
-                        actionContext.getConfig().getDirectories().getProcessed(),
-                        "submission");
-
-                // 1c. Pull down manifest.xml and write to disk so later actions can access it
-                String manifestXMLKey = submissionObjectKey + "manifest.xml";
-                String manifestXMString = storageService.getObjectAsString(manifestXMLKey);
-                Path manifestXml = LocalWriteUtilityService.writeXmlToDisk(
-                        manifestXMString,
-                        UserContext.getSubmissionId(),
-                        actionContext.getConfig().getDirectories().getProcessed(),
-                        UserContext.getSubmissionId() + ".manifest");
-
-                // 2. Create an archive for the submission
-                archive = SubmissionBuilder.createIRSSubmissionArchive(
-                        UserContext.getSubmissionId(),
-                        new SubmissionManifest(manifestXml.toFile()),
-                        new SubmissionXML(submissionXml.toFile()),
-                        new BinaryAttachment
-                                [] {}, // Passing empty array for Binary Attachments because we don't use them
-                        actionContext.getConfig().getDirectories().getToBatch());
-
-                // 3. Create a timestamped archive so that users in PT can file in their time
-                XMLGregorianCalendar calendar;
-                try {
-                    calendar = LocalWriteUtilityService.CreateGregorianDateFromString(UserContext.getSignDate());
-                } catch (Exception ex) {
-                    log.error("Attempted to create a timestamped archive without a valid timestamp.  Using today.");
-                    calendar = LocalWriteUtilityService.Today();
+                for (Future<SubmissionDocuments> download : downloads) {
+                    archives.add(createArchive(awaitDownload(download), toBatchDirectory));
                 }
-                var timestampedArchive =
-                        SubmissionBuilder.createPostmarkedSubmissionArchive(archive, calendar.toGregorianCalendar());
+            } catch (CreateArchiveActionException | RuntimeException e) {
+                // The rest of the batch is abandoned, so stop its downloads; closing the executor waits for them
+                fetchExecutor.shutdownNow();
+                throw e;
+            }
+        }
+
+        return new CreateArchiveActionResult(batch, archives);
+    }
+
+    private SubmissionDocuments downloadSubmission(String submissionObjectKey)
+            throws IOException, InterruptedException {
+        fetchPermits.acquire();
+        try {
+            // The UserContext is needed for everything else
+            String userContextJsonString = storageService.getObjectAsString(submissionObjectKey + "userContext.json");
+            UserContextData userContext = objectMapper.readValue(userContextJsonString, UserContextData.class);
+            String submissionXml = storageService.getObjectAsString(submissionObjectKey + "submission.xml");
+            String manifestXml = storageService.getObjectAsString(submissionObjectKey + "manifest.xml");
+            return new SubmissionDocuments(userContext, submissionXml, manifestXml);
+        } finally {
+            fetchPermits.release();
+        }
+    }
 
-                archives.add(new SubmissionArchiveContainer(UserContext, timestampedArchive));
-            } catch (ToolkitException | IOException e) {
-                throw new CreateArchiveActionException(e);
+    private static SubmissionDocuments awaitDownload(Future<SubmissionDocuments> download)
+            throws CreateArchiveActionException {
+        try {
+            return download.get();
+        } catch (ExecutionException e) {
+            throw new CreateArchiveActionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CreateArchiveActionException(e);
+        }
+    }
+
+    private SubmissionArchiveContainer createArchive(SubmissionDocuments documents, String toBatchDirectory)
+            throws CreateArchiveActionException {
+        UserContextData userContext = documents.userContext();
+        try {
+            // 2. Create an archive for the submission
+            SubmissionArchive archive = SubmissionBuilder.createIRSSubmissionArchive(
+                    userContext.getSubmissionId(),
+                    new SubmissionManifest(documents.manifestXml()),
+                    new SubmissionXML(documents.submissionXml()),
+                    new BinaryAttachment[] {}, // Passing empty array for Binary Attachments because we don't use them
+                    toBatchDirectory);
+
+            // 3. Create a timestamped archive so that users in PT can file in their time
+            XMLGregorianCalendar calendar;
+            try {
+                calendar = LocalWriteUtilityService.CreateGregorianDateFromString(userContext.getSignDate());
+            } catch (Exception ex) {
+                log.error("Attempted to create a timestamped archive without a valid timestamp.  Using today.");
+                calendar = LocalWriteUtilityService.Today();
             }
+            var timestampedArchive =
+                    SubmissionBuilder.createPostmarkedSubmissionArchive(archive, calendar.toGregorianCalendar());
+
+            return new SubmissionArchiveContainer(userContext, timestampedArchive);
+        } catch (ToolkitException e) {
+            throw new CreateArchiveActionException(e);
         }
+    }
 
-        return new CreateArchiveActionResult(createArchiveActionCommand.getSubmissionBatch(), archives);
+    /**
+     * The folders of the submissions in the batch, from the batch index. Batches that were written before the index
+     * existed have no members in it, so for those the batch is listed in S3 instead.
+     */
+    private List<String> getSubmissionFolders(SubmissionBatch batch) {
+        List<String> submissionIds = batchIndex.findSubmissionIds(batch);
+        if (submissionIds.isEmpty()) {
+            return storageService.getSubFolders(batch.path());
+        }
+        return submissionIds.stream()
+                .map(submissionId -> batch.path() + submissionId + "/")
+                .toList();
     }
+
+    private record SubmissionDocuments(UserContextData userContext, String submissionXml, String manifestXml) {}
 }
@@ -0,0 +1,29 @@
+package gov.irs.directfile.submit.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import gov.irs.directfile.submit.MefSessionProperties;
+
+@Configuration
+@Slf4j
+public class MefSessionConfiguration {
+    @Value("${submit.mef.session.reuse:true}")
+    private boolean reuseSession;
+
+    @Value("${submit.mef.session.maxAgeMilliseconds:600000}")
+    private long maxSessionAgeMilliseconds;
+
+    @Value("${submit.mef.session.idleTimeoutMilliseconds:120000}")
+    private long idleTimeoutMilliseconds;
+
+    @Bean
+    public MefSessionProperties mefSessionProperties() {
+        MefSessionProperties properties =
+                new MefSessionProperties(reuseSession, maxSessionAgeMilliseconds, idleTimeoutMilliseconds);
+        log.info("Starting app with MeF Session Properties " + properties);
+        return properties;
+    }
+}
@@ -0,0 +1,47 @@
+package gov.irs.directfile.submit.config;
+
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import gov.irs.directfile.submit.PipelineProperties;
+import gov.irs.directfile.submit.command.ActionType;
+
+@Configuration
+@Slf4j
+public class PipelineConfiguration {
+    @Value("${submit.pipeline.workers.create-archive:2}")
+    private int createArchiveWorkers;
+
+    @Value("${submit.pipeline.workers.bundle-archive:1}")
+    private int bundleArchiveWorkers;
+
+    @Value("${submit.pipeline.workers.submit-bundle:1}")
+    private int submitBundleWorkers;
+
+    @Value("${submit.pipeline.workers.submission-failure:1}")
+    private int submissionFailureWorkers;
+
+    @Value("${submit.pipeline.workers.cleanup:1}")
+    private int cleanupWorkers;
+
+    @Value("${submit.pipeline.stage-queue-capacity:2}")
+    private int stageQueueCapacity;
+
+    @Bean
+    public PipelineProperties pipelineProperties() {
+        PipelineProperties properties = new PipelineProperties(
+                Map.of(
+                        ActionType.CREATE_ARCHIVE, createArchiveWorkers,
+                        ActionType.BUNDLE_ARCHIVE, bundleArchiveWorkers,
+                        ActionType.SUBMIT_BUNDLE, submitBundleWorkers,
+                        ActionType.SUBMISSION_FAILURE, submissionFailureWorkers,
+                        ActionType.CLEANUP, cleanupWorkers),
+                stageQueueCapacity);
+        log.info("Starting app with Pipeline Properties " + properties);
+        return properties;
+    }
+}
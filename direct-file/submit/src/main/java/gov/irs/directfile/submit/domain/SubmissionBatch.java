@@ -15,4 +15,9 @@ public record SubmissionBatch(long batchId, String path) {
     public int hashCode() {
         return Objects.hash(path);
     }
+
+    /** Name of the local working directory of this batch, derived from its path so that batches never share one. */
+    public String localDirectoryName() {
+        return path.replaceAll("[^A-Za-z0-9-]+", "_");
+    }
 }
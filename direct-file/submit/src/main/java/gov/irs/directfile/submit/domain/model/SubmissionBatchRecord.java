@@ -0,0 +1,101 @@
+package gov.irs.directfile.submit.domain.model;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * A batch of user submissions in the batch index. The index records which submissions were written to a batch and
+ * where the batch is in the pipeline, so that the submit app does not have to list S3 prefixes to find out.
+ */
+@Getter
+@Setter
+@Entity(name = "SubmissionBatchRecord")
+@Table(name = "submission_batch")
+public class SubmissionBatchRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(columnDefinition = "varchar", name = "application_id", length = 255, nullable = false)
+    private String applicationId;
+
+    @Column(name = "batch_control_year", nullable = false)
+    private int batchControlYear;
+
+    @Column(name = "batch_id", nullable = false)
+    private long batchId;
+
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    @Column(columnDefinition = "varchar", name = "path", length = 1024, nullable = false, unique = true)
+    private String path;
+
+    @Column(name = "error_batch", nullable = false)
+    private boolean errorBatch;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "state", length = 20, nullable = false)
+    private SubmissionBatchState state;
+
+    @Column(name = "submission_count", nullable = false)
+    private int submissionCount;
+
+    @ElementCollection
+    @CollectionTable(name = "submission_batch_member", joinColumns = @JoinColumn(name = "submission_batch_id"))
+    @Column(name = "submission_id", length = 255, nullable = false)
+    private Set<String> submissionIds = new HashSet<>();
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "closed_at")
+    private Instant closedAt;
+
+    @Column(name = "submitted_at")
+    private Instant submittedAt;
+
+    @Column(name = "failed_at")
+    private Instant failedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public static SubmissionBatchRecord open(
+            String applicationId, int batchControlYear, long batchId, String path, boolean errorBatch, Instant now) {
+        SubmissionBatchRecord record = new SubmissionBatchRecord();
+        record.setApplicationId(applicationId);
+        record.setBatchControlYear(batchControlYear);
+        record.setBatchId(batchId);
+        record.setPath(path);
+        record.setErrorBatch(errorBatch);
+        record.setState(SubmissionBatchState.OPEN);
+        record.setCreatedAt(now);
+        return record;
+    }
+
+    public void addSubmission(String submissionId) {
+        if (submissionIds.add(submissionId)) {
+            submissionCount = submissionIds.size();
+        }
+    }
+
+    /** Moves the batch to {@code newState} and records when it got there. */
+    public void transitionTo(SubmissionBatchState newState, Instant now) {
+        this.state = newState;
+        switch (newState) {
+            case CLOSED -> closedAt = now;
+            case SUBMITTED -> submittedAt = now;
+            case FAILED -> failedAt = now;
+            case COMPLETED -> completedAt = now;
+            default -> {}
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package gov.irs.directfile.submit.domain.model;
+
+/** Where a batch is in the submit pipeline, as recorded in the batch index. */
+public enum SubmissionBatchState {
+    /** The batch is accepting submissions. */
+    OPEN,
+    /** The batch is full or timed out and has been queued for archiving. */
+    CLOSED,
+    /** The bundle for the batch was accepted by MeF. */
+    SUBMITTED,
+    /** MeF rejected the bundle and the submissions were split into error batches. */
+    FAILED,
+    /** The batch has been cleaned up and needs no more work. */
+    COMPLETED
+}
@@ -0,0 +1,127 @@
+package gov.irs.directfile.submit.repository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchRecord;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchState;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
+
+/**
+ * Keeps the batch index in the {@code submission_batch} and {@code submission_batch_member} tables.
+ *
+ * <p>Every pod writes its own application id, so the batches of an application id are only ever written by one JVM,
+ * though by several of its threads at once. Rather than serializing writes, each submission is added as one member row
+ * and the table constraints settle races: two submissions copied into a new batch at the same time may both try to
+ * open it, and the one that loses on the unique path finds the batch already open.
+ */
+@Slf4j
+@Repository
+public class DatabaseBatchIndex implements IBatchIndex {
+    private final SubmissionBatchRecordRepository submissionBatchRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+
+    public DatabaseBatchIndex(
+            SubmissionBatchRecordRepository submissionBatchRecordRepository,
+            TransactionTemplate transactionTemplate,
+            Clock clock) {
+        this.submissionBatchRecordRepository = submissionBatchRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<SubmissionBatchRecord> findLatestBatch(String applicationId, int batchControlYear) {
+        return submissionBatchRecordRepository
+                .findFirstByApplicationIdAndBatchControlYearAndErrorBatchFalseOrderByBatchIdDesc(
+                        applicationId, batchControlYear);
+    }
+
+    @Override
+    public List<SubmissionBatch> findUnfinishedBatches(
+            String applicationId, int batchControlYear, boolean errorBatches) {
+        return submissionBatchRecordRepository
+                .findByApplicationIdAndBatchControlYearAndErrorBatchAndStateNotOrderByBatchIdAsc(
+                        applicationId, batchControlYear, errorBatches, SubmissionBatchState.COMPLETED)
+                .stream()
+                .map(record -> new SubmissionBatch(record.getBatchId(), record.getPath()))
+                .toList();
+    }
+
+    @Override
+    public List<String> findSubmissionIds(SubmissionBatch batch) {
+        return submissionBatchRecordRepository.findSubmissionIdsByPath(batch.path());
+    }
+
+    @Override
+    public void recordSubmission(
+            String applicationId,
+            int batchControlYear,
+            SubmissionBatch batch,
+            String submissionId,
+            boolean errorBatch) {
+        openIfAbsent(applicationId, batchControlYear, batch, errorBatch, clock.instant());
+        addMember(batch, submissionId);
+    }
+
+    @Override
+    public void importBatch(
+            String applicationId,
+            int batchControlYear,
+            SubmissionBatch batch,
+            List<String> submissionIds,
+            boolean errorBatch,
+            Instant createdAt) {
+        openIfAbsent(applicationId, batchControlYear, batch, errorBatch, createdAt);
+        submissionIds.forEach(submissionId -> addMember(batch, submissionId));
+    }
+
+    @Override
+    public void updateState(SubmissionBatch batch, SubmissionBatchState state) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<SubmissionBatchRecord> record = submissionBatchRecordRepository.findByPath(batch.path());
+            if (record.isEmpty()) {
+                log.warn("Batch {} is not in the batch index, not moving it to {}", batch.path(), state);
+                return;
+            }
+            record.get().transitionTo(state, clock.instant());
+            submissionBatchRecordRepository.save(record.get());
+        });
+    }
+
+    private void openIfAbsent(
+            String applicationId, int batchControlYear, SubmissionBatch batch, boolean errorBatch, Instant createdAt) {
+        if (submissionBatchRecordRepository.existsByPath(batch.path())) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(
+                    status -> submissionBatchRecordRepository.save(SubmissionBatchRecord.open(
+                            applicationId, batchControlYear, batch.batchId(), batch.path(), errorBatch, createdAt)));
+        } catch (DataIntegrityViolationException e) {
+            log.info("Batch {} was opened by another submission", batch.path());
+        }
+    }
+
+    private void addMember(SubmissionBatch batch, String submissionId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (submissionBatchRecordRepository.insertMember(batch.path(), submissionId) > 0) {
+                    submissionBatchRecordRepository.incrementSubmissionCount(batch.path());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Only the same submission added by another thread in the meantime violates the primary key
+            log.info("Submission {} was already added to batch {}", submissionId, batch.path());
+        }
+    }
+}
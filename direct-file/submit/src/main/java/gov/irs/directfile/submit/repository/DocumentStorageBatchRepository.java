@@ -1,14 +1,19 @@
 package gov.irs.directfile.submit.repository;
 
-import java.io.ByteArrayInputStream;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.Year;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,7 +25,10 @@ import gov.irs.directfile.submit.BatchingProperties;
 import gov.irs.directfile.submit.domain.DocumentStoreResource;
 import gov.irs.directfile.submit.domain.SubmissionBatch;
 import gov.irs.directfile.submit.domain.UserSubmission;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchRecord;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchState;
 import gov.irs.directfile.submit.domain.storagelocations.StorageLocationBuilder;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
 import gov.irs.directfile.submit.repository.interfaces.IBatchRepository;
 import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreService;
 
@@ -34,28 +42,99 @@ public class DocumentStorageBatchRepository implements IBatchRepository {
     private static final String S3_SUBMISSIONS_FOLDER = "pre-submission-batching";
     private final String applicationId;
     private final ISynchronousDocumentStoreService synchronousDocumentStoreService;
+    private final IBatchIndex batchIndex;
     private final BatchingProperties batchingProperties;
     private final Clock clock;
+    private final ExecutorService copyExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("batch-copy-", 0).factory());
 
     @Autowired
     public DocumentStorageBatchRepository(
             ISynchronousDocumentStoreService synchronousDocumentStoreService,
+            IBatchIndex batchIndex,
             @Value("${submit.application-id}") String applicationId,
             BatchingProperties batchingProperties,
             Clock clock) {
         this.synchronousDocumentStoreService = synchronousDocumentStoreService;
+        this.batchIndex = batchIndex;
         this.applicationId = applicationId;
         this.batchingProperties = batchingProperties;
         this.clock = clock;
     }
 
+    /**
+     * Finds the batch new submissions should be written to from the batch index. The first time the index is used for
+     * an application id and year it is empty, so the batches already in S3 are imported into it.
+     */
     @Override
     public long getCurrentWritingBatch(String applicationId) {
-        // 1. S3 ls for  /{configurable-application-id}/{batchControlYear}/, store in variable
-        int taxYear = getBatchControlYear();
-        String taxYearS3Key = S3_SUBMISSIONS_FOLDER + "/" + applicationId + "/" + taxYear + "/";
+        int batchControlYear = getBatchControlYear();
+        Optional<SubmissionBatchRecord> latestBatchOptional =
+                batchIndex.findLatestBatch(applicationId, batchControlYear);
+        if (latestBatchOptional.isEmpty()) {
+            return importBatchesFromStorage(applicationId, batchControlYear);
+        }
+        SubmissionBatchRecord latestBatch = latestBatchOptional.get();
+        if (latestBatch.getState() != SubmissionBatchState.OPEN) {
+            // The batch has already been handed to the pipeline
+            return latestBatch.getBatchId() + 1;
+        }
+        if (latestBatch.getSubmissionCount() > 0) {
+            long batchAgeInMilliseconds = getBatchAge(latestBatch.getCreatedAt());
+            boolean isBatchOlderThanTimeout =
+                    batchAgeInMilliseconds >= batchingProperties.getBatchTimeoutMilliseconds();
+            if (isBatchOlderThanTimeout || latestBatch.getSubmissionCount() >= batchingProperties.getMaxBatchSize()) {
+                return latestBatch.getBatchId() + 1;
+            }
+        }
+        return latestBatch.getBatchId();
+    }
+
+    /**
+     * Adds the batches and error batches written before the batch index existed to the index, and returns the current
+     * writing batch as found by listing S3.
+     */
+    private long importBatchesFromStorage(String applicationId, int batchControlYear) {
+        String applicationIdPath = generateLocationForApplicationId(applicationId, batchControlYear);
+        for (String batchPrefix : synchronousDocumentStoreService.getSubFolders(applicationIdPath)) {
+            long batchId = extractBatchNumberFromPrefix(batchPrefix);
+            SubmissionBatch batch =
+                    new SubmissionBatch(batchId, generateLocationForBatch(applicationId, batchId, batchControlYear));
+            importSubmissions(applicationId, batchControlYear, batch, batchPrefix, false);
+        }
+        String errorPath = StorageLocationBuilder.getErrorFolderLocation(applicationId, batchControlYear);
+        for (String failedBatchPrefix : synchronousDocumentStoreService.getSubFolders(errorPath)) {
+            for (String errorBatchPrefix : synchronousDocumentStoreService.getSubFolders(failedBatchPrefix)) {
+                SubmissionBatch errorBatch =
+                        new SubmissionBatch(extractBatchNumberFromPrefix(errorBatchPrefix), errorBatchPrefix);
+                importSubmissions(applicationId, batchControlYear, errorBatch, errorBatchPrefix, true);
+            }
+        }
+        return getCurrentWritingBatchFromStorage(applicationIdPath);
+    }
+
+    // A batch is as old as the oldest object in it, as when its age was read from S3. The objects are under the
+    // submission folders of the batch, so they are listed without a delimiter.
+    private void importSubmissions(
+            String applicationId, int batchControlYear, SubmissionBatch batch, String batchPrefix, boolean errorBatch) {
+        List<String> submissionIds = synchronousDocumentStoreService.getSubFolders(batchPrefix).stream()
+                .map(DocumentStorageBatchRepository::extractLastPathSegment)
+                .toList();
+        if (submissionIds.isEmpty()) {
+            return;
+        }
+        Instant createdAt = synchronousDocumentStoreService
+                .streamObjectKeyPages(batchPrefix)
+                .flatMap(List::stream)
+                .map(DocumentStoreResource::getLastModified)
+                .min(Comparator.naturalOrder())
+                .orElseGet(clock::instant);
+        batchIndex.importBatch(applicationId, batchControlYear, batch, submissionIds, errorBatch, createdAt);
+    }
+
+    private long getCurrentWritingBatchFromStorage(String applicationIdPath) {
         Optional<String> mostRecentBatchPrefixOptional =
-                synchronousDocumentStoreService.getMostRecentFolderForPrefix(taxYearS3Key);
+                synchronousDocumentStoreService.getMostRecentFolderForPrefix(applicationIdPath);
 
         // Case where no batches are found in s3
         if (mostRecentBatchPrefixOptional.isEmpty()) {
@@ -91,65 +170,73 @@ public class DocumentStorageBatchRepository implements IBatchRepository {
         }
     }
 
+    /**
+     * Copies the manifest, submission and user context of a submission into the batch. The copies are done by S3 and
+     * run concurrently, so the documents never pass through this pod.
+     */
     @Override
     public void addSubmission(SubmissionBatch submissionBatch, UserSubmission userSubmission) throws Exception {
-        // Use the CreateXML action to generate XML for the userSubmission.
-
-        // Get the documents from S3 artifact storage
-        var manifest = synchronousDocumentStoreService.getObjectAsString(userSubmission.manifestXmlPath());
-        var submission = synchronousDocumentStoreService.getObjectAsString(userSubmission.submissionXmlPath());
-        var userContext = synchronousDocumentStoreService.getObjectAsString(userSubmission.userContextPath());
-
-        // Upload to s3 batching area
         int taxYear = getBatchControlYear();
         String s3ObjectKey = StorageLocationBuilder.generateObjectKeyPrefixForSubmission(
                 submissionBatch.batchId(), userSubmission.submissionId(), applicationId, taxYear);
 
         log.info(
                 String.format("Uploading User Submission XML for user %s to %s", userSubmission.userId(), s3ObjectKey));
-        // Upload XML, user context, and binary objects to s3. Write UserContext, and BinaryObjects as Bytes
-        synchronousDocumentStoreService.write(
-                s3ObjectKey + "/" + "manifest.xml", new ByteArrayInputStream(manifest.getBytes()));
-        synchronousDocumentStoreService.write(
-                s3ObjectKey + "/" + "submission.xml", new ByteArrayInputStream(submission.getBytes()));
-
-        synchronousDocumentStoreService.write(
-                s3ObjectKey + "/" + "userContext.json", new ByteArrayInputStream(userContext.getBytes()));
+        try {
+            CompletableFuture.allOf(
+                            copyAsync(userSubmission.manifestXmlPath(), s3ObjectKey + "/" + "manifest.xml"),
+                            copyAsync(userSubmission.submissionXmlPath(), s3ObjectKey + "/" + "submission.xml"),
+                            copyAsync(userSubmission.userContextPath(), s3ObjectKey + "/" + "userContext.json"))
+                    .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        batchIndex.recordSubmission(applicationId, taxYear, submissionBatch, userSubmission.submissionId(), false);
         MDC.put(AuditLogElement.taxReturnId.toString(), userSubmission.taxReturnId());
         MDC.put(AuditLogElement.mefSubmissionId.toString(), userSubmission.submissionId());
         log.info(String.format("Successfully wrote XML for user %s to %s", userSubmission.userId(), s3ObjectKey));
         MDC.clear();
     }
 
+    private CompletableFuture<Void> copyAsync(String sourceKey, String destinationKey) {
+        return CompletableFuture.runAsync(
+                () -> synchronousDocumentStoreService.copyObject(sourceKey, destinationKey), copyExecutor);
+    }
+
+    @PreDestroy
+    public void teardown() {
+        copyExecutor.shutdown();
+    }
+
     @Override
     public Optional<SubmissionBatch> getSubmissionBatch(String applicationId, long batchId) {
         String path = generateLocationForBatch(applicationId, batchId, getBatchControlYear());
-        List<DocumentStoreResource> keys = synchronousDocumentStoreService.getObjectKeys(path);
-        if (keys.isEmpty()) {
+        SubmissionBatch batch = new SubmissionBatch(batchId, path);
+        if (batchIndex.findSubmissionIds(batch).isEmpty()) {
             return Optional.empty();
         } else {
-            return Optional.of(new SubmissionBatch(batchId, path));
+            return Optional.of(batch);
         }
     }
 
     @Override
     public List<SubmissionBatch> getUnprocessedBatches(String applicationId) {
         long currentBatchNumber = this.getCurrentWritingBatch(applicationId);
-        String path = generateLocationForApplicationId(applicationId, getBatchControlYear());
-
-        List<String> subFolders = synchronousDocumentStoreService.getSubFolders(path);
-        List<SubmissionBatch> submissionBatches = subFolders.stream()
-                .map(subFolder -> extractBatchNumberFromPrefix(subFolder))
-                .filter(batchNumber -> batchNumber != currentBatchNumber)
-                .map(batchNumber -> new SubmissionBatch(
-                        batchNumber, generateLocationForBatch(applicationId, batchNumber, getBatchControlYear())))
+        return batchIndex.findUnfinishedBatches(applicationId, getBatchControlYear(), false).stream()
+                .filter(batch -> batch.batchId() != currentBatchNumber)
                 .toList();
-        return submissionBatches;
     }
 
     private static long extractBatchNumberFromPrefix(String mostRecentBatchPrefix) {
-        String[] split = mostRecentBatchPrefix.split("/");
-        return Long.parseLong(split[split.length - 1]);
+        return Long.parseLong(extractLastPathSegment(mostRecentBatchPrefix));
+    }
+
+    private static String extractLastPathSegment(String prefix) {
+        String[] split = prefix.split("/");
+        return split[split.length - 1];
     }
 
     private long getBatchAge(Instant lastModifiedTimestamp) {
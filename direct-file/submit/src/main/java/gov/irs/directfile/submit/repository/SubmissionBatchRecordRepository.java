@@ -0,0 +1,41 @@
+package gov.irs.directfile.submit.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import gov.irs.directfile.submit.domain.model.SubmissionBatchRecord;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchState;
+
+public interface SubmissionBatchRecordRepository extends CrudRepository<SubmissionBatchRecord, Long> {
+
+    Optional<SubmissionBatchRecord> findByPath(String path);
+
+    boolean existsByPath(String path);
+
+    Optional<SubmissionBatchRecord> findFirstByApplicationIdAndBatchControlYearAndErrorBatchFalseOrderByBatchIdDesc(
+            String applicationId, int batchControlYear);
+
+    List<SubmissionBatchRecord> findByApplicationIdAndBatchControlYearAndErrorBatchAndStateNotOrderByBatchIdAsc(
+            String applicationId, int batchControlYear, boolean errorBatch, SubmissionBatchState state);
+
+    @Query("SELECT s FROM SubmissionBatchRecord b JOIN b.submissionIds s WHERE b.path = :path")
+    List<String> findSubmissionIdsByPath(String path);
+
+    /** Adds a member row for submissionId unless the batch already has one; returns the number of rows added. */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(
+            value = "INSERT INTO submission_batch_member (submission_batch_id, submission_id)"
+                    + " SELECT b.id, :submissionId FROM submission_batch b WHERE b.path = :path"
+                    + " AND NOT EXISTS (SELECT 1 FROM submission_batch_member m"
+                    + " WHERE m.submission_batch_id = b.id AND m.submission_id = :submissionId)",
+            nativeQuery = true)
+    int insertMember(String path, String submissionId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE SubmissionBatchRecord b SET b.submissionCount = b.submissionCount + 1 WHERE b.path = :path")
+    int incrementSubmissionCount(String path);
+}
@@ -0,0 +1,48 @@
+package gov.irs.directfile.submit.repository.interfaces;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchRecord;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchState;
+
+/**
+ * Records the batches written by this pod, the submissions in each one and where each batch is in the pipeline. Reads
+ * are single indexed lookups, so callers use this instead of listing the batch prefixes in S3.
+ */
+@SuppressWarnings("PMD.UnnecessaryModifier")
+public interface IBatchIndex {
+    /** The batch with the highest id for the application and year, not counting error batches. */
+    public Optional<SubmissionBatchRecord> findLatestBatch(String applicationId, int batchControlYear);
+
+    /** The batches for the application and year that have not been cleaned up yet, in batch id order. */
+    public List<SubmissionBatch> findUnfinishedBatches(
+            String applicationId, int batchControlYear, boolean errorBatches);
+
+    public List<String> findSubmissionIds(SubmissionBatch batch);
+
+    /** Adds the submission to the batch, opening the batch first if it is not in the index yet. */
+    public void recordSubmission(
+            String applicationId,
+            int batchControlYear,
+            SubmissionBatch batch,
+            String submissionId,
+            boolean errorBatch);
+
+    /**
+     * Adds a batch that was written before the index existed, with all of its submissions. The batch is recorded as
+     * created at {@code createdAt} rather than now, so that its age is the same as it was in S3.
+     */
+    public void importBatch(
+            String applicationId,
+            int batchControlYear,
+            SubmissionBatch batch,
+            List<String> submissionIds,
+            boolean errorBatch,
+            Instant createdAt);
+
+    /** Moves the batch to {@code state}. Batches that are not in the index are ignored. */
+    public void updateState(SubmissionBatch batch, SubmissionBatchState state);
+}
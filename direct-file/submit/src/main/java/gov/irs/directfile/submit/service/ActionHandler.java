@@ -1,9 +1,14 @@
 package gov.irs.directfile.submit.service;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -27,57 +32,61 @@ import gov.irs.directfile.submit.domain.ActionQueue;
 import gov.irs.directfile.submit.domain.SubmissionBatch;
 import gov.irs.directfile.submit.domain.SubmittedDataContainer;
 import gov.irs.directfile.submit.domain.UserContextData;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchState;
 import gov.irs.directfile.submit.exception.LoginFailureException;
 import gov.irs.directfile.submit.exception.LogoutFailureException;
 import gov.irs.directfile.submit.repository.PodIdentifierRepository;
-import gov.irs.directfile.submit.service.interfaces.IBundleSubmissionActionHandler;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
 import gov.irs.directfile.submit.service.interfaces.ISubmissionFailureService;
 
 @Slf4j
 @Service
-@SuppressWarnings({
-    "PMD.ExceptionAsFlowControl",
-    "PMD.ExcessiveParameterList",
-    "PMD.SimpleDateFormatNeedsLocale",
-    "PMD.UselessParentheses"
-})
+@SuppressWarnings({"PMD.ExceptionAsFlowControl", "PMD.ExcessiveParameterList", "PMD.UselessParentheses"})
 public class ActionHandler {
     private final SqsConnectionSetupService sqsConnectionSetupService;
     private final SubmissionConfirmationMessageService submissionConfirmationMessageService;
     protected final ActionContext context;
     private final ActionQueue actions;
-    private final IBundleSubmissionActionHandler bundleSubmissionService;
+    private final MefSessionManager mefSessionManager;
 
     private final OfflineModeService offlineModeService;
 
     private final Set<SubmissionBatch> inProgressBatches;
 
-    private SimpleDateFormat simpleDateFormat = new SimpleDateFormat("hh:mm:ss");
+    // Actions are handled concurrently, so this has to be thread safe
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("hh:mm:ss").withZone(ZoneId.systemDefault());
     private final BundleArchivesActionHandler bundleArchivesActionHandler;
 
     private final CleanupActionHandler cleanupActionHandler;
     private final CreateArchiveActionHandler createArchiveActionHandler;
     private final ISubmissionFailureService submissionFailureService;
     private final PodIdentifierRepository podIdentifierRepository;
+    private final IBatchIndex batchIndex;
+
+    private final Map<ActionType, Timer> actionTimers = new EnumMap<>(ActionType.class);
+    private final DistributionSummary submittedBundleSize;
 
     public ActionHandler(
             SqsConnectionSetupService sqsConnectionSetupService,
             SubmissionConfirmationMessageService submissionConfirmationMessageService,
             ActionQueue actions,
             ActionContext actionContext,
-            IBundleSubmissionActionHandler bundleSubmissionService,
+            MefSessionManager mefSessionManager,
             OfflineModeService offlineModeService,
             Set<SubmissionBatch> inProgressBatches,
             BundleArchivesActionHandler bundleArchivesActionHandler,
             CleanupActionHandler cleanupActionHandler,
             CreateArchiveActionHandler createArchiveActionHandler,
             ISubmissionFailureService submissionFailureService,
-            PodIdentifierRepository podIdentifierRepository) {
+            PodIdentifierRepository podIdentifierRepository,
+            IBatchIndex batchIndex,
+            MeterRegistry meterRegistry) {
         this.sqsConnectionSetupService = sqsConnectionSetupService;
         this.submissionConfirmationMessageService = submissionConfirmationMessageService;
         this.context = actionContext;
         this.actions = actions;
-        this.bundleSubmissionService = bundleSubmissionService;
+        this.mefSessionManager = mefSessionManager;
         this.offlineModeService = offlineModeService;
         this.inProgressBatches = inProgressBatches;
         this.bundleArchivesActionHandler = bundleArchivesActionHandler;
@@ -85,6 +94,21 @@ public class ActionHandler {
         this.createArchiveActionHandler = createArchiveActionHandler;
         this.submissionFailureService = submissionFailureService;
         this.podIdentifierRepository = podIdentifierRepository;
+        this.batchIndex = batchIndex;
+        for (ActionType actionType : ActionType.values()) {
+            actionTimers.put(
+                    actionType,
+                    Timer.builder("submit.actions")
+                            .description("Time taken to handle an action, by action type")
+                            .tag("type", actionType.name())
+                            .publishPercentileHistogram()
+                            .register(meterRegistry));
+        }
+        this.submittedBundleSize = DistributionSummary.builder("submit.bundle.size")
+                .description("Returns in each bundle submitted to MeF")
+                .baseUnit("returns")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @PostConstruct
@@ -117,6 +141,10 @@ public class ActionHandler {
     }
 
     public void handleAction(Action action) {
+        actionTimers.get(action.getType()).record(() -> handle(action));
+    }
+
+    private void handle(Action action) {
         try {
             // These info logs don't need that info.
             log.info(String.format("running action: %s", action.getClass().getSimpleName()));
@@ -141,24 +169,19 @@ public class ActionHandler {
                     SubmittedDataContainer submittedDataContainer;
                     if (context.getConfig().isSubmitActionEnabled() && !offlineModeService.getShouldStayOffline()) {
                         long startTime = System.currentTimeMillis();
-                        Date date = new Date(startTime);
-                        log.info("Logging in at {}", simpleDateFormat.format(date));
-                        bundleSubmissionService.login();
-                        log.info("Submitting bundle");
+                        log.info("Submitting bundle at {}", TIME_FORMATTER.format(Instant.ofEpochMilli(startTime)));
 
-                        submittedDataContainer = bundleSubmissionService.handleCommand((SubmitBundleAction) action);
-                        log.info(
-                                "Successfully Submitted {} submissions for batch {} ",
-                                submittedDataContainer.userContexts.size(),
-                                submittedDataContainer.submissionBatch.path());
-                        // TODO: call the ack system and let them know.
+                        // Logs in first unless the MeF session of an earlier bundle is still usable
+                        submittedDataContainer = mefSessionManager.submit((SubmitBundleAction) action);
                         long endTime = System.currentTimeMillis();
-                        date = new Date(endTime);
                         log.info(
-                                "Logging out at {}, elapsed time in milliseconds: {}",
-                                simpleDateFormat.format(date),
+                                "Successfully Submitted {} submissions for batch {}, elapsed time in milliseconds: {}",
+                                submittedDataContainer.userContexts.size(),
+                                submittedDataContainer.submissionBatch.path(),
                                 (endTime - startTime));
-                        bundleSubmissionService.logout();
+                        submittedBundleSize.record(submittedDataContainer.userContexts.size());
+                        // TODO: call the ack system and let them know.
+                        batchIndex.updateState(submittedDataContainer.submissionBatch, SubmissionBatchState.SUBMITTED);
                         actions.getInProgressActions().add(new CleanupAction(submittedDataContainer.submissionBatch));
 
                         List<TaxReturnIdAndSubmissionId> taxReturnIdAndSubmissionIds =
@@ -190,11 +213,14 @@ public class ActionHandler {
                 case SUBMISSION_FAILURE:
                     SubmissionFailureActionResult submissionFailureActionResult =
                             submissionFailureService.handleCommand((SubmissionFailureAction) action);
+                    batchIndex.updateState(submissionFailureActionResult.getBatch(), SubmissionBatchState.FAILED);
                     actions.getInProgressActions().add(new CleanupAction(submissionFailureActionResult.getBatch()));
                     break;
                 case CLEANUP:
                     log.info("Cleaning up the file system");
                     cleanupActionHandler.handleAction((CleanupAction) action);
+                    batchIndex.updateState(
+                            ((CleanupAction) action).getSubmissionBatch(), SubmissionBatchState.COMPLETED);
                     inProgressBatches.remove(((CleanupAction) action).getSubmissionBatch());
                     break;
                 default:
@@ -210,7 +236,7 @@ public class ActionHandler {
                 log.error(
                         "Failed to Submit Bundle for batch at path {} to MeF",
                         e.getBatch().path());
-                bundleSubmissionService.logout();
+                mefSessionManager.logout();
                 handleSubmissionFailure(e);
             } catch (LogoutFailureException logoutFailureException) {
                 if (!offlineModeService.isOfflineModeEnabled()) {
@@ -224,7 +250,7 @@ public class ActionHandler {
         } catch (LoginFailureException e) {
             try {
                 log.error("Failed to log in to MeF");
-                bundleSubmissionService.logout();
+                mefSessionManager.logout();
             } catch (LogoutFailureException logoutFailureException) {
                 if (!offlineModeService.isOfflineModeEnabled()) {
                     log.info("Enabling Offline Mode. Unable to logout.");
@@ -301,6 +327,7 @@ public class ActionHandler {
             SubmissionConfirmationPayloadV2Entry entry = getFailureEventSubmissionConfirmationPayloadV2Entry(
                     failedSubmissionUserContext, failureEventMetadata);
             submissionConfirmationMessageService.publishSubmissionConfirmationPayloadV2(List.of(entry));
+            batchIndex.updateState(e.getBatch(), SubmissionBatchState.FAILED);
             actions.getInProgressActions().add(new CleanupAction(e.getBatch()));
         } else {
             log.error("Unable to submit bundle to MeF because batch is empty.");
@@ -16,6 +16,8 @@ import gov.irs.directfile.submit.command.SubmissionFailureAction;
 import gov.irs.directfile.submit.config.Config;
 import gov.irs.directfile.submit.domain.DocumentStoreResource;
 import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.domain.storagelocations.StorageLocationBuilder;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
 import gov.irs.directfile.submit.service.interfaces.ISubmissionFailureService;
 import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreService;
 
@@ -25,17 +27,18 @@ import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreSer
         value = {"NM_METHOD_NAMING_CONVENTION"},
         justification = "Initial SpotBugs Setup")
 public class DocumentStorageSubmissionFailureService implements ISubmissionFailureService {
-    private static final String S3_SUBMISSIONS_FOLDER = "pre-submission-batching";
-
     private final ISynchronousDocumentStoreService synchronousDocumentStoreService;
+    private final IBatchIndex batchIndex;
     private final String applicationId;
     private final Clock clock;
 
     public DocumentStorageSubmissionFailureService(
             ISynchronousDocumentStoreService synchronousDocumentStoreService,
+            IBatchIndex batchIndex,
             @Value("${submit.application-id}") String applicationId,
             Clock clock) {
         this.synchronousDocumentStoreService = synchronousDocumentStoreService;
+        this.batchIndex = batchIndex;
         this.applicationId = applicationId;
         this.clock = clock;
     }
@@ -45,10 +48,12 @@ public class DocumentStorageSubmissionFailureService implements ISubmissionFailu
 
     /**
      * This method is responsible for copying files of a failed batch (Unable to Submit to MeF)
-     * to an error path that will re-submit each indiviudal submission to MeF as it's own batch.
+     * to error batches that our asynchronous ErrorBatchPoller re-submits to MeF.
      *
-     * If a batch contains 10 submissions. This method will copy the files over
-     * such that we will re-submit 10 batches, each of size 1, when our asynchronous ErrorBatchPoller picks them up.
+     * The failed batch is split in half, and each half becomes an error batch. If a half fails again it is split
+     * again, until a failing batch has a single submission, which the ActionHandler reports as failed. A batch of n
+     * submissions with k bad returns is therefore resolved in about 2k * log2(n) submissions to MeF, instead of the n
+     * submissions it takes to re-submit every return on its own.
      * */
     @Override
     public void processFailedBatch(SubmissionBatch batch) {
@@ -66,64 +71,78 @@ public class DocumentStorageSubmissionFailureService implements ISubmissionFailu
          * BATCH_PATH/{submissionId}/userContext.json
          *  => pre-submission-batching/{configurable-application-id}/{batch-control-year}/{batch-number}/{submissionId}/userContext.json
          *
-         * This method copies each of the files of a submission into its own folder that will
-         * be treated as a batch.
-         *
-         * An error batch stores the files for a submission that will be treated as its own batch:
-         * ERROR_PATH:  pre-submission-batching/{configurable-application-id}/{tax-year}/errors/{batch-number}/
+         * The error batches of an original batch are the nodes of a binary tree, stored side by side:
+         * ERROR_PATH: pre-submission-batching/errors/{configurable-application-id}/{batch-control-year}/{batch-number}/
          *
-         * To treat a submission as its own batch, we will copy files to a unique path for each submission.
-         * We assign a submission number between 0 and the size of the batch.
-         * INDIVIDUAL_ERROR_BATCH = ERROR_PATH/{submissionNumber}
+         * The original batch is node 1, and the halves of node i are nodes 2i and 2i + 1. The node is the batch id of
+         * the error batch:
+         * ERROR_BATCH = ERROR_PATH/{node}/
          *
-         * Files for the submission in this batch will live at:
+         * Files for a submission in an error batch will live at:
          *
-         * INDIVIDUAL_ERROR_BATCH/manifest.xml
-         *   => pre-submission-batching/{configurable-application-id}/{tax-year}/errors/{batch-number}/{submissionNumber}/{submissionId}/manifest.xml
-         * INDIVIDUAL_ERROR_BATCH/return.xml
-         *  =>  pre-submission-batching/{configurable-application-id}/{tax-year}/errors/{batch-number}/{submissionNumber}/{submissionId}/return.xml
-         * INDIVIDUAL_ERROR_BATCH/userContext.json
-         *  => pre-submission-batching/{configurable-application-id}/{tax-year}/errors/{batch-number}/{submissionNumber}/{submissionId}/manifest.xml
+         * ERROR_BATCH/{submissionId}/manifest.xml
+         *   => pre-submission-batching/errors/{configurable-application-id}/{batch-control-year}/{batch-number}/{node}/{submissionId}/manifest.xml
          *
+         * The nodes are not nested in each other's paths, so cleaning up a failed error batch does not delete the
+         * halves it was split into.
          * */
         log.info("Processing Failed Batch for path: " + batch.path());
-        String errorPath = String.format(
-                "%s/errors/%s/%s/%s", S3_SUBMISSIONS_FOLDER, applicationId, getBatchControlYear(), batch.batchId());
-        // 1. Get the objects in the batch
-        List<DocumentStoreResource> objects = synchronousDocumentStoreService.getObjectKeys(batch.path());
-
-        // 2. For each key, copy to the error path
-        List<String> submissionIdObjectKeys = synchronousDocumentStoreService.getSubFolders(batch.path());
-        Map<String, Integer> submissionIdToSubmissionNumber = new HashMap<>();
-
-        /**
-         * We're going to treat each submission as its own batch.
-         * We are assigning a submissionNumber to each submission in the batch.
-         *
-         * */
+        int batchControlYear = getBatchControlYear();
+        String errorRootPath = StorageLocationBuilder.getErrorFolderLocation(applicationId, batchControlYear);
+
+        // 1. Find where the failed batch is in the tree of its original batch
+        long originalBatchId = batch.batchId();
+        long node = 1;
+        int errorRootIndex = batch.path().indexOf(errorRootPath);
+        if (errorRootIndex >= 0) {
+            String treePath = batch.path().substring(errorRootIndex + errorRootPath.length());
+            originalBatchId = Long.parseLong(treePath.substring(0, treePath.indexOf('/')));
+            node = batch.batchId();
+        }
+        String errorPath = errorRootPath + originalBatchId;
+
+        // 2. Split the submissions of the batch into two halves
+        List<String> submissionIdObjectKeys = synchronousDocumentStoreService.getSubFolders(batch.path()).stream()
+                .sorted()
+                .toList();
+        int middle = (submissionIdObjectKeys.size() + 1) / 2;
+        Map<String, SubmissionBatch> submissionIdObjectKeyToErrorBatch = new HashMap<>();
         for (int i = 0; i < submissionIdObjectKeys.size(); i++) {
-            submissionIdToSubmissionNumber.put(submissionIdObjectKeys.get(i), i);
+            long half = 2 * node + (i < middle ? 0 : 1);
+            submissionIdObjectKeyToErrorBatch.put(
+                    submissionIdObjectKeys.get(i), new SubmissionBatch(half, String.format("%s/%s/", errorPath, half)));
         }
 
+        // 3. For each key, copy to the error batch of its half
+        List<DocumentStoreResource> objects = synchronousDocumentStoreService.getObjectKeys(batch.path());
         for (DocumentStoreResource documentStoreResource : objects) {
             String fullPath = documentStoreResource.getFullLocation();
 
-            // 2a. Find the path to files of a submission. This looks like
+            // 3a. Find the path to files of a submission. This looks like
             // "pre-submission-batching/{application-id}/{batch-control-year}/{batchId}/{submissionId}"
             String submissionIdObjectKey =
                     fullPath.substring(0, fullPath.indexOf('/', batch.path().length()) + 1);
 
-            // 2b. Find the filename associated with the submission. For example, this will look like
+            // 3b. Find the filename associated with the submission. For example, this will look like
             // {submissionId}/manifest.xml
             String fileName = fullPath.substring(batch.path().length());
-            int submissionNumber = submissionIdToSubmissionNumber.get(submissionIdObjectKey);
-            // 2c. Generate the path where the error batch will live
 
-            // pre-submission-batching/errors/{applicationId}/{batchControlYear}/{batchId}/{submissionNumber}/{submissionId}/file.{xml,json}
-            String individualBatchErrorKey = String.format("%s/%s/%s", errorPath, submissionNumber, fileName);
-            synchronousDocumentStoreService.copyObject(documentStoreResource, individualBatchErrorKey);
+            // pre-submission-batching/errors/{applicationId}/{batchControlYear}/{batchId}/{node}/{submissionId}/file.{xml,json}
+            String errorBatchKey = submissionIdObjectKeyToErrorBatch.get(submissionIdObjectKey).path() + fileName;
+            synchronousDocumentStoreService.copyObject(documentStoreResource, errorBatchKey);
+        }
+
+        // 4. Record the error batches in the batch index so the ErrorBatchPoller picks them up
+        for (Map.Entry<String, SubmissionBatch> submission : submissionIdObjectKeyToErrorBatch.entrySet()) {
+            String[] split = submission.getKey().split("/");
+            String submissionId = split[split.length - 1];
+            batchIndex.recordSubmission(applicationId, batchControlYear, submission.getValue(), submissionId, true);
         }
-        log.info("Successfully moved failed batch to error bucket:" + batch.path());
+        log.info(
+                "Successfully split failed batch {} with {} submissions into error batches under {}",
+                batch.path(),
+                submissionIdObjectKeys.size(),
+                errorPath);
     }
 
     @Override
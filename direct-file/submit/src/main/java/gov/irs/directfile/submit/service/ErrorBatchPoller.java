@@ -14,8 +14,7 @@ import gov.irs.directfile.submit.actions.ActionContext;
 import gov.irs.directfile.submit.command.CreateArchiveAction;
 import gov.irs.directfile.submit.domain.ActionQueue;
 import gov.irs.directfile.submit.domain.SubmissionBatch;
-import gov.irs.directfile.submit.domain.storagelocations.StorageLocationBuilder;
-import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreService;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
 
 @Service
 @Slf4j
@@ -24,7 +23,7 @@ public class ErrorBatchPoller {
     private final ActionQueue actions;
     private final Set<SubmissionBatch> inProgressBatches;
 
-    private final ISynchronousDocumentStoreService storageService;
+    private final IBatchIndex batchIndex;
     private final String applicationId;
 
     private final ActionContext context;
@@ -32,13 +31,13 @@ public class ErrorBatchPoller {
 
     public ErrorBatchPoller(
             ActionQueue actions,
-            ISynchronousDocumentStoreService storageService,
+            IBatchIndex batchIndex,
             @Value("${submit.application-id}") String applicationId,
             Set<SubmissionBatch> inProgressBatches,
             ActionContext context,
             Clock clock) {
         this.actions = actions;
-        this.storageService = storageService;
+        this.batchIndex = batchIndex;
         this.applicationId = applicationId;
         this.inProgressBatches = inProgressBatches;
         this.context = context;
@@ -51,48 +50,24 @@ public class ErrorBatchPoller {
             log.info("Submit action is disabled, not polling for error batches");
             return;
         }
-        String errorPath = StorageLocationBuilder.getErrorFolderLocation(applicationId, getBatchControlYear());
-        List<String> errorSubfolders = storageService.getSubFolders(errorPath);
         log.info("Polling for error batches...");
-        if (!errorSubfolders.isEmpty()) {
+        /*
+         * Each error batch holds one half of a batch that MeF failed, copied to
+         * pre-submission-batching/errors/{applicationId}/{batchControlYear}/{batch-id}/{node}/
+         *
+         * The node is the batch id of the error batch. See DocumentStorageSubmissionFailureService for how failed
+         * batches are split.
+         * */
+        List<SubmissionBatch> errorBatches =
+                batchIndex.findUnfinishedBatches(applicationId, getBatchControlYear(), true);
+        if (!errorBatches.isEmpty()) {
             log.info(String.format(
-                    "Found %s error batches in poller. Re-processing as individual submissions",
-                    errorSubfolders.size()));
-            /*
-             * errorSubfolders is a list of all the object paths for failed batches in the error subfolder.
-             * Each entry in this list is the path to a batch that failed, it has been copied to the error path.
-             * Each entry looks like this:
-             * pre-submission-batching/errors/{applicationId}/{batchControlYear}/{batch-id}/
-             *
-             * */
-            for (String errorSubFolder : errorSubfolders) {
-                /*
-                 * errorSubFolderBatches is a list paths to each submission that will be retried as an individual batch.
-                 * Each string in this list is formatted like this:
-                 * pre-submission-batching/{configurable-application-id}/{tax-year}/errors/{batch-number}/{submissionNumber}
-                 *
-                 * This path allows us to treat each submission as its own batch.
-                 *
-                 */
-                List<String> errorSubFolderBatches = storageService.getSubFolders(errorSubFolder);
-
-                for (String errorBatchPath : errorSubFolderBatches) {
-
-                    /*
-                    errorBatchPath looks like this:
-                    pre-submission-batching/{configurable-application-id}/{batchControlYear}/errors/{batch-number}/{submissionNumber}
-
-                    Get the submissionNumber and treat is as the batch id for this batch.
-
-                    */
-                    String[] split = errorBatchPath.split("/");
-                    long submissionNumber = Long.parseLong(split[split.length - 1]);
-                    SubmissionBatch submissionBatch = new SubmissionBatch(submissionNumber, errorBatchPath);
-
-                    if (!inProgressBatches.contains(submissionBatch)) {
-                        actions.getNewActions().add(new CreateArchiveAction(submissionBatch));
-                        inProgressBatches.add(submissionBatch);
-                    }
+                    "Found %s error batches in poller. Re-processing them as their own batches",
+                    errorBatches.size()));
+            for (SubmissionBatch submissionBatch : errorBatches) {
+                if (!inProgressBatches.contains(submissionBatch)) {
+                    actions.getNewActions().add(new CreateArchiveAction(submissionBatch));
+                    inProgressBatches.add(submissionBatch);
                 }
             }
         }
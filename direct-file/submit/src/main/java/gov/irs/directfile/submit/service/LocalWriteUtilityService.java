@@ -1,7 +1,6 @@
 package gov.irs.directfile.submit.service;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -12,26 +11,19 @@ import javax.xml.datatype.XMLGregorianCalendar;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+
 @SuppressFBWarnings(
         value = {"DM_DEFAULT_ENCODING", "NM_METHOD_NAMING_CONVENTION"},
         justification = "Initial SpotBugs Setup")
 @SuppressWarnings("PMD.CloseResource")
 public class LocalWriteUtilityService {
-    public static Path writeXmlToDisk(String xmlString, String submissionId, String outputDir, String fileName) {
-        try {
-            Path directory = Path.of(outputDir, submissionId);
-            if (!Files.exists(directory)) {
-                Files.createDirectory(directory);
-            }
-            Path returnPath = Path.of(outputDir, submissionId, fileName + ".xml");
-
-            BufferedWriter writer = new BufferedWriter(new FileWriter(returnPath.toFile()));
-            writer.write(xmlString);
-            writer.close();
-            return returnPath;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * Creates the working directory of a batch under one of the configured directories. Batches are processed
+     * concurrently, so each one writes its archives to its own directory and only cleans up that directory.
+     */
+    public static String batchDirectory(String outputDir, SubmissionBatch batch) throws IOException {
+        return Files.createDirectories(Path.of(outputDir, batch.localDirectoryName())) + File.separator;
     }
 
     private static OffsetDateTime testNow;
@@ -0,0 +1,179 @@
+package gov.irs.directfile.submit.service;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import gov.irs.directfile.submit.MefSessionProperties;
+import gov.irs.directfile.submit.actions.exception.SubmissionFailureException;
+import gov.irs.directfile.submit.command.SubmitBundleAction;
+import gov.irs.directfile.submit.domain.SubmittedDataContainer;
+import gov.irs.directfile.submit.exception.LoginFailureException;
+import gov.irs.directfile.submit.exception.LogoutFailureException;
+import gov.irs.directfile.submit.service.interfaces.IBundleSubmissionActionHandler;
+
+/**
+ * Keeps one MeF session open across consecutive bundles instead of logging in and out around each of them. A session
+ * is replaced once it is older than {@code maxSessionAgeMilliseconds}, so that it never runs into MeF's own timeout,
+ * and is closed once it has been idle for {@code idleTimeoutMilliseconds}.
+ *
+ * <p>A session that fails a submission is dropped, so the next bundle logs in again. When the failed session was a
+ * reused one, it may have expired on MeF's side, so the bundle is sent once more on a new session before the failure
+ * is passed on. The caller still probes MeF with {@link #logout()} after a failure to tell a bad bundle apart from MeF
+ * being down.
+ */
+@Slf4j
+@Service
+public class MefSessionManager {
+    private final IBundleSubmissionActionHandler bundleSubmissionService;
+    private final MefSessionProperties properties;
+    private final Clock clock;
+
+    private final Timer loginTimer;
+    private final Timer logoutTimer;
+    private final Timer submitTimer;
+    private final Counter reusedSessionCounter;
+    private final Counter retriedOnNewSessionCounter;
+
+    // Only read and written while holding the lock on this
+    private Instant sessionStartedAt;
+    private Instant sessionLastUsedAt;
+
+    public MefSessionManager(
+            IBundleSubmissionActionHandler bundleSubmissionService,
+            MefSessionProperties properties,
+            MeterRegistry meterRegistry,
+            Clock clock) {
+        this.bundleSubmissionService = bundleSubmissionService;
+        this.properties = properties;
+        this.clock = clock;
+        this.loginTimer = Timer.builder("submit.mef.login")
+                .description("Time taken to log in to MeF")
+                .register(meterRegistry);
+        this.logoutTimer = Timer.builder("submit.mef.logout")
+                .description("Time taken to log out of MeF")
+                .register(meterRegistry);
+        this.submitTimer = Timer.builder("submit.mef.submit")
+                .description("Time taken to send a bundle to MeF, not counting login and logout")
+                .register(meterRegistry);
+        this.reusedSessionCounter = Counter.builder("submit.mef.session.reused")
+                .description("Bundles sent on a session that was already open")
+                .register(meterRegistry);
+        this.retriedOnNewSessionCounter = Counter.builder("submit.mef.session.retried")
+                .description("Bundles sent again on a new session after failing on a reused one")
+                .register(meterRegistry);
+    }
+
+    /** Sends the bundle to MeF, logging in first when there is no usable session. */
+    public synchronized SubmittedDataContainer submit(SubmitBundleAction action)
+            throws LoginFailureException, LogoutFailureException, SubmissionFailureException {
+        if (sessionStartedAt != null && isOlderThan(sessionStartedAt, properties.getMaxSessionAgeMilliseconds())) {
+            log.info("Replacing MeF session started at {}", sessionStartedAt);
+            closeSessionQuietly();
+        }
+        boolean reusedSession = sessionStartedAt != null;
+        if (reusedSession) {
+            reusedSessionCounter.increment();
+        } else {
+            login();
+        }
+
+        SubmittedDataContainer submittedDataContainer;
+        try {
+            submittedDataContainer = sendBundle(action);
+        } catch (SubmissionFailureException e) {
+            if (!reusedSession) {
+                // The session may be what failed, so don't hand it to the next bundle
+                sessionStartedAt = null;
+                throw e;
+            }
+            // A reused session may have expired on MeF's side, which the logout probe would blame on the bundle
+            log.warn(
+                    "Bundle failed on MeF session started at {}, sending it again on a new session",
+                    sessionStartedAt,
+                    e);
+            retriedOnNewSessionCounter.increment();
+            closeSessionQuietly();
+            login();
+            try {
+                submittedDataContainer = sendBundle(action);
+            } catch (SubmissionFailureException retryFailure) {
+                sessionStartedAt = null;
+                throw retryFailure;
+            }
+        }
+        sessionLastUsedAt = clock.instant();
+
+        if (!properties.isReuseSession()) {
+            logout();
+        }
+        return submittedDataContainer;
+    }
+
+    /** Logs out of MeF, whether or not a session is open. Succeeds only when MeF is reachable. */
+    public synchronized boolean logout() throws LogoutFailureException {
+        sessionStartedAt = null;
+        Timer.Sample sample = Timer.start();
+        try {
+            return bundleSubmissionService.logout();
+        } finally {
+            sample.stop(logoutTimer);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${submit.mef.session.idleTimeoutMilliseconds:120000}", initialDelay = 1000L)
+    public synchronized void closeIdleSession() {
+        if (sessionStartedAt != null && isOlderThan(sessionLastUsedAt, properties.getIdleTimeoutMilliseconds())) {
+            log.info("Closing MeF session that has been idle since {}", sessionLastUsedAt);
+            closeSessionQuietly();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void teardown() {
+        if (sessionStartedAt != null) {
+            closeSessionQuietly();
+        }
+    }
+
+    private SubmittedDataContainer sendBundle(SubmitBundleAction action) throws SubmissionFailureException {
+        Timer.Sample sample = Timer.start();
+        try {
+            return bundleSubmissionService.handleCommand(action);
+        } finally {
+            sample.stop(submitTimer);
+        }
+    }
+
+    private void login() throws LoginFailureException {
+        Timer.Sample sample = Timer.start();
+        try {
+            bundleSubmissionService.login();
+        } finally {
+            sample.stop(loginTimer);
+        }
+        sessionStartedAt = clock.instant();
+        sessionLastUsedAt = sessionStartedAt;
+    }
+
+    private void closeSessionQuietly() {
+        Instant startedAt = sessionStartedAt;
+        try {
+            logout();
+        } catch (LogoutFailureException e) {
+            // The session is abandoned either way. If MeF is down, the next login fails and enables offline mode.
+            log.warn("Failed to log out of MeF session started at {}", startedAt, e);
+        }
+    }
+
+    private boolean isOlderThan(Instant instant, long milliseconds) {
+        return !clock.instant().isBefore(instant.plusMillis(milliseconds));
+    }
+}
@@ -2,10 +2,13 @@ package gov.irs.directfile.submit.service;
 
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import gov.irs.directfile.submit.actions.ActionContext;
@@ -33,13 +36,21 @@ import gov.irs.directfile.submit.service.interfaces.IBundleSubmissionActionHandl
 public class PerformanceTestingBundleSubmissionActionHandler implements IBundleSubmissionActionHandler {
     private final Config config;
     private final ActionContext context;
-    private final Random random = new Random();
+    private final LongSupplier latencyMillis;
     private static final long TEN_SECONDS_IN_MILLIS = 10_000;
 
+    @Autowired
     public PerformanceTestingBundleSubmissionActionHandler(Config config, ActionContext context) {
+        this(config, context, () -> TEN_SECONDS_IN_MILLIS + ThreadLocalRandom.current().nextLong(2000));
+    }
+
+    /** @param latencyMillis how long MeF takes to answer each bundle */
+    public PerformanceTestingBundleSubmissionActionHandler(
+            Config config, ActionContext context, LongSupplier latencyMillis) {
         log.info("Initializing Mock Bundle Submission Service for Performance Testing.");
         this.config = config;
         this.context = context;
+        this.latencyMillis = latencyMillis;
     }
 
     @Override
@@ -58,8 +69,7 @@ public class PerformanceTestingBundleSubmissionActionHandler implements IBundleS
         SendSubmissionsResultWrapper fakeSubmissionResultWrapper = generateMockData(bundledArchives);
         try {
 
-            long jitter = random.nextLong(2000);
-            Thread.sleep(Duration.ofMillis(TEN_SECONDS_IN_MILLIS + jitter));
+            Thread.sleep(Duration.ofMillis(latencyMillis.getAsLong()));
             log.info(
                     "Using Mock Bundle Submission Service for Performance Testing. Creating Mock MEF Response for batch {}",
                     submissionBatch);
@@ -0,0 +1,48 @@
+package gov.irs.directfile.submit.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import gov.irs.directfile.submit.domain.ActionQueue;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+
+/**
+ * Gauges for how much work is waiting in the submit pipeline. A growing action queue or number of in-progress batches
+ * means the pipeline is falling behind, which users otherwise only notice as returns stuck in pending.
+ */
+@Component
+public class PipelineMetrics implements MeterBinder {
+    private final ActionQueue actions;
+    private final Set<SubmissionBatch> inProgressBatches;
+    private final OfflineModeService offlineModeService;
+
+    public PipelineMetrics(
+            ActionQueue actions, Set<SubmissionBatch> inProgressBatches, OfflineModeService offlineModeService) {
+        this.actions = actions;
+        this.inProgressBatches = inProgressBatches;
+        this.offlineModeService = offlineModeService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("submit.actions.queued", actions.getNewActions(), Collection::size)
+                .description("Actions waiting to be started, for new batches or for batches already in progress")
+                .tag("queue", "new")
+                .register(registry);
+        Gauge.builder("submit.actions.queued", actions.getInProgressActions(), Collection::size)
+                .description("Actions waiting to be started, for new batches or for batches already in progress")
+                .tag("queue", "in-progress")
+                .register(registry);
+        Gauge.builder("submit.batches.in.progress", inProgressBatches, Collection::size)
+                .description("Batches that have been closed but not yet cleaned up")
+                .register(registry);
+        Gauge.builder("submit.offline.mode", offlineModeService, o -> o.isOfflineModeEnabled() ? 1 : 0)
+                .description("1 while offline mode is enabled and no actions are started, otherwise 0")
+                .register(registry);
+    }
+}
@@ -11,14 +11,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PreDestroy;
 import jakarta.jms.*;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.sqs.SqsClient;
-import software.amazon.awssdk.services.sqs.model.*;
 
 import gov.irs.directfile.models.TaxReturnIdAndSubmissionId;
+import gov.irs.directfile.models.message.BatchingSqsPublisher;
 import gov.irs.directfile.models.message.MessageHeaderAttribute;
+import gov.irs.directfile.models.message.PublisherException;
 import gov.irs.directfile.models.message.QueueMessageHeaders;
 import gov.irs.directfile.models.message.pending.PendingSubmissionMessageVersion;
 import gov.irs.directfile.models.message.pending.VersionedPendingSubmissionMessage;
@@ -36,7 +36,7 @@ public class SqsConnectionSetupService {
     private final String dispatchQueueDlq;
     private final String pendingSubmissionQueue;
     private final boolean isPendingSubmissionPublishEnabled;
-    private String pendingSubmissionQueueUrl = null;
+    private final BatchingSqsPublisher pendingSubmissionPublisher;
     private final ObjectMapper mapper = new ObjectMapper();
     private SQSConnection connection;
 
@@ -46,6 +46,7 @@ public class SqsConnectionSetupService {
         dispatchQueueDlq = messageQueueConfig.getDlqDispatchQueue();
         pendingSubmissionQueue = messageQueueConfig.getPendingSubmissionQueue();
         isPendingSubmissionPublishEnabled = messageQueueConfig.isPendingSubmissionPublishEnabled();
+        pendingSubmissionPublisher = new BatchingSqsPublisher(sqsClient, pendingSubmissionQueue);
     }
 
     public void setup(MessageListener messageListener) throws JMSException {
@@ -77,41 +78,15 @@ public class SqsConnectionSetupService {
                                             PendingSubmissionMessageVersion.V1.getVersion()));
 
             String jsonString = mapper.writeValueAsString(queueMessage);
-            enqueueListOfSubmissionAndTaxReturnIds(jsonString);
-        } catch (SqsException | JsonProcessingException e) {
+            pendingSubmissionPublisher.publish(jsonString);
+        } catch (PublisherException | JsonProcessingException e) {
             log.error("Error sending message to {}: {}", pendingSubmissionQueue, e.getMessage());
         }
     }
 
-    private void enqueueListOfSubmissionAndTaxReturnIds(String pendingSubmissionQueueMessage) {
-        if (StringUtils.isBlank(pendingSubmissionQueueUrl)) {
-            pendingSubmissionQueueUrl = getQueueUrl(pendingSubmissionQueue);
-        }
-
-        SendMessageRequest sendMsgRequest = SendMessageRequest.builder()
-                .queueUrl(pendingSubmissionQueueUrl)
-                .messageBody(pendingSubmissionQueueMessage)
-                .build();
-
-        SendMessageResponse sendMessageResponse = sqsClient.sendMessage(sendMsgRequest);
-        if (sendMessageResponse.sdkHttpResponse().isSuccessful()) {
-            log.info("Sent list of tax return ids and submission ids to SQS {}", pendingSubmissionQueue);
-        } else {
-            log.error(
-                    "SQS sendMessage request was unsuccessful. HTTP Status code: {}",
-                    sendMessageResponse.sdkHttpResponse().statusCode());
-        }
-    }
-
-    private String getQueueUrl(String queueName) {
-        GetQueueUrlResponse getQueueUrlResponse = sqsClient.getQueueUrl(
-                GetQueueUrlRequest.builder().queueName(queueName).build());
-
-        return getQueueUrlResponse.queueUrl();
-    }
-
     @PreDestroy
     private void cleanup() throws JMSException {
+        pendingSubmissionPublisher.close();
         if (connection != null) {
             connection.stop();
             log.info("SQS connection stopped");
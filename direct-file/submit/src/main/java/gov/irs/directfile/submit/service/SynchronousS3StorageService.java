@@ -3,13 +3,18 @@ package gov.irs.directfile.submit.service;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -32,18 +37,36 @@ import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreSer
         justification = "Initial SpotBugs Setup")
 @SuppressWarnings({"PMD.AvoidReassigningParameters", "PMD.MissingOverride"})
 public class SynchronousS3StorageService implements ISynchronousDocumentStoreService {
+    // Batch folders are named after unpadded batch ids, so a longer name is a later batch
+    private static final Comparator<String> FOLDER_ORDER =
+            Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder());
+
     private final S3EncryptionClient s3Client;
 
     private final String bucketName;
 
     private final String environmentPrefix;
 
+    private final Timer putObjectTimer;
+    private final Timer getObjectTimer;
+    private final Timer copyObjectTimer;
+    private final Timer deleteObjectsTimer;
+    private final Timer listObjectsTimer;
+
     @Autowired
     public SynchronousS3StorageService(
-            S3EncryptionClient s3Client, @Value("${submit.documentstore.bucket}") String bucketName, Config config) {
+            S3EncryptionClient s3Client,
+            @Value("${submit.documentstore.bucket}") String bucketName,
+            Config config,
+            MeterRegistry meterRegistry) {
         this.s3Client = s3Client;
         this.bucketName = bucketName;
         this.environmentPrefix = config.getDocumentStore().getEnvironmentPrefix();
+        this.putObjectTimer = s3Timer("putObject", meterRegistry);
+        this.getObjectTimer = s3Timer("getObject", meterRegistry);
+        this.copyObjectTimer = s3Timer("copyObject", meterRegistry);
+        this.deleteObjectsTimer = s3Timer("deleteObjects", meterRegistry);
+        this.listObjectsTimer = s3Timer("listObjectsV2", meterRegistry);
     }
 
     @Override
@@ -53,7 +76,8 @@ public class SynchronousS3StorageService implements ISynchronousDocumentStoreSer
         PutObjectRequest putObjectRequest =
                 PutObjectRequest.builder().bucket(bucketName).key(objectKey).build();
         RequestBody requestBody = RequestBody.fromBytes(IOUtils.toByteArray(payloadStream));
-        PutObjectResponse putObjectResponse = s3Client.putObject(putObjectRequest, requestBody);
+        PutObjectResponse putObjectResponse =
+                putObjectTimer.record(() -> s3Client.putObject(putObjectRequest, requestBody));
         return putObjectResponse.eTag();
     }
 
@@ -64,15 +88,25 @@ public class SynchronousS3StorageService implements ISynchronousDocumentStoreSer
         PutObjectRequest putObjectRequest =
                 PutObjectRequest.builder().bucket(bucketName).key(objectKey).build();
         RequestBody requestBody = RequestBody.fromString(content, StandardCharsets.UTF_8);
-        PutObjectResponse putObjectResponse = s3Client.putObject(putObjectRequest, requestBody);
+        PutObjectResponse putObjectResponse =
+                putObjectTimer.record(() -> s3Client.putObject(putObjectRequest, requestBody));
         return putObjectResponse.eTag();
     }
 
     @Override
     public List<DocumentStoreResource> getObjectKeys(String prefix) {
-        prefix = ensureEnvironmentPrefixExists(prefix);
-        String emptyContinuationToken = null;
-        return getObjectKeysRecursive(prefix, new ArrayList<>(), emptyContinuationToken);
+        return streamObjectKeyPages(prefix).flatMap(List::stream).toList();
+    }
+
+    @Override
+    public Stream<List<DocumentStoreResource>> streamObjectKeyPages(String prefix) {
+        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(ensureEnvironmentPrefixExists(prefix))
+                .build();
+        return listPages(listObjectsV2Request).map(response -> response.contents().stream()
+                .map(SynchronousS3StorageService::toDocumentStoreResource)
+                .toList());
     }
 
     @Override
@@ -84,86 +118,69 @@ public class SynchronousS3StorageService implements ISynchronousDocumentStoreSer
                 .bucket(bucketName)
                 .delete(Delete.builder().objects(identifiers).build())
                 .build();
-        s3Client.deleteObjects(deleteObjectsRequest);
-    }
-
-    private List<DocumentStoreResource> getObjectKeysRecursive(
-            String prefix, List<DocumentStoreResource> results, String continuationToken) {
-        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
-                .bucket(bucketName)
-                .prefix(prefix)
-                .continuationToken(continuationToken)
-                .build();
-        ListObjectsV2Response response = s3Client.listObjectsV2(listObjectsV2Request);
-
-        List<DocumentStoreResource> page = response.contents().stream()
-                .map(s3Object -> new DocumentStoreResource(s3Object.key(), s3Object.eTag(), s3Object.lastModified()))
-                .toList();
-        results.addAll(page);
-
-        if (response.isTruncated()) {
-            return getObjectKeysRecursive(prefix, results, response.nextContinuationToken());
-        } else {
-            return results;
-        }
+        deleteObjectsTimer.record(() -> s3Client.deleteObjects(deleteObjectsRequest));
     }
 
+    /**
+     * Returns the last sub folder of {@code prefix}, searching every page of the listing. Sub folders named after
+     * numbers, like batches, are ordered numerically.
+     */
     public Optional<String> getMostRecentFolderForPrefix(String prefix) {
-        prefix = ensureEnvironmentPrefixExists(prefix);
-
-        ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
-                .bucket(bucketName)
-                .prefix(prefix)
-                .delimiter("/")
-                .build();
-        ListObjectsV2Response response = s3Client.listObjectsV2(listObjectsV2Request);
-        return response.commonPrefixes().stream()
-                .map(CommonPrefix::prefix)
-                .sorted()
-                .max(Comparator.comparing(Function.identity()));
+        return streamSubFolders(prefix).max(FOLDER_ORDER);
     }
 
     public List<String> getSubFolders(String objectKey) {
-        objectKey = ensureEnvironmentPrefixExists(objectKey);
-
-        return getSubFoldersRecursive(objectKey, new ArrayList<>(), null);
+        return streamSubFolders(objectKey).toList();
     }
 
-    private List<String> getSubFoldersRecursive(String objectKey, List<String> results, String continuationToken) {
-        objectKey = ensureEnvironmentPrefixExists(objectKey);
+    @Override
+    public Stream<String> streamSubFolders(String objectKey) {
         ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
                 .bucket(bucketName)
-                .prefix(objectKey)
-                .continuationToken(continuationToken)
+                .prefix(ensureEnvironmentPrefixExists(objectKey))
                 .delimiter("/")
                 .build();
-
-        ListObjectsV2Response response = s3Client.listObjectsV2(listObjectsV2Request);
-
-        List<String> pageResults =
-                response.commonPrefixes().stream().map(CommonPrefix::prefix).toList();
-        results.addAll(pageResults);
-
-        if (response.isTruncated()) {
-            return getSubFoldersRecursive(objectKey, results, response.nextContinuationToken());
-        } else {
-            return results;
-        }
+        return listPages(listObjectsV2Request)
+                .flatMap(response -> response.commonPrefixes().stream())
+                .map(CommonPrefix::prefix);
     }
 
     public Optional<DocumentStoreResource> getLeastRecentModifiedResourceForPrefix(String objectKey) {
-        objectKey = ensureEnvironmentPrefixExists(objectKey);
         ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
                 .bucket(bucketName)
-                .prefix(objectKey)
+                .prefix(ensureEnvironmentPrefixExists(objectKey))
                 .delimiter("/")
                 .build();
+        return listPages(listObjectsV2Request)
+                .flatMap(response -> response.contents().stream())
+                .map(SynchronousS3StorageService::toDocumentStoreResource)
+                .min(Comparator.comparing(DocumentStoreResource::getLastModified));
+    }
 
-        ListObjectsV2Response response = s3Client.listObjectsV2(listObjectsV2Request);
+    /**
+     * Lists the pages of a listing as they are consumed, using the SDK paginator, so that a long listing is neither
+     * requested up front nor held in memory.
+     */
+    private Stream<ListObjectsV2Response> listPages(ListObjectsV2Request listObjectsV2Request) {
+        Iterator<ListObjectsV2Response> pages =
+                s3Client.listObjectsV2Paginator(listObjectsV2Request).iterator();
+        Iterator<ListObjectsV2Response> timedPages = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return pages.hasNext();
+            }
+
+            @Override
+            public ListObjectsV2Response next() {
+                // The paginator requests a page when it is taken, not when checking whether there is one
+                return listObjectsTimer.record(pages::next);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(timedPages, Spliterator.ORDERED), false);
+    }
 
-        return response.contents().stream()
-                .map(s3Object -> new DocumentStoreResource(s3Object.key(), s3Object.eTag(), s3Object.lastModified()))
-                .min(Comparator.comparing(DocumentStoreResource::getLastModified));
+    private static DocumentStoreResource toDocumentStoreResource(S3Object s3Object) {
+        return new DocumentStoreResource(s3Object.key(), s3Object.eTag(), s3Object.lastModified());
     }
 
     @Override
@@ -172,10 +189,18 @@ public class SynchronousS3StorageService implements ISynchronousDocumentStoreSer
         GetObjectRequest getObjectRequest =
                 GetObjectRequest.builder().bucket(bucketName).key(objectKey).build();
 
-        ResponseBytes<GetObjectResponse> getObjectResponse = s3Client.getObjectAsBytes(getObjectRequest);
+        ResponseBytes<GetObjectResponse> getObjectResponse =
+                getObjectTimer.record(() -> s3Client.getObjectAsBytes(getObjectRequest));
         return new String(getObjectResponse.asByteArray());
     }
 
+    private static Timer s3Timer(String operation, MeterRegistry meterRegistry) {
+        return Timer.builder("submit.s3.requests")
+                .description("Time taken by S3 requests, by operation")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
     private String ensureEnvironmentPrefixExists(String objectKey) {
         return StringUtils.prependIfMissing(objectKey, environmentPrefix);
     }
@@ -190,7 +215,23 @@ public class SynchronousS3StorageService implements ISynchronousDocumentStoreSer
                 .destinationBucket(bucketName)
                 .build();
 
-        s3Client.copyObject(copyObjectRequest);
+        copyObjectTimer.record(() -> s3Client.copyObject(copyObjectRequest));
+    }
+
+    /**
+     * Copies an object within the bucket without downloading it. The ciphertext and the encryption metadata are copied
+     * as is, so the copy decrypts like the original.
+     */
+    @Override
+    public void copyObject(String sourceKey, String destinationKey) {
+        CopyObjectRequest copyObjectRequest = CopyObjectRequest.builder()
+                .sourceBucket(bucketName)
+                .sourceKey(ensureEnvironmentPrefixExists(sourceKey))
+                .destinationKey(ensureEnvironmentPrefixExists(destinationKey))
+                .destinationBucket(bucketName)
+                .build();
+
+        copyObjectTimer.record(() -> s3Client.copyObject(copyObjectRequest));
     }
 
     @Override
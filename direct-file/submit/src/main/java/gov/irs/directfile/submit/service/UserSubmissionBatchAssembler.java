@@ -2,9 +2,10 @@ package gov.irs.directfile.submit.service;
 
 import java.time.Clock;
 import java.time.Year;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.Phaser;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -27,63 +28,133 @@ public class UserSubmissionBatchAssembler {
     private final String applicationId;
     private final UserSubmissionBatchProcessor userSubmissionBatchProcessor;
 
-    // Since the onTimeout() scheduled task runs in a separate thread from the rest
-    // of this service, we need to ensure atomic updates to the batch to avoid losing
-    // any submissions due to race conditions.
-    private final AtomicLong currentBatchId = new AtomicLong(0);
-    private final AtomicInteger currentBatchSize = new AtomicInteger(0);
+    // Submissions are copied into their batch outside of the lock, so that dispatch messages are not serialized
+    // behind the S3 round-trips. Only the open batch and its slots are updated under the lock; a closed batch is
+    // handed to the processor once every copy into it has finished, and only the copies that succeeded count.
+    private OpenBatch currentBatch = new OpenBatch(0);
     private final Clock clock;
 
+    private final DistributionSummary fullBatchSize;
+    private final DistributionSummary timedOutBatchSize;
+
     public UserSubmissionBatchAssembler(
             IBatchRepository batchRepository,
             BatchingProperties batchingProperties,
             @Value("${submit.application-id}") String applicationId,
             UserSubmissionBatchProcessor userSubmissionBatchProcessor,
-            Clock clock) {
+            Clock clock,
+            MeterRegistry meterRegistry) {
         this.batchRepository = batchRepository;
         this.batchingProperties = batchingProperties;
         this.applicationId = applicationId;
         this.userSubmissionBatchProcessor = userSubmissionBatchProcessor;
         this.clock = clock;
+        this.fullBatchSize = batchSizeSummary(meterRegistry, "full");
+        this.timedOutBatchSize = batchSizeSummary(meterRegistry, "timeout");
+    }
+
+    private static DistributionSummary batchSizeSummary(MeterRegistry meterRegistry, String closedBy) {
+        return DistributionSummary.builder("submit.batch.size")
+                .description("Submissions in each batch when it is closed, by whether it filled up or timed out")
+                .baseUnit("submissions")
+                .tag("closed.by", closedBy)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @PostConstruct
     public void setup() throws Exception {
-        currentBatchId.set(batchRepository.getCurrentWritingBatch(applicationId));
+        long currentBatchId = batchRepository.getCurrentWritingBatch(applicationId);
+        synchronized (this) {
+            currentBatch = new OpenBatch(currentBatchId);
+        }
     }
 
     @Scheduled(fixedRateString = "${submit.batching.batchTimeoutMilliseconds}")
     public void onTimeout() {
+        OpenBatch closedBatch;
         synchronized (this) {
-            submitBatchForProcessing(currentBatchId.get());
+            closedBatch = closeCurrentBatch();
         }
+        submitBatchForProcessing(closedBatch, timedOutBatchSize);
     }
 
-    private void submitBatchForProcessing(long batchId) {
-        if (currentBatchSize.get() > 0) {
-            userSubmissionBatchProcessor.processBatch(new SubmissionBatch(
-                    batchId,
-                    DocumentStorageBatchRepository.generateLocationForBatch(
-                            applicationId, batchId, getBatchControlYear())));
-            currentBatchId.incrementAndGet();
+    public void addSubmission(UserSubmission userSubmission) throws Exception {
+        OpenBatch batch;
+        OpenBatch closedBatch = null;
+        synchronized (this) {
+            batch = currentBatch;
+            batch.pendingCopies.register();
+            // The slot is held while the copy runs, so that a batch is closed once its copies could fill it
+            if (++batch.reservedSlots >= batchingProperties.getMaxBatchSize()) {
+                closedBatch = closeCurrentBatch();
+            }
+        }
+        boolean copied = false;
+        try {
+            batchRepository.addSubmission(new SubmissionBatch(batch.id, getBatchPath(batch.id)), userSubmission);
+            copied = true;
+        } finally {
+            synchronized (this) {
+                if (copied) {
+                    batch.size++;
+                } else {
+                    // Give the slot back, so that an open batch can still be filled
+                    batch.reservedSlots--;
+                }
+            }
+            batch.pendingCopies.arriveAndDeregister();
+            submitBatchForProcessing(closedBatch, fullBatchSize);
         }
-        currentBatchSize.set(0);
     }
 
-    public void addSubmission(UserSubmission userSubmission) throws Exception {
-        synchronized (this) {
-            long currentBatch = currentBatchId.get();
-            String batchPath = DocumentStorageBatchRepository.generateLocationForBatch(
-                    applicationId, currentBatch, getBatchControlYear());
-            batchRepository.addSubmission(new SubmissionBatch(currentBatch, batchPath), userSubmission);
+    // Must be called while holding the lock
+    private OpenBatch closeCurrentBatch() {
+        if (currentBatch.reservedSlots == 0) {
+            return null;
+        }
+        OpenBatch closedBatch = currentBatch;
+        currentBatch = new OpenBatch(closedBatch.id + 1);
+        return closedBatch;
+    }
 
-            if (currentBatchSize.incrementAndGet() >= batchingProperties.getMaxBatchSize()) {
-                submitBatchForProcessing(currentBatchId.get());
-            }
+    private void submitBatchForProcessing(OpenBatch closedBatch, DistributionSummary batchSize) {
+        if (closedBatch == null) {
+            return;
+        }
+        closedBatch.pendingCopies.arriveAndAwaitAdvance();
+        int size;
+        synchronized (this) {
+            size = closedBatch.size;
+        }
+        // Every copy into the batch failed, so there is nothing in it to process
+        if (size == 0) {
+            return;
         }
+        batchSize.record(size);
+        SubmissionBatch submissionBatch = new SubmissionBatch(closedBatch.id, getBatchPath(closedBatch.id));
+        userSubmissionBatchProcessor.processBatch(submissionBatch);
+    }
+
+    private String getBatchPath(long batchId) {
+        return DocumentStorageBatchRepository.generateLocationForBatch(applicationId, batchId, getBatchControlYear());
     }
 
     private int getBatchControlYear() {
         return Year.now(clock).getValue() - 1;
     }
+
+    private static final class OpenBatch {
+        private final long id;
+        // Copies that are running or have succeeded; a batch is full once these reach the maximum batch size
+        private int reservedSlots;
+        // Copies that have succeeded
+        private int size;
+        // The party registered here is the one that submits the batch; each copy into it registers for its duration
+        private final Phaser pendingCopies = new Phaser(1);
+
+        private OpenBatch(long id) {
+            this.id = id;
+        }
+    }
 }
@@ -11,6 +11,8 @@ import org.springframework.stereotype.Service;
 import gov.irs.directfile.submit.command.CreateArchiveAction;
 import gov.irs.directfile.submit.domain.ActionQueue;
 import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchState;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
 import gov.irs.directfile.submit.repository.interfaces.IBatchRepository;
 
 @Service
@@ -18,6 +20,7 @@ import gov.irs.directfile.submit.repository.interfaces.IBatchRepository;
 public class UserSubmissionBatchProcessor {
     private final ActionQueue actions;
     private final IBatchRepository batchRepository;
+    private final IBatchIndex batchIndex;
     private final String applicationId;
 
     private final OfflineModeService offlineModeService;
@@ -28,11 +31,13 @@ public class UserSubmissionBatchProcessor {
     public UserSubmissionBatchProcessor(
             ActionQueue actions,
             IBatchRepository batchRepository,
+            IBatchIndex batchIndex,
             @Value("${submit.application-id}") String applicationId,
             OfflineModeService offlineModeService,
             Set<SubmissionBatch> inProgressBatches) {
         this.actions = actions;
         this.batchRepository = batchRepository;
+        this.batchIndex = batchIndex;
         this.applicationId = applicationId;
         this.offlineModeService = offlineModeService;
         this.inProgressBatches = inProgressBatches;
@@ -68,6 +73,7 @@ public class UserSubmissionBatchProcessor {
             if (!inProgressBatches.contains(submissionBatch)) {
                 CreateArchiveAction createArchiveActionCommand = new CreateArchiveAction(submissionBatch);
                 log.info("Adding batch" + submissionBatch + "to action queue");
+                batchIndex.updateState(submissionBatch, SubmissionBatchState.CLOSED);
                 actions.getNewActions().add(createArchiveActionCommand);
                 inProgressBatches.add(submissionBatch);
             } else {
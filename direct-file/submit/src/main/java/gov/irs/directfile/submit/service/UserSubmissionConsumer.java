@@ -11,19 +11,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import gov.irs.directfile.audit.AuditLogElement;
+import gov.irs.directfile.models.message.QueueMessageDispatcher;
 import gov.irs.directfile.models.message.dispatch.VersionedDispatchMessage;
 import gov.irs.directfile.models.message.dispatch.payload.AbstractDispatchPayload;
 
 @Service
 @Slf4j
 public class UserSubmissionConsumer implements MessageListener {
-    private final DispatchMessageRouter dispatchMessageRouter;
-    private final ObjectMapper objectMapper;
+    private final QueueMessageDispatcher queueMessageDispatcher;
 
     @Autowired
     public UserSubmissionConsumer(DispatchMessageRouter dispatchMessageRouter, ObjectMapper objectMapper) {
-        this.dispatchMessageRouter = dispatchMessageRouter;
-        this.objectMapper = objectMapper;
+        this.queueMessageDispatcher = new QueueMessageDispatcher(objectMapper)
+                .on(
+                        new TypeReference<VersionedDispatchMessage<AbstractDispatchPayload>>() {},
+                        dispatchMessageRouter::handleDispatchMessage);
     }
 
     @Override
@@ -35,9 +37,7 @@ public class UserSubmissionConsumer implements MessageListener {
             log.info("onMessage called, tax-return-id: {}", taxReturnId);
 
             String rawText = ((TextMessage) message).getText();
-            VersionedDispatchMessage<AbstractDispatchPayload> versionedDispatchMessage =
-                    objectMapper.readValue(rawText, new TypeReference<>() {});
-            dispatchMessageRouter.handleDispatchMessage(versionedDispatchMessage);
+            queueMessageDispatcher.dispatch(rawText);
 
             message.acknowledge();
         } catch (Exception ex) {
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import gov.irs.directfile.submit.domain.DocumentStoreResource;
 
@@ -16,13 +17,24 @@ public interface ISynchronousDocumentStoreService extends IService {
 
     List<String> getSubFolders(String objectKey);
 
+    /** Like {@link #getSubFolders(String)}, but lists the sub folders page by page as the stream is consumed. */
+    Stream<String> streamSubFolders(String objectKey);
+
     Optional<DocumentStoreResource> getLeastRecentModifiedResourceForPrefix(String s);
 
     String getObjectAsString(String objectKey) throws IOException;
 
     List<DocumentStoreResource> getObjectKeys(String prefix);
 
+    /**
+     * Lists the objects under {@code prefix} one page at a time as the stream is consumed. A page holds at most 1,000
+     * objects, which is also the most {@link #deleteObjects(List)} takes at once.
+     */
+    Stream<List<DocumentStoreResource>> streamObjectKeyPages(String prefix);
+
     void deleteObjects(List<String> keys);
 
     void copyObject(DocumentStoreResource documentStoreResource, String destinationKey);
+
+    void copyObject(String sourceKey, String destinationKey);
 }
@@ -0,0 +1,94 @@
+package gov.irs.directfile.submit;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gov.irs.directfile.submit.command.ActionType;
+import gov.irs.directfile.submit.command.CleanupAction;
+import gov.irs.directfile.submit.command.CreateArchiveAction;
+import gov.irs.directfile.submit.domain.ActionQueue;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.service.ActionHandler;
+import gov.irs.directfile.submit.service.OfflineModeService;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class RunnerTest {
+    private final ActionQueue actions = new ActionQueue();
+    private final ActionHandler actionHandler = mock(ActionHandler.class);
+    private final OfflineModeService offlineModeService = new OfflineModeService();
+    private Runner runner;
+
+    @BeforeEach
+    public void setup() {
+        PipelineProperties pipelineProperties = new PipelineProperties(Map.of(ActionType.CREATE_ARCHIVE, 2), 1);
+        runner = new Runner(actions, actionHandler, offlineModeService, pipelineProperties);
+    }
+
+    @AfterEach
+    public void teardown() {
+        runner.teardown();
+    }
+
+    @Test
+    public void itHandlesActionsOfDifferentBatchesConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        doAnswer(invocation -> {
+                    bothStarted.countDown();
+                    return bothStarted.await(5, TimeUnit.SECONDS);
+                })
+                .when(actionHandler)
+                .handleAction(any());
+
+        actions.getNewActions().add(new CreateArchiveAction(new SubmissionBatch(0L, "batches/0")));
+        actions.getNewActions().add(new CreateArchiveAction(new SubmissionBatch(1L, "batches/1")));
+        runner.Start();
+
+        assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void itKeepsDispatchingOtherStagesWhileOneIsFull() throws Exception {
+        CountDownLatch releaseArchives = new CountDownLatch(1);
+        CountDownLatch cleanedUp = new CountDownLatch(1);
+        doAnswer(invocation -> releaseArchives.await(5, TimeUnit.SECONDS))
+                .when(actionHandler)
+                .handleAction(any(CreateArchiveAction.class));
+        doAnswer(invocation -> {
+                    cleanedUp.countDown();
+                    return null;
+                })
+                .when(actionHandler)
+                .handleAction(any(CleanupAction.class));
+
+        // Two workers and one queued action fill the archive stage, so the fourth archive has to wait
+        for (long batchId = 0; batchId < 4; batchId++) {
+            actions.getNewActions().add(new CreateArchiveAction(new SubmissionBatch(batchId, "batches/" + batchId)));
+        }
+        actions.getNewActions().add(new CleanupAction(new SubmissionBatch(4L, "batches/4")));
+        runner.Start();
+
+        assertTrue(cleanedUp.await(5, TimeUnit.SECONDS));
+        releaseArchives.countDown();
+        verify(actionHandler, timeout(5000).times(4)).handleAction(any(CreateArchiveAction.class));
+    }
+
+    @Test
+    public void itDoesNotHandleActionsInOfflineMode() throws Exception {
+        offlineModeService.enableOfflineMode();
+        actions.getNewActions().add(new CreateArchiveAction(new SubmissionBatch(0L, "batches/0")));
+        runner.Start();
+
+        verify(actionHandler, after(200).never()).handleAction(any());
+
+        offlineModeService.disableOfflineMode();
+        verify(actionHandler, timeout(5000)).handleAction(any());
+    }
+}
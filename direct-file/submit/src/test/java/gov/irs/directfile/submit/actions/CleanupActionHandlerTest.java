@@ -0,0 +1,54 @@
+package gov.irs.directfile.submit.actions;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import gov.irs.directfile.submit.domain.DocumentStoreResource;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreService;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CleanupActionHandlerTest {
+    @Mock
+    private ActionContext actionContext;
+
+    @Mock
+    private ISynchronousDocumentStoreService documentStoreService;
+
+    @Test
+    void cleanDocumentStore_deletesEachPageAsItIsListed() {
+        SubmissionBatch batch = new SubmissionBatch(0L, "batches/0/");
+        when(documentStoreService.streamObjectKeyPages(batch.path()))
+                .thenReturn(Stream.of(
+                        List.of(resource("batches/0/a/manifest.xml"), resource("batches/0/a/submission.xml")),
+                        List.of(resource("batches/0/b/manifest.xml"))));
+
+        new CleanupActionHandler(actionContext, documentStoreService).cleanDocumentStore(batch);
+
+        verify(documentStoreService).deleteObjects(List.of("batches/0/a/manifest.xml", "batches/0/a/submission.xml"));
+        verify(documentStoreService).deleteObjects(List.of("batches/0/b/manifest.xml"));
+    }
+
+    @Test
+    void cleanDocumentStore_doesNotSendEmptyDeletes() {
+        SubmissionBatch batch = new SubmissionBatch(0L, "batches/0/");
+        when(documentStoreService.streamObjectKeyPages(batch.path())).thenReturn(Stream.of(List.of()));
+
+        new CleanupActionHandler(actionContext, documentStoreService).cleanDocumentStore(batch);
+
+        verify(documentStoreService, never()).deleteObjects(anyList());
+    }
+
+    private static DocumentStoreResource resource(String key) {
+        return new DocumentStoreResource(key, "etag", Instant.EPOCH);
+    }
+}
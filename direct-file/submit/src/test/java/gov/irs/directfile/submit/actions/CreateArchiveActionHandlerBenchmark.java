@@ -0,0 +1,184 @@
+package gov.irs.directfile.submit.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import gov.irs.mef.inputcomposition.PostmarkedSubmissionArchive;
+import gov.irs.mef.inputcomposition.SubmissionArchive;
+import gov.irs.mef.inputcomposition.SubmissionBuilder;
+
+import gov.irs.directfile.audit.events.TinType;
+import gov.irs.directfile.submit.actions.results.CreateArchiveActionResult;
+import gov.irs.directfile.submit.command.CreateArchiveAction;
+import gov.irs.directfile.submit.config.Config;
+import gov.irs.directfile.submit.config.DirectoriesConfig;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.domain.UserContextData;
+import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.InMemoryBatchIndex;
+import gov.irs.directfile.submit.mocks.MutableTestClock;
+
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Measures {@link CreateArchiveActionHandler#handleCommand} for a 100 return batch with the S3 downloads done one at a
+ * time ({@code fetchConcurrency} 1) and concurrently. Every download waits {@code s3LatencyMillis} to stand in for the
+ * S3 round trip. The MeF toolkit is stubbed, so the numbers cover the downloads and everything the handler does around
+ * the toolkit. The stubbed toolkit still writes each archive to the batch directory, as a zip of the submission's
+ * documents, so that the disk writes the toolkit makes are measured too.
+ *
+ * <p>Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=gov.irs.directfile.submit.actions.CreateArchiveActionHandlerBenchmark}, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CreateArchiveActionHandlerBenchmark {
+    private static final int BATCH_SIZE = 100;
+    private static final String BATCH_PATH = "pre-submission-batching/application-id/2024/0/";
+    // Roughly the size of a return with a few W-2s
+    private static final String SUBMISSION_XML = "<Return>" + "<IRSW2>W2</IRSW2>".repeat(4000) + "</Return>";
+    private static final String MANIFEST_XML = "<IRSSubmissionManifest/>";
+
+    @Param({"1", "16"})
+    public int fetchConcurrency;
+
+    @Param({"0", "20"})
+    public long s3LatencyMillis;
+
+    private CreateArchiveActionHandler handler;
+    private Path workingDirectory;
+    // Static mocks only apply on the thread that creates them, which is the benchmark thread for trial setup
+    private MockedStatic<SubmissionBuilder> submissionBuilder;
+    private final SubmissionBatch batch = new SubmissionBatch(0L, BATCH_PATH);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        workingDirectory = Files.createTempDirectory("create-archive-benchmark");
+        String directory = workingDirectory.toString();
+        ActionContext actionContext = new ActionContext(new Config(
+                "Test",
+                null,
+                null,
+                new DirectoriesConfig(directory, directory, directory, directory, directory, directory),
+                null,
+                null,
+                "12345",
+                "12345",
+                "12345",
+                "",
+                false,
+                true,
+                true,
+                "12345",
+                "12345678",
+                "2023.0.1",
+                "application-id"));
+
+        FakeSynchronousDocumentStorageService storageService = new FakeSynchronousDocumentStorageService() {
+            @Override
+            public String getObjectAsString(String objectKey) throws IOException {
+                try {
+                    Thread.sleep(s3LatencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getObjectAsString(objectKey);
+            }
+        };
+        ObjectMapper objectMapper = new ObjectMapper();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String submissionId = UUID.randomUUID().toString();
+            String submissionPath = BATCH_PATH + submissionId + "/";
+            UserContextData userContext = new UserContextData(
+                    submissionId,
+                    UUID.randomUUID().toString(),
+                    UUID.randomUUID().toString(),
+                    "123456789",
+                    TinType.INDIVIDUAL,
+                    "0.0.0.0",
+                    "2024-01-01");
+            storageService.write(submissionPath + "userContext.json", objectMapper.writeValueAsString(userContext));
+            storageService.write(submissionPath + "submission.xml", SUBMISSION_XML);
+            storageService.write(submissionPath + "manifest.xml", MANIFEST_XML);
+        }
+        handler = new CreateArchiveActionHandler(
+                actionContext, storageService, new InMemoryBatchIndex(new MutableTestClock()), fetchConcurrency);
+
+        SubmissionArchive archive = Mockito.mock(SubmissionArchive.class);
+        submissionBuilder = Mockito.mockStatic(SubmissionBuilder.class);
+        submissionBuilder
+                .when(() -> SubmissionBuilder.createIRSSubmissionArchive(any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    writeArchive(invocation.getArgument(4), invocation.getArgument(0));
+                    return archive;
+                });
+        submissionBuilder
+                .when(() -> SubmissionBuilder.createPostmarkedSubmissionArchive(any(), any()))
+                .thenReturn(Mockito.mock(PostmarkedSubmissionArchive.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws IOException {
+        submissionBuilder.close();
+        try (var paths = Files.walk(workingDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public CreateArchiveActionResult handleCommand() throws ActionException {
+        return handler.handleCommand(new CreateArchiveAction(batch));
+    }
+
+    // Writes the archive the way the toolkit lays it out, as <submission id>.zip in the batch directory
+    private static void writeArchive(String toBatchDirectory, String submissionId) throws IOException {
+        Path archivePath = Path.of(toBatchDirectory, submissionId + ".zip");
+        try (ZipOutputStream archive = new ZipOutputStream(Files.newOutputStream(archivePath))) {
+            archive.putNextEntry(new ZipEntry("manifest/manifest.xml"));
+            archive.write(MANIFEST_XML.getBytes(StandardCharsets.UTF_8));
+            archive.closeEntry();
+            archive.putNextEntry(new ZipEntry("xml/submission.xml"));
+            archive.write(SUBMISSION_XML.getBytes(StandardCharsets.UTF_8));
+            archive.closeEntry();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                        .include(CreateArchiveActionHandlerBenchmark.class.getSimpleName())
+                        .build())
+                .run();
+    }
+}
@@ -0,0 +1,190 @@
+package gov.irs.directfile.submit.actions;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+import org.mockito.Mockito;
+
+import gov.irs.mef.inputcomposition.PostmarkedSubmissionArchive;
+import gov.irs.mef.inputcomposition.SubmissionArchive;
+import gov.irs.mef.inputcomposition.SubmissionBuilder;
+
+import gov.irs.directfile.audit.events.TinType;
+import gov.irs.directfile.submit.actions.exception.CreateArchiveActionException;
+import gov.irs.directfile.submit.actions.results.CreateArchiveActionResult;
+import gov.irs.directfile.submit.command.CreateArchiveAction;
+import gov.irs.directfile.submit.config.Config;
+import gov.irs.directfile.submit.config.DirectoriesConfig;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.domain.UserContextData;
+import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.InMemoryBatchIndex;
+import gov.irs.directfile.submit.mocks.MutableTestClock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+class CreateArchiveActionHandlerTest {
+    private static final String APPLICATION_ID = "application-id";
+    private static final String BATCH_PATH = "pre-submission-batching/application-id/2024/0/";
+    private static final List<String> SUBMISSION_IDS = List.of("00001", "00002", "00003", "00004");
+
+    @TempDir
+    Path workingDirectory;
+
+    private final SubmissionBatch batch = new SubmissionBatch(0L, BATCH_PATH);
+    private final InMemoryBatchIndex batchIndex = new InMemoryBatchIndex(new MutableTestClock());
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockedStatic<SubmissionBuilder> submissionBuilder;
+
+    @BeforeEach
+    void setup() {
+        submissionBuilder = Mockito.mockStatic(SubmissionBuilder.class);
+        submissionBuilder
+                .when(() -> SubmissionBuilder.createIRSSubmissionArchive(any(), any(), any(), any(), any()))
+                .thenReturn(Mockito.mock(SubmissionArchive.class));
+        submissionBuilder
+                .when(() -> SubmissionBuilder.createPostmarkedSubmissionArchive(any(), any()))
+                .thenReturn(Mockito.mock(PostmarkedSubmissionArchive.class));
+    }
+
+    @AfterEach
+    void teardown() {
+        submissionBuilder.close();
+    }
+
+    @Test
+    void handleCommand_createsTheArchivesInBatchOrderWhileDownloadingConcurrently() throws Exception {
+        AtomicInteger downloading = new AtomicInteger();
+        AtomicInteger mostDownloading = new AtomicInteger();
+        List<String> batchOrder = new ArrayList<>();
+        FakeSynchronousDocumentStorageService storageService = new FakeSynchronousDocumentStorageService() {
+            @Override
+            public String getObjectAsString(String objectKey) throws IOException {
+                mostDownloading.accumulateAndGet(downloading.incrementAndGet(), Math::max);
+                try {
+                    // Later submissions download faster, so they arrive before the ones ahead of them
+                    Thread.sleep(10L * (batchOrder.size() - batchOrder.indexOf(submissionIdOf(objectKey))));
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                } finally {
+                    downloading.decrementAndGet();
+                }
+                return super.getObjectAsString(objectKey);
+            }
+        };
+        batchOrder.addAll(writeSubmissions(storageService));
+
+        CreateArchiveActionResult result = handler(storageService, 2).handleCommand(new CreateArchiveAction(batch));
+
+        assertEquals(
+                batchOrder,
+                result.getSubmissionArchiveContainers().stream()
+                        .map(container -> container.UserContext.getSubmissionId())
+                        .toList());
+        assertTrue(mostDownloading.get() <= 2, "At most fetchConcurrency downloads run at once");
+    }
+
+    @Test
+    @Timeout(value = 10, unit = TimeUnit.SECONDS)
+    void handleCommand_whenADownloadFails_stopsTheRestOfTheBatchBeforeThrowing() throws Exception {
+        CountDownLatch othersDownloading = new CountDownLatch(SUBMISSION_IDS.size() - 1);
+        AtomicInteger downloading = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+        List<String> batchOrder = new ArrayList<>();
+        FakeSynchronousDocumentStorageService storageService = new FakeSynchronousDocumentStorageService() {
+            @Override
+            public String getObjectAsString(String objectKey) throws IOException {
+                downloading.incrementAndGet();
+                try {
+                    // The first submission of the batch fails once the others are downloading
+                    if (submissionIdOf(objectKey).equals(batchOrder.get(0))) {
+                        othersDownloading.await();
+                        throw new IOException("S3 is unavailable");
+                    }
+                    othersDownloading.countDown();
+                    // Hangs until the handler gives up on the batch
+                    new CountDownLatch(1).await();
+                    return super.getObjectAsString(objectKey);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    throw new InterruptedIOException();
+                } finally {
+                    downloading.decrementAndGet();
+                }
+            }
+        };
+        batchOrder.addAll(writeSubmissions(storageService));
+        CreateArchiveActionHandler handler = handler(storageService, SUBMISSION_IDS.size());
+
+        CreateArchiveActionException exception = assertThrows(
+                CreateArchiveActionException.class, () -> handler.handleCommand(new CreateArchiveAction(batch)));
+
+        assertEquals("S3 is unavailable", exception.getCause().getMessage());
+        assertEquals(SUBMISSION_IDS.size() - 1, interrupted.get());
+        assertEquals(0, downloading.get(), "No download outlives the batch");
+        submissionBuilder.verifyNoInteractions();
+    }
+
+    private CreateArchiveActionHandler handler(
+            FakeSynchronousDocumentStorageService storageService, int fetchConcurrency) {
+        String directory = workingDirectory.toString();
+        ActionContext actionContext = new ActionContext(new Config(
+                "Test",
+                null,
+                null,
+                new DirectoriesConfig(directory, directory, directory, directory, directory, directory),
+                null,
+                null,
+                "12345",
+                "12345",
+                "12345",
+                "",
+                false,
+                true,
+                true,
+                "12345",
+                "12345678",
+                "2023.0.1",
+                APPLICATION_ID));
+        return new CreateArchiveActionHandler(actionContext, storageService, batchIndex, fetchConcurrency);
+    }
+
+    // Returns the submission ids in the order the batch index lists them, which is the order of the archives
+    private List<String> writeSubmissions(FakeSynchronousDocumentStorageService storageService) throws IOException {
+        for (String submissionId : SUBMISSION_IDS) {
+            String submissionPath = BATCH_PATH + submissionId + "/";
+            UserContextData userContext = new UserContextData(
+                    submissionId,
+                    UUID.randomUUID().toString(),
+                    UUID.randomUUID().toString(),
+                    "123456789",
+                    TinType.INDIVIDUAL,
+                    "0.0.0.0",
+                    "2024-01-01");
+            storageService.write(submissionPath + "userContext.json", objectMapper.writeValueAsString(userContext));
+            storageService.write(submissionPath + "submission.xml", "<Return/>");
+            storageService.write(submissionPath + "manifest.xml", "<IRSSubmissionManifest/>");
+            batchIndex.recordSubmission(APPLICATION_ID, 2024, batch, submissionId, false);
+        }
+        return batchIndex.findSubmissionIds(batch);
+    }
+
+    private static String submissionIdOf(String objectKey) {
+        return objectKey.substring(BATCH_PATH.length(), objectKey.indexOf('/', BATCH_PATH.length()));
+    }
+}
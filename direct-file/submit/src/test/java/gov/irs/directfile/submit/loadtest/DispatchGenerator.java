@@ -0,0 +1,154 @@
+package gov.irs.directfile.submit.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.sqs.SqsClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import gov.irs.directfile.audit.events.TinType;
+import gov.irs.directfile.models.Dispatch;
+import gov.irs.directfile.models.message.MessageHeaderAttribute;
+import gov.irs.directfile.models.message.QueueMessageHeaders;
+import gov.irs.directfile.models.message.dispatch.DispatchMessageVersion;
+import gov.irs.directfile.models.message.dispatch.VersionedDispatchMessage;
+import gov.irs.directfile.models.message.dispatch.payload.AbstractDispatchPayload;
+import gov.irs.directfile.models.message.dispatch.payload.DispatchPayloadV1;
+import gov.irs.directfile.submit.domain.UserContextData;
+import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreService;
+
+/**
+ * Stands in for the backend: writes the documents of synthetic returns to S3 and sends their dispatch messages at a
+ * fixed rate. The manifest and submission XML are shared by every return, and each return gets its own user context.
+ */
+@Slf4j
+public class DispatchGenerator {
+    private static final String DEFAULT_MANIFEST = "<IRSSubmissionManifest/>";
+    // Roughly the size of a return with a few W-2s
+    private static final String DEFAULT_SUBMISSION = "<Return>" + "<IRSW2>W2</IRSW2>".repeat(4000) + "</Return>";
+
+    private final SqsClient sqsClient;
+    private final String dispatchQueue;
+    private final ISynchronousDocumentStoreService documentStore;
+    private final StageLatencies latencies;
+    private final String submissionIdPrefix;
+    private final String runPrefix = "load-test/" + UUID.randomUUID() + "/";
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong submissionCounter = new AtomicLong();
+
+    public DispatchGenerator(
+            SqsClient sqsClient,
+            String dispatchQueue,
+            ISynchronousDocumentStoreService documentStore,
+            StageLatencies latencies,
+            String efin) {
+        this.sqsClient = sqsClient;
+        this.dispatchQueue = dispatchQueue;
+        this.documentStore = documentStore;
+        this.latencies = latencies;
+        // A MeF submission id is the EFIN, the date as ccyyddd, and 7 lowercase alphanumerics
+        this.submissionIdPrefix = efin + LocalDate.now().format(DateTimeFormatter.ofPattern("uuuuDDD"));
+    }
+
+    /**
+     * Writes the shared documents, taken from {@code documentsDirectory} when it has a manifest.xml and a
+     * submission.xml, and otherwise made up.
+     */
+    public void writeDocuments(String documentsDirectory) throws IOException {
+        String manifest = DEFAULT_MANIFEST;
+        String submission = DEFAULT_SUBMISSION;
+        if (documentsDirectory != null && !documentsDirectory.isBlank()) {
+            manifest = Files.readString(Path.of(documentsDirectory, "manifest.xml"));
+            submission = Files.readString(Path.of(documentsDirectory, "submission.xml"));
+        }
+        documentStore.write(runPrefix + "manifest.xml", manifest);
+        documentStore.write(runPrefix + "submission.xml", submission);
+    }
+
+    /** Sends {@code ratePerSecond} dispatch messages a second for {@code duration}, and returns how many it sent. */
+    public int run(double ratePerSecond, Duration duration) throws InterruptedException {
+        String queueUrl = sqsClient
+                .getQueueUrl(GetQueueUrlRequest.builder().queueName(dispatchQueue).build())
+                .queueUrl();
+        long periodNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+
+        // Sends run on their own threads, so that a slow S3 write or SQS call doesn't lower the rate
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+            ticker.scheduleAtFixedRate(
+                    () -> senders.execute(() -> send(queueUrl)), 0, periodNanos, TimeUnit.NANOSECONDS);
+            Thread.sleep(duration);
+            ticker.shutdown();
+            ticker.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        return latencies.sentCount();
+    }
+
+    private void send(String queueUrl) {
+        try {
+            UUID taxReturnId = UUID.randomUUID();
+            UUID userId = UUID.randomUUID();
+            String submissionId = submissionIdPrefix + nextSubmissionSuffix();
+            String userContextPath = runPrefix + taxReturnId + "/userContext.json";
+            documentStore.write(userContextPath, userContext(submissionId, userId, taxReturnId));
+
+            Dispatch dispatch = new Dispatch(
+                    userId,
+                    taxReturnId,
+                    runPrefix + "manifest.xml",
+                    userContextPath,
+                    runPrefix + "submission.xml",
+                    submissionId);
+            VersionedDispatchMessage<AbstractDispatchPayload> message = new VersionedDispatchMessage<>(
+                    new DispatchPayloadV1(dispatch),
+                    new QueueMessageHeaders()
+                            .addHeader(MessageHeaderAttribute.VERSION, DispatchMessageVersion.V1.getVersion()));
+
+            latencies.recordSent(taxReturnId.toString());
+            sqsClient.sendMessage(SendMessageRequest.builder()
+                    .queueUrl(queueUrl)
+                    .messageAttributes(Map.of(
+                            "TAX-RETURN-ID",
+                            MessageAttributeValue.builder()
+                                    .dataType("String")
+                                    .stringValue(taxReturnId.toString())
+                                    .build()))
+                    .messageBody(mapper.writeValueAsString(message))
+                    .build());
+        } catch (Exception e) {
+            log.error("Failed to send a dispatch message", e);
+        }
+    }
+
+    private String nextSubmissionSuffix() {
+        String suffix = Long.toString(submissionCounter.getAndIncrement(), Character.MAX_RADIX);
+        return "0".repeat(7 - suffix.length()) + suffix;
+    }
+
+    private String userContext(String submissionId, UUID userId, UUID taxReturnId) throws JsonProcessingException {
+        return mapper.writeValueAsString(new UserContextData(
+                submissionId,
+                userId.toString(),
+                taxReturnId.toString(),
+                "123456789",
+                TinType.INDIVIDUAL,
+                "127.0.0.1",
+                LocalDate.now().toString()));
+    }
+}
@@ -0,0 +1,64 @@
+package gov.irs.directfile.submit.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * How long the fake MeF takes to answer a bundle, in milliseconds. Parsed from one of
+ *
+ * <ul>
+ *   <li>{@code fixed:<millis>}
+ *   <li>{@code uniform:<min>-<max>}
+ *   <li>{@code lognormal:<median>,<p99>}, the usual shape of a remote service's response times
+ * </ul>
+ */
+public final class LatencyDistribution implements LongSupplier {
+    // The 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263;
+
+    private final String spec;
+    private final LongSupplier sampler;
+
+    private LatencyDistribution(String spec, LongSupplier sampler) {
+        this.spec = spec;
+        this.sampler = sampler;
+    }
+
+    public static LatencyDistribution parse(String spec) {
+        String[] kindAndArguments = spec.trim().split(":", 2);
+        if (kindAndArguments.length != 2) {
+            throw new IllegalArgumentException("Expected <kind>:<arguments> but got " + spec);
+        }
+        String arguments = kindAndArguments[1];
+        switch (kindAndArguments[0]) {
+            case "fixed" -> {
+                long millis = Long.parseLong(arguments);
+                return new LatencyDistribution(spec, () -> millis);
+            }
+            case "uniform" -> {
+                String[] bounds = arguments.split("-");
+                long min = Long.parseLong(bounds[0]);
+                long max = Long.parseLong(bounds[1]);
+                return new LatencyDistribution(spec, () -> ThreadLocalRandom.current().nextLong(min, max + 1));
+            }
+            case "lognormal" -> {
+                String[] percentiles = arguments.split(",");
+                double mu = Math.log(Double.parseDouble(percentiles[0]));
+                double sigma = (Math.log(Double.parseDouble(percentiles[1])) - mu) / Z_99;
+                return new LatencyDistribution(
+                        spec, () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian())));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution " + spec);
+        }
+    }
+
+    @Override
+    public long getAsLong() {
+        return sampler.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,24 @@
+package gov.irs.directfile.submit.loadtest;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import gov.irs.directfile.submit.actions.ActionContext;
+import gov.irs.directfile.submit.config.Config;
+import gov.irs.directfile.submit.service.PerformanceTestingBundleSubmissionActionHandler;
+import gov.irs.directfile.submit.service.interfaces.IBundleSubmissionActionHandler;
+
+@TestConfiguration
+public class LoadTestConfiguration {
+
+    /** Tell Spring to answer bundles with the fake MeF, which takes {@code loadtest.mef-latency} to respond. */
+    @Bean
+    @Primary
+    IBundleSubmissionActionHandler loadTestBundleSubmissionActionHandler(
+            Config config, ActionContext actionContext, @Value("${loadtest.mef-latency}") String mefLatency) {
+        return new PerformanceTestingBundleSubmissionActionHandler(
+                config, actionContext, LatencyDistribution.parse(mefLatency));
+    }
+}
@@ -0,0 +1,138 @@
+package gov.irs.directfile.submit.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the latencies of every return that goes through the submit app during a load test, per pipeline stage,
+ * and the throughput of the whole run.
+ */
+public class StageLatencies {
+    public enum Stage {
+        /** From sending the dispatch message until the consumer receives it */
+        CONSUME,
+        /** Copying the documents of a submission into its batch */
+        S3,
+        /** The CREATE_ARCHIVE action of a batch */
+        ARCHIVE,
+        /** The BUNDLE_ARCHIVE action of a batch */
+        BUNDLE,
+        /** The SUBMIT_BUNDLE action of a batch, which includes MeF and publishing the confirmations */
+        SUBMIT,
+        /** Publishing the submission confirmations of a batch */
+        CONFIRM,
+        /** From sending the dispatch message until its submission confirmation is published */
+        END_TO_END
+    }
+
+    private final Map<Stage, Recorder> recorders = new EnumMap<>(Stage.class);
+    private final Map<String, Long> sentAtNanos = new ConcurrentHashMap<>();
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger confirmed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong firstSentAtNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastConfirmedAtNanos = new AtomicLong();
+
+    public StageLatencies() {
+        for (Stage stage : Stage.values()) {
+            recorders.put(stage, new Recorder());
+        }
+    }
+
+    public void recordSent(String taxReturnId) {
+        long now = System.nanoTime();
+        sentAtNanos.put(taxReturnId, now);
+        firstSentAtNanos.accumulateAndGet(now, Math::min);
+        sent.incrementAndGet();
+    }
+
+    public void recordConsumed(String taxReturnId) {
+        Long sentAt = sentAtNanos.get(taxReturnId);
+        if (sentAt != null) {
+            record(Stage.CONSUME, System.nanoTime() - sentAt);
+        }
+    }
+
+    public void recordConfirmed(String taxReturnId, boolean submitted) {
+        Long sentAt = sentAtNanos.remove(taxReturnId);
+        if (sentAt == null) {
+            // Not one of ours, e.g. left on the queue by an earlier run
+            return;
+        }
+        long now = System.nanoTime();
+        record(Stage.END_TO_END, now - sentAt);
+        lastConfirmedAtNanos.accumulateAndGet(now, Math::max);
+        confirmed.incrementAndGet();
+        if (!submitted) {
+            failed.incrementAndGet();
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        recorders.get(stage).add(nanos);
+    }
+
+    public int sentCount() {
+        return sent.get();
+    }
+
+    public int confirmedCount() {
+        return confirmed.get();
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(
+                "%d returns sent, %d confirmed (%d failed), %d outstanding%n",
+                sent.get(), confirmed.get(), failed.get(), sentAtNanos.size()));
+        if (confirmed.get() > 0) {
+            double seconds = (lastConfirmedAtNanos.get() - firstSentAtNanos.get()) / 1e9;
+            report.append(String.format("Throughput: %.2f returns per second%n", confirmed.get() / seconds));
+        }
+        report.append(String.format(
+                "%-12s %8s %10s %10s %10s %10s%n", "stage", "count", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Stage stage : Stage.values()) {
+            long[] sorted = recorders.get(stage).sorted();
+            report.append(String.format(
+                    "%-12s %8d %10d %10d %10d %10d%n",
+                    stage.name().toLowerCase(),
+                    sorted.length,
+                    percentileMillis(sorted, 0.50),
+                    percentileMillis(sorted, 0.90),
+                    percentileMillis(sorted, 0.99),
+                    percentileMillis(sorted, 1.0)));
+        }
+        return report.toString();
+    }
+
+    private static long percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+
+    private static final class Recorder {
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
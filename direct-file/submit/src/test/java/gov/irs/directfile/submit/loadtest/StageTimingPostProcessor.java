@@ -0,0 +1,106 @@
+package gov.irs.directfile.submit.loadtest;
+
+import java.util.List;
+
+import jakarta.jms.Message;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import gov.irs.directfile.models.message.confirmation.payload.SubmissionConfirmationPayloadV2Entry;
+import gov.irs.directfile.models.message.event.SubmissionEventTypeEnum;
+import gov.irs.directfile.submit.command.Action;
+import gov.irs.directfile.submit.loadtest.StageLatencies.Stage;
+import gov.irs.directfile.submit.repository.interfaces.IBatchRepository;
+import gov.irs.directfile.submit.service.ActionHandler;
+import gov.irs.directfile.submit.service.SubmissionConfirmationMessageService;
+import gov.irs.directfile.submit.service.UserSubmissionConsumer;
+
+/**
+ * Wraps the beans at the boundaries of each pipeline stage in proxies that time them, so that the load test measures
+ * the submit app as it runs in production without changing it.
+ */
+public class StageTimingPostProcessor implements BeanPostProcessor {
+    private final StageLatencies latencies;
+
+    public StageTimingPostProcessor(StageLatencies latencies) {
+        this.latencies = latencies;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof UserSubmissionConsumer) {
+            return proxy(bean, invocation -> {
+                if (invocation.getMethod().getName().equals("onMessage")) {
+                    Message message = (Message) invocation.getArguments()[0];
+                    latencies.recordConsumed(message.getStringProperty("TAX-RETURN-ID"));
+                }
+                return invocation.proceed();
+            });
+        }
+        if (bean instanceof IBatchRepository) {
+            return proxy(bean, invocation -> {
+                if (!invocation.getMethod().getName().equals("addSubmission")) {
+                    return invocation.proceed();
+                }
+                long start = System.nanoTime();
+                try {
+                    return invocation.proceed();
+                } finally {
+                    latencies.record(Stage.S3, System.nanoTime() - start);
+                }
+            });
+        }
+        if (bean instanceof ActionHandler) {
+            return proxy(bean, invocation -> {
+                Stage stage = invocation.getMethod().getName().equals("handleAction")
+                        ? stageOf((Action) invocation.getArguments()[0])
+                        : null;
+                long start = System.nanoTime();
+                try {
+                    return invocation.proceed();
+                } finally {
+                    if (stage != null) {
+                        latencies.record(stage, System.nanoTime() - start);
+                    }
+                }
+            });
+        }
+        if (bean instanceof SubmissionConfirmationMessageService) {
+            return proxy(bean, invocation -> {
+                if (!invocation.getMethod().getName().equals("publishSubmissionConfirmationPayloadV2")) {
+                    return invocation.proceed();
+                }
+                long start = System.nanoTime();
+                Object result = invocation.proceed();
+                latencies.record(Stage.CONFIRM, System.nanoTime() - start);
+                @SuppressWarnings("unchecked")
+                List<SubmissionConfirmationPayloadV2Entry> entries =
+                        (List<SubmissionConfirmationPayloadV2Entry>) invocation.getArguments()[0];
+                for (SubmissionConfirmationPayloadV2Entry entry : entries) {
+                    latencies.recordConfirmed(
+                            entry.getTaxReturnSubmissionReceipt().getTaxReturnId().toString(),
+                            entry.getEventType() == SubmissionEventTypeEnum.SUBMITTED);
+                }
+                return result;
+            });
+        }
+        return bean;
+    }
+
+    private static Stage stageOf(Action action) {
+        return switch (action.getType()) {
+            case CREATE_ARCHIVE -> Stage.ARCHIVE;
+            case BUNDLE_ARCHIVE -> Stage.BUNDLE;
+            case SUBMIT_BUNDLE -> Stage.SUBMIT;
+            default -> null;
+        };
+    }
+
+    private static Object proxy(Object bean, MethodInterceptor interceptor) {
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+}
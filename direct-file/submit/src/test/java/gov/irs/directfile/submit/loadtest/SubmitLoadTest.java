@@ -0,0 +1,80 @@
+package gov.irs.directfile.submit.loadtest;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import software.amazon.awssdk.services.sqs.SqsClient;
+
+import gov.irs.directfile.submit.BatchingProperties;
+import gov.irs.directfile.submit.MefSessionProperties;
+import gov.irs.directfile.submit.PipelineProperties;
+import gov.irs.directfile.submit.SubmitApplication;
+import gov.irs.directfile.submit.config.Config;
+import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreService;
+
+/**
+ * Runs the whole submit app against the local S3 and SQS in localstack, with MeF replaced by a fake whose response
+ * time follows {@code loadtest.mef-latency}. Dispatch messages for synthetic returns are sent at {@code loadtest.rate}
+ * a second for {@code loadtest.duration-seconds}, and once every return is confirmed the throughput and the latency
+ * percentiles of each pipeline stage are printed. See application-load-test.yaml for the settings.
+ *
+ * <p>Start the database and localstack as for running the app locally, then run with {@code mvn test-compile exec:java
+ * -Dexec.classpathScope=test -Dexec.mainClass=gov.irs.directfile.submit.loadtest.SubmitLoadTest
+ * -Dexec.args="--loadtest.rate=20 --submit.batching.batchSize=50"}, or from the IDE.
+ */
+@Slf4j
+public class SubmitLoadTest {
+    private static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(10);
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        StageLatencies latencies = new StageLatencies();
+        SpringApplication application = new SpringApplication(SubmitApplication.class, LoadTestConfiguration.class);
+        application.setAdditionalProfiles("load-test");
+        application.addInitializers(
+                applicationContext -> applicationContext
+                        .getBeanFactory()
+                        .addBeanPostProcessor(new StageTimingPostProcessor(latencies)));
+        ConfigurableApplicationContext context = application.run(args);
+
+        Environment environment = context.getEnvironment();
+        double rate = environment.getRequiredProperty("loadtest.rate", Double.class);
+        Duration duration =
+                Duration.ofSeconds(environment.getRequiredProperty("loadtest.duration-seconds", Long.class));
+        Duration drainTimeout =
+                Duration.ofSeconds(environment.getRequiredProperty("loadtest.drain-timeout-seconds", Long.class));
+
+        Config config = context.getBean(Config.class);
+        DispatchGenerator generator = new DispatchGenerator(
+                context.getBean(SqsClient.class),
+                config.getMessageQueue().getDispatchQueue(),
+                context.getBean(ISynchronousDocumentStoreService.class),
+                latencies,
+                config.getEfin());
+        generator.writeDocuments(environment.getProperty("loadtest.documents-dir"));
+
+        log.info("Sending {} dispatch messages a second for {}", rate, duration);
+        int sent = generator.run(rate, duration);
+
+        Instant drainDeadline = Instant.now().plus(drainTimeout);
+        while (latencies.confirmedCount() < sent && Instant.now().isBefore(drainDeadline)) {
+            log.info("Waiting for {} of {} returns to be confirmed", sent - latencies.confirmedCount(), sent);
+            Thread.sleep(PROGRESS_INTERVAL);
+        }
+
+        System.out.printf(
+                "%nSubmit load test: %s dispatch messages a second for %s, MeF latency %s%n%s%n%s%n%s%n%n%s",
+                rate,
+                duration,
+                environment.getProperty("loadtest.mef-latency"),
+                context.getBean(BatchingProperties.class),
+                context.getBean(PipelineProperties.class),
+                context.getBean(MefSessionProperties.class),
+                latencies.report());
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -9,15 +9,19 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import gov.irs.directfile.submit.config.Config;
 import gov.irs.directfile.submit.domain.DocumentStoreResource;
 import gov.irs.directfile.submit.service.interfaces.ISynchronousDocumentStoreService;
 
 public class FakeSynchronousDocumentStorageService implements ISynchronousDocumentStoreService {
-    Map<String, String> prefixToContent = new HashMap<>();
-    Map<String, String> prefixToUniqueId = new HashMap<>();
-    Map<String, Instant> prefixToLastModified = new HashMap<>();
+    private static final int PAGE_SIZE = 1000;
+
+    Map<String, String> prefixToContent = Collections.synchronizedMap(new HashMap<>());
+    Map<String, String> prefixToUniqueId = Collections.synchronizedMap(new HashMap<>());
+    Map<String, Instant> prefixToLastModified = Collections.synchronizedMap(new HashMap<>());
     // Get time since the current clock
     private final Clock clock;
     private final Instant initializationTime = Instant.now();
@@ -89,10 +93,16 @@ public class FakeSynchronousDocumentStorageService implements ISynchronousDocume
         return result;
     }
 
+    @Override
+    public Stream<String> streamSubFolders(String objectKey) {
+        return getSubFolders(objectKey).stream();
+    }
+
     @Override
     public Optional<DocumentStoreResource> getLeastRecentModifiedResourceForPrefix(String s) {
+        // Like S3 listing with a "/" delimiter, only objects directly under the prefix are considered
         List<String> result = prefixToContent.keySet().stream()
-                .filter(key -> key.startsWith(s))
+                .filter(key -> key.startsWith(s) && !key.substring(s.length()).contains("/"))
                 .toList();
 
         return result.stream()
@@ -113,6 +123,13 @@ public class FakeSynchronousDocumentStorageService implements ISynchronousDocume
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Stream<List<DocumentStoreResource>> streamObjectKeyPages(String prefix) {
+        List<DocumentStoreResource> objects = getObjectKeys(prefix);
+        return IntStream.range(0, (objects.size() + PAGE_SIZE - 1) / PAGE_SIZE)
+                .mapToObj(page -> objects.subList(page * PAGE_SIZE, Math.min((page + 1) * PAGE_SIZE, objects.size())));
+    }
+
     @Override
     public void Setup(Config config) throws Throwable {
         // Does nothing
@@ -130,6 +147,11 @@ public class FakeSynchronousDocumentStorageService implements ISynchronousDocume
         write(destinationKey, contents);
     }
 
+    @Override
+    public void copyObject(String sourceKey, String destinationKey) {
+        write(destinationKey, prefixToContent.get(sourceKey));
+    }
+
     @Override
     public void deleteObjects(List<String> keys) {
         for (String key : keys) {
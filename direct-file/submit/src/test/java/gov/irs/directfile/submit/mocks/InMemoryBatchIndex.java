@@ -0,0 +1,89 @@
+package gov.irs.directfile.submit.mocks;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchRecord;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchState;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
+
+public class InMemoryBatchIndex implements IBatchIndex {
+    private final Map<String, SubmissionBatchRecord> pathToRecord = Collections.synchronizedMap(new HashMap<>());
+    private final Clock clock;
+
+    public InMemoryBatchIndex(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<SubmissionBatchRecord> findLatestBatch(String applicationId, int batchControlYear) {
+        return records(applicationId, batchControlYear, false).reduce((first, second) -> second);
+    }
+
+    @Override
+    public List<SubmissionBatch> findUnfinishedBatches(
+            String applicationId, int batchControlYear, boolean errorBatches) {
+        return records(applicationId, batchControlYear, errorBatches)
+                .filter(record -> record.getState() != SubmissionBatchState.COMPLETED)
+                .map(record -> new SubmissionBatch(record.getBatchId(), record.getPath()))
+                .toList();
+    }
+
+    @Override
+    public List<String> findSubmissionIds(SubmissionBatch batch) {
+        SubmissionBatchRecord record = pathToRecord.get(batch.path());
+        return record == null ? List.of() : List.copyOf(record.getSubmissionIds());
+    }
+
+    @Override
+    public synchronized void recordSubmission(
+            String applicationId,
+            int batchControlYear,
+            SubmissionBatch batch,
+            String submissionId,
+            boolean errorBatch) {
+        pathToRecord
+                .computeIfAbsent(
+                        batch.path(),
+                        path -> SubmissionBatchRecord.open(
+                                applicationId, batchControlYear, batch.batchId(), path, errorBatch, clock.instant()))
+                .addSubmission(submissionId);
+    }
+
+    @Override
+    public synchronized void importBatch(
+            String applicationId,
+            int batchControlYear,
+            SubmissionBatch batch,
+            List<String> submissionIds,
+            boolean errorBatch,
+            Instant createdAt) {
+        SubmissionBatchRecord record = pathToRecord.computeIfAbsent(
+                batch.path(),
+                path -> SubmissionBatchRecord.open(
+                        applicationId, batchControlYear, batch.batchId(), path, errorBatch, createdAt));
+        submissionIds.forEach(record::addSubmission);
+    }
+
+    @Override
+    public synchronized void updateState(SubmissionBatch batch, SubmissionBatchState state) {
+        SubmissionBatchRecord record = pathToRecord.get(batch.path());
+        if (record != null) {
+            record.transitionTo(state, clock.instant());
+        }
+    }
+
+    private Stream<SubmissionBatchRecord> records(
+            String applicationId, int batchControlYear, boolean errorBatches) {
+        synchronized (pathToRecord) {
+            return List.copyOf(pathToRecord.values()).stream()
+                    .filter(record -> record.getApplicationId().equals(applicationId)
+                            && record.getBatchControlYear() == batchControlYear
+                            && record.isErrorBatch() == errorBatches)
+                    .sorted(Comparator.comparingLong(SubmissionBatchRecord::getBatchId));
+        }
+    }
+}
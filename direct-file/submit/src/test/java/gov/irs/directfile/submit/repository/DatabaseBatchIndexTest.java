@@ -0,0 +1,250 @@
+package gov.irs.directfile.submit.repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import gov.irs.directfile.submit.BatchingProperties;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchRecord;
+import gov.irs.directfile.submit.domain.model.SubmissionBatchState;
+import gov.irs.directfile.submit.domain.storagelocations.StorageLocationBuilder;
+import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.MutableTestClock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class DatabaseBatchIndexTest {
+    private static final String APPLICATION_ID = "application-id-123";
+    // The batch control year is the year before the clock's
+    private static final int BATCH_CONTROL_YEAR = 2049;
+
+    @Autowired
+    SubmissionBatchRecordRepository submissionBatchRecordRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private MutableTestClock clock;
+    private DatabaseBatchIndex batchIndex;
+
+    @BeforeEach
+    public void setup() {
+        clock = new MutableTestClock(LocalDateTime.of(2050, 11, 5, 14, 1).toInstant(ZoneOffset.UTC), ZoneId.of("UTC"));
+        batchIndex = new DatabaseBatchIndex(
+                submissionBatchRecordRepository, new TransactionTemplate(transactionManager), clock);
+    }
+
+    @Test
+    public void itOpensABatchWithItsFirstSubmissionAndAddsTheRest() {
+        SubmissionBatch batch = batch(0);
+        Instant openedAt = clock.instant();
+
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch, "00001", false);
+        clock.fastForward(Duration.ofMinutes(1));
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch, "00002", false);
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch, "00002", false);
+
+        SubmissionBatchRecord record =
+                batchIndex.findLatestBatch(APPLICATION_ID, BATCH_CONTROL_YEAR).orElseThrow();
+        assertEquals(0L, record.getBatchId());
+        assertEquals(batch.path(), record.getPath());
+        assertEquals(SubmissionBatchState.OPEN, record.getState());
+        assertEquals(openedAt, record.getCreatedAt());
+        assertEquals(2, record.getSubmissionCount());
+        assertEquals(Set.of("00001", "00002"), Set.copyOf(batchIndex.findSubmissionIds(batch)));
+    }
+
+    @Test
+    // Each thread has to commit for the others to run into its rows
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void itCountsEachSubmissionOnceWhenRecordedConcurrently() throws Exception {
+        SubmissionBatch batch = batch(0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> recorded = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                String submissionId = "0000" + (i % 4);
+                recorded.add(executor.submit(() ->
+                        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch, submissionId, false)));
+            }
+            for (Future<?> future : recorded) {
+                future.get();
+            }
+
+            SubmissionBatchRecord record =
+                    submissionBatchRecordRepository.findByPath(batch.path()).orElseThrow();
+            assertEquals(4, record.getSubmissionCount());
+            assertEquals(Set.of("00000", "00001", "00002", "00003"), Set.copyOf(batchIndex.findSubmissionIds(batch)));
+        } finally {
+            executor.shutdownNow();
+            submissionBatchRecordRepository.deleteAll();
+        }
+    }
+
+    @Test
+    public void itFindsTheLatestBatchWithoutCountingErrorBatches() {
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch(0), "00001", false);
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch(1), "00002", false);
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, errorBatch(0, 2), "00001", true);
+
+        assertEquals(
+                1L,
+                batchIndex
+                        .findLatestBatch(APPLICATION_ID, BATCH_CONTROL_YEAR)
+                        .orElseThrow()
+                        .getBatchId());
+        assertTrue(batchIndex
+                .findLatestBatch(APPLICATION_ID, BATCH_CONTROL_YEAR + 1)
+                .isEmpty());
+    }
+
+    @Test
+    public void itRecordsWhenASubmittedBatchReachesEachState() {
+        SubmissionBatch batch = batch(0);
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch, "00001", false);
+
+        Instant closedAt = moveTo(batch, SubmissionBatchState.CLOSED);
+        Instant submittedAt = moveTo(batch, SubmissionBatchState.SUBMITTED);
+        Instant completedAt = moveTo(batch, SubmissionBatchState.COMPLETED);
+
+        SubmissionBatchRecord record =
+                submissionBatchRecordRepository.findByPath(batch.path()).orElseThrow();
+        assertEquals(SubmissionBatchState.COMPLETED, record.getState());
+        assertEquals(closedAt, record.getClosedAt());
+        assertEquals(submittedAt, record.getSubmittedAt());
+        assertNull(record.getFailedAt());
+        assertEquals(completedAt, record.getCompletedAt());
+    }
+
+    @Test
+    public void itRecordsWhenAFailedBatchReachesEachState() {
+        SubmissionBatch batch = batch(0);
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch, "00001", false);
+
+        Instant closedAt = moveTo(batch, SubmissionBatchState.CLOSED);
+        Instant failedAt = moveTo(batch, SubmissionBatchState.FAILED);
+        Instant completedAt = moveTo(batch, SubmissionBatchState.COMPLETED);
+
+        SubmissionBatchRecord record =
+                submissionBatchRecordRepository.findByPath(batch.path()).orElseThrow();
+        assertEquals(SubmissionBatchState.COMPLETED, record.getState());
+        assertEquals(closedAt, record.getClosedAt());
+        assertNull(record.getSubmittedAt());
+        assertEquals(failedAt, record.getFailedAt());
+        assertEquals(completedAt, record.getCompletedAt());
+    }
+
+    @Test
+    public void itFindsTheBatchesThatAreNotCompletedInBatchIdOrder() {
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch(2), "00003", false);
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch(0), "00001", false);
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, batch(1), "00002", false);
+        batchIndex.recordSubmission(APPLICATION_ID, BATCH_CONTROL_YEAR, errorBatch(0, 2), "00001", true);
+        batchIndex.updateState(batch(1), SubmissionBatchState.COMPLETED);
+
+        assertEquals(
+                List.of(batch(0), batch(2)),
+                batchIndex.findUnfinishedBatches(APPLICATION_ID, BATCH_CONTROL_YEAR, false));
+        assertEquals(
+                List.of(errorBatch(0, 2)), batchIndex.findUnfinishedBatches(APPLICATION_ID, BATCH_CONTROL_YEAR, true));
+    }
+
+    @Test
+    public void itIgnoresStateChangesOfBatchesNotInTheIndex() {
+        batchIndex.updateState(batch(0), SubmissionBatchState.CLOSED);
+
+        assertTrue(submissionBatchRecordRepository.findByPath(batch(0).path()).isEmpty());
+    }
+
+    @Test
+    public void itImportsTheBatchesInStorageOnceWithTheirAgeInStorage() {
+        FakeSynchronousDocumentStorageService documentStorageService = new FakeSynchronousDocumentStorageService(clock);
+        DocumentStorageBatchRepository batchRepository = new DocumentStorageBatchRepository(
+                documentStorageService,
+                batchIndex,
+                APPLICATION_ID,
+                BatchingProperties.builder()
+                        .maxBatchSize(5)
+                        .batchTimeoutMilliseconds(Duration.ofHours(2).toMillis())
+                        .build(),
+                clock);
+        writeSubmission(documentStorageService, batch(0), "00001");
+        writeSubmission(documentStorageService, batch(0), "00002");
+        writeSubmission(documentStorageService, errorBatch(0, 2), "00001");
+        Instant batchWrittenAt = documentStorageService
+                .getLeastRecentModifiedResourceForPrefix(batch(0).path() + "00001/")
+                .orElseThrow()
+                .getLastModified();
+        // Objects are listed only directly under a prefix, so the batch itself has none
+        assertTrue(documentStorageService
+                .getLeastRecentModifiedResourceForPrefix(batch(0).path())
+                .isEmpty());
+        clock.fastForward(Duration.ofHours(1));
+
+        assertEquals(0L, batchRepository.getCurrentWritingBatch(APPLICATION_ID));
+
+        SubmissionBatchRecord imported =
+                submissionBatchRecordRepository.findByPath(batch(0).path()).orElseThrow();
+        assertEquals(batchWrittenAt, imported.getCreatedAt());
+        assertEquals(Set.of("00001", "00002"), imported.getSubmissionIds());
+        assertFalse(imported.isErrorBatch());
+        SubmissionBatchRecord importedErrorBatch = submissionBatchRecordRepository
+                .findByPath(errorBatch(0, 2).path())
+                .orElseThrow();
+        assertEquals(Set.of("00001"), importedErrorBatch.getSubmissionIds());
+        assertTrue(importedErrorBatch.isErrorBatch());
+
+        // Once the index has the batch, storage is no longer read and the batch ages from its time in storage
+        documentStorageService.clear();
+        clock.fastForward(Duration.ofHours(1).plusMinutes(1));
+        assertEquals(1L, batchRepository.getCurrentWritingBatch(APPLICATION_ID));
+        assertEquals(2, submissionBatchRecordRepository.count());
+    }
+
+    // Moves the batch to state a minute after its last change and returns when it did
+    private Instant moveTo(SubmissionBatch batch, SubmissionBatchState state) {
+        clock.fastForward(Duration.ofMinutes(1));
+        batchIndex.updateState(batch, state);
+        return clock.instant();
+    }
+
+    private static SubmissionBatch batch(long batchId) {
+        return new SubmissionBatch(
+                batchId,
+                DocumentStorageBatchRepository.generateLocationForBatch(APPLICATION_ID, batchId, BATCH_CONTROL_YEAR));
+    }
+
+    private static SubmissionBatch errorBatch(long originalBatchId, long node) {
+        return new SubmissionBatch(
+                node,
+                StorageLocationBuilder.getErrorFolderLocation(APPLICATION_ID, BATCH_CONTROL_YEAR) + originalBatchId
+                        + "/" + node + "/");
+    }
+
+    private static void writeSubmission(
+            FakeSynchronousDocumentStorageService documentStorageService, SubmissionBatch batch, String submissionId) {
+        String submissionPath = batch.path() + submissionId + "/";
+        documentStorageService.write(submissionPath + "manifest.xml", "<IRSSubmissionManifest/>");
+        documentStorageService.write(submissionPath + "submission.xml", "<Return/>");
+        documentStorageService.write(submissionPath + "userContext.json", "{}");
+    }
+}
@@ -2,6 +2,7 @@ package gov.irs.directfile.submit.service;
 
 import java.util.*;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -24,6 +25,8 @@ import gov.irs.mef.services.ServiceContext;
 
 import gov.irs.directfile.audit.events.TinType;
 import gov.irs.directfile.models.message.confirmation.payload.SubmissionConfirmationPayloadV2Entry;
+import gov.irs.directfile.submit.MefSessionProperties;
+import gov.irs.directfile.submit.PipelineProperties;
 import gov.irs.directfile.submit.Runner;
 import gov.irs.directfile.submit.actions.ActionContext;
 import gov.irs.directfile.submit.actions.BundleArchivesActionHandler;
@@ -42,6 +45,7 @@ import gov.irs.directfile.submit.domain.model.PodIdentifier;
 import gov.irs.directfile.submit.exception.LoginFailureException;
 import gov.irs.directfile.submit.exception.LogoutFailureException;
 import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.InMemoryBatchIndex;
 import gov.irs.directfile.submit.mocks.MutableTestClock;
 import gov.irs.directfile.submit.repository.PodIdentifierRepository;
 import gov.irs.directfile.submit.service.interfaces.IBundleSubmissionActionHandler;
@@ -95,26 +99,38 @@ public class ActionHandlerTest {
 
     private ISynchronousDocumentStoreService synchronousDocumentStoreService;
 
+    private SimpleMeterRegistry meterRegistry;
+
     @BeforeEach
     public void setup() {
         synchronousDocumentStoreService = new FakeSynchronousDocumentStorageService();
+        MutableTestClock clock = new MutableTestClock();
+        InMemoryBatchIndex batchIndex = new InMemoryBatchIndex(clock);
         ActionContext actionContext = new ActionContext(createConfig());
         offlineModeService = new OfflineModeService();
+        meterRegistry = new SimpleMeterRegistry();
         actionHandler = new ActionHandler(
                 sqsConnectionSetupService,
                 submissionConfirmationMessageService,
                 actions,
                 actionContext,
-                bundleSubmissionService,
+                // Logs out after every bundle, so a failed logout is seen by the bundle that caused it
+                new MefSessionManager(
+                        bundleSubmissionService,
+                        MefSessionProperties.loginPerBundle(),
+                        new SimpleMeterRegistry(),
+                        clock),
                 offlineModeService,
                 inProgressSubmissions,
                 new BundleArchivesActionHandler(actionContext),
                 new CleanupActionHandler(actionContext, synchronousDocumentStoreService),
-                new CreateArchiveActionHandler(actionContext, synchronousDocumentStoreService),
+                new CreateArchiveActionHandler(actionContext, synchronousDocumentStoreService, batchIndex, 4),
                 new DocumentStorageSubmissionFailureService(
-                        synchronousDocumentStoreService, applicationId, new MutableTestClock()),
-                podIdentifierRepository);
-        runner = new Runner(actions, actionHandler, offlineModeService);
+                        synchronousDocumentStoreService, batchIndex, applicationId, clock),
+                podIdentifierRepository,
+                batchIndex,
+                meterRegistry);
+        runner = new Runner(actions, actionHandler, offlineModeService, PipelineProperties.singleWorkerPerStage());
     }
 
     @Test
@@ -253,6 +269,43 @@ public class ActionHandlerTest {
         verify(submissionConfirmationMessageService, never()).publishSubmissionConfirmationPayloadV2(any());
     }
 
+    @Test
+    public void itRecordsActionTimeAndBundleSizeWhenSubmissionSucceeds() throws Exception {
+        SubmissionBatch batch = new SubmissionBatch(0L, "env/batches/0");
+        UserContextData userContextData = new UserContextData(
+                "submissionId",
+                "userId",
+                UUID.randomUUID().toString(),
+                "userTin",
+                TinType.INDIVIDUAL,
+                "0.0.0",
+                "2024-01-01");
+        BundledArchives bundledArchives = new BundledArchives(List.of(userContextData), null);
+        SubmitBundleAction submitBundleAction =
+                new SubmitBundleAction(new BundleArchivesActionResult(batch, bundledArchives));
+        when(bundleSubmissionService.handleCommand(any()))
+                .thenReturn(new SubmittedDataContainer(
+                        bundledArchives.UserContexts, new SendSubmissionsResultWrapper(List.of()), batch));
+
+        actionHandler.handleAction(submitBundleAction);
+
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("submit.actions")
+                        .tag("type", ActionType.SUBMIT_BUNDLE.name())
+                        .timer()
+                        .count());
+        assertEquals(
+                0,
+                meterRegistry
+                        .get("submit.actions")
+                        .tag("type", ActionType.CREATE_ARCHIVE.name())
+                        .timer()
+                        .count());
+        assertEquals(1, meterRegistry.get("submit.bundle.size").summary().totalAmount());
+    }
+
     @Test
     public void itEnablesOfflineModeWhenSubmissionFailsAndMefIsOffline() throws Exception {
         // Arrange: Create a SubmitBundleAction, only add one submission for the batch
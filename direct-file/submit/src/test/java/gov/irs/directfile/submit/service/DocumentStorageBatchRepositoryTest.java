@@ -21,6 +21,7 @@ import gov.irs.directfile.submit.domain.SubmissionData;
 import gov.irs.directfile.submit.domain.UserContextData;
 import gov.irs.directfile.submit.domain.UserSubmission;
 import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.InMemoryBatchIndex;
 import gov.irs.directfile.submit.mocks.MutableTestClock;
 import gov.irs.directfile.submit.repository.DocumentStorageBatchRepository;
 
@@ -65,7 +66,11 @@ public class DocumentStorageBatchRepositoryTest {
         testClock = new MutableTestClock(instant, ZoneId.of("UTC"));
         documentStorageService = new FakeSynchronousDocumentStorageService(testClock);
         subject = new DocumentStorageBatchRepository(
-                documentStorageService, APPLICATION_ID, batchingProperties, testClock);
+                documentStorageService,
+                new InMemoryBatchIndex(testClock),
+                APPLICATION_ID,
+                batchingProperties,
+                testClock);
     }
 
     @AfterEach
@@ -3,6 +3,7 @@ package gov.irs.directfile.submit.service;
 import java.time.Clock;
 import java.time.Year;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
@@ -13,6 +14,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import gov.irs.directfile.submit.domain.SubmissionBatch;
 import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.InMemoryBatchIndex;
 import gov.irs.directfile.submit.mocks.MutableTestClock;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -24,11 +26,12 @@ public class DocumentStorageSubmissionFailureServiceTest {
     DocumentStorageSubmissionFailureService subject;
     FakeSynchronousDocumentStorageService fakeSynchronousDocumentStorageService =
             new FakeSynchronousDocumentStorageService();
+    InMemoryBatchIndex batchIndex = new InMemoryBatchIndex(clock);
 
     @BeforeEach
     public void setup() {
         subject = new DocumentStorageSubmissionFailureService(
-                fakeSynchronousDocumentStorageService, APPLICATION_ID, clock);
+                fakeSynchronousDocumentStorageService, batchIndex, APPLICATION_ID, clock);
     }
 
     @AfterEach
@@ -50,23 +53,23 @@ public class DocumentStorageSubmissionFailureServiceTest {
         // 2. Call the process error batch
         subject.processFailedBatch(batch);
 
-        // 3. We treat each submission as an individual batch. Validate all the files exist at a new error path for the
-        // 0th item of the batch
+        // 3. The batch is split in half. Validate all the files exist at a new error path for the first half, which is
+        // node 2 of the split tree
         String errorPath = "pre-submission-batching/errors/APPLICATION_ID/" + batchControlYear + "/" + batch.batchId()
-                + "/" + 0 + "/" + submissionId + "/";
+                + "/" + 2 + "/" + submissionId + "/";
         List<String> errorFolders = fakeSynchronousDocumentStorageService.getSubFolders(errorPath);
 
         Assertions.assertEquals(1, errorFolders.size());
         Assertions.assertEquals(errorPath, errorFolders.get(0));
 
         // Validate that we created files at the new error file paths. We know there is one item in this batch, so it
-        // will be the 0th error batch of the original batch with batch id 10
+        // will be in the first half of the original batch with batch id 10
         String submissionXmlErrorPath = String.format(
-                "pre-submission-batching/errors/APPLICATION_ID/%s/10/0/subId-ABC/submission.xml", batchControlYear);
+                "pre-submission-batching/errors/APPLICATION_ID/%s/10/2/subId-ABC/submission.xml", batchControlYear);
         String manifestXmlErrorPath = String.format(
-                "pre-submission-batching/errors/APPLICATION_ID/%s/10/0/subId-ABC/manifest.xml", batchControlYear);
+                "pre-submission-batching/errors/APPLICATION_ID/%s/10/2/subId-ABC/manifest.xml", batchControlYear);
         String userContextJsonErrorPath = String.format(
-                "pre-submission-batching/errors/APPLICATION_ID/%s/10/0/subId-ABC/userContext.json", batchControlYear);
+                "pre-submission-batching/errors/APPLICATION_ID/%s/10/2/subId-ABC/userContext.json", batchControlYear);
 
         assertNotNull(fakeSynchronousDocumentStorageService.getObjectAsString(submissionXmlErrorPath));
         assertNotNull(fakeSynchronousDocumentStorageService.getObjectAsString(manifestXmlErrorPath));
@@ -74,7 +77,7 @@ public class DocumentStorageSubmissionFailureServiceTest {
     }
 
     @Test
-    public void itCopiesEachSubmissionIntoAnErrorPathWithAUniqueBatchId() {
+    public void itSplitsAFailedBatchIntoTwoHalves() {
         // 1. Add a batch with some paths to the fake synchronous store
         int batchControlYear = Year.now(clock).getValue() - 1;
         long batchId = 10L;
@@ -91,12 +94,42 @@ public class DocumentStorageSubmissionFailureServiceTest {
         // 2. Call the process error batch
         subject.processFailedBatch(batch);
 
-        // 3. Because we'll treat each submission as an individual batch, we expect to find 3 subfolders for the path.
+        // 3. Expect one error batch for each half, nodes 2 and 3 of the split tree
         String errorPath = String.format(
                 "pre-submission-batching/errors/%s/%s/%s/", APPLICATION_ID, batchControlYear, batch.batchId());
         List<String> errorFolders = fakeSynchronousDocumentStorageService.getSubFolders(errorPath);
+        Assertions.assertEquals(2, errorFolders.size());
+
+        SubmissionBatch firstHalf = new SubmissionBatch(2L, errorPath + "2/");
+        SubmissionBatch secondHalf = new SubmissionBatch(3L, errorPath + "3/");
+        Assertions.assertEquals(
+                List.of(firstHalf, secondHalf),
+                batchIndex.findUnfinishedBatches(APPLICATION_ID, batchControlYear, true));
+        Assertions.assertEquals(
+                Set.of("subId-ABC", "subId-DEF"), Set.copyOf(batchIndex.findSubmissionIds(firstHalf)));
+        Assertions.assertEquals(List.of("subId-GHI"), batchIndex.findSubmissionIds(secondHalf));
+    }
 
-        Assertions.assertEquals(3, errorFolders.size());
+    @Test
+    public void itSplitsAFailedErrorBatchWithinTheTreeOfItsOriginalBatch() throws Exception {
+        // 1. Add an error batch holding the first half of batch 10
+        int batchControlYear = Year.now(clock).getValue() - 1;
+        String errorPath =
+                String.format("pre-submission-batching/errors/%s/%s/%s/", APPLICATION_ID, batchControlYear, 10L);
+        SubmissionBatch errorBatch = new SubmissionBatch(2L, errorPath + "2/");
+        addFakeSubmission(errorBatch.path(), "subId-ABC");
+        addFakeSubmission(errorBatch.path(), "subId-DEF");
+
+        // 2. Call the process error batch
+        subject.processFailedBatch(errorBatch);
+
+        // 3. Expect the halves of node 2 to be nodes 4 and 5, next to it under the same original batch
+        Assertions.assertEquals(
+                List.of("subId-ABC"), batchIndex.findSubmissionIds(new SubmissionBatch(4L, errorPath + "4/")));
+        Assertions.assertEquals(
+                List.of("subId-DEF"), batchIndex.findSubmissionIds(new SubmissionBatch(5L, errorPath + "5/")));
+        assertNotNull(fakeSynchronousDocumentStorageService.getObjectAsString(
+                errorPath + "4/subId-ABC/submission.xml"));
     }
 
     private void addFakeSubmission(String batchObjectKey, String submissionId) {
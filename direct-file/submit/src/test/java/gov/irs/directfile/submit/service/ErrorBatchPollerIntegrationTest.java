@@ -16,6 +16,7 @@ import gov.irs.directfile.submit.config.DirectoriesConfig;
 import gov.irs.directfile.submit.domain.ActionQueue;
 import gov.irs.directfile.submit.domain.SubmissionBatch;
 import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.InMemoryBatchIndex;
 import gov.irs.directfile.submit.mocks.MutableTestClock;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +32,7 @@ public class ErrorBatchPollerIntegrationTest {
     ErrorBatchPoller errorBatchPoller;
     FakeSynchronousDocumentStorageService fakeSynchronousDocumentStorageService =
             new FakeSynchronousDocumentStorageService();
+    InMemoryBatchIndex batchIndex = new InMemoryBatchIndex(sharedClock);
 
     private Config createConfig() {
         boolean runnerDisabledForTesting = false;
@@ -76,11 +78,9 @@ public class ErrorBatchPollerIntegrationTest {
     @BeforeEach
     public void setup() {
         submissionFailureService = new DocumentStorageSubmissionFailureService(
-                fakeSynchronousDocumentStorageService, APPLICATION_ID, sharedClock);
+                fakeSynchronousDocumentStorageService, batchIndex, APPLICATION_ID, sharedClock);
         errorBatchPoller = new ErrorBatchPoller(
-                actions,
-                fakeSynchronousDocumentStorageService,
-                APPLICATION_ID,
+                actions, batchIndex, APPLICATION_ID,
                 inProgresssBatches,
                 context,
                 sharedClock);
@@ -110,22 +110,22 @@ public class ErrorBatchPollerIntegrationTest {
 
         SubmissionBatch batch = new SubmissionBatch(batchId, submissionBatchObjectKey);
 
-        // 2. Call the process error batch, to create an inditivual batch for each submission
+        // 2. Call the process error batch, to split the batch into error batches
         submissionFailureService.processFailedBatch(batch);
 
-        // 3. Because we'll treat each submission as an individual batch, we expect to find 3 subfolders for the path.
+        // 3. Because the failed batch is split in half, we expect to find 2 subfolders for the path.
         String errorPath = String.format(
                 "pre-submission-batching/errors/%s/%s/%s/", APPLICATION_ID, batchControlYear, batch.batchId());
         List<String> errorFolders = fakeSynchronousDocumentStorageService.getSubFolders(errorPath);
 
-        Assertions.assertEquals(3, errorFolders.size());
+        Assertions.assertEquals(2, errorFolders.size());
 
         // 4. Call ErrorBatchPoller.poll()
         errorBatchPoller.poll();
 
-        // 5. Expect 3 actions were put onto the queue, one for each submission in the batch
-        Assertions.assertEquals(3, actions.getNewActions().size());
-        Assertions.assertEquals(3, inProgresssBatches.size());
+        // 5. Expect 2 actions were put onto the queue, one for each half of the batch
+        Assertions.assertEquals(2, actions.getNewActions().size());
+        Assertions.assertEquals(2, inProgresssBatches.size());
     }
 
     @Test
@@ -144,24 +144,24 @@ public class ErrorBatchPollerIntegrationTest {
 
         SubmissionBatch batch = new SubmissionBatch(batchId, submissionBatchObjectKey);
 
-        // 2. Call the process error batch, to create an inditivual batch for each submission
+        // 2. Call the process error batch, to split the batch into error batches
         submissionFailureService.processFailedBatch(batch);
 
-        // 3. Because we'll treat each submission as an individual batch, we expect to find 3 subfolders for the path.
+        // 3. Because the failed batch is split in half, we expect to find 2 subfolders for the path.
         String errorPath = String.format(
                 "pre-submission-batching/errors/%s/%s/%s/", APPLICATION_ID, batchControlYear, batch.batchId());
         List<String> errorFolders = fakeSynchronousDocumentStorageService.getSubFolders(errorPath);
 
-        Assertions.assertEquals(3, errorFolders.size());
+        Assertions.assertEquals(2, errorFolders.size());
 
         // 4. Call ErrorBatchPoller.poll() twice.
         errorBatchPoller.poll();
         errorBatchPoller.poll();
 
-        // 5. Expect 3 actions were put onto the queue, even though we called poll twice because they were already in
+        // 5. Expect 2 actions were put onto the queue, even though we called poll twice because they were already in
         // progress
-        Assertions.assertEquals(3, actions.getNewActions().size());
-        Assertions.assertEquals(3, inProgresssBatches.size());
+        Assertions.assertEquals(2, actions.getNewActions().size());
+        Assertions.assertEquals(2, inProgresssBatches.size());
     }
 
     private void addFakeSubmission(String batchObjectKey, String submissionId) {
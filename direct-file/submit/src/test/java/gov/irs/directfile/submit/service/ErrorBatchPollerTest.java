@@ -16,6 +16,7 @@ import gov.irs.directfile.submit.domain.ActionQueue;
 import gov.irs.directfile.submit.domain.SubmissionBatch;
 import gov.irs.directfile.submit.domain.storagelocations.StorageLocationBuilder;
 import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.InMemoryBatchIndex;
 import gov.irs.directfile.submit.mocks.MutableTestClock;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +28,7 @@ public class ErrorBatchPollerTest {
     private final Set<SubmissionBatch> inProgresssBatches = new HashSet<>();
     private final FakeSynchronousDocumentStorageService fakeDocumentStoreService =
             new FakeSynchronousDocumentStorageService();
+    private final InMemoryBatchIndex batchIndex = new InMemoryBatchIndex(testClock);
 
     private ErrorBatchPoller errorBatchPoller;
 
@@ -76,7 +78,7 @@ public class ErrorBatchPollerTest {
     @BeforeEach
     public void setup() {
         errorBatchPoller = new ErrorBatchPoller(
-                actions, fakeDocumentStoreService, APPLICATION_ID, inProgresssBatches, context, testClock);
+                actions, batchIndex, APPLICATION_ID, inProgresssBatches, context, testClock);
     }
 
     @AfterEach
@@ -137,5 +139,12 @@ public class ErrorBatchPollerTest {
         fakeDocumentStoreService.write(errorBatchPath + "/" + "submission.xml", "submission xml");
         fakeDocumentStoreService.write(errorBatchPath + "/" + "manifest.xml", "manifest xml");
         fakeDocumentStoreService.write(errorBatchPath + "/" + "userContext.json", "user context json");
+        batchIndex.recordSubmission(
+                APPLICATION_ID,
+                batchControlYear,
+                new SubmissionBatch(
+                        submissionNumber, errorPath + submissionBatch.batchId() + "/" + submissionNumber + "/"),
+                submissionId,
+                true);
     }
 }
@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,6 +19,8 @@ import gov.irs.mef.inputcomposition.SubmissionXML;
 
 import gov.irs.directfile.audit.events.TinType;
 import gov.irs.directfile.submit.BatchingProperties;
+import gov.irs.directfile.submit.MefSessionProperties;
+import gov.irs.directfile.submit.PipelineProperties;
 import gov.irs.directfile.submit.Runner;
 import gov.irs.directfile.submit.actions.ActionContext;
 import gov.irs.directfile.submit.actions.BundleArchivesActionHandler;
@@ -31,6 +34,7 @@ import gov.irs.directfile.submit.config.Config;
 import gov.irs.directfile.submit.config.DirectoriesConfig;
 import gov.irs.directfile.submit.domain.*;
 import gov.irs.directfile.submit.mocks.FakeSynchronousDocumentStorageService;
+import gov.irs.directfile.submit.mocks.InMemoryBatchIndex;
 import gov.irs.directfile.submit.mocks.MutableTestClock;
 import gov.irs.directfile.submit.mocks.ThrowingBundleSubmissionActionHandler;
 import gov.irs.directfile.submit.repository.DocumentStorageBatchRepository;
@@ -73,6 +77,7 @@ public class ErrorHandlingIntegrationTest {
     private FakeSynchronousDocumentStorageService documentStorageService;
     private IBundleSubmissionActionHandler bundleSubmissionService;
     private DocumentStorageBatchRepository documentStorageBatchRepository;
+    private InMemoryBatchIndex batchIndex;
 
     private final Config config = createConfig();
     private ErrorBatchPoller subject;
@@ -95,8 +100,9 @@ public class ErrorHandlingIntegrationTest {
         sharedClock = new MutableTestClock(instant, ZoneId.of("UTC"));
 
         documentStorageService = new FakeSynchronousDocumentStorageService(sharedClock);
-        submissionFailureService =
-                new DocumentStorageSubmissionFailureService(documentStorageService, APPLICATION_ID, sharedClock);
+        batchIndex = new InMemoryBatchIndex(sharedClock);
+        submissionFailureService = new DocumentStorageSubmissionFailureService(
+                documentStorageService, batchIndex, APPLICATION_ID, sharedClock);
         bundleSubmissionService = new ThrowingBundleSubmissionActionHandler();
 
         // 2. Initialize ErrorBatchPoller, and ActionHandler
@@ -104,26 +110,32 @@ public class ErrorHandlingIntegrationTest {
         ActionContext actionContext = new ActionContext(config);
         documentStorageBatchRepository = new DocumentStorageBatchRepository(
                 documentStorageService,
+                batchIndex,
                 APPLICATION_ID,
                 BatchingProperties.builder().build(),
                 sharedClock);
-        subject = new ErrorBatchPoller(
-                actions, documentStorageService, APPLICATION_ID, inProgressBatches, context, sharedClock);
+        subject = new ErrorBatchPoller(actions, batchIndex, APPLICATION_ID, inProgressBatches, context, sharedClock);
         offlineMode = new OfflineModeService();
         actionHandler = new ActionHandler(
                 sqsConnectionSetupService,
                 submissionConfirmationMessageService,
                 actions,
                 actionContext,
-                bundleSubmissionService,
+                new MefSessionManager(
+                        bundleSubmissionService,
+                        new MefSessionProperties(true, 600_000, 120_000),
+                        new SimpleMeterRegistry(),
+                        sharedClock),
                 offlineMode,
                 inProgressBatches,
                 new BundleArchivesActionHandler(actionContext),
                 new CleanupActionHandler(actionContext, documentStorageService),
-                new CreateArchiveActionHandler(actionContext, documentStorageService),
-                new DocumentStorageSubmissionFailureService(documentStorageService, APPLICATION_ID, sharedClock),
-                podIdentifierRepository);
-        runner = new Runner(actions, actionHandler, offlineMode);
+                new CreateArchiveActionHandler(actionContext, documentStorageService, batchIndex, 4),
+                submissionFailureService,
+                podIdentifierRepository,
+                batchIndex,
+                new SimpleMeterRegistry());
+        runner = new Runner(actions, actionHandler, offlineMode, PipelineProperties.singleWorkerPerStage());
     }
 
     @AfterEach
@@ -209,9 +221,9 @@ public class ErrorHandlingIntegrationTest {
         // 6. Validate that files exist in the DocumentStore to process. There were 2 submissions in the batch, so we
         // should now 2 batches.
         List<DocumentStoreResource> submisson0Files = documentStorageService.getObjectKeys(
-                String.format("pre-submission-batching/errors/application-id/%s/100/0/ABC123/", batchControlYear));
+                String.format("pre-submission-batching/errors/application-id/%s/100/2/ABC123/", batchControlYear));
         List<DocumentStoreResource> submission1Files = documentStorageService.getObjectKeys(
-                String.format("pre-submission-batching/errors/application-id/%s/100/1/XYZ789/", batchControlYear));
+                String.format("pre-submission-batching/errors/application-id/%s/100/3/XYZ789/", batchControlYear));
         /* Also validate each submission has 4 files associated with it. They are submission.xml, manifest.xml, userContext.json, factgraph.json */
         assertEquals(3, submisson0Files.size());
         assertEquals(3, submission1Files.size());
@@ -0,0 +1,169 @@
+package gov.irs.directfile.submit.service;
+
+import java.time.Duration;
+import java.util.List;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import gov.irs.directfile.submit.MefSessionProperties;
+import gov.irs.directfile.submit.actions.exception.SubmissionFailureException;
+import gov.irs.directfile.submit.actions.results.BundleArchivesActionResult;
+import gov.irs.directfile.submit.command.SubmitBundleAction;
+import gov.irs.directfile.submit.domain.BundledArchives;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.exception.LogoutFailureException;
+import gov.irs.directfile.submit.mocks.MutableTestClock;
+import gov.irs.directfile.submit.service.interfaces.IBundleSubmissionActionHandler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MefSessionManagerTest {
+    private static final MefSessionProperties REUSE_SESSION = new MefSessionProperties(
+            true, Duration.ofMinutes(10).toMillis(), Duration.ofMinutes(2).toMillis());
+
+    @Mock
+    private IBundleSubmissionActionHandler bundleSubmissionService;
+
+    private final MutableTestClock clock = new MutableTestClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SubmissionBatch batch = new SubmissionBatch(0L, "batches/0");
+    private final SubmitBundleAction action =
+            new SubmitBundleAction(new BundleArchivesActionResult(batch, new BundledArchives(List.of(), null)));
+
+    private MefSessionManager mefSessionManager;
+
+    @BeforeEach
+    public void setup() {
+        mefSessionManager = new MefSessionManager(bundleSubmissionService, REUSE_SESSION, meterRegistry, clock);
+    }
+
+    @Test
+    public void itReusesTheSessionForConsecutiveBundles() throws Exception {
+        mefSessionManager.submit(action);
+        mefSessionManager.submit(action);
+        mefSessionManager.submit(action);
+
+        verify(bundleSubmissionService, times(1)).login();
+        verify(bundleSubmissionService, times(3)).handleCommand(action);
+        verify(bundleSubmissionService, never()).logout();
+        assertEquals(2, meterRegistry.get("submit.mef.session.reused").counter().count());
+        assertEquals(1, meterRegistry.get("submit.mef.login").timer().count());
+        assertEquals(3, meterRegistry.get("submit.mef.submit").timer().count());
+    }
+
+    @Test
+    public void itReplacesASessionOlderThanTheMaxAge() throws Exception {
+        mefSessionManager.submit(action);
+        for (int i = 0; i < 11; i++) {
+            clock.fastForward(Duration.ofMinutes(1));
+            mefSessionManager.submit(action);
+        }
+
+        verify(bundleSubmissionService, times(2)).login();
+        verify(bundleSubmissionService, times(1)).logout();
+    }
+
+    @Test
+    public void itLogsInAgainWhenTheOldSessionCannotBeLoggedOutOf() throws Exception {
+        when(bundleSubmissionService.logout()).thenThrow(new LogoutFailureException("Logout Failure"));
+
+        mefSessionManager.submit(action);
+        clock.fastForward(Duration.ofMinutes(10));
+        mefSessionManager.submit(action);
+
+        verify(bundleSubmissionService, times(2)).login();
+        verify(bundleSubmissionService, times(2)).handleCommand(action);
+    }
+
+    @Test
+    public void itClosesAnIdleSession() throws Exception {
+        mefSessionManager.submit(action);
+        clock.fastForward(Duration.ofMinutes(1));
+        mefSessionManager.closeIdleSession();
+        verify(bundleSubmissionService, never()).logout();
+
+        clock.fastForward(Duration.ofMinutes(1));
+        mefSessionManager.closeIdleSession();
+        verify(bundleSubmissionService, times(1)).logout();
+
+        mefSessionManager.submit(action);
+        verify(bundleSubmissionService, times(2)).login();
+    }
+
+    @Test
+    public void itLogsInAgainAfterAFailedSubmission() throws Exception {
+        when(bundleSubmissionService.handleCommand(any()))
+                .thenThrow(new SubmissionFailureException(batch, null, new RuntimeException("Submission Failed")))
+                .thenReturn(null);
+
+        assertThrows(SubmissionFailureException.class, () -> mefSessionManager.submit(action));
+        mefSessionManager.submit(action);
+
+        verify(bundleSubmissionService, times(2)).login();
+    }
+
+    @Test
+    public void itSendsABundleThatFailedOnAReusedSessionAgainOnANewSession() throws Exception {
+        mefSessionManager.submit(action);
+        when(bundleSubmissionService.handleCommand(any()))
+                .thenThrow(new SubmissionFailureException(batch, null, new RuntimeException("Session Expired")))
+                .thenReturn(null);
+
+        mefSessionManager.submit(action);
+
+        verify(bundleSubmissionService, times(2)).login();
+        verify(bundleSubmissionService, times(3)).handleCommand(action);
+        assertEquals(
+                1, meterRegistry.get("submit.mef.session.retried").counter().count());
+
+        // The new session is kept for the next bundle
+        mefSessionManager.submit(action);
+        verify(bundleSubmissionService, times(2)).login();
+    }
+
+    @Test
+    public void itPassesOnAFailureThatRepeatsOnTheNewSession() throws Exception {
+        mefSessionManager.submit(action);
+        when(bundleSubmissionService.handleCommand(any()))
+                .thenThrow(new SubmissionFailureException(batch, null, new RuntimeException("Submission Failed")));
+
+        assertThrows(SubmissionFailureException.class, () -> mefSessionManager.submit(action));
+
+        verify(bundleSubmissionService, times(2)).login();
+        verify(bundleSubmissionService, times(3)).handleCommand(action);
+        mefSessionManager.teardown();
+        verify(bundleSubmissionService, times(1)).logout();
+    }
+
+    @Test
+    public void itLogsInAndOutAroundEveryBundleWhenSessionsAreNotReused() throws Exception {
+        mefSessionManager = new MefSessionManager(
+                bundleSubmissionService, MefSessionProperties.loginPerBundle(), meterRegistry, clock);
+
+        mefSessionManager.submit(action);
+        mefSessionManager.submit(action);
+
+        verify(bundleSubmissionService, times(2)).login();
+        verify(bundleSubmissionService, times(2)).logout();
+        assertEquals(0, meterRegistry.get("submit.mef.session.reused").counter().count());
+    }
+
+    @Test
+    public void itLogsOutOfAnOpenSessionOnShutdown() throws Exception {
+        mefSessionManager.teardown();
+        verify(bundleSubmissionService, never()).logout();
+
+        mefSessionManager.submit(action);
+        mefSessionManager.teardown();
+        verify(bundleSubmissionService, times(1)).logout();
+    }
+}
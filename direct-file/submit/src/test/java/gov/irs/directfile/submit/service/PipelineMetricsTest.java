@@ -0,0 +1,52 @@
+package gov.irs.directfile.submit.service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gov.irs.directfile.submit.command.CreateArchiveAction;
+import gov.irs.directfile.submit.domain.ActionQueue;
+import gov.irs.directfile.submit.domain.SubmissionBatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PipelineMetricsTest {
+    private final ActionQueue actions = new ActionQueue();
+    private final Set<SubmissionBatch> inProgressBatches = new HashSet<>();
+    private final OfflineModeService offlineModeService = new OfflineModeService();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setup() {
+        new PipelineMetrics(actions, inProgressBatches, offlineModeService).bindTo(meterRegistry);
+    }
+
+    @Test
+    void itReportsQueuedActionsAndInProgressBatches() {
+        SubmissionBatch batch = new SubmissionBatch(0L, "env/batches/0");
+        actions.getNewActions().add(new CreateArchiveAction(batch));
+        actions.getNewActions().add(new CreateArchiveAction(batch));
+        actions.getInProgressActions().add(new CreateArchiveAction(batch));
+        inProgressBatches.add(batch);
+
+        assertEquals(2, gauge("submit.actions.queued", "new"));
+        assertEquals(1, gauge("submit.actions.queued", "in-progress"));
+        assertEquals(1, meterRegistry.get("submit.batches.in.progress").gauge().value());
+    }
+
+    @Test
+    void itReportsOfflineMode() {
+        assertEquals(0, meterRegistry.get("submit.offline.mode").gauge().value());
+
+        offlineModeService.enableOfflineMode();
+
+        assertEquals(1, meterRegistry.get("submit.offline.mode").gauge().value());
+    }
+
+    private double gauge(String name, String queue) {
+        return meterRegistry.get(name).tag("queue", queue).gauge().value();
+    }
+}
@@ -16,8 +16,9 @@ import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.services.sqs.SqsClient;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
 import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
-import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
-import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
 
 import gov.irs.directfile.models.TaxReturnIdAndSubmissionId;
 import gov.irs.directfile.models.message.MessageHeaderAttribute;
@@ -59,11 +60,11 @@ class SqsConnectionSetupServiceTest {
             throws JsonProcessingException {
         when(sqsClient.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(getQueueUrlResponse);
         when(getQueueUrlResponse.queueUrl()).thenReturn(pendingSubmissionQueueUrl);
-        SendMessageResponse mockSendMessageResponse = Mockito.mock(SendMessageResponse.class);
         SdkHttpResponse mockSdkHttpResponse = Mockito.mock(SdkHttpResponse.class);
-        when(sqsClient.sendMessage((SendMessageRequest) any())).thenReturn(mockSendMessageResponse);
-        when(mockSendMessageResponse.sdkHttpResponse()).thenReturn(mockSdkHttpResponse);
+        when(getQueueUrlResponse.sdkHttpResponse()).thenReturn(mockSdkHttpResponse);
         when(mockSdkHttpResponse.isSuccessful()).thenReturn(true);
+        when(sqsClient.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(SendMessageBatchResponse.builder().build());
 
         TaxReturnIdAndSubmissionId taxReturnIdAndSubmissionId1 =
                 new TaxReturnIdAndSubmissionId(UUID.randomUUID(), "111111");
@@ -89,14 +90,15 @@ class SqsConnectionSetupServiceTest {
         ObjectMapper mapper = new ObjectMapper();
         String jsonBody = mapper.writeValueAsString(queueMessage);
 
-        SendMessageRequest sendMessageRequest = SendMessageRequest.builder()
-                .queueUrl(pendingSubmissionQueueUrl)
-                .messageBody(jsonBody)
-                .build();
-
-        ArgumentCaptor<SendMessageRequest> argumentCaptor = ArgumentCaptor.forClass(SendMessageRequest.class);
-        verify(sqsClient, times(1)).sendMessage(argumentCaptor.capture());
-        assertEquals(sendMessageRequest, argumentCaptor.getValue());
+        // Messages are sent in batches in the background
+        ArgumentCaptor<SendMessageBatchRequest> argumentCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(sqsClient, timeout(5000).times(1)).sendMessageBatch(argumentCaptor.capture());
+        assertEquals(pendingSubmissionQueueUrl, argumentCaptor.getValue().queueUrl());
+        assertEquals(
+                List.of(jsonBody),
+                argumentCaptor.getValue().entries().stream()
+                        .map(SendMessageBatchRequestEntry::messageBody)
+                        .toList());
     }
 
     @Test
@@ -109,6 +111,6 @@ class SqsConnectionSetupServiceTest {
         sqsConnectionSetupService.sendListOfSubmissionAndTaxReturnIdsToPendingSubmissionQueue(List.of());
 
         // Verify that the message was never sent
-        verify(sqsClient, never()).sendMessage(any(SendMessageRequest.class));
+        verify(sqsClient, never()).sendMessageBatch(any(SendMessageBatchRequest.class));
     }
 }
@@ -1,7 +1,11 @@
 package gov.irs.directfile.submit.service;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,10 +14,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import software.amazon.awssdk.services.s3.model.CommonPrefix;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
 import software.amazon.encryption.s3.S3EncryptionClient;
 
 import gov.irs.directfile.submit.config.Config;
 import gov.irs.directfile.submit.config.DocumentStoreConfig;
+import gov.irs.directfile.submit.domain.DocumentStoreResource;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,13 +39,14 @@ class SynchronousS3StorageServiceTest {
 
     SynchronousS3StorageService s3StorageService;
     String bucketName = "bucketName";
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setup() {
         when(documentStoreConfig.getEnvironmentPrefix()).thenReturn("environmentPrefix");
         when(config.getDocumentStore()).thenReturn(documentStoreConfig);
 
-        s3StorageService = new SynchronousS3StorageService(s3EncryptionClient, bucketName, config);
+        s3StorageService = new SynchronousS3StorageService(s3EncryptionClient, bucketName, config, meterRegistry);
     }
 
     @Test
@@ -51,6 +59,7 @@ class SynchronousS3StorageServiceTest {
                 .isTruncated(false)
                 .commonPrefixes(List.of(commonPrefix1, commonPrefix2))
                 .build();
+        stubPaginator();
         when(s3EncryptionClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(response);
 
         List<String> result = s3StorageService.getSubFolders("objectKey");
@@ -69,6 +78,7 @@ class SynchronousS3StorageServiceTest {
 
         ListObjectsV2Response firstResponse = ListObjectsV2Response.builder()
                 .isTruncated(true)
+                .nextContinuationToken("token")
                 .commonPrefixes(List.of(commonPrefix1, commonPrefix2))
                 .build();
 
@@ -77,6 +87,7 @@ class SynchronousS3StorageServiceTest {
                 .commonPrefixes(List.of(commonPrefix3))
                 .build();
 
+        stubPaginator();
         when(s3EncryptionClient.listObjectsV2(any(ListObjectsV2Request.class)))
                 .thenReturn(firstResponse)
                 .thenReturn(secondResponse);
@@ -85,5 +96,70 @@ class SynchronousS3StorageServiceTest {
 
         assertEquals(List.of("prefix1", "prefix2", "prefix3"), result);
         verify(s3EncryptionClient, times(2)).listObjectsV2(any(ListObjectsV2Request.class));
+        assertEquals(
+                2,
+                meterRegistry
+                        .get("submit.s3.requests")
+                        .tag("operation", "listObjectsV2")
+                        .timer()
+                        .count());
+    }
+
+    @Test
+    public void getMostRecentFolderForPrefix_searchesEveryPageAndOrdersBatchesNumerically() {
+        ListObjectsV2Response firstResponse = ListObjectsV2Response.builder()
+                .isTruncated(true)
+                .nextContinuationToken("token")
+                .commonPrefixes(commonPrefixes("batches/8/", "batches/9/"))
+                .build();
+        ListObjectsV2Response secondResponse = ListObjectsV2Response.builder()
+                .isTruncated(false)
+                .commonPrefixes(commonPrefixes("batches/10/", "batches/11/"))
+                .build();
+        stubPaginator();
+        when(s3EncryptionClient.listObjectsV2(any(ListObjectsV2Request.class)))
+                .thenReturn(firstResponse)
+                .thenReturn(secondResponse);
+
+        Optional<String> result = s3StorageService.getMostRecentFolderForPrefix("batches/");
+
+        assertEquals(Optional.of("batches/11/"), result);
+    }
+
+    @Test
+    public void streamObjectKeyPages_requestsEachPageOnlyWhenItIsConsumed() {
+        ListObjectsV2Response firstResponse = ListObjectsV2Response.builder()
+                .isTruncated(true)
+                .nextContinuationToken("token")
+                .contents(s3Object("batches/0/a/manifest.xml"), s3Object("batches/0/a/submission.xml"))
+                .build();
+        stubPaginator();
+        when(s3EncryptionClient.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(firstResponse);
+
+        Optional<List<DocumentStoreResource>> firstPage =
+                s3StorageService.streamObjectKeyPages("batches/0/").findFirst();
+
+        assertEquals(2, firstPage.orElseThrow().size());
+        verify(s3EncryptionClient, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    private void stubPaginator() {
+        // A mocked client doesn't page by itself, so back its paginator with the mocked listObjectsV2
+        when(s3EncryptionClient.listObjectsV2Paginator(any(ListObjectsV2Request.class)))
+                .thenAnswer(invocation -> new ListObjectsV2Iterable(s3EncryptionClient, invocation.getArgument(0)));
+    }
+
+    private static List<CommonPrefix> commonPrefixes(String... prefixes) {
+        return Stream.of(prefixes)
+                .map(prefix -> CommonPrefix.builder().prefix(prefix).build())
+                .toList();
+    }
+
+    private static S3Object s3Object(String key) {
+        return S3Object.builder()
+                .key(key)
+                .eTag("etag")
+                .lastModified(Instant.EPOCH)
+                .build();
     }
 }
@@ -1,7 +1,11 @@
 package gov.irs.directfile.submit.service;
 
+import java.io.IOException;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,9 +17,11 @@ import gov.irs.directfile.submit.domain.UserSubmission;
 import gov.irs.directfile.submit.mocks.MutableTestClock;
 import gov.irs.directfile.submit.repository.interfaces.IBatchRepository;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UserSubmissionBatchAssemblerTest {
@@ -27,6 +33,8 @@ class UserSubmissionBatchAssemblerTest {
 
     private UserSubmissionBatchAssembler batchAssembler;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @BeforeEach
     public void setup() {
         BatchingProperties batchProperties = new BatchingProperties(3, 100);
@@ -35,7 +43,8 @@ class UserSubmissionBatchAssemblerTest {
                 batchProperties,
                 "dfsys-mef-submit-deployment-0-us-gov-east-1",
                 batchProcessor,
-                new MutableTestClock());
+                new MutableTestClock(),
+                meterRegistry);
     }
 
     @Test
@@ -51,6 +60,13 @@ class UserSubmissionBatchAssemblerTest {
         batchAssembler.onTimeout();
 
         verify(batchProcessor, times(1)).processBatch(any());
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("submit.batch.size")
+                        .tag("closed.by", "timeout")
+                        .summary()
+                        .totalAmount());
     }
 
     @Test
@@ -69,6 +85,73 @@ class UserSubmissionBatchAssemblerTest {
         addSubmission();
 
         verify(batchProcessor, times(1)).processBatch(any());
+        assertEquals(
+                3,
+                meterRegistry
+                        .get("submit.batch.size")
+                        .tag("closed.by", "full")
+                        .summary()
+                        .totalAmount());
+    }
+
+    @Test
+    public void addSubmission_doesNotCountAFailedCopy() throws Exception {
+        doThrow(new IOException("S3 is unavailable"))
+                .doNothing()
+                .when(batchRepository)
+                .addSubmission(any(), any());
+
+        // The failed copy gives its slot back, so it takes 3 more submissions to fill the batch
+        assertThrows(IOException.class, this::addSubmission);
+        addSubmission();
+        addSubmission();
+        verify(batchProcessor, never()).processBatch(any());
+        addSubmission();
+
+        verify(batchProcessor, times(1)).processBatch(any());
+        assertEquals(
+                3,
+                meterRegistry
+                        .get("submit.batch.size")
+                        .tag("closed.by", "full")
+                        .summary()
+                        .totalAmount());
+    }
+
+    @Test
+    public void onTimeout_doesNotSubmitABatchWhoseCopiesFailed() throws Exception {
+        doThrow(new IOException("S3 is unavailable")).when(batchRepository).addSubmission(any(), any());
+
+        assertThrows(IOException.class, this::addSubmission);
+        batchAssembler.onTimeout();
+
+        verify(batchProcessor, never()).processBatch(any());
+    }
+
+    @Test
+    public void onTimeout_waitsForSubmissionsStillBeingCopied() throws Exception {
+        CountDownLatch copyStarted = new CountDownLatch(1);
+        CountDownLatch copyFinished = new CountDownLatch(1);
+        doAnswer(invocation -> {
+                    copyStarted.countDown();
+                    return copyFinished.await(5, TimeUnit.SECONDS);
+                })
+                .when(batchRepository)
+                .addSubmission(any(), any());
+
+        Thread.ofVirtual().start(() -> {
+            try {
+                addSubmission();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(copyStarted.await(5, TimeUnit.SECONDS));
+        Thread.ofVirtual().start(batchAssembler::onTimeout);
+
+        verify(batchProcessor, after(200).never()).processBatch(any());
+        copyFinished.countDown();
+        verify(batchProcessor, timeout(5000)).processBatch(any());
     }
 
     private void addSubmission() throws Exception {
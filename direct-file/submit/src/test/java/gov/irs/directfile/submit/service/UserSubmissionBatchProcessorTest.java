@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import gov.irs.directfile.submit.command.ActionType;
 import gov.irs.directfile.submit.domain.ActionQueue;
 import gov.irs.directfile.submit.domain.SubmissionBatch;
+import gov.irs.directfile.submit.repository.interfaces.IBatchIndex;
 import gov.irs.directfile.submit.repository.interfaces.IBatchRepository;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,6 +25,7 @@ public class UserSubmissionBatchProcessorTest {
     UserSubmissionBatchProcessor subject;
 
     IBatchRepository batchRepository = mock(IBatchRepository.class);
+    IBatchIndex batchIndex = mock(IBatchIndex.class);
 
     OfflineModeService offlineModeService = new OfflineModeService();
 
@@ -32,7 +34,7 @@ public class UserSubmissionBatchProcessorTest {
         actionQueue = new ActionQueue();
         inProgressBatches = new HashSet<>();
         subject = new UserSubmissionBatchProcessor(
-                actionQueue, batchRepository, APPLICATION_ID, offlineModeService, inProgressBatches);
+                actionQueue, batchRepository, batchIndex, APPLICATION_ID, offlineModeService, inProgressBatches);
     }
 
     @Test